@@ -0,0 +1,113 @@
+package com.modularmedia.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.modularmedia.audio.CrossfadeMixer;
+import com.modularmedia.audio.GainCurve;
+import com.modularmedia.audio.PcmFormat;
+import com.modularmedia.audio.PcmSource;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+
+/**
+ * Cost of mixing one 1024-frame stereo chunk at 48 kHz: two-second items
+ * crossfading into each other, with and without an overlay bed, from sources at
+ * the output rate or at 44.1 kHz (resampled).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dmodularmedia.log.level=OFF")
+public class CrossfadeMixerBenchmark {
+    private static final int CHUNK_FRAMES = 1024;
+
+    @Param({"48000", "44100"})
+    public int sourceRate;
+
+    @Param({"false", "true"})
+    public boolean overlay;
+
+    private CrossfadeMixer mixer;
+    private float[] chunk;
+    private long enqueued;
+
+    @Setup
+    public void setup() {
+        EventLog.setLevel(LogLevel.OFF);
+        mixer = new CrossfadeMixer(new PcmFormat(48000, 2), 0.5, GainCurve.EQUAL_POWER);
+        chunk = new float[CHUNK_FRAMES * 2];
+        if (overlay) {
+            mixer.overlay(new Tone(sourceRate, 1, 220, Long.MAX_VALUE), 0.5f, 0.3f, 0.2);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mixer.close();
+    }
+
+    @Benchmark
+    public float[] mixChunk() {
+        // Keep two items queued so every chunk is program audio, including the crossfades
+        while (enqueued - mixer.getItemsStarted() < 2) {
+            mixer.enqueue(new Tone(sourceRate, 2, 440, sourceRate * 2L));
+            enqueued++;
+        }
+        mixer.read(chunk, 0, CHUNK_FRAMES);
+        return chunk;
+    }
+
+    /**
+     * Sine tone of a fixed length, standing in for decoder output
+     */
+    static final class Tone implements PcmSource {
+        private final PcmFormat format;
+        private final double step;
+        private long remaining;
+        private double phase;
+
+        Tone(int sampleRate, int channels, double hz, long frames) {
+            this.format = new PcmFormat(sampleRate, channels);
+            this.step = 2 * Math.PI * hz / sampleRate;
+            this.remaining = frames;
+        }
+
+        @Override
+        public PcmFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int frames) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int count = (int) Math.min(frames, remaining);
+            int channels = format.getChannels();
+            for (int i = 0; i < count; i++) {
+                float sample = (float) (0.5 * Math.sin(phase));
+                phase += step;
+                for (int c = 0; c < channels; c++) {
+                    buffer[offset + i * channels + c] = sample;
+                }
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.modularmedia.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.modularmedia.core.Media;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.plugins.EqualizerDecorator;
+import com.modularmedia.plugins.PluginManager;
+import com.modularmedia.plugins.SubtitleDecorator;
+import com.modularmedia.plugins.WatermarkDecorator;
+
+/**
+ * Cost of building decorator chains with {@link PluginManager#applyDecorators} and of
+ * dispatching {@code play()} through an already built chain of the given depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dmodularmedia.log.level=OFF")
+public class DecoratorChainBenchmark {
+    @Param({"1", "3", "8"})
+    public int depth;
+
+    private PluginManager pluginManager;
+    private Function<Media, Media> snapshot;
+    private Media base;
+    private Media chain;
+
+    @Setup
+    public void setup() {
+        EventLog.setLevel(LogLevel.OFF);
+        pluginManager = new PluginManager();
+        for (int i = 0; i < depth; i++) {
+            switch (i % 3) {
+                case 0:
+                    pluginManager.registerDecorator(m -> new WatermarkDecorator(m, "bench"));
+                    break;
+                case 1:
+                    pluginManager.registerDecorator(m -> new SubtitleDecorator(m, "bench.srt"));
+                    break;
+                default:
+                    pluginManager.registerDecorator(m -> new EqualizerDecorator(m, "Vocal"));
+                    break;
+            }
+        }
+        snapshot = pluginManager.snapshot();
+        base = new PlaylistTraversalBenchmark.CountingMedia();
+        chain = pluginManager.applyDecorators(base);
+    }
+
+    @Benchmark
+    public Media applyDecorators() {
+        return pluginManager.applyDecorators(base);
+    }
+
+    @Benchmark
+    public Media applySnapshot() {
+        return snapshot.apply(base);
+    }
+
+    @Benchmark
+    public Media chainedPlay() {
+        chain.play();
+        return chain;
+    }
+}
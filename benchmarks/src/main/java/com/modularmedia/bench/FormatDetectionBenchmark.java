@@ -0,0 +1,95 @@
+package com.modularmedia.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.sources.LocalFileAdapter;
+
+/**
+ * {@link LocalFileAdapter} container detection (sniffing the magic bytes) over a
+ * library of real files whose extensions do not always match their container.
+ * Reported per file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dmodularmedia.log.level=OFF")
+public class FormatDetectionBenchmark {
+    private static final int FILES = 1_000;
+    private static final String[] EXTENSIONS = {".mp4", ".mkv", ".avi", ".mov", ".webm", ".ts"};
+    private static final byte[][] HEADERS = {
+            header("\0\0\0\u0018ftypisom\0\0\0\0isom"),
+            header("\u001AE\u00DF\u00A3\u0093B\u0082\u0088matroska"),
+            header("RIFF\0\0\0\0AVI LIST"),
+            header("\0\0\0\u0014ftypqt  \0\0\0\0"),
+            header("\u001AE\u00DF\u00A3\u0093B\u0082\u0084webm"),
+            header("G@\u0000\u0010"),
+    };
+
+    private Path library;
+    private String[] paths;
+
+    @Setup
+    public void setup() throws IOException {
+        EventLog.setLevel(LogLevel.OFF);
+        library = Files.createTempDirectory("format-detection");
+        paths = new String[FILES];
+        for (int i = 0; i < FILES; i++) {
+            // Every seventh file has the wrong extension for its container
+            byte[] content = Arrays.copyOf(HEADERS[(i + (i % 7 == 0 ? 1 : 0)) % HEADERS.length], 64);
+            Path file = library.resolve("episode-" + i + EXTENSIONS[i % EXTENSIONS.length]);
+            Files.write(file, content);
+            paths[i] = file.toString();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(library)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILES)
+    public void detectFormats(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(new LocalFileAdapter(path).getFileFormat());
+        }
+    }
+
+    private static byte[] header(String bytes) {
+        return bytes.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.modularmedia.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.modularmedia.core.Media;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.playlist.Playlist;
+
+/**
+ * Composite traversal cost of {@link Playlist} for a flat list and a deeply nested tree
+ * holding the same number of leaves. Leaves only count their plays, so the numbers
+ * are the cost of the playlist itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dmodularmedia.log.level=OFF")
+public class PlaylistTraversalBenchmark {
+    private static final int LEAVES_PER_LEVEL = 4;
+
+    @Param({"FLAT", "NESTED"})
+    public String shape;
+
+    @Param({"1024"})
+    public int leaves;
+
+    private Playlist playlist;
+    private CountingMedia[] media;
+
+    @Setup
+    public void setup() {
+        EventLog.setLevel(LogLevel.OFF);
+        media = new CountingMedia[leaves];
+        for (int i = 0; i < leaves; i++) {
+            media[i] = new CountingMedia();
+        }
+        playlist = "FLAT".equals(shape) ? buildFlat() : buildNested();
+    }
+
+    @Benchmark
+    public Playlist play() {
+        playlist.play();
+        return playlist;
+    }
+
+    @Benchmark
+    public List<Media> leafItems() {
+        return playlist.getLeafItems();
+    }
+
+    private Playlist buildFlat() {
+        Playlist root = new Playlist("flat");
+        for (CountingMedia m : media) {
+            root.add(m);
+        }
+        return root;
+    }
+
+    private Playlist buildNested() {
+        Playlist root = new Playlist("level-0");
+        Playlist current = root;
+        int level = 0;
+        for (int i = 0; i < leaves; i++) {
+            current.add(media[i]);
+            if ((i + 1) % LEAVES_PER_LEVEL == 0 && i + 1 < leaves) {
+                Playlist child = new Playlist("level-" + (++level));
+                current.add(child);
+                current = child;
+            }
+        }
+        return root;
+    }
+
+    static final class CountingMedia implements Media {
+        private long plays;
+
+        @Override
+        public void play() {
+            plays++;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.modularmedia.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.proxy.RemoteProxy;
+import com.modularmedia.sources.RemoteAPIAdapter;
+
+/**
+ * Cache-hit path of one shared {@link RemoteProxy}, uncontended and with
+ * several threads hitting it at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dmodularmedia.log.level=OFF")
+public class RemoteProxyBenchmark {
+    private RemoteProxy proxy;
+
+    @Setup
+    public void setup() {
+        EventLog.setLevel(LogLevel.OFF);
+        proxy = new RemoteProxy(new RemoteAPIAdapter("https://api.example.com/media?id=bench"));
+        proxy.load();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean hitUncontended() {
+        proxy.load();
+        return proxy.isCached();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean hitContended() {
+        proxy.load();
+        return proxy.isCached();
+    }
+}
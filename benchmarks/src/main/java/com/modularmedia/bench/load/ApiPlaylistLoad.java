@@ -0,0 +1,61 @@
+package com.modularmedia.bench.load;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.modularmedia.core.PlayerFacade;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.playlist.MediaItem;
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.renderers.SoftwareRenderer;
+import com.modularmedia.sources.RemoteAPIAdapter;
+import com.modularmedia.sources.api.ApiClient;
+
+/**
+ * Opens and plays playlists of API-backed items against a loopback API stand-in
+ * and reports what it cost: wall time, HTTP requests, batched calls, token
+ * fetches and connections.
+ *
+ * Options (all {@code --name=value}): items, rounds (playlists opened one after
+ * another), latency-ms, token-ttl-ms (short lifetimes exercise proactive renewal), verbose.
+ */
+public class ApiPlaylistLoad {
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq < 0 ? arg.length() : eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        int items = Integer.parseInt(options.getOrDefault("items", "200"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        long latencyMillis = Long.parseLong(options.getOrDefault("latency-ms", "20"));
+        long tokenTtlMillis = Long.parseLong(options.getOrDefault("token-ttl-ms", "300000"));
+        EventLog.setLevel(Boolean.parseBoolean(options.get("verbose")) ? LogLevel.DEBUG : LogLevel.OFF);
+
+        try (SyntheticApiServer server = new SyntheticApiServer(latencyMillis, tokenTtlMillis)) {
+            ApiClient client = ApiClient.forHost(server.getOrigin(), "bench-key");
+            System.out.printf("API playlist: %d items x %d rounds, latency %d ms, token lifetime %d ms%n",
+                    items, rounds, latencyMillis, tokenTtlMillis);
+            for (int round = 0; round < rounds; round++) {
+                long started = System.nanoTime();
+                Playlist playlist = new Playlist("api-" + round);
+                for (int i = 0; i < items; i++) {
+                    String url = server.getOrigin() + "/media?id=" + (round * items + i);
+                    playlist.add(new MediaItem("Item " + i, new RemoteAPIAdapter(url, ApiClient.forHost(URI.create(url), "bench-key"))));
+                }
+                PlayerFacade player = new PlayerFacade(new SoftwareRenderer());
+                player.load(playlist);
+                player.play();
+                System.out.printf("Round %d: %.1f ms%n", round, (System.nanoTime() - started) / 1e6);
+                if (round < rounds - 1 && tokenTtlMillis < 5000) {
+                    Thread.sleep(tokenTtlMillis);
+                }
+            }
+            System.out.printf("HTTP requests %d, batched calls %d, token fetches %d, rejected %d, connections %d%n",
+                    client.getRequestCount(), client.getBatchCount(), server.getTokenRequests(),
+                    server.getRejected(), server.getConnections());
+        }
+    }
+}
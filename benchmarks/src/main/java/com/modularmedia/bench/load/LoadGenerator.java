@@ -0,0 +1,219 @@
+package com.modularmedia.bench.load;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.core.PlayerFacade;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.metrics.LatencyHistogram;
+import com.modularmedia.playlist.MediaItem;
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.proxy.RemoteProxy;
+import com.modularmedia.renderers.SoftwareRenderer;
+import com.modularmedia.sources.HLSStreamAdapter;
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.HedgingSegmentFetcher;
+import com.modularmedia.sources.hls.HttpSegmentFetcher;
+import com.modularmedia.sources.hls.KeyCache;
+import com.modularmedia.sources.hls.SegmentFetcher;
+
+/**
+ * End-to-end load driver: N concurrent viewers against a loopback HLS origin.
+ *
+ * Each viewer builds its own {@link PlayerFacade} over a {@link RemoteProxy}-wrapped
+ * {@link HLSStreamAdapter} and plays the whole stream on its own (virtual where
+ * available) thread. All viewers share one HTTP client, key cache and buffer pool. The report gives
+ * time-to-first-segment, rebuffer ratio and per-viewer throughput percentiles.
+ *
+ * Options (all {@code --name=value}): viewers, segments, segment-seconds, segment-kb,
+ * latency-ms, jitter-ms, bandwidth-kbps (per response, 0 = unshaped), encrypted (AES-128 segments),
+ * mirrors (number of redundant origins), straggler-rate and straggler-ms (fraction of segment
+ * responses held back, per origin), hedge (hedged fetching across mirrors), verbose.
+ */
+public class LoadGenerator {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int viewers = Integer.parseInt(options.getOrDefault("viewers", "200"));
+        int segments = Integer.parseInt(options.getOrDefault("segments", "10"));
+        double segmentSeconds = Double.parseDouble(options.getOrDefault("segment-seconds", "2"));
+        int segmentBytes = Integer.parseInt(options.getOrDefault("segment-kb", "256")) * 1024;
+        long latencyMillis = Long.parseLong(options.getOrDefault("latency-ms", "20"));
+        long jitterMillis = Long.parseLong(options.getOrDefault("jitter-ms", "10"));
+        long bytesPerSecond = Long.parseLong(options.getOrDefault("bandwidth-kbps", "0")) * 1000 / 8;
+        boolean encrypted = Boolean.parseBoolean(options.get("encrypted"));
+        int mirrorCount = Integer.parseInt(options.getOrDefault("mirrors", "1"));
+        double stragglerRate = Double.parseDouble(options.getOrDefault("straggler-rate", "0"));
+        long stragglerMillis = Long.parseLong(options.getOrDefault("straggler-ms", "500"));
+        boolean hedge = Boolean.parseBoolean(options.get("hedge"));
+        EventLog.setLevel(Boolean.parseBoolean(options.get("verbose")) ? LogLevel.DEBUG : LogLevel.OFF);
+
+        System.out.printf("Load: %d viewers x %d %ssegments (%.1fs, %d KB), latency %d+%d ms, bandwidth %s, %s threads%n",
+                viewers, segments, encrypted ? "AES-128 " : "", segmentSeconds, segmentBytes / 1024, latencyMillis,
+                jitterMillis, bytesPerSecond == 0 ? "unshaped" : (bytesPerSecond * 8 / 1000) + " kbps",
+                LightweightThreads.isVirtual() ? "virtual" : "platform");
+        if (mirrorCount > 1 || stragglerRate > 0) {
+            System.out.printf("Origins: %d, stragglers %.1f%% +%d ms, hedging %s%n",
+                    mirrorCount, stragglerRate * 100, stragglerMillis, hedge ? "on" : "off");
+        }
+
+        List<SyntheticHlsServer> servers = new ArrayList<>();
+        try {
+            List<URI> origins = new ArrayList<>();
+            for (int i = 0; i < mirrorCount; i++) {
+                SyntheticHlsServer server = new SyntheticHlsServer(segments, segmentSeconds, segmentBytes,
+                        latencyMillis, jitterMillis, bytesPerSecond, encrypted);
+                server.setStragglers(stragglerRate, stragglerMillis);
+                servers.add(server);
+                origins.add(server.getOrigin());
+            }
+            if (mirrorCount > 1) {
+                servers.get(0).setMirrorOrigins(origins);
+            }
+            HttpSegmentFetcher http = new HttpSegmentFetcher();
+            HedgingSegmentFetcher hedging = hedge ? new HedgingSegmentFetcher(http) : null;
+            TimedFetcher fetcher = new TimedFetcher(hedge ? hedging : http);
+            KeyCache keyCache = new KeyCache(fetcher);
+            String masterUrl = servers.get(0).getMasterPlaylistUri().toString();
+            // One untimed viewer first, so class loading and JIT warm-up stay out of the numbers
+            runViewer("warmup", masterUrl, fetcher, keyCache, new ViewerStats(System.nanoTime()));
+            fetcher.latency.reset();
+
+            ExecutorService executor = LightweightThreads.newPerTaskExecutor("viewer");
+            List<ViewerStats> stats = new ArrayList<>();
+            List<Future<?>> futures = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int i = 0; i < viewers; i++) {
+                String viewerId = "viewer-" + i;
+                futures.add(executor.submit(() -> {
+                    ViewerStats viewer = new ViewerStats(System.nanoTime());
+                    synchronized (stats) {
+                        stats.add(viewer);
+                    }
+                    try {
+                        runViewer(viewerId, masterUrl, fetcher, keyCache, viewer);
+                    } catch (RuntimeException e) {
+                        viewer.fail(e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - started;
+            executor.shutdown();
+            report(stats, elapsed);
+            printRow("Segment fetch latency (ms)", fetcher.latency, 1e6);
+            if (hedging != null) {
+                System.out.printf("Hedges sent %d, won %d, failovers %d, hedge delay %.1f ms%n",
+                        hedging.getHedgesSent(), hedging.getHedgesWon(), hedging.getFailovers(),
+                        hedging.getHedgeDelayNanos() / 1e6);
+            }
+        } finally {
+            servers.forEach(SyntheticHlsServer::close);
+        }
+    }
+
+    private static void runViewer(String viewerId, String masterUrl, SegmentFetcher fetcher, KeyCache keyCache,
+                                  ViewerStats viewer) {
+        HLSStreamAdapter stream = new HLSStreamAdapter(masterUrl, fetcher, keyCache, DirectBufferPool.shared());
+        stream.setSegmentListener(viewer);
+        Playlist playlist = new Playlist(viewerId);
+        playlist.add(new MediaItem("Synthetic stream", new RemoteProxy(stream)));
+        PlayerFacade player = new PlayerFacade(new SoftwareRenderer());
+        player.load(playlist);
+        player.play();
+    }
+
+    private static void report(List<ViewerStats> stats, long elapsedNanos) {
+        LatencyHistogram timeToFirstSegment = new LatencyHistogram();
+        LatencyHistogram rebufferPpm = new LatencyHistogram();
+        LatencyHistogram throughput = new LatencyHistogram();
+        long totalBytes = 0;
+        int failed = 0;
+        for (ViewerStats viewer : stats) {
+            if (viewer.isFailed()) {
+                failed++;
+                if (failed == 1 && viewer.getFailure() != null) {
+                    System.out.println("First failure: " + viewer.getFailure());
+                }
+                continue;
+            }
+            timeToFirstSegment.record(viewer.getTimeToFirstSegmentNanos());
+            rebufferPpm.record((long) (viewer.getRebufferRatio() * 1_000_000));
+            throughput.record((long) viewer.getThroughputBytesPerSecond());
+            totalBytes += viewer.getBytes();
+        }
+
+        System.out.printf("Completed %d viewers (%d failed) in %.2f s, aggregate %.1f Mbit/s%n",
+                stats.size() - failed, failed, elapsedNanos / 1e9, totalBytes * 8 / 1e6 / (elapsedNanos / 1e9));
+        System.out.printf("%-32s %10s %10s %10s %10s %10s%n", "", "p50", "p90", "p99", "p99.9", "max");
+        printRow("Time to first segment (ms)", timeToFirstSegment, 1e6);
+        printRow("Rebuffer ratio (%)", rebufferPpm, 1e4);
+        printRow("Viewer throughput (Mbit/s)", throughput, 1e6 / 8);
+    }
+
+    private static void printRow(String label, LatencyHistogram histogram, double divisor) {
+        StringBuilder row = new StringBuilder(String.format("%-32s", label));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format(" %10.2f", histogram.getValueAtPercentile(percentile) / divisor));
+        }
+        System.out.println(row);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Records the end-to-end latency of every segment fetch (pooled fetches only,
+     * so playlist and key requests stay out of the numbers)
+     */
+    private static final class TimedFetcher implements SegmentFetcher {
+        private final SegmentFetcher delegate;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        TimedFetcher(SegmentFetcher delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<ByteBuffer> fetch(URI uri) {
+            return delegate.fetch(uri);
+        }
+
+        @Override
+        public CompletableFuture<ByteBuffer> fetch(URI uri, DirectBufferPool pool) {
+            long start = System.nanoTime();
+            return delegate.fetch(uri, pool).whenComplete((body, error) -> latency.record(System.nanoTime() - start));
+        }
+
+        @Override
+        public void addMirrors(Collection<URI> origins) {
+            delegate.addMirrors(origins);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.modularmedia.bench.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.core.PlayerFacade;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.logging.LogLevel;
+import com.modularmedia.playlist.MediaItem;
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.proxy.RemoteProxy;
+import com.modularmedia.proxy.peer.PeerCluster;
+import com.modularmedia.proxy.peer.PeerSegmentFetcher;
+import com.modularmedia.renderers.SoftwareRenderer;
+import com.modularmedia.sources.HLSStreamAdapter;
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.HttpSegmentFetcher;
+import com.modularmedia.sources.hls.KeyCache;
+import com.modularmedia.sources.hls.SegmentFetcher;
+
+/**
+ * Runs a peer cache cluster as separate processes on loopback and reports origin egress.
+ *
+ * The driver starts a synthetic HLS origin, writes a member file and launches one
+ * JVM per node, handing each the cluster secret through the environment. Once every node is listening, each plays the stream with its own
+ * viewers through a {@link PeerSegmentFetcher} (or straight from origin with
+ * {@code --peer=false}). The report compares the segments the origin served with
+ * what the same viewers cost without the tier.
+ *
+ * Options (all {@code --name=value}): nodes, viewers (per node), segments,
+ * segment-kb, latency-ms, peer, verbose.
+ */
+public class PeerCacheLoad {
+    private static final String SECRET_VARIABLE = "PEER_CACHE_SECRET";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq < 0 ? arg.length() : eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        EventLog.setLevel(Boolean.parseBoolean(options.get("verbose")) ? LogLevel.DEBUG : LogLevel.OFF);
+        if (options.containsKey("node")) {
+            runNode(options);
+        } else {
+            drive(options, args);
+        }
+    }
+
+    private static void drive(Map<String, String> options, String[] args) throws Exception {
+        int nodes = Integer.parseInt(options.getOrDefault("nodes", "4"));
+        int viewers = Integer.parseInt(options.getOrDefault("viewers", "1"));
+        int segments = Integer.parseInt(options.getOrDefault("segments", "20"));
+        int segmentBytes = Integer.parseInt(options.getOrDefault("segment-kb", "256")) * 1024;
+        long latencyMillis = Long.parseLong(options.getOrDefault("latency-ms", "20"));
+        boolean peer = Boolean.parseBoolean(options.getOrDefault("peer", "true"));
+        System.out.printf("Peer cache: %d node processes x %d viewers, %d segments (%d KB), latency %d ms, tier %s%n",
+                nodes, viewers, segments, segmentBytes / 1024, latencyMillis, peer ? "on" : "off");
+
+        Path members = Files.createTempFile("peer-members", ".txt");
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            addresses.add("127.0.0.1:" + freePort());
+        }
+        byte[] secret = new byte[24];
+        new SecureRandom().nextBytes(secret);
+        List<Process> processes = new ArrayList<>();
+        try (SyntheticHlsServer origin = new SyntheticHlsServer(segments, 2.0, segmentBytes, latencyMillis, 0, 0)) {
+            List<String> lines = new ArrayList<>(addresses);
+            lines.add("origin " + origin.getMasterPlaylistUri().resolve("/"));
+            Files.write(members, lines);
+            for (String address : addresses) {
+                ProcessBuilder builder = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", System.getProperty("java.class.path"), PeerCacheLoad.class.getName(),
+                        "--node=" + address, "--members=" + members, "--master=" + origin.getMasterPlaylistUri(),
+                        "--viewers=" + viewers, "--peer=" + peer, "--verbose=" + options.getOrDefault("verbose", "false"))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT);
+                builder.environment().put(SECRET_VARIABLE, Base64.getEncoder().encodeToString(secret));
+                processes.add(builder.start());
+            }
+            List<BufferedReader> outputs = new ArrayList<>();
+            for (Process process : processes) {
+                BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                expect(output, "READY");
+                outputs.add(output);
+            }
+            long started = System.nanoTime();
+            for (Process process : processes) {
+                send(process, "GO");
+            }
+            for (int i = 0; i < processes.size(); i++) {
+                System.out.println(addresses.get(i) + ": " + expect(outputs.get(i), "DONE").substring(5));
+            }
+            long elapsed = System.nanoTime() - started;
+            for (Process process : processes) {
+                send(process, "EXIT");
+                process.waitFor();
+            }
+            long baseline = (long) nodes * viewers * segments;
+            System.out.printf("Origin served %d segments in %.2f s; without the tier the same viewers cost %d (%.1fx reduction)%n",
+                    origin.getSegmentRequests(), elapsed / 1e9, baseline,
+                    (double) baseline / Math.max(1, origin.getSegmentRequests()));
+        } finally {
+            processes.forEach(Process::destroy);
+            Files.deleteIfExists(members);
+        }
+    }
+
+    private static void runNode(Map<String, String> options) throws Exception {
+        String self = options.get("node");
+        int viewers = Integer.parseInt(options.getOrDefault("viewers", "1"));
+        boolean peer = Boolean.parseBoolean(options.getOrDefault("peer", "true"));
+        HttpSegmentFetcher http = new HttpSegmentFetcher();
+        PeerSegmentFetcher tier = peer
+                ? new PeerSegmentFetcher(http, PeerCluster.load(Path.of(options.get("members")), self,
+                        System.getenv(SECRET_VARIABLE)))
+                : null;
+        SegmentFetcher fetcher = peer ? tier : http;
+        KeyCache keyCache = new KeyCache(fetcher);
+        BufferedReader control = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        System.out.println("READY");
+        System.out.flush();
+        expect(control, "GO");
+
+        long started = System.nanoTime();
+        ExecutorService executor = LightweightThreads.newPerTaskExecutor("viewer");
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < viewers; i++) {
+            String name = self + "-viewer-" + i;
+            futures.add(executor.submit(() -> {
+                HLSStreamAdapter stream = new HLSStreamAdapter(options.get("master"), fetcher, keyCache, DirectBufferPool.shared());
+                Playlist playlist = new Playlist(name);
+                playlist.add(new MediaItem("Synthetic stream", new RemoteProxy(stream)));
+                PlayerFacade player = new PlayerFacade(new SoftwareRenderer());
+                player.load(playlist);
+                player.play();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        System.out.printf("DONE %.2f s%s%n", (System.nanoTime() - started) / 1e9, tier == null ? ""
+                : String.format(", origin %d, from peers %d, served to peers %d, peer failures %d",
+                        tier.getOriginFetches(), tier.getPeerFetches(), tier.getServedToPeers(), tier.getPeerFailures()));
+        System.out.flush();
+        // Keep answering peers until every node is done
+        expect(control, "EXIT");
+        if (tier != null) {
+            tier.close();
+        }
+    }
+
+    private static String expect(BufferedReader input, String prefix) throws IOException {
+        String line;
+        while ((line = input.readLine()) != null) {
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        throw new IOException("Expected " + prefix + " but the stream ended");
+    }
+
+    private static void send(Process process, String line) throws IOException {
+        OutputStream in = process.getOutputStream();
+        in.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        in.flush();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            return socket.getLocalPort();
+        }
+    }
+}
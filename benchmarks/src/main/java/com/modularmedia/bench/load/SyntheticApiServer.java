@@ -0,0 +1,140 @@
+package com.modularmedia.bench.load;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.modularmedia.core.LightweightThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Loopback HTTP stand-in for the media API behind {@code RemoteAPIAdapter}.
+ *
+ * Issues bearer tokens with a configurable lifetime and answers batched metadata
+ * lookups for any numeric media ID; requests with a missing or expired token get
+ * 401. Every response is delayed by the configured latency. Counts token requests,
+ * metadata calls and distinct client connections.
+ *
+ * Layout: {@code POST /auth/token}, {@code GET /media?ids=<id>,...}
+ */
+public class SyntheticApiServer implements AutoCloseable {
+    private final long latencyMillis;
+    private final long tokenLifetimeMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong metadataRequests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public SyntheticApiServer(long latencyMillis, long tokenLifetimeMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.executor = LightweightThreads.newPerTaskExecutor("api-origin");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public URI getOrigin() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public long getMetadataRequests() {
+        return metadataRequests.get();
+    }
+
+    /**
+     * Metadata requests refused for a missing or expired token
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public int getConnections() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            connections.add(exchange.getRemoteAddress().toString());
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/auth/token") && exchange.getRequestMethod().equals("POST")) {
+                tokenRequests.incrementAndGet();
+                String token = "tok-" + tokenRequests.get();
+                tokens.put(token, System.currentTimeMillis() + tokenLifetimeMillis);
+                send(exchange, token + " " + tokenLifetimeMillis / 1000.0);
+            } else if (path.equals("/media")) {
+                metadataRequests.incrementAndGet();
+                if (!authorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    rejected.incrementAndGet();
+                    exchange.sendResponseHeaders(401, -1);
+                    return;
+                }
+                send(exchange, metadata(exchange.getRequestURI().getRawQuery()));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean authorized(String header) {
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        Long expires = tokens.get(header.substring("Bearer ".length()));
+        return expires != null && System.currentTimeMillis() < expires;
+    }
+
+    private String metadata(String query) {
+        StringBuilder text = new StringBuilder();
+        String ids = query == null || !query.startsWith("ids=") ? "" : URLDecoder.decode(query.substring(4), StandardCharsets.UTF_8);
+        for (String id : ids.split(",")) {
+            if (id.matches("\\d+")) {
+                text.append(String.format(Locale.ROOT, "%s\tTrack %s\t%.1f\t%s/stream/%s.m3u8%n",
+                        id, id, 120.0 + Integer.parseInt(id) % 180, getOrigin(), id));
+            }
+        }
+        return text.toString();
+    }
+
+    private static void send(HttpExchange exchange, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
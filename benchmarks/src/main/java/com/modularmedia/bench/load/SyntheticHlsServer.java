@@ -0,0 +1,257 @@
+package com.modularmedia.bench.load;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.modularmedia.core.LightweightThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Loopback HTTP stand-in for an HLS origin.
+ *
+ * Serves a master playlist with two variants, VOD media playlists and synthetic
+ * segments. Every response is delayed by the configured latency (plus jitter) and
+ * its body is paced to the configured per-connection bandwidth. In encrypted mode
+ * every segment is AES-128-CBC encrypted with a sequence-number IV and the media
+ * playlists point at a key served by the same origin, standing in for a key server.
+ *
+ * Payload and key come from a fixed seed, so several instances serve identical
+ * content and can act as mirror origins. A mirrored master playlist lists every
+ * variant once per origin (redundant streams), and a fraction of segment
+ * responses can be held back as stragglers to exercise hedging.
+ *
+ * Layout: {@code /master.m3u8}, {@code /v<n>/index.m3u8}, {@code /v<n>/seg<i>.ts}, {@code /key.bin}
+ */
+public class SyntheticHlsServer implements AutoCloseable {
+    private static final int CHUNK_BYTES = 16 * 1024;
+    private static final int VARIANTS = 2;
+    private static final long CONTENT_SEED = 0x5EED;
+
+    private final int segmentCount;
+    private final double segmentSeconds;
+    private final int segmentBytes;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final long bytesPerSecond;
+    private final byte[] payload;
+    private final byte[] key;
+    private final byte[][][] encryptedSegments;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile List<URI> mirrorOrigins = List.of();
+    private volatile double stragglerRate;
+    private volatile long stragglerMillis;
+    private final LongAdder segmentRequests = new LongAdder();
+
+    /**
+     * @param segmentBytes size of a top-variant segment; the low variant is half as big
+     * @param bytesPerSecond per-response bandwidth cap, or 0 for unshaped
+     */
+    public SyntheticHlsServer(int segmentCount, double segmentSeconds, int segmentBytes,
+                              long latencyMillis, long jitterMillis, long bytesPerSecond) throws IOException {
+        this(segmentCount, segmentSeconds, segmentBytes, latencyMillis, jitterMillis, bytesPerSecond, false);
+    }
+
+    public SyntheticHlsServer(int segmentCount, double segmentSeconds, int segmentBytes, long latencyMillis,
+                              long jitterMillis, long bytesPerSecond, boolean encrypted) throws IOException {
+        this.segmentCount = segmentCount;
+        this.segmentSeconds = segmentSeconds;
+        this.segmentBytes = segmentBytes;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.payload = new byte[segmentBytes];
+        Random content = new Random(CONTENT_SEED);
+        content.nextBytes(payload);
+        this.key = encrypted ? new byte[16] : null;
+        if (encrypted) {
+            content.nextBytes(key);
+        }
+        this.encryptedSegments = encrypted ? encryptAll() : null;
+        this.executor = LightweightThreads.newPerTaskExecutor("hls-origin");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public URI getMasterPlaylistUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/master.m3u8");
+    }
+
+    public double getSegmentSeconds() {
+        return segmentSeconds;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URI getOrigin() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /**
+     * List every variant once per origin in the master playlist, this one included
+     */
+    public void setMirrorOrigins(List<URI> origins) {
+        this.mirrorOrigins = List.copyOf(origins);
+    }
+
+    /**
+     * Delay the given fraction of segment responses by an extra amount
+     */
+    public void setStragglers(double rate, long extraMillis) {
+        this.stragglerRate = rate;
+        this.stragglerMillis = extraMillis;
+    }
+
+    /**
+     * Number of segment requests served so far (origin egress, in segments)
+     */
+    public long getSegmentRequests() {
+        return segmentRequests.sum();
+    }
+
+    public boolean isEncrypted() {
+        return key != null;
+    }
+
+    private byte[][][] encryptAll() {
+        byte[][][] segments = new byte[VARIANTS][segmentCount][];
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            for (int v = 0; v < VARIANTS; v++) {
+                for (int i = 0; i < segmentCount; i++) {
+                    byte[] iv = ByteBuffer.allocate(16).putLong(8, i).array();
+                    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+                    segments[v][i] = cipher.doFinal(payload, 0, variantBytes(v));
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+        return segments;
+    }
+
+    private int variantBytes(int variant) {
+        return variant == VARIANTS - 1 ? segmentBytes : segmentBytes / 2;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            delay();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/master.m3u8")) {
+                sendText(exchange, masterPlaylist());
+            } else if (path.matches("/v\\d+/index\\.m3u8")) {
+                sendText(exchange, mediaPlaylist());
+            } else if (path.matches("/v\\d+/seg\\d+\\.ts")) {
+                segmentRequests.increment();
+                straggle();
+                int variant = Integer.parseInt(path.substring(2, path.indexOf('/', 1)));
+                if (key != null) {
+                    int sequence = Integer.parseInt(path.substring(path.lastIndexOf("seg") + 3, path.length() - 3));
+                    byte[] body = encryptedSegments[variant][sequence];
+                    send(exchange, "video/mp2t", body, body.length);
+                } else {
+                    send(exchange, "video/mp2t", payload, variantBytes(variant));
+                }
+            } else if (path.equals("/key.bin") && key != null) {
+                send(exchange, "application/octet-stream", key, key.length);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String masterPlaylist() {
+        StringBuilder text = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+        List<URI> origins = mirrorOrigins.isEmpty() ? List.of(URI.create("")) : mirrorOrigins;
+        for (int v = 0; v < VARIANTS; v++) {
+            long bandwidth = (long) (variantBytes(v) * 8 / segmentSeconds);
+            for (URI origin : origins) {
+                text.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(bandwidth).append('\n');
+                text.append(origin.toString().isEmpty() ? "" : origin + "/").append("v").append(v).append("/index.m3u8\n");
+            }
+        }
+        return text.toString();
+    }
+
+    private String mediaPlaylist() {
+        StringBuilder text = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+        text.append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(segmentSeconds)).append('\n');
+        text.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        if (key != null) {
+            text.append("#EXT-X-KEY:METHOD=AES-128,URI=\"/key.bin\"\n");
+        }
+        for (int i = 0; i < segmentCount; i++) {
+            text.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", segmentSeconds));
+            text.append("seg").append(i).append(".ts\n");
+        }
+        text.append("#EXT-X-ENDLIST\n");
+        return text.toString();
+    }
+
+    private void straggle() throws InterruptedException {
+        if (stragglerRate > 0 && ThreadLocalRandom.current().nextDouble() < stragglerRate) {
+            TimeUnit.MILLISECONDS.sleep(stragglerMillis);
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis > 0) {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    }
+
+    private void sendText(HttpExchange exchange, String text) throws IOException, InterruptedException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        send(exchange, "application/vnd.apple.mpegurl", body, body.length);
+    }
+
+    private void send(HttpExchange exchange, String contentType, byte[] body, int length)
+            throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, length);
+        long started = System.nanoTime();
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int offset = 0; offset < length; offset += CHUNK_BYTES) {
+                int chunk = Math.min(CHUNK_BYTES, length - offset);
+                out.write(body, offset, chunk);
+                if (bytesPerSecond > 0) {
+                    long dueNanos = (long) ((offset + chunk) * 1e9 / bytesPerSecond);
+                    long aheadNanos = dueNanos - (System.nanoTime() - started);
+                    if (aheadNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.modularmedia.bench.load;
+
+import java.nio.ByteBuffer;
+
+import com.modularmedia.sources.hls.HlsSegment;
+import com.modularmedia.sources.hls.HlsSegmentListener;
+
+/**
+ * Playback model for one simulated viewer.
+ *
+ * Segments are fetched back to back; playback starts when the first segment
+ * arrives and then consumes media in real time. Whenever a segment arrives after
+ * the buffered media has run out, the gap counts as rebuffering.
+ */
+class ViewerStats implements HlsSegmentListener {
+    private final long startNanos;
+    private long firstSegmentNanos = -1;
+    private long lastSegmentNanos;
+    private double bufferedSeconds;
+    private long stalledNanos;
+    private long bytes;
+    private int segments;
+    private Throwable failure;
+
+    ViewerStats(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    @Override
+    public void onSegment(HlsSegment segment, ByteBuffer data) {
+        long now = System.nanoTime();
+        if (firstSegmentNanos < 0) {
+            firstSegmentNanos = now;
+        } else {
+            long mediaEndsAt = firstSegmentNanos + stalledNanos + (long) (bufferedSeconds * 1e9);
+            if (now > mediaEndsAt) {
+                stalledNanos += now - mediaEndsAt;
+            }
+        }
+        bufferedSeconds += segment.getDurationSeconds();
+        bytes += data.remaining();
+        segments++;
+        lastSegmentNanos = now;
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+    }
+
+    boolean isFailed() {
+        return failure != null || firstSegmentNanos < 0;
+    }
+
+    Throwable getFailure() {
+        return failure;
+    }
+
+    long getTimeToFirstSegmentNanos() {
+        return firstSegmentNanos - startNanos;
+    }
+
+    /**
+     * Stalled time as a fraction of the total watch time (media plus stalls)
+     */
+    double getRebufferRatio() {
+        double watchNanos = bufferedSeconds * 1e9 + stalledNanos;
+        return watchNanos == 0 ? 0 : stalledNanos / watchNanos;
+    }
+
+    /**
+     * Download throughput from first request to last segment, in bytes per second
+     */
+    double getThroughputBytesPerSecond() {
+        long elapsed = lastSegmentNanos - startNanos;
+        return elapsed <= 0 ? 0 : bytes * 1e9 / elapsed;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    int getSegments() {
+        return segments;
+    }
+}
@@ -4,6 +4,7 @@ import com.modularmedia.core.Media;
 import com.modularmedia.core.MediaSource;
 import com.modularmedia.core.PlayerFacade;
 import com.modularmedia.legacy.LegacyMediaPlayer;
+import com.modularmedia.logging.EventLog;
 import com.modularmedia.playlist.MediaItem;
 import com.modularmedia.playlist.Playlist;
 import com.modularmedia.plugins.EqualizerDecorator;
@@ -26,91 +27,91 @@ import com.modularmedia.sources.RemoteAPIAdapter;
 public class Main {
 
     public static void main(String[] args) {
-        System.out.println("================================================================");
-        System.out.println("=== MODULAR MEDIA STREAMING SUITE - EVOLUTION DEMO ===");
-        System.out.println("================================================================");
+        EventLog.info("================================================================");
+        EventLog.info("=== MODULAR MEDIA STREAMING SUITE - EVOLUTION DEMO ===");
+        EventLog.info("================================================================");
         
         // =================================================================
         // PART 1: LEGACY SYSTEM (The Problem)
         // =================================================================
         demonstrateLegacySystem();
         
-        System.out.println("\n" + "=".repeat(80));
-        System.out.println("=== EVOLUTION TO STRUCTURAL PATTERNS ===");
-        System.out.println("=".repeat(80));
+        EventLog.info("\n{}", "=".repeat(80));
+        EventLog.info("=== EVOLUTION TO STRUCTURAL PATTERNS ===");
+        EventLog.info("=".repeat(80));
         
         // =================================================================
         // PART 2: STRUCTURAL PATTERNS SOLUTION
         // =================================================================
         demonstrateStructuralPatterns();
         
-        System.out.println("\n================================================================");
-        System.out.println("=== END OF EVOLUTION DEMO ===");
-        System.out.println("================================================================");
+        EventLog.info("\n================================================================");
+        EventLog.info("=== END OF EVOLUTION DEMO ===");
+        EventLog.info("================================================================");
     }
     
     private static void demonstrateLegacySystem() {
-        System.out.println("\n[LEGACY] PART 1: LEGACY SYSTEM (The Problems)");
-        System.out.println("=".repeat(50));
+        EventLog.info("\n[LEGACY] PART 1: LEGACY SYSTEM (The Problems)");
+        EventLog.info("=".repeat(50));
         
         LegacyMediaPlayer legacyPlayer = new LegacyMediaPlayer();
         
-        System.out.println("\n[FILE] Legacy File Playback:");
+        EventLog.info("\n[FILE] Legacy File Playback:");
         legacyPlayer.playFile("videos/movie.mp4");
         
-        System.out.println("\n[STREAM] Legacy Stream Playback:");
+        EventLog.info("\n[STREAM] Legacy Stream Playback:");
         legacyPlayer.playStream("https://example.com/stream.m3u8");
         
-        System.out.println("\n[API] Legacy API Playback:");
+        EventLog.info("\n[API] Legacy API Playback:");
         legacyPlayer.playFromAPI("https://api.example.com/media?id=123");
         
-        System.out.println("\n[FEATURES] Legacy Feature Management:");
+        EventLog.info("\n[FEATURES] Legacy Feature Management:");
         legacyPlayer.enableWatermark("© Legacy Co.");
         legacyPlayer.enableSubtitles("subs.srt");
         legacyPlayer.enableEqualizer("Bass Boost");
         legacyPlayer.switchToHardwareRendering();
         
-        System.out.println("\n[PROBLEMS] LEGACY PROBLEMS DEMONSTRATED:");
-        System.out.println("  • Monolithic class handling everything");
-        System.out.println("  • Duplicated code for different media types");
-        System.out.println("  • Hard-coded feature application");
-        System.out.println("  • No plugin mechanism");
-        System.out.println("  • No caching system");
-        System.out.println("  • Tight coupling between components");
+        EventLog.info("\n[PROBLEMS] LEGACY PROBLEMS DEMONSTRATED:");
+        EventLog.info("  • Monolithic class handling everything");
+        EventLog.info("  • Duplicated code for different media types");
+        EventLog.info("  • Hard-coded feature application");
+        EventLog.info("  • No plugin mechanism");
+        EventLog.info("  • No caching system");
+        EventLog.info("  • Tight coupling between components");
     }
     
     private static void demonstrateStructuralPatterns() {
-        System.out.println("\n[PATTERNS] PART 2: STRUCTURAL PATTERNS SOLUTION");
-        System.out.println("=".repeat(50));
+        EventLog.info("\n[PATTERNS] PART 2: STRUCTURAL PATTERNS SOLUTION");
+        EventLog.info("=".repeat(50));
         
         // =================================================================
         // ADAPTER PATTERN: Unified Media Sources
         // =================================================================
-        System.out.println("\n[ADAPTER] ADAPTER PATTERN - Unified Media Sources");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[ADAPTER] ADAPTER PATTERN - Unified Media Sources");
+        EventLog.info("-".repeat(50));
         
         MediaSource localSource = new LocalFileAdapter("videos/movie.mp4");
         MediaSource remoteSource = new RemoteAPIAdapter("https://api.example.com/media?id=123");
         MediaSource hlsSource = new HLSStreamAdapter("https://cdn.example.com/playlist.m3u8");
         
-        System.out.println("[OK] All sources now implement the same MediaSource interface");
-        System.out.println("[OK] No more duplicated code for different media types");
+        EventLog.info("[OK] All sources now implement the same MediaSource interface");
+        EventLog.info("[OK] No more duplicated code for different media types");
         
         // =================================================================
         // PROXY PATTERN: Caching System
         // =================================================================
-        System.out.println("\n[PROXY] PROXY PATTERN - Caching System");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[PROXY] PROXY PATTERN - Caching System");
+        EventLog.info("-".repeat(50));
         
         MediaSource cachedRemote = new RemoteProxy(remoteSource);
-        System.out.println("[OK] Transparent caching without modifying original source");
-        System.out.println("[OK] Improved performance and reduced network traffic");
+        EventLog.info("[OK] Transparent caching without modifying original source");
+        EventLog.info("[OK] Improved performance and reduced network traffic");
         
         // =================================================================
         // COMPOSITE PATTERN: Nested Playlists
         // =================================================================
-        System.out.println("\n[COMPOSITE] COMPOSITE PATTERN - Nested Playlists");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[COMPOSITE] COMPOSITE PATTERN - Nested Playlists");
+        EventLog.info("-".repeat(50));
         
         // Create sub-playlists
         Playlist actionMovies = new Playlist("Action Movies");
@@ -123,83 +124,83 @@ public class Main {
         mainPlaylist.add(new MediaItem("Cached Remote Stream", cachedRemote));
         mainPlaylist.add(actionMovies); // Nested playlist!
         
-        System.out.println("[OK] Playlists can contain other playlists (recursive composition)");
-        System.out.println("[OK] Uniform treatment of individual items and collections");
+        EventLog.info("[OK] Playlists can contain other playlists (recursive composition)");
+        EventLog.info("[OK] Uniform treatment of individual items and collections");
         
         // =================================================================
         // STRATEGY PATTERN: Runtime Renderer Switching
         // =================================================================
-        System.out.println("\n[STRATEGY] STRATEGY PATTERN - Runtime Renderer Switching");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[STRATEGY] STRATEGY PATTERN - Runtime Renderer Switching");
+        EventLog.info("-".repeat(50));
         
         Renderer softwareRenderer = new SoftwareRenderer();
         Renderer hardwareRenderer = new HardwareRenderer();
         
-        System.out.println("[OK] Multiple rendering strategies available");
-        System.out.println("[OK] Runtime switching between hardware and software rendering");
+        EventLog.info("[OK] Multiple rendering strategies available");
+        EventLog.info("[OK] Runtime switching between hardware and software rendering");
         
         // =================================================================
         // FACADE PATTERN: Simplified Player Interface
         // =================================================================
-        System.out.println("\n[FACADE] FACADE PATTERN - Simplified Player Interface");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[FACADE] FACADE PATTERN - Simplified Player Interface");
+        EventLog.info("-".repeat(50));
         
         PlayerFacade player = new PlayerFacade(softwareRenderer);
         player.load(mainPlaylist);
         
-        System.out.println("[OK] Simplified interface to complex subsystem");
-        System.out.println("[OK] Single point of access for media playback");
+        EventLog.info("[OK] Simplified interface to complex subsystem");
+        EventLog.info("[OK] Single point of access for media playback");
         
         // =================================================================
         // DECORATOR PATTERN: Plugin System
         // =================================================================
-        System.out.println("\n[DECORATOR] DECORATOR PATTERN - Plugin System");
-        System.out.println("-".repeat(50));
+        EventLog.info("\n[DECORATOR] DECORATOR PATTERN - Plugin System");
+        EventLog.info("-".repeat(50));
         
         Media decoratedMedia = new WatermarkDecorator(player, "© Modular Media Co. 2025", "top-left");
         decoratedMedia = new SubtitleDecorator(decoratedMedia, "subs/movie_subtitles.srt", "en");
         decoratedMedia = new EqualizerDecorator(decoratedMedia, "Bass Boost");
         
-        System.out.println("[OK] Features can be added/removed at runtime");
-        System.out.println("[OK] No modification of existing classes required");
-        System.out.println("[OK] Decorators can be chained together");
+        EventLog.info("[OK] Features can be added/removed at runtime");
+        EventLog.info("[OK] No modification of existing classes required");
+        EventLog.info("[OK] Decorators can be chained together");
         
         // =================================================================
         // DEMONSTRATION: Full System in Action
         // =================================================================
-        System.out.println("\n[DEMO] FULL SYSTEM DEMONSTRATION");
-        System.out.println("=".repeat(50));
+        EventLog.info("\n[DEMO] FULL SYSTEM DEMONSTRATION");
+        EventLog.info("=".repeat(50));
         
-        System.out.println("\n[STATUS] System Status:");
-        System.out.println("  " + player.getStatus());
+        EventLog.info("\n[STATUS] System Status:");
+        EventLog.info("  {}", player.getStatus());
         
-        System.out.println("\n[PLAY] Playing with Software Renderer:");
-        System.out.println("-".repeat(30));
+        EventLog.info("\n[PLAY] Playing with Software Renderer:");
+        EventLog.info("-".repeat(30));
         decoratedMedia.play();
         
-        System.out.println("\n[SWITCH] Switching to Hardware Renderer:");
-        System.out.println("-".repeat(30));
+        EventLog.info("\n[SWITCH] Switching to Hardware Renderer:");
+        EventLog.info("-".repeat(30));
         player.setRenderer(hardwareRenderer);
         
-        System.out.println("\n[REPLAY] Replaying with Hardware Renderer:");
-        System.out.println("-".repeat(30));
+        EventLog.info("\n[REPLAY] Replaying with Hardware Renderer:");
+        EventLog.info("-".repeat(30));
         decoratedMedia.play();
         
         // =================================================================
         // BENEFITS SUMMARY
         // =================================================================
-        System.out.println("\n[BENEFITS] STRUCTURAL PATTERNS BENEFITS:");
-        System.out.println("  [ADAPTER] Adapter: Unified interface for heterogeneous sources");
-        System.out.println("  [PROXY] Proxy: Transparent caching and performance optimization");
-        System.out.println("  [COMPOSITE] Composite: Recursive composition and uniform treatment");
-        System.out.println("  [STRATEGY] Strategy: Runtime algorithm switching");
-        System.out.println("  [FACADE] Facade: Simplified complex subsystem interface");
-        System.out.println("  [DECORATOR] Decorator: Runtime feature addition without modification");
-        
-        System.out.println("\n[PRINCIPLES] DESIGN PRINCIPLES ACHIEVED:");
-        System.out.println("  • Single Responsibility Principle");
-        System.out.println("  • Open/Closed Principle");
-        System.out.println("  • Dependency Inversion Principle");
-        System.out.println("  • Interface Segregation Principle");
+        EventLog.info("\n[BENEFITS] STRUCTURAL PATTERNS BENEFITS:");
+        EventLog.info("  [ADAPTER] Adapter: Unified interface for heterogeneous sources");
+        EventLog.info("  [PROXY] Proxy: Transparent caching and performance optimization");
+        EventLog.info("  [COMPOSITE] Composite: Recursive composition and uniform treatment");
+        EventLog.info("  [STRATEGY] Strategy: Runtime algorithm switching");
+        EventLog.info("  [FACADE] Facade: Simplified complex subsystem interface");
+        EventLog.info("  [DECORATOR] Decorator: Runtime feature addition without modification");
+        
+        EventLog.info("\n[PRINCIPLES] DESIGN PRINCIPLES ACHIEVED:");
+        EventLog.info("  • Single Responsibility Principle");
+        EventLog.info("  • Open/Closed Principle");
+        EventLog.info("  • Dependency Inversion Principle");
+        EventLog.info("  • Interface Segregation Principle");
     }
 }
@@ -0,0 +1,461 @@
+package com.modularmedia.audio;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Mixing stage for radio-style channels: plays queued items back to back,
+ * crossfading the tail of each into the head of the next, and mixes overlay
+ * beds (an ad audio bed under content, a jingle) over the program while ducking it.
+ *
+ * Items and beds may use any rate and channel layout; lanes whose rate differs
+ * from the output go through a {@link PolyphaseResampler}, and channels are
+ * up- or down-mixed as frames are buffered.
+ *
+ * Each lane buffers a crossfade's worth of lookahead, which is how the mixer
+ * knows an item's tail has begun before the item ends. All buffers come from a
+ * {@link FloatBufferPool} when a lane starts and go back when it ends, so
+ * {@link #read(float[], int, int)} allocates nothing per chunk.
+ *
+ * {@link #enqueue(PcmSource)} and {@link #overlay(PcmSource, float, float, double)}
+ * may be called from any thread; reading happens on one mixing thread. Until
+ * {@link #finish()} is called an empty queue produces silence, as a live
+ * channel must keep its clock running.
+ */
+public final class CrossfadeMixer implements PcmSource, AutoCloseable {
+    private static final int MAX_OVERLAYS = 4;
+
+    private final PcmFormat format;
+    private final int channels;
+    private final int maxFrames;
+    private final int fadeFrames;
+    private final GainCurve curve;
+    private final FloatBufferPool pool;
+    private final Queue<PcmSource> items = new ConcurrentLinkedQueue<>();
+    private final Queue<Lane> pendingOverlays = new ConcurrentLinkedQueue<>();
+    private final Lane[] overlays = new Lane[MAX_OVERLAYS];
+    private float[] gains;
+    private float[] duckDepth;
+    private Lane current;
+    private Lane next;
+    private int fadeLength;
+    private int fadePosition;
+    private volatile boolean finished;
+    private volatile long itemsStarted;
+    private volatile long crossfades;
+    private volatile long overlaysStarted;
+    private volatile long silentFrames;
+
+    public CrossfadeMixer(PcmFormat format, double crossfadeSeconds, GainCurve curve) {
+        this(format, 4096, crossfadeSeconds, curve, FloatBufferPool.shared());
+    }
+
+    /**
+     * @param maxFrames largest chunk mixed in one pass; bigger reads are split
+     */
+    public CrossfadeMixer(PcmFormat format, int maxFrames, double crossfadeSeconds, GainCurve curve,
+                          FloatBufferPool pool) {
+        this.format = format;
+        this.channels = format.getChannels();
+        this.maxFrames = maxFrames;
+        this.fadeFrames = format.frames(crossfadeSeconds);
+        this.curve = curve;
+        this.pool = pool;
+        this.gains = pool.acquire(maxFrames);
+        this.duckDepth = pool.acquire(maxFrames);
+    }
+
+    @Override
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Queue an item to play after everything queued before it
+     */
+    public void enqueue(PcmSource item) {
+        if (finished) {
+            throw new IllegalStateException("Mixer already finished");
+        }
+        items.add(item);
+    }
+
+    /**
+     * Mix a bed over the program from the next chunk on. The bed fades in and
+     * out over {@code rampSeconds} and the program is ducked to
+     * {@code duckGain} along the same ramp; beds start in order, at most
+     * {@value #MAX_OVERLAYS} at a time.
+     */
+    public void overlay(PcmSource bed, float bedGain, float duckGain, double rampSeconds) {
+        if (finished) {
+            throw new IllegalStateException("Mixer already finished");
+        }
+        pendingOverlays.add(new Lane(bed, Math.max(1, format.frames(rampSeconds)), bedGain, duckGain));
+    }
+
+    /**
+     * No more items or beds will be queued; once everything queued has played,
+     * reads report the end of the stream
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int frames) {
+        if (gains == null) {
+            return -1;
+        }
+        int produced = 0;
+        while (produced < frames) {
+            int chunk = Math.min(frames - produced, maxFrames);
+            int mixed = mixChunk(buffer, offset + produced * channels, chunk);
+            produced += mixed;
+            if (mixed < chunk) {
+                break;
+            }
+        }
+        return produced == 0 && frames > 0 ? -1 : produced;
+    }
+
+    /**
+     * Release every lane and scratch buffer; queued items that never started are dropped
+     */
+    @Override
+    public void close() {
+        finished = true;
+        release(current);
+        release(next);
+        current = null;
+        next = null;
+        for (int i = 0; i < overlays.length; i++) {
+            release(overlays[i]);
+            overlays[i] = null;
+        }
+        items.clear();
+        pendingOverlays.clear();
+        if (gains != null) {
+            pool.release(gains);
+            pool.release(duckDepth);
+            gains = null;
+            duckDepth = null;
+        }
+    }
+
+    public long getItemsStarted() {
+        return itemsStarted;
+    }
+
+    public long getCrossfades() {
+        return crossfades;
+    }
+
+    public long getOverlaysStarted() {
+        return overlaysStarted;
+    }
+
+    /**
+     * Frames output as silence because nothing was queued
+     */
+    public long getSilentFrames() {
+        return silentFrames;
+    }
+
+    /**
+     * Mix one chunk into the buffer
+     *
+     * @return frames mixed; fewer than asked only at the end of a finished stream
+     */
+    private int mixChunk(float[] buffer, int offset, int frames) {
+        Arrays.fill(buffer, offset, offset + frames * channels, 0f);
+        boolean overlaysActive = mixOverlays(buffer, offset, frames);
+        int produced = 0;
+        while (produced < frames) {
+            if (current == null && !startNextItem()) {
+                break;
+            }
+            produced += mixProgram(buffer, offset, produced, frames - produced, overlaysActive);
+        }
+        if (produced < frames) {
+            if (finished && !overlaysActive && items.isEmpty() && pendingOverlays.isEmpty()) {
+                return produced;
+            }
+            silentFrames += frames - produced;
+        }
+        return frames;
+    }
+
+    /**
+     * Mix up to {@code frames} program frames starting {@code from} frames into
+     * the chunk, crossfading into the next item once the current one's tail begins
+     */
+    private int mixProgram(float[] buffer, int offset, int from, int frames, boolean ducked) {
+        current.fill(fadeFrames + frames);
+        int available = current.available();
+        if (fadeLength == 0 && current.ended() && available <= fadeFrames && available > 0) {
+            if (next == null) {
+                next = openNextItem();
+            }
+            if (next != null) {
+                fadeLength = available;
+                fadePosition = 0;
+                crossfades++;
+                EventLog.debug("  → Crossfading {} frames into the next item", fadeLength);
+            }
+        }
+        int step;
+        if (fadeLength > 0) {
+            step = Math.min(frames, fadeLength - fadePosition);
+            next.fill(step);
+            for (int i = 0; i < step; i++) {
+                float progress = (fadePosition + i + 0.5f) / fadeLength;
+                gains[i] = programGain(from + i, ducked) * curve.fadeIn(1 - progress);
+            }
+            current.mix(buffer, offset + from * channels, step, gains);
+            for (int i = 0; i < step; i++) {
+                float progress = (fadePosition + i + 0.5f) / fadeLength;
+                gains[i] = programGain(from + i, ducked) * curve.fadeIn(progress);
+            }
+            next.mix(buffer, offset + from * channels, step, gains);
+            fadePosition += step;
+            if (fadePosition == fadeLength) {
+                release(current);
+                current = next;
+                next = null;
+                fadeLength = 0;
+            }
+            return step;
+        }
+        if (!current.ended()) {
+            step = frames;
+        } else if (available > fadeFrames) {
+            step = Math.min(frames, available - fadeFrames);
+        } else {
+            step = Math.min(frames, available);
+        }
+        if (step == 0) {
+            if (current.ended()) {
+                release(current);
+                current = null;
+            } else {
+                // The source has nothing buffered yet; leave the rest of the chunk silent
+                silentFrames += frames;
+                return frames;
+            }
+            return 0;
+        }
+        for (int i = 0; i < step; i++) {
+            gains[i] = programGain(from + i, ducked);
+        }
+        return current.mix(buffer, offset + from * channels, step, gains);
+    }
+
+    private float programGain(int frame, boolean ducked) {
+        return ducked ? 1 - duckDepth[frame] : 1;
+    }
+
+    /**
+     * Mix every active bed into the chunk and record how deep the program must
+     * be ducked at each frame
+     *
+     * @return whether any bed played during this chunk
+     */
+    private boolean mixOverlays(float[] buffer, int offset, int frames) {
+        for (int slot = 0; slot < overlays.length && !pendingOverlays.isEmpty(); slot++) {
+            if (overlays[slot] == null) {
+                Lane lane = pendingOverlays.poll();
+                lane.open();
+                overlays[slot] = lane;
+                overlaysStarted++;
+            }
+        }
+        boolean active = false;
+        Arrays.fill(duckDepth, 0, frames, 0f);
+        for (int slot = 0; slot < overlays.length; slot++) {
+            Lane lane = overlays[slot];
+            if (lane == null) {
+                continue;
+            }
+            lane.fill(lane.ramp + frames);
+            int available = lane.available();
+            int step = Math.min(frames, available);
+            float depth = 1 - lane.duckGain;
+            for (int i = 0; i < step; i++) {
+                long played = lane.played + i + 1;
+                float envelope = Math.min(1f, (float) played / lane.ramp);
+                if (lane.ended()) {
+                    envelope = Math.min(envelope, (float) (available - i) / lane.ramp);
+                }
+                gains[i] = envelope * lane.gain;
+                duckDepth[i] = Math.max(duckDepth[i], envelope * depth);
+            }
+            lane.mix(buffer, offset, step, gains);
+            active |= step > 0;
+            if (lane.ended() && lane.available() == 0) {
+                release(lane);
+                overlays[slot] = null;
+            }
+        }
+        return active;
+    }
+
+    private boolean startNextItem() {
+        current = openNextItem();
+        return current != null;
+    }
+
+    private Lane openNextItem() {
+        PcmSource item = items.poll();
+        if (item == null) {
+            return null;
+        }
+        Lane lane = new Lane(item, fadeFrames, 1f, 1f);
+        lane.open();
+        itemsStarted++;
+        EventLog.debug("  → Mixer started item {} ({})", itemsStarted, item.getFormat());
+        return lane;
+    }
+
+    private void release(Lane lane) {
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    /**
+     * One playing source, converted to the output format and buffered in a ring
+     * with {@code lookahead} frames beyond the chunk being mixed
+     */
+    private final class Lane {
+        private final PcmSource input;
+        private final int ramp;
+        private final float gain;
+        private final float duckGain;
+        private PcmSource source;
+        private int sourceChannels;
+        private float[] ring;
+        private float[] scratch;
+        private int capacity;
+        private int readFrame;
+        private int buffered;
+        private boolean ended;
+        private long played;
+
+        Lane(PcmSource input, int lookahead, float gain, float duckGain) {
+            this.input = input;
+            this.ramp = lookahead;
+            this.gain = gain;
+            this.duckGain = duckGain;
+        }
+
+        void open() {
+            PcmFormat inputFormat = input.getFormat();
+            source = inputFormat.getSampleRate() == format.getSampleRate() ? input
+                    : new PolyphaseResampler(input, format.getSampleRate(), pool);
+            sourceChannels = inputFormat.getChannels();
+            ring = pool.acquire((ramp + maxFrames) * channels);
+            capacity = ring.length / channels;
+            scratch = pool.acquire(maxFrames * sourceChannels);
+        }
+
+        int available() {
+            return buffered;
+        }
+
+        boolean ended() {
+            return ended;
+        }
+
+        /**
+         * Buffer frames until {@code target} are available or the source has
+         * nothing more to give right now
+         */
+        void fill(int target) {
+            while (buffered < target && !ended) {
+                int wanted = Math.min(capacity - buffered, maxFrames);
+                int read = source.read(scratch, 0, wanted);
+                if (read < 0) {
+                    ended = true;
+                } else if (read == 0) {
+                    return;
+                } else {
+                    store(read);
+                }
+            }
+        }
+
+        /**
+         * Add up to {@code frames} frames into the buffer, frame i scaled by
+         * {@code gains[i]}, and consume them
+         *
+         * @return frames mixed
+         */
+        int mix(float[] buffer, int offset, int frames, float[] gains) {
+            int count = Math.min(frames, buffered);
+            int frame = readFrame;
+            for (int i = 0; i < count; i++) {
+                float g = gains[i];
+                int in = frame * channels;
+                int out = offset + i * channels;
+                for (int c = 0; c < channels; c++) {
+                    buffer[out + c] += ring[in + c] * g;
+                }
+                if (++frame == capacity) {
+                    frame = 0;
+                }
+            }
+            readFrame = frame;
+            buffered -= count;
+            played += count;
+            return count;
+        }
+
+        /**
+         * Append frames from the scratch buffer, mapping channels: mono output
+         * averages the input, otherwise channels map by index and wrap when the
+         * input has fewer
+         */
+        private void store(int frames) {
+            int frame = readFrame + buffered;
+            if (frame >= capacity) {
+                frame -= capacity;
+            }
+            for (int i = 0; i < frames; i++) {
+                int in = i * sourceChannels;
+                int out = frame * channels;
+                if (sourceChannels == channels) {
+                    System.arraycopy(scratch, in, ring, out, channels);
+                } else if (channels == 1) {
+                    float sum = 0;
+                    for (int c = 0; c < sourceChannels; c++) {
+                        sum += scratch[in + c];
+                    }
+                    ring[out] = sum / sourceChannels;
+                } else {
+                    for (int c = 0; c < channels; c++) {
+                        ring[out + c] = scratch[in + c % sourceChannels];
+                    }
+                }
+                if (++frame == capacity) {
+                    frame = 0;
+                }
+            }
+            buffered += frames;
+        }
+
+        void close() {
+            if (source instanceof PolyphaseResampler) {
+                ((PolyphaseResampler) source).close();
+            }
+            if (ring != null) {
+                pool.release(ring);
+                pool.release(scratch);
+                ring = null;
+                scratch = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.modularmedia.audio;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.modularmedia.memory.MemoryBudget;
+
+/**
+ * Pool of float sample arrays in power-of-two size classes.
+ *
+ * Mixing stages take their working arrays from the pool when an item starts
+ * and hand them back when it ends, so steady-state mixing allocates nothing per
+ * chunk. Arrays above the largest class are allocated and dropped normally;
+ * each class keeps at most a fixed number of idle arrays.
+ *
+ * Pooled arrays are accounted against the {@link MemoryBudget} like
+ * {@link com.modularmedia.sources.hls.DirectBufferPool}'s buffers, and are
+ * dropped instead of pooled from {@code HIGH} pressure on.
+ */
+public final class FloatBufferPool {
+    private static final int MIN_CLASS_SHIFT = 10;
+    private static final int MAX_CLASS_SHIFT = 22;
+    private static final FloatBufferPool SHARED = new FloatBufferPool(16);
+
+    private final int maxIdlePerClass;
+    private final SizeClass[] classes = new SizeClass[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+    private final Set<float[]> issued = Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+    private final MemoryBudget.Account account;
+
+    public FloatBufferPool(int maxIdlePerClass) {
+        this(maxIdlePerClass, MemoryBudget.global().account("audio.buffers", MemoryBudget.Kind.HEAP));
+    }
+
+    public FloatBufferPool(int maxIdlePerClass, MemoryBudget.Account account) {
+        this.maxIdlePerClass = maxIdlePerClass;
+        this.account = account;
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass();
+        }
+        account.getBudget().addListener(pressure -> {
+            if (pressure.compareTo(MemoryBudget.Pressure.HIGH) >= 0) {
+                trimIdle();
+            }
+        });
+    }
+
+    /**
+     * Pool shared by every mixer that does not bring its own
+     */
+    public static FloatBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * An array of at least the given length; its contents are unspecified
+     */
+    public float[] acquire(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        if (sizeClass < 0) {
+            return new float[minLength];
+        }
+        SizeClass pooled = classes[sizeClass];
+        float[] array = pooled.idle.poll();
+        if (array == null) {
+            int length = 1 << (sizeClass + MIN_CLASS_SHIFT);
+            account.reserve((long) length * Float.BYTES);
+            array = new float[length];
+        } else {
+            pooled.idleCount.decrementAndGet();
+        }
+        issued.add(array);
+        return array;
+    }
+
+    /**
+     * Return an array obtained from {@link #acquire(int)}; arrays this pool is
+     * not owed (oversized, foreign or already returned ones) are ignored
+     */
+    public void release(float[] array) {
+        if (array == null || !issued.remove(array)) {
+            return;
+        }
+        SizeClass pooled = classes[Integer.numberOfTrailingZeros(array.length) - MIN_CLASS_SHIFT];
+        long bytes = (long) array.length * Float.BYTES;
+        if (account.getBudget().getPressureLevel().compareTo(MemoryBudget.Pressure.HIGH) >= 0) {
+            account.release(bytes);
+        } else if (pooled.idleCount.incrementAndGet() <= maxIdlePerClass) {
+            pooled.idle.offer(array);
+        } else {
+            pooled.idleCount.decrementAndGet();
+            account.release(bytes);
+        }
+    }
+
+    /**
+     * Drop every idle array, returning its memory to the budget
+     *
+     * @return bytes freed
+     */
+    public long trimIdle() {
+        long freed = 0;
+        for (int i = 0; i < classes.length; i++) {
+            while (classes[i].idle.poll() != null) {
+                classes[i].idleCount.decrementAndGet();
+                freed += (long) Float.BYTES << (i + MIN_CLASS_SHIFT);
+            }
+        }
+        if (freed > 0) {
+            account.release(freed);
+        }
+        return freed;
+    }
+
+    private static int sizeClass(int length) {
+        int shift = length <= 1 << MIN_CLASS_SHIFT ? MIN_CLASS_SHIFT : 32 - Integer.numberOfLeadingZeros(length - 1);
+        return shift > MAX_CLASS_SHIFT ? -1 : shift - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * Idle arrays of one power-of-two length
+     */
+    private static final class SizeClass {
+        private final Queue<float[]> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+    }
+}
@@ -0,0 +1,39 @@
+package com.modularmedia.audio;
+
+/**
+ * Shape of a fade. {@link #fadeIn(float)} gives the incoming gain at a point of
+ * the fade; the outgoing side uses the mirror image, {@code fadeIn(1 - progress)}.
+ */
+public enum GainCurve {
+    /** Straight ramp; the summed level dips in the middle for uncorrelated material */
+    LINEAR {
+        @Override
+        public float fadeIn(float progress) {
+            return clamp(progress);
+        }
+    },
+    /** Quarter sine; keeps the summed power constant, the usual choice for music */
+    EQUAL_POWER {
+        @Override
+        public float fadeIn(float progress) {
+            return (float) Math.sin(clamp(progress) * Math.PI / 2);
+        }
+    },
+    /** Smoothstep; slow start and end, quick middle */
+    S_CURVE {
+        @Override
+        public float fadeIn(float progress) {
+            float t = clamp(progress);
+            return t * t * (3 - 2 * t);
+        }
+    };
+
+    /**
+     * Gain of the incoming side at {@code progress} (0 = start, 1 = end of the fade)
+     */
+    public abstract float fadeIn(float progress);
+
+    private static float clamp(float progress) {
+        return progress <= 0 ? 0 : progress >= 1 ? 1 : progress;
+    }
+}
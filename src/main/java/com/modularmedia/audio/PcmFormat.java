@@ -0,0 +1,51 @@
+package com.modularmedia.audio;
+
+/**
+ * Sample rate and channel count of interleaved float PCM
+ */
+public final class PcmFormat {
+    private final int sampleRate;
+    private final int channels;
+
+    public PcmFormat(int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Invalid PCM format: " + sampleRate + " Hz, " + channels + " channels");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Number of frames covering the given duration at this rate
+     */
+    public int frames(double seconds) {
+        return (int) Math.round(seconds * sampleRate);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof PcmFormat)) {
+            return false;
+        }
+        PcmFormat format = (PcmFormat) other;
+        return sampleRate == format.sampleRate && channels == format.channels;
+    }
+
+    @Override
+    public int hashCode() {
+        return sampleRate * 31 + channels;
+    }
+
+    @Override
+    public String toString() {
+        return sampleRate + " Hz, " + channels + (channels == 1 ? " channel" : " channels");
+    }
+}
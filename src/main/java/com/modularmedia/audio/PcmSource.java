@@ -0,0 +1,17 @@
+package com.modularmedia.audio;
+
+/**
+ * Pull-based stream of interleaved float PCM (nominally -1..1), as produced by
+ * a decoder or by another stage of the mixing pipeline.
+ */
+public interface PcmSource {
+    PcmFormat getFormat();
+
+    /**
+     * Read up to {@code frames} frames into {@code buffer} starting at sample
+     * index {@code offset}; a frame is one sample per channel
+     *
+     * @return the number of frames read, or -1 at the end of the stream
+     */
+    int read(float[] buffer, int offset, int frames);
+}
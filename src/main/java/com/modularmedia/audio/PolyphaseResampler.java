@@ -0,0 +1,218 @@
+package com.modularmedia.audio;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sample-rate converter using a polyphase windowed-sinc filter.
+ *
+ * The rate change is reduced to a ratio L/M (for 44.1 kHz to 48 kHz, 160/147).
+ * Conceptually the input is upsampled by L, low-pass filtered and decimated by
+ * M; the polyphase form only evaluates the taps that land on real input
+ * samples, so each output frame costs one K-tap dot product per channel with
+ * the coefficients of its phase. Coefficient tables depend only on the ratio
+ * and are shared between resamplers.
+ *
+ * Input is streamed through a pooled buffer; the buffer goes back to the pool
+ * when the stream ends or the resampler is closed.
+ */
+public final class PolyphaseResampler implements PcmSource, AutoCloseable {
+    private static final int MAX_PHASES = 1024;
+    private static final int ZERO_CROSSINGS = 16;
+    private static final double ROLLOFF = 0.95;
+    private static final int READ_FRAMES = 1024;
+    private static final Map<Long, float[]> TABLES = new ConcurrentHashMap<>();
+
+    private final PcmSource source;
+    private final PcmFormat format;
+    private final FloatBufferPool pool;
+    private final int channels;
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final float[] coefficients;
+    private float[] input;
+    private final int capacityFrames;
+    private int bufferedFrames;
+    private int position;
+    private int phase;
+    private boolean sourceEnded;
+    // Output frames still owed once the source has ended, so the output length is input length * L / M
+    private long remainingFrames = -1;
+    private long inputFrames;
+    private long outputFrames;
+
+    public PolyphaseResampler(PcmSource source, int outputRate) {
+        this(source, outputRate, FloatBufferPool.shared());
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rate is not positive, or the reduced
+     *         ratio between them needs more than 1024 filter phases
+     */
+    public PolyphaseResampler(PcmSource source, int outputRate, FloatBufferPool pool) {
+        int inputRate = source.getFormat().getSampleRate();
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive: " + inputRate + " Hz to "
+                    + outputRate + " Hz");
+        }
+        int gcd = gcd(inputRate, outputRate);
+        this.up = outputRate / gcd;
+        this.down = inputRate / gcd;
+        if (up > MAX_PHASES) {
+            throw new IllegalArgumentException("Unsupported resampling ratio " + inputRate + " Hz to "
+                    + outputRate + " Hz (" + up + "/" + down + ")");
+        }
+        this.source = source;
+        this.pool = pool;
+        this.channels = source.getFormat().getChannels();
+        this.format = new PcmFormat(outputRate, channels);
+        double cutoff = Math.min(1.0, (double) up / down) * ROLLOFF;
+        int width = (int) Math.ceil(2 * ZERO_CROSSINGS / cutoff);
+        this.taps = width + (width & 1);
+        this.coefficients = TABLES.computeIfAbsent(((long) up << 32) | down, key -> design(up, taps, cutoff));
+        this.input = pool.acquire((taps + READ_FRAMES) * channels);
+        this.capacityFrames = input.length / channels;
+        // Leading zeros so the first output frame is centred on the first input frame
+        this.bufferedFrames = taps / 2 - 1;
+        this.position = bufferedFrames;
+        Arrays.fill(input, 0, bufferedFrames * channels, 0f);
+    }
+
+    @Override
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int frames) {
+        if (input == null) {
+            return -1;
+        }
+        int produced = 0;
+        while (produced < frames) {
+            if (remainingFrames == 0 || !ensureInput()) {
+                break;
+            }
+            int first = position - taps / 2 + 1;
+            int coefficient = phase * taps;
+            int out = offset + produced * channels;
+            for (int c = 0; c < channels; c++) {
+                float sum = 0;
+                int sample = first * channels + c;
+                for (int k = 0; k < taps; k++, sample += channels) {
+                    sum += input[sample] * coefficients[coefficient + k];
+                }
+                buffer[out + c] = sum;
+            }
+            produced++;
+            outputFrames++;
+            if (remainingFrames > 0) {
+                remainingFrames--;
+            }
+            phase += down;
+            position += phase / up;
+            phase %= up;
+        }
+        if (produced == 0 && remainingFrames == 0) {
+            close();
+            return -1;
+        }
+        return produced;
+    }
+
+    /**
+     * Return the input buffer to the pool; later reads report the end of the stream
+     */
+    @Override
+    public void close() {
+        if (input != null) {
+            pool.release(input);
+            input = null;
+        }
+    }
+
+    public long getInputFrames() {
+        return inputFrames;
+    }
+
+    public long getOutputFrames() {
+        return outputFrames;
+    }
+
+    private boolean ensureInput() {
+        while (position + taps / 2 >= bufferedFrames) {
+            if (!refill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop consumed frames and read more input, padding with zeros after the
+     * end of the source so the last frames are filtered in full
+     *
+     * @return false when no more input can be buffered right now
+     */
+    private boolean refill() {
+        int keepFrom = position - taps / 2 + 1;
+        if (keepFrom > 0) {
+            System.arraycopy(input, keepFrom * channels, input, 0, (bufferedFrames - keepFrom) * channels);
+            bufferedFrames -= keepFrom;
+            position -= keepFrom;
+        }
+        int space = capacityFrames - bufferedFrames;
+        if (sourceEnded) {
+            Arrays.fill(input, bufferedFrames * channels, capacityFrames * channels, 0f);
+            bufferedFrames = capacityFrames;
+            return true;
+        }
+        int read = source.read(input, bufferedFrames * channels, space);
+        if (read < 0) {
+            sourceEnded = true;
+            remainingFrames = Math.max(0, (inputFrames * up + down - 1) / down - outputFrames);
+            return remainingFrames > 0 && refill();
+        }
+        inputFrames += read;
+        bufferedFrames += read;
+        return read > 0;
+    }
+
+    /**
+     * Blackman-windowed sinc, one row of {@code taps} coefficients per phase,
+     * each row normalized to unity gain
+     */
+    private static float[] design(int phases, int taps, double cutoff) {
+        float[] table = new float[phases * taps];
+        int half = taps / 2;
+        for (int p = 0; p < phases; p++) {
+            double[] row = new double[taps];
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                // Distance in input samples from the output instant to tap k
+                double t = k - half + 1 - (double) p / phases;
+                double x = cutoff * t;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                double w = (t + half) / taps;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * w) + 0.08 * Math.cos(4 * Math.PI * w);
+                row[k] = sinc * window;
+                sum += row[k];
+            }
+            for (int k = 0; k < taps; k++) {
+                table[p * taps + k] = (float) (row[k] / sum);
+            }
+        }
+        return table;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
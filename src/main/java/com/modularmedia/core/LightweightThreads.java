@@ -0,0 +1,62 @@
+package com.modularmedia.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for thread-per-task executors used by per-session and per-connection work.
+ * 
+ * On runtimes with virtual threads (Java 21+) each task gets its own virtual thread.
+ * The project still targets Java 17, so the virtual-thread executor is looked up
+ * reflectively and a cached pool of daemon platform threads is used when it is absent.
+ */
+public final class LightweightThreads {
+    private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private LightweightThreads() {
+    }
+
+    /**
+     * Create an executor that runs every task on its own (virtual where available) thread
+     */
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to platform threads
+            }
+        }
+        return Executors.newCachedThreadPool(daemonFactory(namePrefix));
+    }
+
+    /**
+     * Check whether executors created here run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Thread factory for named daemon platform threads
+     */
+    public static ThreadFactory daemonFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method findVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
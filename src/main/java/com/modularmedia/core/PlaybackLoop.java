@@ -0,0 +1,274 @@
+package com.modularmedia.core;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.playlist.Playlist;
+
+/**
+ * Dedicated playback loop behind the asynchronous {@link PlayerFacade} controls.
+ *
+ * Control commands are posted to a lock-free mailbox and applied by the loop
+ * thread between chunks (one leaf media item per chunk), so stop, pause and
+ * seek take effect within one chunk and callers never block on playback.
+ * The loop thread exits when there is nothing to play and no pending command,
+ * and is started again by the next command.
+ *
+ * A chunk is one blocking {@code play()} of an item. Posting stop, pause or seek
+ * while an item plays interrupts the loop thread, so an item blocked in
+ * {@code play()} returns early; an item cut short by pause is played again on
+ * resume. Items that ignore interrupts still finish before the command applies.
+ * An item whose {@code play()} throws is logged and skipped. If the loop itself
+ * fails, it stops playback and fails the pending commands, and the next command
+ * starts a fresh loop.
+ */
+class PlaybackLoop implements Runnable {
+    enum State { STOPPED, PLAYING, PAUSED }
+
+    private enum Type { PLAY, PAUSE, RESUME, SEEK, STOP }
+
+    private static final class Command {
+        private final Type type;
+        private final int index;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Command(Type type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    private final PlayerFacade player;
+    private final ConcurrentLinkedQueue<Command> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Object chunkLock = new Object();
+    // Guarded by chunkLock: the thread inside an item's play(), and whether it was interrupted
+    private Thread chunkThread;
+    private boolean chunkInterrupted;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), LightweightThreads.daemonFactory("playback-loop"));
+
+    // Loop-thread state; only the loop thread writes these
+    private List<Media> items = List.of();
+    private volatile int cursor = 0;
+    private volatile State state = State.STOPPED;
+
+    PlaybackLoop(PlayerFacade player) {
+        this.player = player;
+    }
+
+    CompletableFuture<Void> play() {
+        return post(Type.PLAY, 0);
+    }
+
+    CompletableFuture<Void> pause() {
+        return post(Type.PAUSE, 0);
+    }
+
+    CompletableFuture<Void> resume() {
+        return post(Type.RESUME, 0);
+    }
+
+    CompletableFuture<Void> seek(int index) {
+        return post(Type.SEEK, index);
+    }
+
+    CompletableFuture<Void> stop() {
+        return post(Type.STOP, 0);
+    }
+
+    State getState() {
+        return state;
+    }
+
+    int getCursor() {
+        return cursor;
+    }
+
+    @Override
+    public void run() {
+        boolean exited = false;
+        try {
+            drain();
+            exited = true;
+        } finally {
+            if (!exited) {
+                abort();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Command command;
+            while ((command = mailbox.poll()) != null) {
+                apply(command);
+            }
+            if (state == State.PLAYING) {
+                playChunk();
+                continue;
+            }
+            scheduled.set(false);
+            if (mailbox.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private CompletableFuture<Void> post(Type type, int index) {
+        Command command = new Command(type, index);
+        mailbox.add(command);
+        if (type == Type.PAUSE || type == Type.SEEK || type == Type.STOP) {
+            interruptChunk();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+        return command.done;
+    }
+
+    private void interruptChunk() {
+        synchronized (chunkLock) {
+            if (chunkThread != null) {
+                chunkInterrupted = true;
+                chunkThread.interrupt();
+            }
+        }
+    }
+
+    private void apply(Command command) {
+        try {
+            switch (command.type) {
+                case PLAY:
+                    startPlayback();
+                    break;
+                case PAUSE:
+                    if (state == State.PLAYING) {
+                        state = State.PAUSED;
+                        player.getFrameScheduler().getClock().pause();
+                        EventLog.info("Playback paused");
+                    }
+                    break;
+                case RESUME:
+                    if (state == State.PAUSED) {
+                        state = State.PLAYING;
+                        player.getFrameScheduler().getClock().resume();
+                        EventLog.info("Playback resumed");
+                    }
+                    break;
+                case SEEK:
+                    seekTo(command.index);
+                    break;
+                case STOP:
+                    if (state != State.STOPPED) {
+                        EventLog.info("Stopping playback...");
+                        finish();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            command.done.complete(null);
+        } catch (RuntimeException e) {
+            command.done.completeExceptionally(e);
+        }
+    }
+
+    private void startPlayback() {
+        if (state == State.PAUSED) {
+            state = State.PLAYING;
+            player.getFrameScheduler().getClock().resume();
+            return;
+        }
+        if (state == State.PLAYING) {
+            return;
+        }
+        Playlist playlist = player.getPlaylist();
+        if (playlist == null) {
+            throw new IllegalStateException("No playlist loaded!");
+        }
+        items = playlist.getLeafItems();
+        if (cursor >= items.size()) {
+            cursor = 0;
+        }
+        state = State.PLAYING;
+        player.startPresentation();
+    }
+
+    private void seekTo(int index) {
+        List<Media> target = items.isEmpty() && player.getPlaylist() != null
+                ? player.getPlaylist().getLeafItems() : items;
+        if (index < 0 || index >= target.size()) {
+            throw new IndexOutOfBoundsException("Seek index " + index + " outside 0.." + (target.size() - 1));
+        }
+        cursor = index;
+        player.getFrameScheduler().flush();
+        EventLog.info("Seeking to item {}/{}", index + 1, target.size());
+    }
+
+    private void playChunk() {
+        if (cursor >= items.size()) {
+            finish();
+            return;
+        }
+        int index = cursor;
+        synchronized (chunkLock) {
+            // A command posted since the mailbox was drained would have no chunk to interrupt
+            if (!mailbox.isEmpty()) {
+                return;
+            }
+            chunkThread = Thread.currentThread();
+            chunkInterrupted = false;
+        }
+        boolean interrupted;
+        try {
+            items.get(index).play();
+        } catch (RuntimeException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                EventLog.warn("Item {}/{} failed, skipping it: {}", index + 1, items.size(), e.toString());
+            }
+        } finally {
+            synchronized (chunkLock) {
+                chunkThread = null;
+                // Clearing the status keeps it from reaching the next item or a pooled thread
+                interrupted = Thread.interrupted() && chunkInterrupted;
+            }
+        }
+        if (interrupted) {
+            EventLog.debug("Item {}/{} interrupted", index + 1, items.size());
+        } else if (cursor == index) {
+            cursor = index + 1;
+        }
+    }
+
+    /**
+     * Leave the loop after an unexpected failure: stop, fail what is queued and
+     * let the next command schedule a new loop
+     */
+    private void abort() {
+        state = State.STOPPED;
+        player.setPlaying(false);
+        IllegalStateException failure = new IllegalStateException("Playback loop failed");
+        Command command;
+        while ((command = mailbox.poll()) != null) {
+            command.done.completeExceptionally(failure);
+        }
+        scheduled.set(false);
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    private void finish() {
+        state = State.STOPPED;
+        cursor = 0;
+        player.getFrameScheduler().getClock().pause();
+        player.setPlaying(false);
+    }
+}
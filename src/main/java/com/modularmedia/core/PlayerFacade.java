@@ -1,6 +1,12 @@
 package com.modularmedia.core;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
 import com.modularmedia.playlist.Playlist;
+import com.modularmedia.renderers.Frame;
+import com.modularmedia.renderers.FrameScheduler;
 import com.modularmedia.renderers.Renderer;
 
 /**
@@ -19,60 +25,133 @@ import com.modularmedia.renderers.Renderer;
 public class PlayerFacade implements Media {
     private Renderer renderer;
     private Playlist playlist;
-    private boolean isPlaying = false;
+    private volatile boolean isPlaying = false;
+    private final FrameScheduler frameScheduler;
+    private final PlaybackLoop playbackLoop = new PlaybackLoop(this);
 
     public PlayerFacade(Renderer renderer) { 
         this.renderer = renderer; 
-        System.out.println("Player initialized with: " + renderer.getRendererInfo());
+        this.frameScheduler = new FrameScheduler(renderer);
+        EventLog.info("Player initialized with: {}", renderer.getRendererInfo());
     }
 
     public void setRenderer(Renderer renderer) {
         if (renderer.isAvailable()) {
             this.renderer = renderer;
-            System.out.println("Renderer switched to: " + renderer.getRendererInfo());
+            frameScheduler.setRenderer(renderer);
+            EventLog.info("Renderer switched to: {}", renderer.getRendererInfo());
         } else {
-            System.out.println("Renderer not available: " + renderer.getRendererInfo());
+            EventLog.info("Renderer not available: {}", renderer.getRendererInfo());
         }
     }
 
     public void load(Playlist playlist) {
         this.playlist = playlist;
-        System.out.println("Playlist loaded: " + playlist.getName() + " (" + playlist.getItemCount() + " items)");
+        EventLog.info("Playlist loaded: {} ({} items)", playlist.getName(), playlist.getItemCount());
     }
 
     @Override
     public void play() {
         if (playlist != null) {
-            System.out.println("Starting playback with " + renderer.getRendererInfo() + "...");
-            isPlaying = true;
-            renderer.render("Playback started");
+            EventLog.info("Starting playback with {}...", renderer.getRendererInfo());
+            startPresentation();
             playlist.play();
             isPlaying = false;
         } else {
-            System.out.println("No playlist loaded!");
+            EventLog.info("No playlist loaded!");
         }
     }
     
     public void stop() {
         if (isPlaying) {
-            System.out.println("Stopping playback...");
-            isPlaying = false;
+            stopAsync();
         }
     }
     
     public void pause() {
         if (isPlaying) {
-            System.out.println("Playback paused");
+            pauseAsync();
         }
     }
     
+    /**
+     * Start playback on the dedicated playback loop and return immediately.
+     * The future completes once playback has started (or resumed, if paused).
+     */
+    public CompletableFuture<Void> playAsync() {
+        return playbackLoop.play();
+    }
+    
+    /**
+     * Pause asynchronous playback, interrupting the item playing; it plays again
+     * from its start on resume
+     */
+    public CompletableFuture<Void> pauseAsync() {
+        return playbackLoop.pause();
+    }
+    
+    public CompletableFuture<Void> resumeAsync() {
+        return playbackLoop.resume();
+    }
+    
+    /**
+     * Continue asynchronous playback from the given item (index into the flattened
+     * playlist), interrupting the item playing
+     */
+    public CompletableFuture<Void> seekAsync(int itemIndex) {
+        return playbackLoop.seek(itemIndex);
+    }
+    
+    /**
+     * Stop asynchronous playback, interrupting the item playing
+     */
+    public CompletableFuture<Void> stopAsync() {
+        return playbackLoop.stop();
+    }
+    
+    /**
+     * Get the index of the item the playback loop is on (into the flattened playlist)
+     */
+    public int getCurrentItemIndex() {
+        return playbackLoop.getCursor();
+    }
+    
+    public boolean isPaused() {
+        return playbackLoop.getState() == PlaybackLoop.State.PAUSED;
+    }
+    
+    /**
+     * Get the scheduler that paces frames onto the current renderer
+     */
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
+    }
+    
     public boolean isPlaying() {
         return isPlaying;
     }
     
     public String getStatus() {
-        return "Player Status: " + (isPlaying ? "Playing" : "Stopped") + 
+        String state = isPaused() ? "Paused" : (isPlaying ? "Playing" : "Stopped");
+        return "Player Status: " + state + 
                " | Renderer: " + renderer.getRendererInfo() +
                " | Playlist: " + (playlist != null ? playlist.getName() : "None");
     }
+    
+    Playlist getPlaylist() {
+        return playlist;
+    }
+    
+    void setPlaying(boolean playing) {
+        this.isPlaying = playing;
+    }
+    
+    void startPresentation() {
+        PlaybackMetrics.beginPlayback();
+        isPlaying = true;
+        frameScheduler.flush();
+        frameScheduler.getClock().start();
+        frameScheduler.submit(new Frame(0, "Playback started"));
+        frameScheduler.presentDue();
+    }
 }
@@ -0,0 +1,13 @@
+package com.modularmedia.io;
+
+/**
+ * Priority class of an I/O request submitted to the {@link IoScheduler}.
+ */
+public enum IoPriority {
+    /** Data the viewer is waiting for right now */
+    PLAYING_NOW,
+    /** Data needed soon, such as the next segments of a playing stream or the next playlist item */
+    NEXT_UP,
+    /** Data that may never be needed; dropped if still queued past its deadline */
+    SPECULATIVE
+}
@@ -0,0 +1,283 @@
+package com.modularmedia.io;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.modularmedia.core.LightweightThreads;
+
+/**
+ * Deadline-aware dispatcher for source I/O: file reads, API calls and segment fetches.
+ *
+ * Every request carries a priority class and a deadline. At most a fixed number
+ * run at once; when a slot frees up the queued request with the earliest deadline
+ * starts, ties going to the more urgent class. {@code NEXT_UP} and
+ * {@code SPECULATIVE} requests have lower concurrency caps of their own, so some
+ * slots are always left for {@code PLAYING_NOW}, and prefetch for one session
+ * cannot starve the read another session is blocked on. Speculative requests still
+ * queued past their deadline are cancelled as stale.
+ *
+ * A request holds its slot until the future its operation returns completes.
+ * Cancelling the returned future removes a queued request; a request already
+ * running cannot be cancelled and completes normally, so results that own
+ * resources (pooled buffers) are never lost.
+ */
+public final class IoScheduler {
+    private static final IoPriority[] CLASSES = IoPriority.values();
+    private static final IoScheduler SHARED = new IoScheduler(32, 16, 8);
+
+    private final int maxInFlight;
+    private final int[] classLimits;
+    private final int[] running = new int[CLASSES.length];
+    private int totalRunning;
+    private long submitted;
+    private final List<PriorityQueue<Task<?>>> queues = new ArrayList<>(CLASSES.length);
+    private boolean dispatching;
+    private boolean dispatchAgain;
+    private final ExecutorService blockingExecutor = LightweightThreads.newPerTaskExecutor("io");
+    private final LongAdder staleCancelled = new LongAdder();
+    private final LongAdder deadlineMisses = new LongAdder();
+
+    /**
+     * @param maxInFlight requests running at once across all classes
+     * @param nextUpLimit cap for {@code NEXT_UP} requests
+     * @param speculativeLimit cap for {@code SPECULATIVE} requests
+     */
+    public IoScheduler(int maxInFlight, int nextUpLimit, int speculativeLimit) {
+        this.maxInFlight = maxInFlight;
+        this.classLimits = new int[] {maxInFlight, Math.min(nextUpLimit, maxInFlight), Math.min(speculativeLimit, maxInFlight)};
+        Comparator<Task<?>> earliestDeadline = (a, b) -> a.deadlineNanos != b.deadlineNanos
+                ? Long.compare(a.deadlineNanos - b.deadlineNanos, 0)
+                : Long.compare(a.sequence, b.sequence);
+        for (int i = 0; i < CLASSES.length; i++) {
+            queues.add(new PriorityQueue<>(earliestDeadline));
+        }
+    }
+
+    /**
+     * Scheduler shared by every source that does not bring its own
+     */
+    public static IoScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * Queue an asynchronous operation, started when it is dispatched
+     *
+     * @param deadlineNanos {@link System#nanoTime()} by which the result is needed
+     */
+    public <T> CompletableFuture<T> submit(IoPriority priority, long deadlineNanos,
+                                           Supplier<? extends CompletionStage<T>> operation) {
+        Task<T> task = new Task<>(this, operation, priority, deadlineNanos);
+        synchronized (this) {
+            task.sequence = submitted++;
+            queues.get(priority.ordinal()).add(task);
+        }
+        dispatch();
+        return task;
+    }
+
+    /**
+     * Queue a blocking operation, run on an I/O thread when it is dispatched
+     */
+    public <T> CompletableFuture<T> submitBlocking(IoPriority priority, long deadlineNanos, Callable<T> operation) {
+        return submit(priority, deadlineNanos, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return operation.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, blockingExecutor));
+    }
+
+    /**
+     * Move a still-queued request to a more urgent class or an earlier deadline,
+     * e.g. when a prefetched segment becomes the one playing
+     *
+     * @return false if the future is not a queued request of this scheduler
+     */
+    public boolean escalate(CompletableFuture<?> future, IoPriority priority, long deadlineNanos) {
+        if (!(future instanceof Task) || ((Task<?>) future).scheduler != this) {
+            return false;
+        }
+        Task<?> task = (Task<?>) future;
+        synchronized (this) {
+            if (!queues.get(task.priority.ordinal()).remove(task)) {
+                return false;
+            }
+            if (priority.compareTo(task.priority) < 0) {
+                task.priority = priority;
+            }
+            if (deadlineNanos - task.deadlineNanos < 0) {
+                task.deadlineNanos = deadlineNanos;
+            }
+            queues.get(task.priority.ordinal()).add(task);
+        }
+        dispatch();
+        return true;
+    }
+
+    public synchronized int getQueued(IoPriority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+
+    public synchronized int getRunning(IoPriority priority) {
+        return running[priority.ordinal()];
+    }
+
+    /**
+     * Speculative requests dropped because they were still queued past their deadline
+     */
+    public long getStaleCancelled() {
+        return staleCancelled.sum();
+    }
+
+    /**
+     * Requests that only started after their deadline had passed
+     */
+    public long getDeadlineMisses() {
+        return deadlineMisses.sum();
+    }
+
+    /**
+     * Start whatever is due. Requests can complete synchronously and free their
+     * slot from inside {@link Task#start()}, so only one thread dispatches at a
+     * time and it loops while others ask for another round, instead of recursing.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            if (dispatching) {
+                dispatchAgain = true;
+                return;
+            }
+            dispatching = true;
+        }
+        boolean done = false;
+        try {
+            while (!done) {
+                startDue();
+                synchronized (this) {
+                    done = !dispatchAgain;
+                    dispatchAgain = false;
+                    dispatching = !done;
+                }
+            }
+        } finally {
+            if (!done) {
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+    private void startDue() {
+        List<Task<?>> starting = new ArrayList<>();
+        List<Task<?>> stale = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            PriorityQueue<Task<?>> speculative = queues.get(IoPriority.SPECULATIVE.ordinal());
+            while (!speculative.isEmpty() && speculative.peek().deadlineNanos - now < 0) {
+                stale.add(speculative.poll());
+            }
+            while (totalRunning < maxInFlight) {
+                Task<?> next = null;
+                for (IoPriority priority : CLASSES) {
+                    Task<?> head = queues.get(priority.ordinal()).peek();
+                    if (head != null && running[priority.ordinal()] < classLimits[priority.ordinal()]
+                            && (next == null || head.deadlineNanos - next.deadlineNanos < 0)) {
+                        next = head;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                queues.get(next.priority.ordinal()).poll();
+                running[next.priority.ordinal()]++;
+                totalRunning++;
+                next.started = true;
+                starting.add(next);
+            }
+        }
+        for (Task<?> task : stale) {
+            staleCancelled.increment();
+            task.completeExceptionally(new CancellationException("Speculative I/O past its deadline"));
+        }
+        for (Task<?> task : starting) {
+            if (task.deadlineNanos - now < 0) {
+                deadlineMisses.increment();
+            }
+            task.start();
+        }
+    }
+
+    private void finished(Task<?> task) {
+        synchronized (this) {
+            running[task.priority.ordinal()]--;
+            totalRunning--;
+        }
+        dispatch();
+    }
+
+    /**
+     * A queued or running request; completes with the operation's result
+     */
+    private static final class Task<T> extends CompletableFuture<T> {
+        private final IoScheduler scheduler;
+        private final Supplier<? extends CompletionStage<T>> operation;
+        private IoPriority priority;
+        private long deadlineNanos;
+        private long sequence;
+        private boolean started;
+
+        Task(IoScheduler scheduler, Supplier<? extends CompletionStage<T>> operation,
+             IoPriority priority, long deadlineNanos) {
+            this.scheduler = scheduler;
+            this.operation = operation;
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void start() {
+            if (isDone()) {
+                scheduler.finished(this);
+                return;
+            }
+            CompletableFuture<T> stage;
+            try {
+                stage = operation.get().toCompletableFuture();
+            } catch (RuntimeException e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            stage.whenComplete((value, error) -> {
+                scheduler.finished(this);
+                if (error != null) {
+                    completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                } else {
+                    complete(value);
+                }
+            });
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (scheduler) {
+                if (started) {
+                    return false;
+                }
+                scheduler.queues.get(priority.ordinal()).remove(this);
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
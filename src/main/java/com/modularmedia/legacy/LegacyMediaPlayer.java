@@ -1,181 +1,247 @@
 package com.modularmedia.legacy;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import com.modularmedia.core.Media;
+import com.modularmedia.core.MediaSource;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.playlist.MediaItem;
+import com.modularmedia.plugins.EqualizerDecorator;
+import com.modularmedia.plugins.PluginManager;
+import com.modularmedia.plugins.SubtitleDecorator;
+import com.modularmedia.plugins.WatermarkDecorator;
+import com.modularmedia.proxy.RemoteProxy;
+import com.modularmedia.renderers.HardwareRenderer;
+import com.modularmedia.renderers.Renderer;
+import com.modularmedia.renderers.SoftwareRenderer;
+import com.modularmedia.sources.HLSStreamAdapter;
+import com.modularmedia.sources.LocalFileAdapter;
+import com.modularmedia.sources.RemoteAPIAdapter;
+import com.modularmedia.sources.SourceRegistry;
+import com.modularmedia.sources.api.ApiClient;
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.KeyCache;
+import com.modularmedia.sources.hls.SegmentFetcher;
 
 /**
- * LEGACY CODE - Intentionally messy monolithic media player
+ * LEGACY CODE - The original monolithic media player API
  * This represents the "before" state that needs refactoring
- * 
- * Problems:
+ *
+ * Problems of the original implementation:
  * - Monolithic class handling everything
  * - Duplicated code for different media types
  * - No plugin mechanism
  * - Hard-coded rendering logic
  * - No caching mechanism
  * - Tight coupling between components
+ *
+ * The public API is kept for callers that have not migrated yet, but it now
+ * runs on the modular engine: each location gets one adapter behind a
+ * {@link RemoteProxy}, held in a {@link SourceRegistry} so repeated plays within
+ * the retention period hit the cache and idle sources are dropped after it;
+ * the feature toggles register {@link PluginManager} decorators; rendering is a
+ * {@link Renderer} strategy; and {@link #playPlaylist(List)} loads the next item
+ * as next-up I/O while the current one plays.
  */
 public class LegacyMediaPlayer {
-    
-    private String currentFile;
-    private String currentStream;
-    private String currentAPI;
-    private boolean isHardwareRendering = false;
-    private boolean hasWatermark = false;
-    private boolean hasSubtitles = false;
-    private boolean hasEqualizer = false;
-    private String watermarkText = "";
-    private String subtitleFile = "";
-    private String equalizerPreset = "";
-    
-    // Monolithic play method - handles everything
+    private static final Duration SOURCE_RETENTION = Duration.ofMinutes(5);
+
+    private final SegmentFetcher fetcher;
+    private final KeyCache keyCache;
+    private final String apiKey;
+    private final SourceRegistry sources = new SourceRegistry(SOURCE_RETENTION);
+    private final PluginManager plugins = new PluginManager();
+    private IoScheduler ioScheduler = IoScheduler.shared();
+    private Renderer renderer = new SoftwareRenderer();
+    private String watermarkText;
+    private String subtitleFile;
+    private String equalizerPreset;
+
+    public LegacyMediaPlayer() {
+        this(null, null);
+    }
+
+    /**
+     * Create a player that streams HLS for real through the given fetcher and
+     * resolves API media with the given key; either may be null to simulate
+     */
+    public LegacyMediaPlayer(SegmentFetcher fetcher, String apiKey) {
+        this.fetcher = fetcher;
+        this.keyCache = fetcher == null ? null : KeyCache.of(fetcher);
+        this.apiKey = apiKey;
+    }
+
     public void playFile(String filePath) {
-        System.out.println("=== LEGACY PLAYER: Playing File ===");
-        
-        // Duplicated file handling logic
-        if (filePath.endsWith(".mp4")) {
-            System.out.println("Loading MP4 file: " + filePath);
-            System.out.println("Initializing MP4 decoder...");
-            System.out.println("Setting up MP4-specific buffers...");
-        } else if (filePath.endsWith(".avi")) {
-            System.out.println("Loading AVI file: " + filePath);
-            System.out.println("Initializing AVI decoder...");
-            System.out.println("Setting up AVI-specific buffers...");
-        } else if (filePath.endsWith(".mkv")) {
-            System.out.println("Loading MKV file: " + filePath);
-            System.out.println("Initializing MKV decoder...");
-            System.out.println("Setting up MKV-specific buffers...");
+        EventLog.info("=== LEGACY PLAYER: Playing File ===");
+        try (SourceRegistry.Handle source = fileSource(filePath)) {
+            play(filePath, source);
         }
-        
-        // Hard-coded rendering logic
-        if (isHardwareRendering) {
-            System.out.println("Using hardware rendering (hardcoded)...");
-        } else {
-            System.out.println("Using software rendering (hardcoded)...");
-        }
-        
-        // Hard-coded feature application
-        if (hasWatermark) {
-            System.out.println("Applying watermark: " + watermarkText + " (hardcoded)");
-        }
-        if (hasSubtitles) {
-            System.out.println("Loading subtitles: " + subtitleFile + " (hardcoded)");
-        }
-        if (hasEqualizer) {
-            System.out.println("Applying equalizer: " + equalizerPreset + " (hardcoded)");
-        }
-        
-        System.out.println("Playing: " + filePath);
-        this.currentFile = filePath;
     }
-    
-    // Duplicated stream handling logic
+
     public void playStream(String streamUrl) {
-        System.out.println("=== LEGACY PLAYER: Playing Stream ===");
-        
-        if (streamUrl.contains("m3u8")) {
-            System.out.println("Loading HLS stream: " + streamUrl);
-            System.out.println("Parsing HLS playlist...");
-            System.out.println("Setting up HLS-specific buffers...");
-        } else if (streamUrl.contains("rtmp")) {
-            System.out.println("Loading RTMP stream: " + streamUrl);
-            System.out.println("Connecting to RTMP server...");
-            System.out.println("Setting up RTMP-specific buffers...");
-        } else {
-            System.out.println("Loading generic stream: " + streamUrl);
-            System.out.println("Setting up generic stream buffers...");
-        }
-        
-        // Same hard-coded rendering and feature logic
-        if (isHardwareRendering) {
-            System.out.println("Using hardware rendering (hardcoded)...");
-        } else {
-            System.out.println("Using software rendering (hardcoded)...");
+        EventLog.info("=== LEGACY PLAYER: Playing Stream ===");
+        try (SourceRegistry.Handle source = streamSource(streamUrl)) {
+            play(streamUrl, source);
         }
-        
-        if (hasWatermark) {
-            System.out.println("Applying watermark: " + watermarkText + " (hardcoded)");
-        }
-        if (hasSubtitles) {
-            System.out.println("Loading subtitles: " + subtitleFile + " (hardcoded)");
-        }
-        if (hasEqualizer) {
-            System.out.println("Applying equalizer: " + equalizerPreset + " (hardcoded)");
-        }
-        
-        System.out.println("Streaming: " + streamUrl);
-        this.currentStream = streamUrl;
     }
-    
-    // Duplicated API handling logic
+
     public void playFromAPI(String apiUrl) {
-        System.out.println("=== LEGACY PLAYER: Playing from API ===");
-        
-        System.out.println("Connecting to API: " + apiUrl);
-        System.out.println("Authenticating with API...");
-        System.out.println("Fetching media metadata...");
-        System.out.println("Setting up API-specific buffers...");
-        
-        // Same hard-coded rendering and feature logic (duplicated again!)
-        if (isHardwareRendering) {
-            System.out.println("Using hardware rendering (hardcoded)...");
-        } else {
-            System.out.println("Using software rendering (hardcoded)...");
-        }
-        
-        if (hasWatermark) {
-            System.out.println("Applying watermark: " + watermarkText + " (hardcoded)");
-        }
-        if (hasSubtitles) {
-            System.out.println("Loading subtitles: " + subtitleFile + " (hardcoded)");
-        }
-        if (hasEqualizer) {
-            System.out.println("Applying equalizer: " + equalizerPreset + " (hardcoded)");
+        EventLog.info("=== LEGACY PLAYER: Playing from API ===");
+        try (SourceRegistry.Handle source = apiSource(apiUrl)) {
+            play(apiUrl, source);
         }
-        
-        System.out.println("Streaming from API: " + apiUrl);
-        this.currentAPI = apiUrl;
     }
-    
-    // Monolithic playlist handling
+
+    /**
+     * Play the files in order; while one plays, the next is loaded in the background
+     */
     public void playPlaylist(List<String> files) {
-        System.out.println("=== LEGACY PLAYER: Playing Playlist ===");
-        for (String file : files) {
-            playFile(file); // Reusing the monolithic method
+        EventLog.info("=== LEGACY PLAYER: Playing Playlist ===");
+        List<SourceRegistry.Handle> items = new ArrayList<>(files.size());
+        try {
+            for (String file : files) {
+                items.add(fileSource(file));
+            }
+            CompletableFuture<Void> pending = null;
+            for (int i = 0; i < items.size(); i++) {
+                SourceRegistry.Handle current = items.get(i);
+                if (pending != null) {
+                    awaitPrefetch(files.get(i), pending);
+                }
+                SourceRegistry.Handle next = i + 1 < items.size() ? items.get(i + 1) : null;
+                pending = next != null && next.getSource() != current.getSource() ? prefetch(next) : null;
+                play(files.get(i), current);
+            }
+        } finally {
+            items.forEach(SourceRegistry.Handle::close);
         }
     }
-    
-    // Hard-coded feature toggles
+
     public void enableWatermark(String text) {
-        this.hasWatermark = true;
         this.watermarkText = text;
-        System.out.println("Watermark enabled: " + text);
+        rebuildPlugins();
+        EventLog.info("Watermark enabled: {}", text);
     }
-    
+
     public void enableSubtitles(String file) {
-        this.hasSubtitles = true;
         this.subtitleFile = file;
-        System.out.println("Subtitles enabled: " + file);
+        rebuildPlugins();
+        EventLog.info("Subtitles enabled: {}", file);
     }
-    
+
     public void enableEqualizer(String preset) {
-        this.hasEqualizer = true;
         this.equalizerPreset = preset;
-        System.out.println("Equalizer enabled: " + preset);
+        rebuildPlugins();
+        EventLog.info("Equalizer enabled: {}", preset);
     }
-    
+
     public void switchToHardwareRendering() {
-        this.isHardwareRendering = true;
-        System.out.println("Switched to hardware rendering");
+        this.renderer = new HardwareRenderer();
+        EventLog.info("Switched to hardware rendering");
     }
-    
+
     public void switchToSoftwareRendering() {
-        this.isHardwareRendering = false;
-        System.out.println("Switched to software rendering");
+        this.renderer = new SoftwareRenderer();
+        EventLog.info("Switched to software rendering");
     }
-    
-    // No caching mechanism - streams are fetched every time
+
+    /**
+     * Play a stream, reusing the cached source from an earlier play of the same URL
+     * within the retention period
+     */
     public void playCachedStream(String streamUrl) {
-        System.out.println("=== LEGACY PLAYER: No Caching - Fetching Again ===");
-        playStream(streamUrl); // Just calls the same method again
+        EventLog.info("=== LEGACY PLAYER: Playing Cached Stream ===");
+        try (SourceRegistry.Handle source = streamSource(streamUrl)) {
+            play(streamUrl, source);
+        }
+    }
+
+    /**
+     * Schedule background loads on the given scheduler instead of the shared one
+     */
+    public void setIoScheduler(IoScheduler ioScheduler) {
+        this.ioScheduler = ioScheduler;
+    }
+
+    private void play(String location, SourceRegistry.Handle source) {
+        Media media = plugins.applyDecorators(new MediaItem(location, source));
+        media.play();
+        renderer.render(source.getSourceInfo());
+    }
+
+    private CompletableFuture<Void> prefetch(SourceRegistry.Handle source) {
+        return ioScheduler.submitBlocking(IoPriority.NEXT_UP, System.nanoTime(), () -> {
+            source.load();
+            return null;
+        });
+    }
+
+    /**
+     * Wait for the background load of the next item; if it failed, the item's own
+     * load retries it
+     */
+    private void awaitPrefetch(String location, CompletableFuture<Void> pending) {
+        boolean stalled = !pending.isDone();
+        long waitStart = System.nanoTime();
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            EventLog.debug("  → Prefetch of {} failed: {}", location, e.getCause());
+        }
+        if (stalled) {
+            PlaybackMetrics.recordPrefetchStall(location, System.nanoTime() - waitStart);
+        }
+    }
+
+    private SourceRegistry.Handle fileSource(String filePath) {
+        return cached(filePath, () -> new LocalFileAdapter(filePath));
+    }
+
+    /**
+     * HLS for {@code m3u8} URLs; any other stream (RTMP, progressive HTTP, ...) gets
+     * the generic remote adapter, as before HLS had a real implementation
+     */
+    private SourceRegistry.Handle streamSource(String streamUrl) {
+        if (!streamUrl.contains("m3u8")) {
+            return cached(streamUrl, () -> new RemoteAPIAdapter(streamUrl));
+        }
+        return cached(streamUrl, () -> new HLSStreamAdapter(streamUrl, fetcher, keyCache, DirectBufferPool.shared()));
+    }
+
+    private SourceRegistry.Handle apiSource(String apiUrl) {
+        return cached(apiUrl, () -> apiKey == null ? new RemoteAPIAdapter(apiUrl)
+                : new RemoteAPIAdapter(apiUrl, ApiClient.forHost(URI.create(apiUrl), apiKey)));
+    }
+
+    private SourceRegistry.Handle cached(String location, Supplier<MediaSource> factory) {
+        return sources.acquire(location, key -> new RemoteProxy(factory.get()));
+    }
+
+    /**
+     * Re-register the enabled features in the order the legacy player applied them
+     */
+    private void rebuildPlugins() {
+        plugins.clear();
+        String watermark = watermarkText;
+        String subtitles = subtitleFile;
+        String preset = equalizerPreset;
+        if (watermark != null) {
+            plugins.registerDecorator(media -> new WatermarkDecorator(media, watermark));
+        }
+        if (subtitles != null) {
+            plugins.registerDecorator(media -> new SubtitleDecorator(media, subtitles));
+        }
+        if (preset != null) {
+            plugins.registerDecorator(media -> new EqualizerDecorator(media, preset));
+        }
     }
 }
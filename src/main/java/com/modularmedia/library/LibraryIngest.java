@@ -0,0 +1,367 @@
+package com.modularmedia.library;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import com.modularmedia.core.Media;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.playlist.MediaItem;
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.sources.LocalFileAdapter;
+import com.modularmedia.sources.index.MediaProbe;
+
+/**
+ * Builds {@link Playlist}s from media directory trees.
+ *
+ * Directories are walked in parallel on a fork/join pool: each directory is a
+ * task that forks one subtask per subdirectory and probes its own files, split
+ * into chunks for very large folders. Every folder becomes a playlist named after
+ * it, holding a {@link MediaItem} per media file and a nested playlist per
+ * subfolder, in name order. Probes go through a {@link ProbeCache}, so a rescan
+ * only opens files whose size or modification time changed.
+ *
+ * After {@link #ingest(Path)}, {@link #watch(Consumer)} keeps the same playlists
+ * up to date from file system events, re-probing only the files that changed.
+ * Those updates run on the watcher thread, which is then the only writer of the
+ * playlists; new entries are inserted in name order.
+ */
+public class LibraryIngest {
+    private static final int FILES_PER_TASK = 256;
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(path -> path.getFileName().toString());
+
+    private final ProbeCache cache;
+    private final ForkJoinPool pool;
+    private final Map<Path, Playlist> folders = new ConcurrentHashMap<>();
+    private final Map<Path, Entry> files = new ConcurrentHashMap<>();
+    private volatile Path root;
+
+    /**
+     * Create an ingest engine with two walker threads per core, as the work is mostly file I/O
+     */
+    public LibraryIngest(ProbeCache cache) {
+        this(cache, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public LibraryIngest(ProbeCache cache, int parallelism) {
+        this.cache = cache;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Walk the tree under {@code rootDirectory} and build its playlist; the probe
+     * cache is saved afterwards
+     */
+    public Playlist ingest(Path rootDirectory) throws IOException {
+        Path directory = rootDirectory.toAbsolutePath().normalize();
+        if (!Files.isDirectory(directory)) {
+            throw new NoSuchFileException(directory.toString(), null, "not a directory");
+        }
+        long start = System.nanoTime();
+        long misses = cache.getMisses();
+        folders.clear();
+        files.clear();
+        Playlist playlist = pool.invoke(new FolderTask(directory));
+        this.root = directory;
+        EventLog.info("Ingested {} media files in {} folders from {}", files.size(), folders.size(), directory);
+        EventLog.debug("  → {} probed, {} ms", cache.getMisses() - misses, (System.nanoTime() - start) / 1_000_000);
+        cache.save();
+        return playlist;
+    }
+
+    /**
+     * Keep the ingested playlists in sync with the file system until the watcher is closed
+     *
+     * @param listener called on the watcher thread with each folder playlist that changed
+     */
+    public LibraryWatcher watch(Consumer<Playlist> listener) throws IOException {
+        if (root == null) {
+            throw new IllegalStateException("Nothing ingested yet");
+        }
+        return new LibraryWatcher(this, listener);
+    }
+
+    /**
+     * Get the playlist of an ingested folder, or null
+     */
+    public Playlist getFolder(Path directory) {
+        return folders.get(directory.toAbsolutePath().normalize());
+    }
+
+    public int getFolderCount() {
+        return folders.size();
+    }
+
+    public int getMediaCount() {
+        return files.size();
+    }
+
+    public ProbeCache getCache() {
+        return cache;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Ingested folders at or under the given directory
+     */
+    List<Path> foldersUnder(Path directory) {
+        List<Path> under = new ArrayList<>();
+        for (Path folder : folders.keySet()) {
+            if (folder.startsWith(directory)) {
+                under.add(folder);
+            }
+        }
+        return under;
+    }
+
+    /**
+     * Bring one path up to date with the file system: add, re-probe or remove
+     * the file, or ingest or drop the directory
+     *
+     * @return true if a playlist changed
+     */
+    boolean refresh(Path path) {
+        Playlist parent = folders.get(path.getParent());
+        if (parent == null) {
+            return false;
+        }
+        BasicFileAttributes attributes = attributes(path);
+        boolean isDirectory = attributes != null && attributes.isDirectory();
+        boolean changed = false;
+        Playlist folder = folders.get(path);
+        if (folder != null && !isDirectory) {
+            dropFolder(path, parent, folder);
+            changed = true;
+        }
+        Entry old = files.get(path);
+        MediaProbe probe = attributes != null && attributes.isRegularFile() ? probe(path, attributes) : null;
+        if (old != null && old.probe.equals(probe)) {
+            return changed;
+        }
+        if (old != null) {
+            files.remove(path);
+            parent.remove(old.item);
+            changed = true;
+        }
+        if (attributes == null) {
+            cache.remove(path);
+        }
+        if (isDirectory && folder == null) {
+            insertByName(parent, pool.invoke(new FolderTask(path)), path);
+            return true;
+        }
+        if (probe != null) {
+            Entry entry = new Entry(path, probe);
+            files.put(path, entry);
+            insertByName(parent, entry.item, path);
+            return true;
+        }
+        return changed;
+    }
+
+    /**
+     * Insert a file's item or a folder's playlist where the walk would have put it
+     */
+    private static void insertByName(Playlist parent, Media media, Path path) {
+        String name = path.getFileName().toString();
+        List<Media> items = parent.getItems();
+        int index = 0;
+        while (index < items.size() && nameOf(items.get(index)).compareTo(name) < 0) {
+            index++;
+        }
+        parent.add(index, media);
+    }
+
+    private static String nameOf(Media media) {
+        if (media instanceof Playlist) {
+            return ((Playlist) media).getName();
+        }
+        return media instanceof MediaItem ? ((MediaItem) media).getTitle() : "";
+    }
+
+    /**
+     * Reconcile a whole folder with the file system, e.g. after watch events were lost
+     *
+     * @return true if a playlist changed
+     */
+    boolean rescan(Path directory) {
+        List<Path> known = new ArrayList<>();
+        for (Path path : files.keySet()) {
+            if (directory.equals(path.getParent())) {
+                known.add(path);
+            }
+        }
+        for (Path path : folders.keySet()) {
+            if (directory.equals(path.getParent())) {
+                known.add(path);
+            }
+        }
+        boolean changed = false;
+        for (Path path : known) {
+            changed |= refresh(path);
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path path : entries) {
+                changed |= refresh(path);
+            }
+        } catch (IOException e) {
+            EventLog.warn("Cannot rescan {}: {}", directory, e.getMessage());
+        }
+        return changed;
+    }
+
+    private void dropFolder(Path directory, Playlist parent, Playlist folder) {
+        parent.remove(folder);
+        folders.keySet().removeIf(path -> path.startsWith(directory));
+        files.keySet().removeIf(path -> path.startsWith(directory));
+        cache.removeTree(directory);
+    }
+
+    private MediaProbe probe(Path path, BasicFileAttributes attributes) {
+        try {
+            return cache.get(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            EventLog.warn("Cannot probe {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One ingested media file: its probe and the playlist item made from it
+     */
+    private static final class Entry {
+        private final MediaProbe probe;
+        private final MediaItem item;
+
+        Entry(Path path, MediaProbe probe) {
+            this.probe = probe;
+            this.item = new MediaItem(path.getFileName().toString(),
+                    new LocalFileAdapter(path.toString(), probe.getContainer()),
+                    "Local File: " + path + " (" + probe + ")");
+        }
+    }
+
+    /**
+     * Lists one directory, forks its subdirectories, probes its files and
+     * assembles its playlist in name order
+     */
+    private final class FolderTask extends RecursiveTask<Playlist> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+
+        FolderTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected Playlist compute() {
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                entries.forEach(children::add);
+            } catch (IOException e) {
+                EventLog.warn("Cannot list {}: {}", directory, e.getMessage());
+            }
+            children.sort(BY_NAME);
+
+            List<Path> filePaths = new ArrayList<>();
+            List<BasicFileAttributes> fileAttributes = new ArrayList<>();
+            List<FolderTask> subfolders = new ArrayList<>();
+            Object[] slots = new Object[children.size()];
+            for (int i = 0; i < children.size(); i++) {
+                Path child = children.get(i);
+                BasicFileAttributes attributes = attributes(child);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    FolderTask task = new FolderTask(child);
+                    task.fork();
+                    subfolders.add(task);
+                    slots[i] = task;
+                } else if (attributes.isRegularFile()) {
+                    slots[i] = filePaths.size();
+                    filePaths.add(child);
+                    fileAttributes.add(attributes);
+                }
+            }
+            Entry[] probed = new Entry[filePaths.size()];
+            new ProbeTask(filePaths, fileAttributes, probed, 0, probed.length).invoke();
+
+            Playlist playlist = new Playlist(directory.getFileName() == null
+                    ? directory.toString() : directory.getFileName().toString());
+            for (Object slot : slots) {
+                if (slot instanceof FolderTask) {
+                    playlist.add(((FolderTask) slot).join());
+                } else if (slot instanceof Integer && probed[(Integer) slot] != null) {
+                    Entry entry = probed[(Integer) slot];
+                    files.put(filePaths.get((Integer) slot), entry);
+                    playlist.add(entry.item);
+                }
+            }
+            folders.put(directory, playlist);
+            return playlist;
+        }
+    }
+
+    /**
+     * Probes a range of one folder's files, splitting large ranges in half
+     */
+    private final class ProbeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> paths;
+        private final List<BasicFileAttributes> attributes;
+        private final Entry[] results;
+        private final int from;
+        private final int to;
+
+        ProbeTask(List<Path> paths, List<BasicFileAttributes> attributes, Entry[] results, int from, int to) {
+            this.paths = paths;
+            this.attributes = attributes;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ProbeTask(paths, attributes, results, from, middle),
+                        new ProbeTask(paths, attributes, results, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                MediaProbe probe = probe(paths.get(i), attributes.get(i));
+                if (probe != null) {
+                    results[i] = new Entry(paths.get(i), probe);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.modularmedia.library;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.playlist.Playlist;
+
+/**
+ * Applies file system changes to the playlists of a {@link LibraryIngest}.
+ *
+ * Every ingested folder is registered with a {@link WatchService}. Events are
+ * collected until the folder has been quiet for a moment (a content drop writes
+ * each file in many steps), then each touched path is refreshed once: unchanged
+ * files are cache hits, changed ones are probed again, new folders are ingested
+ * and watched. If events were lost, the folder is reconciled as a whole. A batch
+ * that fails is logged and its folders are reconciled with the next batch, so
+ * one bad file or listener does not stop the watching.
+ */
+public final class LibraryWatcher implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 200;
+    private static final long MAX_BATCH_MILLIS = 2000;
+
+    private final LibraryIngest ingest;
+    private final Consumer<Playlist> listener;
+    private final WatchService service;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Set<Path> watched = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+    private volatile long batches = 0;
+    private volatile long refreshes = 0;
+    private final Set<Path> failed = new LinkedHashSet<>();
+
+    LibraryWatcher(LibraryIngest ingest, Consumer<Playlist> listener) throws IOException {
+        this.ingest = ingest;
+        this.listener = listener;
+        this.service = ingest.getRoot().getFileSystem().newWatchService();
+        for (Path folder : ingest.foldersUnder(ingest.getRoot())) {
+            register(folder);
+        }
+        this.thread = LightweightThreads.daemonFactory("library-watcher").newThread(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * Number of event batches applied so far
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Number of paths refreshed so far
+     */
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    public int getWatchedFolders() {
+        return watched.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                Set<Path> overflowed = new LinkedHashSet<>(failed);
+                failed.clear();
+                collect(service.take(), changed, overflowed);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BATCH_MILLIS);
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed, overflowed);
+                }
+                try {
+                    apply(changed, overflowed);
+                } catch (ClosedWatchServiceException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    Set<Path> folders = folders(changed, overflowed);
+                    EventLog.warn("Library update failed, will rescan {} folders: {}", folders.size(), e);
+                    failed.addAll(folders);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * The folders a batch touched
+     */
+    private static Set<Path> folders(Set<Path> changed, Set<Path> overflowed) {
+        Set<Path> folders = new LinkedHashSet<>(overflowed);
+        for (Path path : changed) {
+            folders.add(path.getParent());
+        }
+        return folders;
+    }
+
+    private void collect(WatchKey key, Set<Path> changed, Set<Path> overflowed) {
+        Path directory = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed.add(directory);
+            } else {
+                changed.add(directory.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+            watched.remove(directory);
+        }
+    }
+
+    private void apply(Set<Path> changed, Set<Path> overflowed) {
+        Set<Path> touched = new LinkedHashSet<>();
+        for (Path directory : overflowed) {
+            refreshes++;
+            if (ingest.rescan(directory)) {
+                touched.add(directory);
+            }
+            registerNew(directory);
+        }
+        for (Path path : changed) {
+            if (overflowed.contains(path.getParent())) {
+                continue;
+            }
+            refreshes++;
+            if (ingest.refresh(path)) {
+                touched.add(path.getParent());
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                registerNew(path);
+            }
+        }
+        batches++;
+        EventLog.debug("  → Library batch: {} paths, {} folders changed", changed.size() + overflowed.size(), touched.size());
+        try {
+            ingest.getCache().save();
+        } catch (IOException e) {
+            EventLog.warn("Cannot save probe cache: {}", e.getMessage());
+        }
+        for (Path directory : touched) {
+            Playlist playlist = ingest.getFolder(directory);
+            if (playlist != null && listener != null) {
+                listener.accept(playlist);
+            }
+        }
+    }
+
+    private void registerNew(Path directory) {
+        for (Path folder : ingest.foldersUnder(directory)) {
+            if (!watched.contains(folder)) {
+                register(folder);
+            }
+        }
+    }
+
+    private void register(Path folder) {
+        try {
+            WatchKey key = folder.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            keys.put(key, folder);
+            watched.add(folder);
+        } catch (IOException e) {
+            EventLog.warn("Cannot watch {}: {}", folder, e.getMessage());
+        }
+    }
+}
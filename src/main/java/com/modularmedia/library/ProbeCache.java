@@ -0,0 +1,168 @@
+package com.modularmedia.library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.modularmedia.sources.index.MediaProbe;
+
+/**
+ * Probe results keyed by path, size and modification time, kept between runs.
+ *
+ * A lookup whose size or modification time no longer matches probes the file
+ * again. Files that turned out not to be media are remembered too, so they are
+ * not reopened on every scan. The cache file is tab-separated text and is
+ * replaced atomically on {@link #save()}.
+ */
+public final class ProbeCache {
+    private static final String HEADER = "# modularmedia probe cache v1";
+    private static final String NOT_MEDIA = "-";
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean dirty = false;
+
+    /**
+     * Create an in-memory cache that is not persisted
+     */
+    public ProbeCache() {
+        this(null);
+    }
+
+    private ProbeCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the cache persisted at the given file; a missing file gives an empty cache
+     */
+    public static ProbeCache open(Path file) throws IOException {
+        ProbeCache cache = new ProbeCache(file);
+        if (Files.exists(file)) {
+            cache.read();
+        }
+        return cache;
+    }
+
+    /**
+     * Probe result of a file, from the cache while its size and modification time match
+     *
+     * @return the probe, or null if the file is not recognized media
+     * @throws IOException if the file has to be probed and cannot be read
+     */
+    public MediaProbe get(Path path, long size, long modifiedMillis) throws IOException {
+        String key = path.toAbsolutePath().toString();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size == size && entry.modifiedMillis == modifiedMillis) {
+            hits.increment();
+            return entry.probe;
+        }
+        misses.increment();
+        MediaProbe probe = MediaProbe.probe(path);
+        entries.put(key, new Entry(size, modifiedMillis, probe));
+        dirty = true;
+        return probe;
+    }
+
+    public void remove(Path path) {
+        if (entries.remove(path.toAbsolutePath().toString()) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drop every entry for a file inside the given directory
+     */
+    public void removeTree(Path directory) {
+        String prefix = directory.toAbsolutePath().toString() + directory.getFileSystem().getSeparator();
+        if (entries.keySet().removeIf(key -> key.startsWith(prefix))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Write the cache back to its file if anything changed since it was opened or last saved
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                String path = e.getKey();
+                if (path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0) {
+                    continue;
+                }
+                Entry entry = e.getValue();
+                out.write(entry.size + "\t" + entry.modifiedMillis + "\t"
+                        + (entry.probe == null ? NOT_MEDIA + "\t0" : entry.probe.getContainer() + "\t" + entry.probe.getDurationSeconds())
+                        + "\t" + path);
+                out.newLine();
+            }
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void read() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                // Unknown format version: start over, the next save replaces it
+                return;
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 5);
+                if (fields.length < 5) {
+                    continue;
+                }
+                try {
+                    MediaProbe probe = NOT_MEDIA.equals(fields[2]) ? null
+                            : new MediaProbe(fields[2], Double.parseDouble(fields[3]));
+                    entries.put(fields[4], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), probe));
+                } catch (NumberFormatException e) {
+                    // Skip the damaged line; the file is probed again
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long modifiedMillis;
+        private final MediaProbe probe;
+
+        Entry(long size, long modifiedMillis, MediaProbe probe) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.probe = probe;
+        }
+    }
+}
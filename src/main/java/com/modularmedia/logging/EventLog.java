@@ -0,0 +1,128 @@
+package com.modularmedia.logging;
+
+/**
+ * Asynchronous, level-gated event log used instead of {@code System.out.println}.
+ *
+ * Events are a message template with up to three arguments; each {@code {}} in the
+ * template is replaced by the next argument. Disabled levels return after a single
+ * volatile read, before any message is built. Enabled events are handed to a
+ * lock-free ring and formatted and written by one background writer thread, so
+ * playback threads never serialize on the stdout lock.
+ *
+ * With verbose logging (the default, {@code -Dmodularmedia.log.level=DEBUG}) the
+ * output is line-for-line what the suite used to print directly. Use
+ * {@code INFO} to keep only milestones, or {@code OFF} to silence everything.
+ */
+public final class EventLog {
+    private static final int RING_CAPACITY = 8192;
+
+    private static volatile int threshold = parseLevel(System.getProperty("modularmedia.log.level")).ordinal();
+    private static final EventRing RING = new EventRing(RING_CAPACITY, System.out);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(EventLog::flush, "event-log-flush"));
+    }
+
+    private EventLog() {
+    }
+
+    public static void setLevel(LogLevel level) {
+        threshold = level.ordinal();
+    }
+
+    public static LogLevel getLevel() {
+        return LogLevel.values()[threshold];
+    }
+
+    /**
+     * Verbose mode logs everything (DEBUG); otherwise only INFO and above
+     */
+    public static void setVerbose(boolean verbose) {
+        setLevel(verbose ? LogLevel.DEBUG : LogLevel.INFO);
+    }
+
+    public static boolean isEnabled(LogLevel level) {
+        return level != LogLevel.OFF && level.ordinal() >= threshold;
+    }
+
+    public static boolean isDebugEnabled() {
+        return threshold == 0;
+    }
+
+    public static boolean isInfoEnabled() {
+        return threshold <= LogLevel.INFO.ordinal();
+    }
+
+    /**
+     * Block until all events logged so far have been written
+     */
+    public static void flush() {
+        RING.flush();
+    }
+
+    public static void debug(String message) {
+        log(LogLevel.DEBUG, message, 0, null, null, null);
+    }
+
+    public static void debug(String template, Object arg) {
+        log(LogLevel.DEBUG, template, 1, arg, null, null);
+    }
+
+    public static void debug(String template, Object arg1, Object arg2) {
+        log(LogLevel.DEBUG, template, 2, arg1, arg2, null);
+    }
+
+    public static void debug(String template, Object arg1, Object arg2, Object arg3) {
+        log(LogLevel.DEBUG, template, 3, arg1, arg2, arg3);
+    }
+
+    public static void info(String message) {
+        log(LogLevel.INFO, message, 0, null, null, null);
+    }
+
+    public static void info(String template, Object arg) {
+        log(LogLevel.INFO, template, 1, arg, null, null);
+    }
+
+    public static void info(String template, Object arg1, Object arg2) {
+        log(LogLevel.INFO, template, 2, arg1, arg2, null);
+    }
+
+    public static void info(String template, Object arg1, Object arg2, Object arg3) {
+        log(LogLevel.INFO, template, 3, arg1, arg2, arg3);
+    }
+
+    public static void warn(String message) {
+        log(LogLevel.WARN, message, 0, null, null, null);
+    }
+
+    public static void warn(String template, Object arg) {
+        log(LogLevel.WARN, template, 1, arg, null, null);
+    }
+
+    public static void warn(String template, Object arg1, Object arg2) {
+        log(LogLevel.WARN, template, 2, arg1, arg2, null);
+    }
+
+    public static void warn(String template, Object arg1, Object arg2, Object arg3) {
+        log(LogLevel.WARN, template, 3, arg1, arg2, arg3);
+    }
+
+    private static void log(LogLevel level, String template, int argCount, Object arg1, Object arg2, Object arg3) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        RING.publish(template, argCount, arg1, arg2, arg3);
+    }
+
+    private static LogLevel parseLevel(String value) {
+        if (value == null || value.isBlank()) {
+            return LogLevel.DEBUG;
+        }
+        try {
+            return LogLevel.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return LogLevel.DEBUG;
+        }
+    }
+}
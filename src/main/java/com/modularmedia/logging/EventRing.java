@@ -0,0 +1,150 @@
+package com.modularmedia.logging;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free multi-producer, single-consumer ring of log events.
+ *
+ * Producers claim a sequence number with one atomic increment, fill the
+ * preallocated slot and publish it with a volatile write. A single writer thread
+ * drains slots in sequence order, formats them and writes whole batches to the
+ * output stream, so application threads never contend on the stream lock.
+ * When the ring is full, producers wait for the writer instead of dropping events.
+ * The writer thread is started by the first publish, so a log that never emits
+ * anything (level {@code OFF}) costs no thread, and it parks while the ring is
+ * empty until a producer wakes it.
+ */
+final class EventRing {
+    private static final class Slot {
+        private volatile long sequence = -1;
+        private String template;
+        private int argCount;
+        private Object arg1;
+        private Object arg2;
+        private Object arg3;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final PrintStream out;
+    private final Thread writer;
+    private volatile long consumed = 0;
+    private volatile long flushed = 0;
+    private volatile boolean writerParked = false;
+    private volatile boolean started = false;
+
+    EventRing(int capacity, PrintStream out) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    void publish(String template, int argCount, Object arg1, Object arg2, Object arg3) {
+        if (!started) {
+            startWriter();
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= slots.length) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.template = template;
+        slot.argCount = argCount;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.arg3 = arg3;
+        slot.sequence = sequence;
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Block until every event published before this call has been written out
+     */
+    void flush() {
+        if (!started) {
+            return;
+        }
+        long target = claimed.get();
+        while (flushed < target) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (!started) {
+            writer.start();
+            started = true;
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(8192);
+        String lineSeparator = System.lineSeparator();
+        long next = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence == next) {
+                format(batch, slot);
+                batch.append(lineSeparator);
+                slot.template = null;
+                slot.arg1 = null;
+                slot.arg2 = null;
+                slot.arg3 = null;
+                next++;
+                consumed = next;
+                if (batch.length() < 64 * 1024) {
+                    continue;
+                }
+            }
+            if (batch.length() > 0) {
+                out.print(batch);
+                out.flush();
+                batch.setLength(0);
+            }
+            flushed = next;
+            if (slot.sequence != next) {
+                // Publishers unpark the writer after seeing this flag, and the
+                // sequence is re-read after setting it, so no wake-up is lost
+                writerParked = true;
+                if (slot.sequence != next) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+            }
+        }
+    }
+
+    private static void format(StringBuilder target, Slot slot) {
+        String template = slot.template;
+        if (slot.argCount == 0) {
+            target.append(template);
+            return;
+        }
+        int from = 0;
+        for (int i = 0; i < slot.argCount; i++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            target.append(template, from, at);
+            target.append(i == 0 ? slot.arg1 : i == 1 ? slot.arg2 : slot.arg3);
+            from = at + 2;
+        }
+        target.append(template, from, template.length());
+    }
+}
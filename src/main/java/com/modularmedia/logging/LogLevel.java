@@ -0,0 +1,15 @@
+package com.modularmedia.logging;
+
+/**
+ * Severity levels for {@link EventLog}, from most to least verbose.
+ */
+public enum LogLevel {
+    /** Step-by-step detail (the "  →" lines) */
+    DEBUG,
+    /** Playback milestones */
+    INFO,
+    /** Problems that do not stop playback */
+    WARN,
+    /** Logging disabled */
+    OFF
+}
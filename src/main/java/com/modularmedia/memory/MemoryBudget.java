@@ -0,0 +1,260 @@
+package com.modularmedia.memory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Process-wide accountant for the memory held by caches, prefetch buffers and pools.
+ *
+ * Components reserve and release the heap and direct bytes they hold through an
+ * {@link Account}, and the budget turns total usage against the configured limits
+ * into a {@link Pressure} level. The policy is graduated: at {@code ELEVATED}
+ * prefetchers shrink their depth, at {@code HIGH} caches and pools evict cold
+ * entries, and at {@code CRITICAL} new sessions are refused. Pressure changes are
+ * delivered to listeners on a background thread, so a component that reserves
+ * while holding its own lock is never called back under it.
+ *
+ * Limits come from {@code -Dmodularmedia.memory.heap} and
+ * {@code -Dmodularmedia.memory.direct} (bytes), defaulting to half the maximum heap
+ * for each. Usage and pressure are exposed over JMX.
+ */
+public final class MemoryBudget implements MemoryBudgetMXBean {
+    /** Kind of memory an account holds */
+    public enum Kind { HEAP, DIRECT }
+
+    /** Pressure level, from the fraction of the tighter limit in use */
+    public enum Pressure { NORMAL, ELEVATED, HIGH, CRITICAL }
+
+    /**
+     * Notified, on the budget's notifier thread, whenever the pressure level changes
+     */
+    @FunctionalInterface
+    public interface PressureListener {
+        void onPressureChanged(Pressure pressure);
+    }
+
+    private static final double ELEVATED_RATIO = 0.70;
+    private static final double HIGH_RATIO = 0.85;
+    private static final double CRITICAL_RATIO = 0.95;
+    private static final MemoryBudget GLOBAL = new MemoryBudget(
+            limit("modularmedia.memory.heap"), limit("modularmedia.memory.direct"));
+
+    private final long heapLimit;
+    private final long directLimit;
+    private final AtomicLong heapUsed = new AtomicLong();
+    private final AtomicLong directUsed = new AtomicLong();
+    private final LongAdder refused = new LongAdder();
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final List<PressureListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Pressure> pressure = new AtomicReference<>(Pressure.NORMAL);
+    private final ExecutorService notifier =
+            Executors.newSingleThreadExecutor(LightweightThreads.daemonFactory("memory-pressure"));
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL,
+                    new ObjectName("com.modularmedia:type=MemoryBudget"));
+        } catch (JMException e) {
+            // Already registered (e.g. by another class loader) or JMX unavailable
+        }
+    }
+
+    public MemoryBudget(long heapLimitBytes, long directLimitBytes) {
+        this.heapLimit = heapLimitBytes;
+        this.directLimit = directLimitBytes;
+    }
+
+    /**
+     * Budget shared by the whole process
+     */
+    public static MemoryBudget global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Get the account a component reserves through, creating it on first use
+     */
+    public Account account(String component, Kind kind) {
+        String name = component + "." + kind.name().toLowerCase(Locale.ROOT);
+        return accounts.computeIfAbsent(name, k -> new Account(this, name, kind));
+    }
+
+    public void addListener(PressureListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PressureListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Pressure getPressureLevel() {
+        return pressure.get();
+    }
+
+    /**
+     * Prefetch depth to use for a component that would normally prefetch
+     * {@code normalDepth} items: one under any pressure
+     */
+    public int prefetchDepth(int normalDepth) {
+        return pressure.get() == Pressure.NORMAL ? normalDepth : Math.min(1, normalDepth);
+    }
+
+    /**
+     * Check whether new sessions may start; false only at {@code CRITICAL}
+     */
+    public boolean admitsNewSessions() {
+        return pressure.get() != Pressure.CRITICAL;
+    }
+
+    @Override
+    public String getPressure() {
+        return pressure.get().name();
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        return heapUsed.get();
+    }
+
+    @Override
+    public long getHeapLimitBytes() {
+        return heapLimit;
+    }
+
+    @Override
+    public long getDirectUsedBytes() {
+        return directUsed.get();
+    }
+
+    @Override
+    public long getDirectLimitBytes() {
+        return directLimit;
+    }
+
+    @Override
+    public Map<String, Long> getUsageByComponent() {
+        Map<String, Long> usage = new TreeMap<>();
+        accounts.forEach((name, account) -> usage.put(name, account.getUsedBytes()));
+        return usage;
+    }
+
+    @Override
+    public long getRefusedReservations() {
+        return refused.sum();
+    }
+
+    private boolean reserve(Kind kind, long bytes, boolean optional) {
+        AtomicLong used = kind == Kind.HEAP ? heapUsed : directUsed;
+        long limit = kind == Kind.HEAP ? heapLimit : directLimit;
+        while (true) {
+            long current = used.get();
+            if (optional && current + bytes > limit) {
+                refused.increment();
+                return false;
+            }
+            if (used.compareAndSet(current, current + bytes)) {
+                break;
+            }
+        }
+        updatePressure();
+        return true;
+    }
+
+    private void release(Kind kind, long bytes) {
+        (kind == Kind.HEAP ? heapUsed : directUsed).addAndGet(-bytes);
+        updatePressure();
+    }
+
+    private void updatePressure() {
+        double ratio = Math.max((double) heapUsed.get() / heapLimit, (double) directUsed.get() / directLimit);
+        Pressure level = ratio >= CRITICAL_RATIO ? Pressure.CRITICAL
+                : ratio >= HIGH_RATIO ? Pressure.HIGH
+                : ratio >= ELEVATED_RATIO ? Pressure.ELEVATED
+                : Pressure.NORMAL;
+        Pressure previous = pressure.getAndSet(level);
+        if (previous != level) {
+            EventLog.debug("  → Memory pressure {} -> {}", previous, level);
+            notifier.execute(() -> {
+                // Deliver only the level still current, so listeners never act on a stale one
+                if (pressure.get() == level) {
+                    listeners.forEach(listener -> listener.onPressureChanged(level));
+                }
+            });
+        }
+    }
+
+    private static long limit(String property) {
+        String value = System.getProperty(property);
+        return value != null && !value.isBlank() ? Long.parseLong(value.trim()) : Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    /**
+     * One component's share of the budget for one kind of memory
+     */
+    public static final class Account {
+        private final MemoryBudget budget;
+        private final String name;
+        private final Kind kind;
+        private final AtomicLong used = new AtomicLong();
+
+        private Account(MemoryBudget budget, String name, Kind kind) {
+            this.budget = budget;
+            this.name = name;
+            this.kind = kind;
+        }
+
+        /**
+         * Account for memory the component already holds or must hold
+         */
+        public void reserve(long bytes) {
+            budget.reserve(kind, bytes, false);
+            used.addAndGet(bytes);
+        }
+
+        /**
+         * Reserve memory for something optional, such as a cache insert
+         *
+         * @return false, reserving nothing, if it would exceed the limit
+         */
+        public boolean tryReserve(long bytes) {
+            if (!budget.reserve(kind, bytes, true)) {
+                return false;
+            }
+            used.addAndGet(bytes);
+            return true;
+        }
+
+        public void release(long bytes) {
+            used.addAndGet(-bytes);
+            budget.release(kind, bytes);
+        }
+
+        public long getUsedBytes() {
+            return used.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public MemoryBudget getBudget() {
+            return budget;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.modularmedia.memory;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link MemoryBudget}, registered as {@code com.modularmedia:type=MemoryBudget}.
+ */
+public interface MemoryBudgetMXBean {
+    /**
+     * Current pressure level: NORMAL, ELEVATED, HIGH or CRITICAL
+     */
+    String getPressure();
+
+    long getHeapUsedBytes();
+
+    long getHeapLimitBytes();
+
+    long getDirectUsedBytes();
+
+    long getDirectLimitBytes();
+
+    /**
+     * Accounted bytes per component, keyed like {@code hls.buffers.direct}
+     */
+    Map<String, Long> getUsageByComponent();
+
+    /**
+     * Optional reservations refused because they would have exceeded a limit
+     */
+    long getRefusedReservations();
+}
@@ -0,0 +1,22 @@
+package com.modularmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a cache lookup in one of the named caches.
+ */
+@Name("com.modularmedia.CacheAccess")
+@Label("Cache Access")
+@Category({"Modular Media", "Cache"})
+class CacheAccessEvent extends jdk.jfr.Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Cache Key")
+    String key;
+
+    @Label("Result")
+    String result;
+}
@@ -0,0 +1,21 @@
+package com.modularmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for the time one decorator spent on its own stage, excluding the media it wraps.
+ */
+@Name("com.modularmedia.DecoratorStage")
+@Label("Decorator Stage")
+@Category({"Modular Media", "Plugins"})
+class DecoratorStageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long stageDuration;
+}
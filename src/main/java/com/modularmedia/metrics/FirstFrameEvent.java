@@ -0,0 +1,20 @@
+package com.modularmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted once per playback when the first media item starts playing.
+ */
+@Name("com.modularmedia.FirstFrame")
+@Label("Time To First Frame")
+@Category({"Modular Media", "Playback"})
+@Description("Time from a play request until the first item's source starts playing")
+class FirstFrameEvent extends jdk.jfr.Event {
+    @Label("Time To First Frame")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToFirstFrame;
+}
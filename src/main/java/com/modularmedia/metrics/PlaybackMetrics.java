@@ -0,0 +1,282 @@
+package com.modularmedia.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Playback instrumentation shared by the facade, proxy, playlist items, adapters and decorators.
+ *
+ * Every measurement is recorded twice: into lock-free counters and latency histograms
+ * exposed over JMX, and as a custom JFR event when a recording has that event enabled.
+ * Metrics are on by default; {@code -Dmodularmedia.metrics=false} turns every
+ * recording call into a constant-false branch the JIT removes.
+ */
+public final class PlaybackMetrics implements PlaybackMetricsMXBean {
+    public static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("modularmedia.metrics", "true"));
+
+    /** Outcome of a cache lookup */
+    public enum CacheResult { HIT, MISS, STALE }
+
+    private static final PlaybackMetrics INSTANCE = new PlaybackMetrics();
+    private static final ThreadLocal<long[]> PLAYBACK_START = ThreadLocal.withInitial(() -> new long[1]);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final LatencyHistogram timeToFirstFrame = new LatencyHistogram();
+    private final Map<String, Map<String, LatencyHistogram>> sourceLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> decoratorStages = new ConcurrentHashMap<>();
+    private final LatencyHistogram prefetchStalls = new LatencyHistogram();
+    private final Map<String, CacheCounters> caches = new ConcurrentHashMap<>();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                        new ObjectName("com.modularmedia:type=PlaybackMetrics"));
+            } catch (JMException e) {
+                // Already registered (e.g. by another class loader) or JMX unavailable
+            }
+        }
+    }
+
+    private PlaybackMetrics() {
+    }
+
+    public static PlaybackMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Timestamp to pass to the {@code record*} methods; 0 when metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the latency of a source load/play call started at {@code startNanos}
+     */
+    public static void recordSourceOperation(String sourceType, String operation, String source, long startNanos) {
+        if (!ENABLED) {
+            return;
+        }
+        long latency = System.nanoTime() - startNanos;
+        INSTANCE.sourceLatency.computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(sourceType, k -> new LatencyHistogram())
+                .record(latency);
+        SourceOperationEvent event = new SourceOperationEvent();
+        if (event.isEnabled()) {
+            event.sourceType = sourceType;
+            event.operation = operation;
+            event.source = source;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    /**
+     * Mark the start of a playback on the current thread; the next
+     * {@link #firstFrame()} on this thread completes the measurement
+     */
+    public static void beginPlayback() {
+        if (ENABLED) {
+            PLAYBACK_START.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called when an item's source starts playing; records time-to-first-frame
+     * for the first item after {@link #beginPlayback()}
+     */
+    public static void firstFrame() {
+        if (!ENABLED) {
+            return;
+        }
+        long[] start = PLAYBACK_START.get();
+        if (start[0] == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start[0];
+        start[0] = 0;
+        INSTANCE.timeToFirstFrame.record(elapsed);
+        FirstFrameEvent event = new FirstFrameEvent();
+        if (event.isEnabled()) {
+            event.timeToFirstFrame = elapsed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record a lookup in the cache named {@code cache}; each cache keeps its own counters
+     */
+    public static void recordCacheAccess(String cache, String key, CacheResult result) {
+        if (!ENABLED) {
+            return;
+        }
+        CacheCounters counters = INSTANCE.caches.computeIfAbsent(cache, k -> new CacheCounters());
+        switch (result) {
+            case HIT:
+                counters.hits.increment();
+                break;
+            case STALE:
+                counters.stale.increment();
+                break;
+            default:
+                counters.misses.increment();
+                break;
+        }
+        CacheAccessEvent event = new CacheAccessEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.key = key;
+            event.result = result.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Record time playback spent blocked on prefetched data
+     */
+    public static void recordPrefetchStall(String resource, long stallNanos) {
+        if (!ENABLED) {
+            return;
+        }
+        INSTANCE.prefetchStalls.record(stallNanos);
+        PrefetchStallEvent event = new PrefetchStallEvent();
+        if (event.isEnabled()) {
+            event.resource = resource;
+            event.stall = stallNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record time a decorator spent in its own stage, started at {@code startNanos}
+     */
+    public static void recordDecoratorStage(String stage, long startNanos) {
+        if (!ENABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        INSTANCE.decoratorStages.computeIfAbsent(stage, k -> new LatencyHistogram()).record(elapsed);
+        DecoratorStageEvent event = new DecoratorStageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage;
+            event.stageDuration = elapsed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public long getTimeToFirstFrameCount() {
+        return timeToFirstFrame.getCount();
+    }
+
+    @Override
+    public double getTimeToFirstFrameP50Millis() {
+        return timeToFirstFrame.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTimeToFirstFrameP99Millis() {
+        return timeToFirstFrame.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Map<String, Double> getSourceLatencyP50Millis() {
+        return sourcePercentiles(50);
+    }
+
+    @Override
+    public Map<String, Double> getSourceLatencyP99Millis() {
+        return sourcePercentiles(99);
+    }
+
+    @Override
+    public Map<String, Long> getCacheHits() {
+        return cacheCounts(counters -> counters.hits.sum());
+    }
+
+    @Override
+    public Map<String, Long> getCacheMisses() {
+        return cacheCounts(counters -> counters.misses.sum());
+    }
+
+    @Override
+    public Map<String, Long> getCacheStale() {
+        return cacheCounts(counters -> counters.stale.sum());
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRatio() {
+        Map<String, Double> result = new TreeMap<>();
+        caches.forEach((cache, counters) -> {
+            long hits = counters.hits.sum();
+            long total = hits + counters.misses.sum() + counters.stale.sum();
+            result.put(cache, total == 0 ? 0 : (double) hits / total);
+        });
+        return result;
+    }
+
+    @Override
+    public long getPrefetchStalls() {
+        return prefetchStalls.getCount();
+    }
+
+    @Override
+    public double getPrefetchStallP99Millis() {
+        return prefetchStalls.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Map<String, Double> getDecoratorStageP50Millis() {
+        return percentiles(decoratorStages, 50);
+    }
+
+    @Override
+    public Map<String, Double> getDecoratorStageP99Millis() {
+        return percentiles(decoratorStages, 99);
+    }
+
+    @Override
+    public void reset() {
+        timeToFirstFrame.reset();
+        prefetchStalls.reset();
+        sourceLatency.clear();
+        decoratorStages.clear();
+        caches.clear();
+    }
+
+    private Map<String, Long> cacheCounts(ToLongFunction<CacheCounters> count) {
+        Map<String, Long> result = new TreeMap<>();
+        caches.forEach((cache, counters) -> result.put(cache, count.applyAsLong(counters)));
+        return result;
+    }
+
+    private Map<String, Double> sourcePercentiles(double percentile) {
+        Map<String, Double> result = new TreeMap<>();
+        sourceLatency.forEach((operation, byType) -> byType.forEach((sourceType, histogram) ->
+                result.put(sourceType + "." + operation, histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI)));
+        return result;
+    }
+
+    private static Map<String, Double> percentiles(Map<String, LatencyHistogram> histograms, double percentile) {
+        Map<String, Double> result = new TreeMap<>();
+        histograms.forEach((key, histogram) ->
+                result.put(key, histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI));
+        return result;
+    }
+
+    private static final class CacheCounters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder stale = new LongAdder();
+    }
+}
@@ -0,0 +1,46 @@
+package com.modularmedia.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link PlaybackMetrics}, registered as
+ * {@code com.modularmedia:type=PlaybackMetrics}. Latencies are in milliseconds.
+ */
+public interface PlaybackMetricsMXBean {
+    long getTimeToFirstFrameCount();
+
+    double getTimeToFirstFrameP50Millis();
+
+    double getTimeToFirstFrameP99Millis();
+
+    /**
+     * Median latency per source operation, keyed like {@code hls.load} or {@code local.play}
+     */
+    Map<String, Double> getSourceLatencyP50Millis();
+
+    Map<String, Double> getSourceLatencyP99Millis();
+
+    /**
+     * Cache hits per cache, keyed like {@code proxy}, {@code sources} or {@code segments}
+     */
+    Map<String, Long> getCacheHits();
+
+    Map<String, Long> getCacheMisses();
+
+    Map<String, Long> getCacheStale();
+
+    Map<String, Double> getCacheHitRatio();
+
+    long getPrefetchStalls();
+
+    double getPrefetchStallP99Millis();
+
+    /**
+     * Median time spent in each decorator's own stage, keyed by decorator class
+     */
+    Map<String, Double> getDecoratorStageP50Millis();
+
+    Map<String, Double> getDecoratorStageP99Millis();
+
+    void reset();
+}
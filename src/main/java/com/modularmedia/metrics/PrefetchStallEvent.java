@@ -0,0 +1,23 @@
+package com.modularmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for playback waiting on data that prefetch had not delivered yet.
+ */
+@Name("com.modularmedia.PrefetchStall")
+@Label("Prefetch Stall")
+@Category({"Modular Media", "Playback"})
+@Description("Playback blocked waiting for a prefetched item or segment")
+class PrefetchStallEvent extends jdk.jfr.Event {
+    @Label("Resource")
+    String resource;
+
+    @Label("Stall")
+    @Timespan(Timespan.NANOSECONDS)
+    long stall;
+}
@@ -0,0 +1,29 @@
+package com.modularmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a media source {@code load()} or {@code play()} call.
+ */
+@Name("com.modularmedia.SourceOperation")
+@Label("Source Operation")
+@Category({"Modular Media", "Sources"})
+@Description("Latency of a MediaSource load or play call")
+class SourceOperationEvent extends jdk.jfr.Event {
+    @Label("Source Type")
+    String sourceType;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Source")
+    String source;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -1,6 +1,8 @@
 package com.modularmedia.playlist;
 
 import com.modularmedia.core.MediaSource;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
 
 /**
  * COMPOSITE PATTERN - Leaf Component
@@ -33,10 +35,13 @@ public class MediaItem implements com.modularmedia.core.Media {
 
     @Override
     public void play() {
-        System.out.println("Now playing: " + title);
-        System.out.println("  → Source: " + description);
+        EventLog.info("Now playing: {}", title);
+        EventLog.debug("  → Source: {}", description);
+        long start = PlaybackMetrics.start();
         source.load();
+        PlaybackMetrics.firstFrame();
         source.play();
+        PlaybackMetrics.recordSourceOperation("item", "play", title, start);
     }
     
     public String getTitle() {
@@ -2,8 +2,10 @@ package com.modularmedia.playlist;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.modularmedia.core.Media;
+import com.modularmedia.logging.EventLog;
 
 /**
  * COMPOSITE PATTERN - Composite Component
@@ -17,10 +19,12 @@ import com.modularmedia.core.Media;
  * - Enables recursive composition (playlists within playlists)
  * - Simplifies client code by providing a consistent interface
  * - Supports tree-like structures for organizing media content
+ * - Items are copy-on-write, so a playlist can be edited (e.g. by a library
+ *   watcher) while another thread plays or traverses it
  */
 public class Playlist implements Media {
     private String name;
-    private List<Media> items = new ArrayList<>();
+    private final List<Media> items = new CopyOnWriteArrayList<>();
     private int currentIndex = 0;
 
     public Playlist(String name) { 
@@ -29,12 +33,24 @@ public class Playlist implements Media {
     
     public void add(Media media) { 
         items.add(media); 
-        System.out.println("  → Added to playlist '" + name + "': " + getItemDescription(media));
+        if (EventLog.isDebugEnabled()) {
+            EventLog.debug("  → Added to playlist '{}': {}", name, getItemDescription(media));
+        }
     }
     
+    /**
+     * Insert at a position, shifting later items down
+     */
+    public void add(int index, Media media) {
+        items.add(index, media);
+        if (EventLog.isDebugEnabled()) {
+            EventLog.debug("  → Added to playlist '{}': {}", name, getItemDescription(media));
+        }
+    }
+
     public void remove(Media media) {
-        if (items.remove(media)) {
-            System.out.println("  → Removed from playlist '" + name + "': " + getItemDescription(media));
+        if (items.remove(media) && EventLog.isDebugEnabled()) {
+            EventLog.debug("  → Removed from playlist '{}': {}", name, getItemDescription(media));
         }
     }
     
@@ -49,20 +65,43 @@ public class Playlist implements Media {
     public List<Media> getItems() {
         return new ArrayList<>(items);
     }
+    
+    /**
+     * Get the playable leaves of this playlist in playback order,
+     * with nested playlists expanded in place
+     */
+    public List<Media> getLeafItems() {
+        List<Media> leaves = new ArrayList<>();
+        collectLeaves(leaves);
+        return leaves;
+    }
 
     @Override
     public void play() {
-        System.out.println("Playing playlist: " + name + " (" + items.size() + " items)");
-        System.out.println("==========================================");
+        List<Media> snapshot = new ArrayList<>(items);
+        EventLog.info("Playing playlist: {} ({} items)", name, snapshot.size());
+        EventLog.info("==========================================");
         
-        for (int i = 0; i < items.size(); i++) {
-            Media item = items.get(i);
-            System.out.println("[" + (i + 1) + "/" + items.size() + "] " + getItemDescription(item));
+        for (int i = 0; i < snapshot.size(); i++) {
+            Media item = snapshot.get(i);
+            if (EventLog.isInfoEnabled()) {
+                EventLog.info("[{}/{}] {}", i + 1, snapshot.size(), getItemDescription(item));
+            }
             item.play();
-            System.out.println("---");
+            EventLog.info("---");
         }
         
-        System.out.println("Playlist '" + name + "' completed.");
+        EventLog.info("Playlist '{}' completed.", name);
+    }
+    
+    private void collectLeaves(List<Media> leaves) {
+        for (Media item : items) {
+            if (item instanceof Playlist) {
+                ((Playlist) item).collectLeaves(leaves);
+            } else {
+                leaves.add(item);
+            }
+        }
     }
     
     private String getItemDescription(Media media) {
@@ -1,5 +1,7 @@
 package com.modularmedia.plugins;
 
+import com.modularmedia.logging.EventLog;
+
 /**
  * DECORATOR PATTERN - Concrete Decorator for Audio Equalizer
  * 
@@ -23,11 +25,10 @@ public class EqualizerDecorator extends MediaDecorator {
     }
 
     @Override
-    public void play() {
-        super.play();
-        System.out.println("  → Applying equalizer preset: " + preset);
-        System.out.println("  → Processing audio with " + frequencyBands.length + " frequency bands");
-        System.out.println("  → Real-time audio enhancement active");
+    protected void applyDecoration() {
+        EventLog.debug("  → Applying equalizer preset: {}", preset);
+        EventLog.debug("  → Processing audio with {} frequency bands", frequencyBands.length);
+        EventLog.debug("  → Real-time audio enhancement active");
     }
     
     @Override
@@ -1,6 +1,7 @@
 package com.modularmedia.plugins;
 
 import com.modularmedia.core.Media;
+import com.modularmedia.metrics.PlaybackMetrics;
 
 /**
  * DECORATOR PATTERN - Abstract Decorator
@@ -25,6 +26,16 @@ public abstract class MediaDecorator implements Media {
     public void play() { 
         // Delegate to the wrapped media object
         decoratedMedia.play(); 
+        long start = PlaybackMetrics.start();
+        applyDecoration();
+        PlaybackMetrics.recordDecoratorStage(getClass().getSimpleName(), start);
+    }
+    
+    /**
+     * Apply this decorator's own processing once the wrapped media has played.
+     * Time spent here is reported as this decorator's stage in the playback metrics.
+     */
+    protected void applyDecoration() {
     }
     
     /**
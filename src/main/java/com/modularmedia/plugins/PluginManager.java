@@ -31,6 +31,21 @@ public class PluginManager {
         return current;
     }
 
+    /**
+     * Capture the currently registered decorators as an immutable chain.
+     * Later registrations do not affect the returned function.
+     */
+    public Function<Media, Media> snapshot() {
+        List<Function<Media, Media>> chain = List.copyOf(decorators);
+        return base -> {
+            Media current = base;
+            for (Function<Media, Media> f : chain) {
+                current = f.apply(current);
+            }
+            return current;
+        };
+    }
+
     public void clear() {
         decorators.clear();
     }
@@ -1,5 +1,7 @@
 package com.modularmedia.plugins;
 
+import com.modularmedia.logging.EventLog;
+
 /**
  * DECORATOR PATTERN - Concrete Decorator for Subtitles
  * 
@@ -29,11 +31,10 @@ public class SubtitleDecorator extends MediaDecorator {
     }
 
     @Override
-    public void play() {
-        super.play();
-        System.out.println("  → Loading subtitles from: " + subtitleFile);
-        System.out.println("  → Rendering subtitles in " + language + " language");
-        System.out.println("  → Synchronizing subtitle timing...");
+    protected void applyDecoration() {
+        EventLog.debug("  → Loading subtitles from: {}", subtitleFile);
+        EventLog.debug("  → Rendering subtitles in {} language", language);
+        EventLog.debug("  → Synchronizing subtitle timing...");
     }
     
     @Override
@@ -1,5 +1,7 @@
 package com.modularmedia.plugins;
 
+import com.modularmedia.logging.EventLog;
+
 /**
  * DECORATOR PATTERN - Concrete Decorator for Watermarking
  * 
@@ -29,10 +31,9 @@ public class WatermarkDecorator extends MediaDecorator {
     }
 
     @Override
-    public void play() {
-        super.play();
-        System.out.println("  → Applying watermark: '" + watermark + "' at " + position);
-        System.out.println("  → Rendering watermark overlay...");
+    protected void applyDecoration() {
+        EventLog.debug("  → Applying watermark: '{}' at {}", watermark, position);
+        EventLog.debug("  → Rendering watermark overlay...");
     }
     
     @Override
@@ -1,6 +1,9 @@
 package com.modularmedia.proxy;
 
 import com.modularmedia.core.MediaSource;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.metrics.PlaybackMetrics.CacheResult;
 
 /**
  * PROXY PATTERN - Caching Proxy
@@ -30,15 +33,19 @@ public class RemoteProxy implements MediaSource {
     @Override
     public void load() {
         if (!cached || isCacheExpired()) {
-            System.out.println("  → Cache miss - fetching from remote source...");
-            System.out.println("  → Cache key: " + cacheKey);
+            PlaybackMetrics.recordCacheAccess("proxy", cacheKey, cached ? CacheResult.STALE : CacheResult.MISS);
+            long start = PlaybackMetrics.start();
+            EventLog.debug("  → Cache miss - fetching from remote source...");
+            EventLog.debug("  → Cache key: {}", cacheKey);
             remoteSource.load();
+            PlaybackMetrics.recordSourceOperation("proxy", "load", cacheKey, start);
             cached = true;
             cacheTimestamp = System.currentTimeMillis();
-            System.out.println("  → Remote content cached successfully");
+            EventLog.debug("  → Remote content cached successfully");
         } else {
-            System.out.println("  → Cache hit - using cached content");
-            System.out.println("  → Cache age: " + getCacheAge() + "ms");
+            PlaybackMetrics.recordCacheAccess("proxy", cacheKey, CacheResult.HIT);
+            EventLog.debug("  → Cache hit - using cached content");
+            EventLog.debug("  → Cache age: {}ms", getCacheAge());
         }
     }
 
@@ -61,7 +68,7 @@ public class RemoteProxy implements MediaSource {
     public void clearCache() {
         cached = false;
         cacheTimestamp = 0;
-        System.out.println("  → Cache cleared for: " + cacheKey);
+        EventLog.debug("  → Cache cleared for: {}", cacheKey);
     }
     
     public boolean isCached() {
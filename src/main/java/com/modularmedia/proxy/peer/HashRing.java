@@ -0,0 +1,90 @@
+package com.modularmedia.proxy.peer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consistent-hash ring mapping keys to nodes.
+ *
+ * Each node is placed at many points (virtual nodes) so keys spread evenly and,
+ * when a node joins or leaves, only the keys on its arcs move. A key belongs to
+ * the first point at or after its hash, wrapping around.
+ */
+public final class HashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        int count = nodes.size() * virtualNodes;
+        long[][] placed = new long[count][];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int v = 0; v < virtualNodes; v++) {
+                placed[i] = new long[] {hash(node + "#" + v), i / virtualNodes};
+                i++;
+            }
+        }
+        Arrays.sort(placed, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        this.points = new long[count];
+        this.owners = new String[count];
+        for (int p = 0; p < count; p++) {
+            points[p] = placed[p][0];
+            owners[p] = this.nodes.get((int) placed[p][1]);
+        }
+    }
+
+    /**
+     * The node that owns a key
+     */
+    public String owner(String key) {
+        long h = hash(key);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[middle], h) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so
+     * similar keys land far apart
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,121 @@
+package com.modularmedia.proxy.peer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Answers peer cache requests for the keys this node owns.
+ *
+ * Same threading as the media server: an acceptor thread hands each connection
+ * to its own (virtual where available) thread, which serves requests in order
+ * until the peer closes the connection or it stays idle past the timeout.
+ * Connections from addresses outside the cluster, or that fail the secret
+ * challenge, are closed before any request is read.
+ */
+final class PeerCacheServer implements AutoCloseable {
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    private final PeerSegmentFetcher tier;
+    private final PeerCluster cluster;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService connectionExecutor = LightweightThreads.newPerTaskExecutor("peer-cache-conn");
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    PeerCacheServer(InetSocketAddress address, PeerSegmentFetcher tier) throws IOException {
+        this.tier = tier;
+        this.cluster = tier.getCluster();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 256);
+        this.acceptor = LightweightThreads.daemonFactory("peer-cache-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+        EventLog.info("Peer cache listening on {}", serverChannel.getLocalAddress());
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        connectionExecutor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                InetAddress remote = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+                if (!cluster.isMemberAddress(remote)) {
+                    EventLog.warn("Peer cache refused a connection from {}, which is not a cluster member", remote);
+                    channel.close();
+                    continue;
+                }
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connectionExecutor.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                EventLog.warn("Peer cache accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (SocketChannel ch = channel) {
+            ch.socket().setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(ch.socket().getInputStream(), 4096));
+            byte[] challenge = PeerProtocol.challenge();
+            writeFully(ch, ByteBuffer.wrap(challenge));
+            byte[] proof = new byte[PeerProtocol.PROOF_BYTES];
+            in.readFully(proof);
+            if (!MessageDigest.isEqual(proof, cluster.prove(challenge))) {
+                EventLog.warn("Peer cache refused {}: wrong cluster secret", ch.getRemoteAddress());
+                return;
+            }
+            ch.socket().setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            String uri;
+            while ((uri = PeerProtocol.readRequest(in)) != null) {
+                ByteBuffer body;
+                try {
+                    body = tier.serveToPeer(uri);
+                } catch (PeerSegmentFetcher.Refusal e) {
+                    writeFully(ch, PeerProtocol.errorResponse(PeerProtocol.REFUSED, e.getMessage()));
+                    continue;
+                } catch (IOException | RuntimeException e) {
+                    writeFully(ch, PeerProtocol.errorResponse(e.getMessage()));
+                    continue;
+                }
+                ByteBuffer header = PeerProtocol.responseHeader(PeerProtocol.OK, body.remaining());
+                ByteBuffer[] response = {header, body.duplicate()};
+                while (response[1].hasRemaining() || header.hasRemaining()) {
+                    ch.write(response);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle connection; the peer reconnects when it needs to
+        } catch (IOException e) {
+            EventLog.debug("  → Peer connection closed: {}", e.getMessage());
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.modularmedia.proxy.peer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Static membership of a peer cache cluster: every node's {@code host:port}, which
+ * one is this node, the segment origins the cluster may fetch from and the secret
+ * members prove they know.
+ *
+ * Every node must be given the same member and origin lists, so they all build the
+ * same {@link HashRing} and agree on who owns each key. The lists can be written in
+ * code or kept in a file with one {@code host:port} or {@code origin <uri>} per line
+ * ({@code #} starts a comment). The secret is passed separately so it can stay out
+ * of the file.
+ */
+public final class PeerCluster {
+    public static final int MIN_SECRET_BYTES = 16;
+
+    private final String self;
+    private final Map<String, InetSocketAddress> members = new LinkedHashMap<>();
+    private final List<URI> origins = new ArrayList<>();
+    private final byte[] secret;
+    private final HashRing ring;
+
+    /**
+     * @param self this node's {@code host:port}, which must be one of the members
+     * @param members every node's {@code host:port}
+     * @param origins URI prefixes the cluster fetches segments from; peers are only
+     *                answered for segments under one of them
+     * @param secret shared by every member, at least {@value #MIN_SECRET_BYTES} bytes
+     */
+    public PeerCluster(String self, Collection<String> members, Collection<URI> origins, String secret) {
+        for (String member : members) {
+            this.members.put(member, parse(member));
+        }
+        if (!this.members.containsKey(self)) {
+            throw new IllegalArgumentException("This node " + self + " is not a cluster member");
+        }
+        for (URI origin : origins) {
+            if (!origin.isAbsolute() || origin.getHost() == null) {
+                throw new IllegalArgumentException("Expected an absolute origin URI, got " + origin);
+            }
+            this.origins.add(origin.normalize());
+        }
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("The cluster secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.self = self;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.ring = new HashRing(this.members.keySet());
+    }
+
+    /**
+     * Read the member and origin lists from a file
+     */
+    public static PeerCluster load(Path file, String self, String secret) throws IOException {
+        List<String> members = new ArrayList<>();
+        List<URI> origins = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            int comment = line.indexOf('#');
+            String entry = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (entry.startsWith("origin ")) {
+                origins.add(URI.create(entry.substring(7).trim()));
+            } else if (!entry.isEmpty()) {
+                members.add(entry);
+            }
+        }
+        return new PeerCluster(self, members, origins, secret);
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public boolean isSelf(String member) {
+        return self.equals(member);
+    }
+
+    /**
+     * The member that owns a key
+     */
+    public String owner(String key) {
+        return ring.owner(key);
+    }
+
+    public InetSocketAddress address(String member) {
+        return members.get(member);
+    }
+
+    public List<String> getMembers() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Whether a connection from this address may come from a member
+     */
+    public boolean isMemberAddress(InetAddress address) {
+        for (InetSocketAddress member : members.values()) {
+            if (address.equals(member.getAddress())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a segment URI lies under one of the cluster's origins
+     */
+    public boolean isAllowedOrigin(URI uri) {
+        if (!uri.isAbsolute() || uri.getHost() == null || uri.getRawPath() == null) {
+            return false;
+        }
+        URI normalized = uri.normalize();
+        for (URI origin : origins) {
+            if (origin.getScheme().equalsIgnoreCase(normalized.getScheme())
+                    && origin.getHost().toLowerCase(Locale.ROOT).equals(normalized.getHost().toLowerCase(Locale.ROOT))
+                    && port(origin) == port(normalized)
+                    && normalized.getRawPath().startsWith(origin.getRawPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answer to a server's challenge, proving this node knows the cluster secret
+     */
+    byte[] prove(byte[] challenge) {
+        return PeerProtocol.proof(secret, challenge);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static InetSocketAddress parse(String member) {
+        int colon = member.lastIndexOf(':');
+        if (colon <= 0 || colon == member.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port, got " + member);
+        }
+        String host = member.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        try {
+            return new InetSocketAddress(host, Integer.parseInt(member.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected host:port, got " + member, e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.modularmedia.proxy.peer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Binary wire format spoken between peer cache nodes over persistent TCP connections.
+ *
+ * On connect the server sends a random challenge and the client answers with its
+ * HMAC-SHA256 under the cluster secret; the server drops connections that answer
+ * wrong. Request: magic {@code "MMPC"} (int), version (byte), op (byte), URI length
+ * (unsigned short), URI (UTF-8). Response: status (byte), length (int), then the
+ * body on {@code OK} or a UTF-8 message on {@code ERROR} (the owner could not get
+ * the segment) and {@code REFUSED} (the node does not serve that URI, so the
+ * requester should fetch it from origin itself). Requests on one connection are
+ * answered in order.
+ */
+final class PeerProtocol {
+    static final int MAGIC = 0x4D4D5043;
+    static final byte VERSION = 2;
+    static final byte GET = 1;
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    static final byte REFUSED = 2;
+    static final int MAX_URI_BYTES = 0xffff;
+    static final int MAX_BODY_BYTES = 256 * 1024 * 1024;
+    static final int CHALLENGE_BYTES = 16;
+    static final int PROOF_BYTES = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PeerProtocol() {
+    }
+
+    static byte[] challenge() {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        RANDOM.nextBytes(challenge);
+        return challenge;
+    }
+
+    static byte[] proof(byte[] secret, byte[] challenge) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is unavailable", e);
+        }
+    }
+
+    static ByteBuffer request(String uri) {
+        byte[] bytes = uri.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URI_BYTES) {
+            throw new IllegalArgumentException("URI too long for the peer protocol: " + bytes.length + " bytes");
+        }
+        return ByteBuffer.allocate(8 + bytes.length)
+                .putInt(MAGIC).put(VERSION).put(GET).putShort((short) bytes.length).put(bytes)
+                .flip();
+    }
+
+    /**
+     * Read the next request's URI
+     *
+     * @return the URI, or null if the connection closed between requests
+     */
+    static String readRequest(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        int magic = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedShort();
+        if (magic != MAGIC) {
+            throw new IOException("Not a peer cache request");
+        }
+        byte version = in.readByte();
+        byte op = in.readByte();
+        if (version != VERSION || op != GET) {
+            throw new IOException("Unsupported peer request: version " + version + ", op " + op);
+        }
+        byte[] uri = new byte[in.readUnsignedShort()];
+        in.readFully(uri);
+        return new String(uri, StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer responseHeader(byte status, int length) {
+        return ByteBuffer.allocate(5).put(status).putInt(length).flip();
+    }
+
+    static ByteBuffer errorResponse(String message) {
+        return errorResponse(ERROR, message);
+    }
+
+    static ByteBuffer errorResponse(byte status, String message) {
+        byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(5 + bytes.length).put(status).putInt(bytes.length).put(bytes).flip();
+    }
+
+    /**
+     * Read the length that follows a response status, checking it is sane
+     */
+    static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_BODY_BYTES) {
+            throw new EOFException("Bad peer response length " + length);
+        }
+        return length;
+    }
+}
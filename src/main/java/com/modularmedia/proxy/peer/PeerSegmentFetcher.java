@@ -0,0 +1,436 @@
+package com.modularmedia.proxy.peer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.memory.MemoryBudget;
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.HlsByteRange;
+import com.modularmedia.sources.hls.SegmentFetcher;
+import com.modularmedia.sources.mp4.SegmentCache;
+
+/**
+ * {@link SegmentFetcher} decorator that shares segment fetches across a cluster.
+ *
+ * Every node runs this tier below its {@link com.modularmedia.proxy.RemoteProxy}-wrapped
+ * streams. Segment URIs are assigned to nodes by a {@link HashRing}: a node fetches the
+ * segments it owns from origin and caches them, and asks the owning peer for every
+ * other segment, so each segment leaves the origin once per cluster rather than once
+ * per node. Concurrent requests for the same segment on the owner wait for one
+ * origin fetch.
+ *
+ * Playlists and keys ({@link #fetch(URI)}) are not shared, since live playlists
+ * change between requests. Only segments under one of the cluster's origins are
+ * shared; others (including mirrors the cluster was not configured with) are
+ * fetched from origin directly. Peers are only answered for segments this node
+ * owns under one of the cluster's origins, so the tier cannot be used to reach
+ * other hosts; a peer that refuses a request (its membership or origin list
+ * differs) leaves the segment to be fetched from origin. A pooled connection the
+ * peer has since closed is retried once on a fresh one; a peer that still cannot
+ * be reached is skipped for a few seconds and its segments are fetched from
+ * origin directly. An error the owner got from origin is passed on as is.
+ */
+public class PeerSegmentFetcher implements SegmentFetcher, AutoCloseable {
+    public static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+    private static final long PEER_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private static final ExecutorService EXECUTOR = LightweightThreads.newPerTaskExecutor("peer-cache");
+
+    private final SegmentFetcher origin;
+    private final PeerCluster cluster;
+    private final SegmentCache cache;
+    private final PeerCacheServer server;
+    private final Map<String, Queue<Connection>> idle = new ConcurrentHashMap<>();
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+    private final LongAdder originFetches = new LongAdder();
+    private final LongAdder peerFetches = new LongAdder();
+    private final LongAdder servedToPeers = new LongAdder();
+    private final LongAdder peerFailures = new LongAdder();
+
+    public PeerSegmentFetcher(SegmentFetcher origin, PeerCluster cluster) throws IOException {
+        this(origin, cluster, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Join the cluster: start answering peers on this node's address
+     *
+     * @param cacheBytes size of the cache for the segments this node owns
+     */
+    public PeerSegmentFetcher(SegmentFetcher origin, PeerCluster cluster, long cacheBytes) throws IOException {
+        this.origin = origin;
+        this.cluster = cluster;
+        this.cache = new SegmentCache(cacheBytes, MemoryBudget.global(), "peer.segments");
+        this.server = new PeerCacheServer(cluster.address(cluster.getSelf()), this);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri) {
+        return origin.fetch(uri);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, DirectBufferPool pool) {
+        if (!cluster.isAllowedOrigin(uri)) {
+            // No peer would serve it
+            originFetches.increment();
+            return origin.fetch(uri, pool);
+        }
+        String key = uri.toString();
+        String owner = cluster.owner(key);
+        if (cluster.isSelf(owner)) {
+            CompletableFuture<ByteBuffer> local = CompletableFuture.supplyAsync(() -> {
+                try {
+                    ByteBuffer body = serveLocal(key);
+                    return pool.acquire(body.remaining()).put(body).flip();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, EXECUTOR);
+            PooledStages stages = new PooledStages(pool);
+            stages.track(local, false);
+            return stages.releaseOnCancel(local.thenApply(body -> body));
+        }
+        Long until = downUntil.get(owner);
+        if (until != null && System.nanoTime() - until < 0) {
+            originFetches.increment();
+            return origin.fetch(uri, pool);
+        }
+        CompletableFuture<ByteBuffer> fromPeer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return request(owner, key, pool);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+        PooledStages stages = new PooledStages(pool);
+        stages.track(fromPeer, false);
+        CompletableFuture<ByteBuffer> result = fromPeer.handle((body, error) -> {
+            if (error == null) {
+                peerFetches.increment();
+                return CompletableFuture.completedFuture(body);
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof PeerError && ((PeerError) cause).refused) {
+                EventLog.debug("  → Peer refused {}, fetching from origin: {}", key, cause.getMessage());
+                originFetches.increment();
+                return stages.track(origin.fetch(uri, pool), true);
+            }
+            if (cause instanceof PeerError) {
+                return CompletableFuture.<ByteBuffer>failedFuture(new IOException(cause.getMessage()));
+            }
+            peerFailures.increment();
+            downUntil.put(owner, System.nanoTime() + PEER_RETRY_NANOS);
+            EventLog.warn("Peer {} unreachable, fetching from origin: {}", owner, cause.getMessage());
+            originFetches.increment();
+            return stages.track(origin.fetch(uri, pool), true);
+        }).thenCompose(future -> future);
+        return stages.releaseOnCancel(result);
+    }
+
+    /**
+     * Peers cache whole segments, so sub-ranges go straight to the origin
+     */
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, HlsByteRange range, DirectBufferPool pool) {
+        if (range == null) {
+            return fetch(uri, pool);
+        }
+        originFetches.increment();
+        return origin.fetch(uri, range, pool);
+    }
+
+    @Override
+    public void addMirrors(Collection<URI> origins) {
+        origin.addMirrors(origins);
+    }
+
+    /**
+     * Segments fetched from origin by this node (owned segments, plus fallbacks)
+     */
+    public long getOriginFetches() {
+        return originFetches.sum();
+    }
+
+    /**
+     * Segments this node got from their owning peer
+     */
+    public long getPeerFetches() {
+        return peerFetches.sum();
+    }
+
+    /**
+     * Requests this node answered for its peers
+     */
+    public long getServedToPeers() {
+        return servedToPeers.sum();
+    }
+
+    public long getPeerFailures() {
+        return peerFailures.sum();
+    }
+
+    public PeerCluster getCluster() {
+        return cluster;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Queue<Connection> connections : idle.values()) {
+            Connection connection;
+            while ((connection = connections.poll()) != null) {
+                connection.close();
+            }
+        }
+        cache.close();
+    }
+
+    /**
+     * A segment this node owns: from the cache, or fetched from origin once
+     * however many callers (local or peers) ask at the same time
+     */
+    ByteBuffer serveLocal(String uri) throws IOException {
+        return cache.get(uri, () -> {
+            originFetches.increment();
+            try {
+                return origin.fetch(URI.create(uri)).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        });
+    }
+
+    /**
+     * Answer a request from a peer
+     */
+    ByteBuffer serveToPeer(String uri) throws IOException {
+        URI parsed;
+        try {
+            parsed = new URI(uri);
+        } catch (URISyntaxException e) {
+            throw new IOException("Malformed segment URI", e);
+        }
+        if (!cluster.isAllowedOrigin(parsed)) {
+            throw new Refusal("Not under a cluster origin: " + uri);
+        }
+        if (!cluster.isSelf(cluster.owner(uri))) {
+            throw new Refusal("Not owned by " + cluster.getSelf() + ": " + uri);
+        }
+        servedToPeers.increment();
+        return serveLocal(uri);
+    }
+
+    private ByteBuffer request(String owner, String uri, DirectBufferPool pool) throws IOException {
+        Queue<Connection> connections = idle.computeIfAbsent(owner, k -> new ConcurrentLinkedQueue<>());
+        Connection pooled = connections.poll();
+        if (pooled != null) {
+            try {
+                return exchange(owner, uri, pool, connections, pooled);
+            } catch (PeerError e) {
+                throw e;
+            } catch (IOException e) {
+                // The peer may have closed it while idle; a fresh connection decides whether the peer is down
+                EventLog.debug("  → Pooled connection to {} failed, retrying: {}", owner, e.getMessage());
+            }
+        }
+        return exchange(owner, uri, pool, connections, Connection.open(cluster.address(owner), cluster));
+    }
+
+    private ByteBuffer exchange(String owner, String uri, DirectBufferPool pool, Queue<Connection> connections,
+            Connection connection) throws IOException {
+        ByteBuffer body = null;
+        try {
+            ByteBuffer request = PeerProtocol.request(uri);
+            while (request.hasRemaining()) {
+                connection.channel.write(request);
+            }
+            byte status = connection.in.readByte();
+            int length = PeerProtocol.readLength(connection.in);
+            if (status != PeerProtocol.OK) {
+                byte[] message = new byte[length];
+                connection.in.readFully(message);
+                release(connections, connection);
+                throw new PeerError(owner + ": " + new String(message, StandardCharsets.UTF_8),
+                        status == PeerProtocol.REFUSED);
+            }
+            body = pool.acquire(length);
+            byte[] chunk = new byte[Math.min(length, CHUNK_BYTES)];
+            int remaining = length;
+            while (remaining > 0) {
+                int n = Math.min(remaining, chunk.length);
+                connection.in.readFully(chunk, 0, n);
+                body.put(chunk, 0, n);
+                remaining -= n;
+            }
+            release(connections, connection);
+            return body.flip();
+        } catch (PeerError e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            if (body != null) {
+                pool.release(body);
+            }
+            throw e;
+        }
+    }
+
+    private static void release(Queue<Connection> connections, Connection connection) {
+        if (connections.size() < MAX_IDLE_CONNECTIONS) {
+            connections.offer(connection);
+        } else {
+            connection.close();
+        }
+    }
+
+    /**
+     * The stages of one fetch that fill pooled buffers. Cancelling the fetch's
+     * result does not reach them, so once it is cancelled whatever they still
+     * produce goes back to the pool, since no one will receive it. Delegate
+     * fetches are cancelled too; this tier's own tasks are left to finish, as
+     * cancelling a running task would drop its buffer.
+     */
+    private static final class PooledStages {
+        private final DirectBufferPool pool;
+        private final List<CompletableFuture<ByteBuffer>> stages = new ArrayList<>(2);
+        private final List<CompletableFuture<ByteBuffer>> delegated = new ArrayList<>(1);
+        private boolean cancelled;
+
+        PooledStages(DirectBufferPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * @param cancellable whether the stage is a delegate fetch that releases its own buffer on cancellation
+         */
+        synchronized CompletableFuture<ByteBuffer> track(CompletableFuture<ByteBuffer> stage, boolean cancellable) {
+            if (cancelled) {
+                discard(stage, cancellable);
+            } else {
+                (cancellable ? delegated : stages).add(stage);
+            }
+            return stage;
+        }
+
+        CompletableFuture<ByteBuffer> releaseOnCancel(CompletableFuture<ByteBuffer> result) {
+            result.whenComplete((body, error) -> {
+                if (result.isCancelled()) {
+                    cancel();
+                }
+            });
+            return result;
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            stages.forEach(stage -> discard(stage, false));
+            delegated.forEach(stage -> discard(stage, true));
+            stages.clear();
+            delegated.clear();
+        }
+
+        private void discard(CompletableFuture<ByteBuffer> stage, boolean cancellable) {
+            if (cancellable) {
+                stage.cancel(true);
+            }
+            stage.thenAccept(pool::release);
+        }
+    }
+
+    /**
+     * A peer request this node will not serve, answered with {@code REFUSED}
+     */
+    static final class Refusal extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        Refusal(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * An error the owning peer reported (such as an origin 404, or a refusal), as
+     * opposed to the peer being unreachable
+     */
+    private static final class PeerError extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean refused;
+
+        PeerError(String message, boolean refused) {
+            super(message);
+            this.refused = refused;
+        }
+    }
+
+    /**
+     * A persistent connection to one peer, used by one request at a time
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final DataInputStream in;
+
+        private Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.in = new DataInputStream(new BufferedInputStream(channel.socket().getInputStream(), CHUNK_BYTES));
+        }
+
+        /**
+         * Connect and answer the peer's challenge with the cluster secret
+         */
+        static Connection open(InetSocketAddress address, PeerCluster cluster) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+                channel.socket().setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+                Connection connection = new Connection(channel);
+                byte[] challenge = new byte[PeerProtocol.CHALLENGE_BYTES];
+                connection.in.readFully(challenge);
+                ByteBuffer proof = ByteBuffer.wrap(cluster.prove(challenge));
+                while (proof.hasRemaining()) {
+                    channel.write(proof);
+                }
+                return connection;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+        }
+    }
+}
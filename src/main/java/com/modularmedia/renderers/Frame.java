@@ -0,0 +1,25 @@
+package com.modularmedia.renderers;
+
+/**
+ * A decoded frame waiting to be presented by a {@link Renderer}.
+ * 
+ * Frames are immutable and carry the presentation timestamp (in microseconds
+ * of media time) at which the {@link FrameScheduler} should hand them to the renderer.
+ */
+public final class Frame {
+    private final long presentationTimeMicros;
+    private final String content;
+
+    public Frame(long presentationTimeMicros, String content) {
+        this.presentationTimeMicros = presentationTimeMicros;
+        this.content = content;
+    }
+
+    public long getPresentationTimeMicros() {
+        return presentationTimeMicros;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,209 @@
+package com.modularmedia.renderers;
+
+/**
+ * Frame pacing between playback and the active {@link Renderer}.
+ *
+ * Decoded frames are queued in a small triple buffer and handed to the renderer
+ * when the {@link MediaClock} reaches their presentation timestamp. When the
+ * stream falls behind, late frames that have already been superseded by a newer
+ * due frame are dropped, so latency stays bounded instead of piling up.
+ *
+ * Design Rationale:
+ * - Owns the presentation clock so every renderer is paced the same way
+ * - Fixed-size queue keeps at most three frames in flight (no unbounded drift)
+ * - Degrades gracefully under load by dropping, never by delaying later frames
+ * - Exposes jitter, drop and late-frame counters for diagnostics
+ */
+public class FrameScheduler {
+    /** Triple buffering: one frame on screen, one ready, one being decoded */
+    public static final int BUFFER_FRAMES = 3;
+
+    private static final long DEFAULT_LATE_THRESHOLD_MICROS = 20_000;
+
+    private final MediaClock clock;
+    private final Frame[] queue = new Frame[BUFFER_FRAMES];
+    private final long lateThresholdMicros;
+    private Renderer renderer;
+    private int head = 0;
+    private int size = 0;
+
+    private long presented = 0;
+    private long dropped = 0;
+    private long late = 0;
+    private long totalJitterMicros = 0;
+    private long maxJitterMicros = 0;
+
+    private Thread presenter;
+    private volatile boolean running = false;
+
+    public FrameScheduler(Renderer renderer) {
+        this(renderer, new MediaClock(), DEFAULT_LATE_THRESHOLD_MICROS);
+    }
+
+    public FrameScheduler(Renderer renderer, MediaClock clock, long lateThresholdMicros) {
+        this.renderer = renderer;
+        this.clock = clock;
+        this.lateThresholdMicros = lateThresholdMicros;
+    }
+
+    public synchronized void setRenderer(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public MediaClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Queue a decoded frame for presentation.
+     *
+     * If the buffer is full the oldest queued frame is dropped to make room,
+     * because a newer frame is always more useful than a stale one.
+     *
+     * @return false if the frame was already too late to be shown and was dropped
+     */
+    public synchronized boolean submit(Frame frame) {
+        if (clock.nowMicros() - frame.getPresentationTimeMicros() > lateThresholdMicros && size > 0) {
+            dropped++;
+            return false;
+        }
+        if (size == BUFFER_FRAMES) {
+            queue[head] = null;
+            head = (head + 1) % BUFFER_FRAMES;
+            size--;
+            dropped++;
+        }
+        queue[(head + size) % BUFFER_FRAMES] = frame;
+        size++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Present every frame that is due at the current media time.
+     *
+     * Only the newest due frame is rendered; older due frames are dropped so
+     * a stream that fell behind catches up in a single step.
+     *
+     * @return the number of frames handed to the renderer (0 or 1)
+     */
+    public int presentDue() {
+        Frame frame;
+        Renderer target;
+        synchronized (this) {
+            long now = clock.nowMicros();
+            frame = poll(now);
+            if (frame == null) {
+                return 0;
+            }
+            while (size > 0 && queue[head].getPresentationTimeMicros() <= now) {
+                frame = poll(now);
+                dropped++;
+            }
+            long lateness = now - frame.getPresentationTimeMicros();
+            long jitter = Math.abs(lateness);
+            totalJitterMicros += jitter;
+            maxJitterMicros = Math.max(maxJitterMicros, jitter);
+            if (lateness > lateThresholdMicros) {
+                late++;
+            }
+            presented++;
+            target = renderer;
+        }
+        target.render(frame.getContent());
+        return 1;
+    }
+
+    /**
+     * Microseconds until the next queued frame is due, or -1 if the queue is empty
+     */
+    public synchronized long microsUntilNextFrame() {
+        if (size == 0) {
+            return -1;
+        }
+        return Math.max(0, queue[head].getPresentationTimeMicros() - clock.nowMicros());
+    }
+
+    /**
+     * Start a background presenter thread that renders frames as they become due
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        presenter = new Thread(this::presentLoop, "frame-presenter");
+        presenter.setDaemon(true);
+        presenter.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = presenter;
+            presenter = null;
+            notifyAll();
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Discard all queued frames, e.g. after a seek
+     */
+    public synchronized void flush() {
+        while (size > 0) {
+            queue[head] = null;
+            head = (head + 1) % BUFFER_FRAMES;
+            size--;
+        }
+    }
+
+    public synchronized int getQueuedFrames() {
+        return size;
+    }
+
+    public synchronized FrameStats getStats() {
+        long mean = presented == 0 ? 0 : totalJitterMicros / presented;
+        return new FrameStats(presented, dropped, late, mean, maxJitterMicros);
+    }
+
+    private Frame poll(long now) {
+        if (size == 0 || queue[head].getPresentationTimeMicros() > now) {
+            return null;
+        }
+        Frame frame = queue[head];
+        queue[head] = null;
+        head = (head + 1) % BUFFER_FRAMES;
+        size--;
+        return frame;
+    }
+
+    private void presentLoop() {
+        while (running) {
+            presentDue();
+            synchronized (this) {
+                if (!running) {
+                    break;
+                }
+                long waitMicros = microsUntilNextFrame();
+                try {
+                    if (waitMicros < 0) {
+                        wait();
+                    } else if (waitMicros > 0) {
+                        wait(waitMicros / 1000, (int) (waitMicros % 1000) * 1000);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.modularmedia.renderers;
+
+/**
+ * Immutable snapshot of the counters kept by a {@link FrameScheduler}.
+ */
+public final class FrameStats {
+    private final long presented;
+    private final long dropped;
+    private final long late;
+    private final long meanJitterMicros;
+    private final long maxJitterMicros;
+
+    FrameStats(long presented, long dropped, long late, long meanJitterMicros, long maxJitterMicros) {
+        this.presented = presented;
+        this.dropped = dropped;
+        this.late = late;
+        this.meanJitterMicros = meanJitterMicros;
+        this.maxJitterMicros = maxJitterMicros;
+    }
+
+    /**
+     * Frames handed to the renderer
+     */
+    public long getPresented() {
+        return presented;
+    }
+
+    /**
+     * Frames discarded without being rendered (queue overflow or superseded while late)
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Frames that were rendered, but later than the late threshold
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * Mean absolute distance between a frame's timestamp and the moment it was presented
+     */
+    public long getMeanJitterMicros() {
+        return meanJitterMicros;
+    }
+
+    public long getMaxJitterMicros() {
+        return maxJitterMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "Frames: " + presented + " presented, " + dropped + " dropped, " + late + " late"
+                + " | Jitter: mean " + meanJitterMicros + "us, max " + maxJitterMicros + "us";
+    }
+}
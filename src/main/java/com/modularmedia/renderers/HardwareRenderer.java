@@ -1,5 +1,7 @@
 package com.modularmedia.renderers;
 
+import com.modularmedia.logging.EventLog;
+
 /**
  * STRATEGY PATTERN - Concrete Strategy for Hardware Rendering
  * 
@@ -13,18 +15,22 @@ package com.modularmedia.renderers;
  * - Maintains consistent interface with other renderers
  */
 public class HardwareRenderer implements Renderer { 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
     private boolean gpuAvailable = true; // Simulate GPU availability check
     
     @Override 
     public void render(String content) { 
         if (!initialized) {
-            initialize();
+            synchronized (this) {
+                if (!initialized) {
+                    initialize();
+                }
+            }
         }
-        System.out.println("[Hardware Rendering] " + content);
-        System.out.println("  → Using GPU-accelerated rendering pipeline");
-        System.out.println("  → Hardware decoder active");
-        System.out.println("  → GPU memory optimized");
+        EventLog.info("[Hardware Rendering] {}", content);
+        EventLog.debug("  → Using GPU-accelerated rendering pipeline");
+        EventLog.debug("  → Hardware decoder active");
+        EventLog.debug("  → GPU memory optimized");
     }
     
     @Override
@@ -39,10 +45,10 @@ public class HardwareRenderer implements Renderer {
     
     @Override
     public void initialize() {
-        System.out.println("  → Initializing hardware renderer...");
-        System.out.println("  → Detecting GPU capabilities...");
-        System.out.println("  → Setting up hardware rendering pipeline...");
-        System.out.println("  → Hardware renderer ready");
+        EventLog.debug("  → Initializing hardware renderer...");
+        EventLog.debug("  → Detecting GPU capabilities...");
+        EventLog.debug("  → Setting up hardware rendering pipeline...");
+        EventLog.debug("  → Hardware renderer ready");
         initialized = true;
     }
 }
@@ -0,0 +1,59 @@
+package com.modularmedia.renderers;
+
+/**
+ * Monotonic presentation clock for media playback.
+ * 
+ * Media time advances with {@link System#nanoTime()} while the clock is running
+ * and stands still while it is paused, so wall-clock adjustments never make
+ * playback jump. Seeking moves the media time without touching the time base.
+ */
+public class MediaClock {
+    private long baseNanos;
+    private long baseMediaMicros;
+    private boolean running = false;
+
+    /**
+     * Start (or restart) the clock at media time zero
+     */
+    public synchronized void start() {
+        baseMediaMicros = 0;
+        baseNanos = System.nanoTime();
+        running = true;
+    }
+
+    public synchronized void pause() {
+        if (running) {
+            baseMediaMicros = nowMicros();
+            running = false;
+        }
+    }
+
+    public synchronized void resume() {
+        if (!running) {
+            baseNanos = System.nanoTime();
+            running = true;
+        }
+    }
+
+    /**
+     * Move the clock to the given media time, keeping its running state
+     */
+    public synchronized void seek(long mediaMicros) {
+        baseMediaMicros = mediaMicros;
+        baseNanos = System.nanoTime();
+    }
+
+    /**
+     * Current media time in microseconds
+     */
+    public synchronized long nowMicros() {
+        if (!running) {
+            return baseMediaMicros;
+        }
+        return baseMediaMicros + (System.nanoTime() - baseNanos) / 1000;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+}
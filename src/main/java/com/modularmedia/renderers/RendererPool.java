@@ -0,0 +1,358 @@
+package com.modularmedia.renderers;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * OBJECT POOL - Renderer Workers Shared Across Sessions
+ *
+ * A fixed set of renderer workers, one per core by default, each owning a
+ * {@link Renderer} that is initialized once on its own thread. Sessions are
+ * routed to a home worker by their id so the same warm renderer serves them
+ * again, and idle workers steal queued sessions from busy ones.
+ *
+ * Each session has its own FIFO of render tasks, and only the session - never a
+ * single task - sits in a worker's run queue. A worker takes a session, renders
+ * its oldest task and requeues it on its home worker if more work is waiting, so
+ * a session is in flight on at most one worker and its content renders in order
+ * even when it is stolen. Workers with nothing to run or steal park until a
+ * session is queued.
+ *
+ * Design Rationale:
+ * - Renderers are initialized once per worker instead of once per session
+ * - Each renderer is confined to its worker thread, so renderers need no locking
+ * - Session affinity keeps per-session renderer state warm
+ * - Bounded per-worker queues reject work early instead of building latency
+ * - Work stealing keeps all workers busy when sessions are unevenly loaded
+ * - Stealing whole sessions keeps each session's content in submission order
+ */
+public class RendererPool {
+    private static final int DEFAULT_MAX_QUEUE_DEPTH = 64;
+
+    private final Worker[] workers;
+    private final int maxQueueDepth;
+    private final String rendererInfo;
+    private final Map<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedSessions = new AtomicInteger();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition workAvailable = idleLock.newCondition();
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder stolen = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running = true;
+
+    public RendererPool(Supplier<Renderer> rendererFactory) {
+        this(Runtime.getRuntime().availableProcessors(), rendererFactory, DEFAULT_MAX_QUEUE_DEPTH);
+    }
+
+    public RendererPool(int workerCount, Supplier<Renderer> rendererFactory, int maxQueueDepth) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Renderer pool needs at least one worker");
+        }
+        this.workers = new Worker[workerCount];
+        this.maxQueueDepth = maxQueueDepth;
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i, rendererFactory.get());
+        }
+        this.rendererInfo = workers[0].renderer.getRendererInfo();
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Queue content for rendering on the session's home worker.
+     *
+     * @throws RejectedExecutionException if the home worker's queue is full or the pool is shut down
+     */
+    public CompletableFuture<Void> submit(String sessionId, String content) {
+        if (!running) {
+            throw new RejectedExecutionException("Renderer pool is shut down");
+        }
+        Worker home = workers[homeWorker(sessionId)];
+        if (home.depth.incrementAndGet() > maxQueueDepth) {
+            home.depth.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Renderer worker " + home.index + " is saturated ("
+                    + maxQueueDepth + " queued)");
+        }
+        RenderTask task = new RenderTask(content);
+        // Adding under the map's per-key lock keeps retire() from dropping a queue
+        // that has just been given a task
+        SessionQueue session = sessions.compute(sessionId, (id, queue) -> {
+            SessionQueue target = queue != null ? queue : new SessionQueue(id, home);
+            target.tasks.add(task);
+            return target;
+        });
+        schedule(session);
+        if (!running) {
+            // Raced with shutdown() after it drained this queue
+            fail(session);
+        }
+        return task.done;
+    }
+
+    /**
+     * Lease a renderer bound to the given session.
+     *
+     * The lease renders synchronously through the session's home worker, so it can be
+     * used anywhere a {@link Renderer} is expected (e.g. a {@code PlayerFacade}).
+     */
+    public Renderer lease(String sessionId) {
+        return new LeasedRenderer(sessionId);
+    }
+
+    /**
+     * Release a session's lease. Its task queue is closed and leaves the pool once
+     * the tasks it already holds have rendered; until then, further submits for
+     * the session join the same queue, so they still render in order on one worker.
+     */
+    public void release(String sessionId) {
+        SessionQueue session = sessions.get(sessionId);
+        if (session != null) {
+            session.closed = true;
+            retire(session);
+        }
+    }
+
+    /**
+     * Number of sessions holding a task queue in the pool
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public int getQueueDepth(int worker) {
+        return workers[worker].depth.get();
+    }
+
+    public long getRenderedCount() {
+        return rendered.sum();
+    }
+
+    public long getStolenCount() {
+        return stolen.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop all workers; queued work that has not started completes exceptionally
+     * with a {@link RejectedExecutionException}
+     */
+    public void shutdown() {
+        running = false;
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        for (SessionQueue session : sessions.values()) {
+            fail(session);
+        }
+    }
+
+    int homeWorker(String sessionId) {
+        int h = sessionId.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, workers.length);
+    }
+
+    /**
+     * Put a session with waiting tasks on its home worker's run queue, unless it
+     * is already queued or in flight, and wake an idle worker
+     */
+    private void schedule(SessionQueue session) {
+        if (!session.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        session.home.ready.offerLast(session);
+        queuedSessions.incrementAndGet();
+        if (idleWorkers.get() > 0) {
+            idleLock.lock();
+            try {
+                workAvailable.signal();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drop a closed session's queue from the pool if it holds no task and is not
+     * queued or in flight; otherwise the worker that runs it retires it when done
+     */
+    private void retire(SessionQueue session) {
+        sessions.computeIfPresent(session.id, (id, queue) ->
+                queue == session && queue.tasks.isEmpty() && !queue.scheduled.get() ? null : queue);
+    }
+
+    private void fail(SessionQueue session) {
+        RenderTask task;
+        while ((task = session.tasks.poll()) != null) {
+            session.home.depth.decrementAndGet();
+            task.done.completeExceptionally(new RejectedExecutionException("Renderer pool is shut down"));
+        }
+    }
+
+    private SessionQueue steal(Worker thief) {
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            Worker victim = workers[(start + i) % workers.length];
+            if (victim != thief) {
+                SessionQueue session = victim.ready.pollLast();
+                if (session != null) {
+                    stolen.increment();
+                    return session;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Park the calling worker until a session is queued or the pool shuts down
+     */
+    private void awaitWork() throws InterruptedException {
+        idleLock.lock();
+        idleWorkers.incrementAndGet();
+        try {
+            while (running && queuedSessions.get() == 0) {
+                workAvailable.await();
+            }
+        } finally {
+            idleWorkers.decrementAndGet();
+            idleLock.unlock();
+        }
+    }
+
+    private static final class SessionQueue {
+        private final String id;
+        private final Worker home;
+        private final Queue<RenderTask> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        SessionQueue(String id, Worker home) {
+            this.id = id;
+            this.home = home;
+        }
+    }
+
+    private static final class RenderTask {
+        private final String content;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        RenderTask(String content) {
+            this.content = content;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final Renderer renderer;
+        private final ConcurrentLinkedDeque<SessionQueue> ready = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Thread thread;
+
+        Worker(int index, Renderer renderer) {
+            this.index = index;
+            this.renderer = renderer;
+            this.thread = new Thread(this, "renderer-worker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            renderer.initialize();
+            while (running) {
+                SessionQueue session = ready.pollFirst();
+                if (session == null) {
+                    session = steal(this);
+                }
+                if (session == null) {
+                    try {
+                        awaitWork();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    continue;
+                }
+                queuedSessions.decrementAndGet();
+                RenderTask task = session.tasks.poll();
+                if (task != null) {
+                    session.home.depth.decrementAndGet();
+                    execute(task);
+                }
+                session.scheduled.set(false);
+                if (!session.tasks.isEmpty()) {
+                    schedule(session);
+                } else if (session.closed) {
+                    retire(session);
+                }
+            }
+        }
+
+        private void execute(RenderTask task) {
+            if (task.done.isDone()) {
+                return;
+            }
+            try {
+                renderer.render(task.content);
+                rendered.increment();
+                task.done.complete(null);
+            } catch (RuntimeException e) {
+                task.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class LeasedRenderer implements Renderer {
+        private final String sessionId;
+
+        LeasedRenderer(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void render(String content) {
+            submit(sessionId, content).join();
+        }
+
+        @Override
+        public String getRendererInfo() {
+            return rendererInfo + " [pooled, worker " + homeWorker(sessionId) + "]";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return running;
+        }
+
+        @Override
+        public void initialize() {
+            // Pool workers initialize their renderers once when they start
+        }
+    }
+}
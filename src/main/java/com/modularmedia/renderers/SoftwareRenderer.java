@@ -1,5 +1,7 @@
 package com.modularmedia.renderers;
 
+import com.modularmedia.logging.EventLog;
+
 /**
  * STRATEGY PATTERN - Concrete Strategy for Software Rendering
  * 
@@ -13,16 +15,20 @@ package com.modularmedia.renderers;
  * - Maintains consistent interface with other renderers
  */
 public class SoftwareRenderer implements Renderer { 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
     
     @Override 
     public void render(String content) { 
         if (!initialized) {
-            initialize();
+            synchronized (this) {
+                if (!initialized) {
+                    initialize();
+                }
+            }
         }
-        System.out.println("[Software Rendering] " + content);
-        System.out.println("  → Using CPU-based rendering pipeline");
-        System.out.println("  → Software decoder active");
+        EventLog.info("[Software Rendering] {}", content);
+        EventLog.debug("  → Using CPU-based rendering pipeline");
+        EventLog.debug("  → Software decoder active");
     }
     
     @Override
@@ -37,9 +43,9 @@ public class SoftwareRenderer implements Renderer {
     
     @Override
     public void initialize() {
-        System.out.println("  → Initializing software renderer...");
-        System.out.println("  → Setting up CPU rendering pipeline...");
-        System.out.println("  → Software renderer ready");
+        EventLog.debug("  → Initializing software renderer...");
+        EventLog.debug("  → Setting up CPU rendering pipeline...");
+        EventLog.debug("  → Software renderer ready");
         initialized = true;
     }
 }
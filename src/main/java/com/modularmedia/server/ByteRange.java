@@ -0,0 +1,85 @@
+package com.modularmedia.server;
+
+/**
+ * A single satisfiable byte range of a resource, parsed from an HTTP {@code Range} header.
+ *
+ * Only one {@code bytes=} range is honoured; multi-range requests would need a
+ * multipart body, so they are served as the first range, which players accept.
+ */
+final class ByteRange {
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    static ByteRange full(long length) {
+        return new ByteRange(0, length - 1);
+    }
+
+    /**
+     * Parse a {@code Range} header against a resource of the given length
+     *
+     * A syntactically invalid range, such as one whose last byte precedes its
+     * first or a negative position, is malformed rather than unsatisfiable
+     *
+     * @return the range, or null if a valid range cannot be satisfied because it
+     *         starts past the end or asks for an empty suffix (416)
+     * @throws IllegalArgumentException if the header is malformed (served as the full resource)
+     */
+    static ByteRange parse(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            throw new IllegalArgumentException("Unsupported range unit: " + header);
+        }
+        String spec = header.substring(6);
+        int comma = spec.indexOf(',');
+        if (comma >= 0) {
+            spec = spec.substring(0, comma);
+        }
+        spec = spec.trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Malformed range: " + header);
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    throw new IllegalArgumentException("Malformed range: " + header);
+                }
+                if (suffix == 0 || length == 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long lastByte = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || lastByte < start) {
+                throw new IllegalArgumentException("Malformed range: " + header);
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(lastByte, length - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed range: " + header, e);
+        }
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    long getLength() {
+        return end - start + 1;
+    }
+}
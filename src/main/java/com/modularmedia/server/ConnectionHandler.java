@@ -0,0 +1,193 @@
+package com.modularmedia.server;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.sources.mp4.Mp4HlsSegmenter;
+
+/**
+ * Serves every request on one persistent connection until the peer closes it,
+ * asks to close it, or stays idle past the timeout.
+ *
+ * The head is read through the socket's stream (so the idle timeout applies);
+ * headers are written as one small heap buffer and bodies with
+ * {@link FileChannel#transferTo}, straight from the file to the socket.
+ */
+final class ConnectionHandler implements Runnable {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final MediaFileServer server;
+    private final SocketChannel channel;
+    private final int idleTimeoutMillis;
+
+    ConnectionHandler(MediaFileServer server, SocketChannel channel, int idleTimeoutMillis) {
+        this.server = server;
+        this.channel = channel;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public void run() {
+        try (SocketChannel ch = channel) {
+            ch.socket().setSoTimeout(idleTimeoutMillis);
+            InputStream in = new BufferedInputStream(ch.socket().getInputStream(), 4096);
+            HttpRequestHead request;
+            while ((request = HttpRequestHead.read(in)) != null) {
+                if (!serve(request) || !request.isKeepAlive()) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle keep-alive connection; just close it
+        } catch (IOException e) {
+            EventLog.debug("  → Media connection closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return false when the connection must be closed after this response
+     */
+    private boolean serve(HttpRequestHead request) throws IOException {
+        long start = PlaybackMetrics.start();
+        String method = request.getMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            writeHead(405, "Method Not Allowed", "Allow: GET, HEAD\r\nContent-Length: 0\r\n", request);
+            return true;
+        }
+        String path = request.getTarget();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.startsWith("/hls/")) {
+            serveHls(path, head, request);
+            PlaybackMetrics.recordSourceOperation("http", "serve", path, start);
+            return true;
+        }
+        Path file = server.resolve(path);
+        if (file == null) {
+            writeHead(404, "Not Found", "Content-Length: 0\r\n", request);
+            return true;
+        }
+
+        try (FileChannel body = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = body.size();
+            String rangeHeader = request.getHeader("range");
+            ByteRange range = ByteRange.full(length);
+            boolean partial = false;
+            if (rangeHeader != null && length > 0) {
+                try {
+                    range = ByteRange.parse(rangeHeader, length);
+                    partial = true;
+                } catch (IllegalArgumentException e) {
+                    // Malformed or unknown unit: RFC 9110 says ignore the header
+                }
+                if (range == null) {
+                    writeHead(416, "Range Not Satisfiable",
+                            "Content-Range: bytes */" + length + "\r\nContent-Length: 0\r\n", request);
+                    return true;
+                }
+            }
+
+            StringBuilder headers = new StringBuilder(160)
+                    .append("Content-Type: ").append(server.contentType(path)).append("\r\n")
+                    .append("Accept-Ranges: bytes\r\n")
+                    .append("Content-Length: ").append(length == 0 ? 0 : range.getLength()).append("\r\n");
+            if (partial) {
+                headers.append("Content-Range: bytes ").append(range.getStart()).append('-')
+                        .append(range.getEnd()).append('/').append(length).append("\r\n");
+            }
+            writeHead(partial ? 206 : 200, partial ? "Partial Content" : "OK", headers.toString(), request);
+            if (!head && length > 0) {
+                transfer(body, range.getStart(), range.getLength());
+            }
+        } catch (NoSuchFileException e) {
+            writeHead(404, "Not Found", "Content-Length: 0\r\n", request);
+            return true;
+        }
+        PlaybackMetrics.recordSourceOperation("http", "serve", path, start);
+        return true;
+    }
+
+    /**
+     * Serve {@code /hls/<id>/index.m3u8}, {@code init.mp4} or {@code seg<N>.m4s};
+     * Range headers are ignored for these generated resources
+     */
+    private void serveHls(String path, boolean head, HttpRequestHead request) throws IOException {
+        int slash = path.indexOf('/', "/hls/".length());
+        Mp4HlsSegmenter segmenter = null;
+        String name = "";
+        if (slash > 0) {
+            name = path.substring(slash + 1);
+            try {
+                segmenter = server.segmenter(path.substring("/hls/".length(), slash));
+            } catch (IOException e) {
+                EventLog.warn("Cannot segment {}: {}", path, e.getMessage());
+                writeHead(500, "Internal Server Error", "Content-Length: 0\r\n", request);
+                return;
+            }
+        }
+        ByteBuffer body = null;
+        String contentType = null;
+        if (segmenter != null) {
+            if ("index.m3u8".equals(name)) {
+                body = ByteBuffer.wrap(segmenter.getMediaPlaylist().getBytes(StandardCharsets.UTF_8));
+                contentType = "application/vnd.apple.mpegurl";
+            } else if (Mp4HlsSegmenter.INIT_SEGMENT.equals(name)) {
+                body = segmenter.getInitSegment();
+                contentType = "video/mp4";
+            } else if (segmenter.segmentIndex(name) >= 0) {
+                body = segmenter.getSegment(segmenter.segmentIndex(name));
+                contentType = "video/iso.segment";
+            }
+        }
+        if (body == null) {
+            writeHead(404, "Not Found", "Content-Length: 0\r\n", request);
+            return;
+        }
+        writeHead(200, "OK", "Content-Type: " + contentType + "\r\nContent-Length: " + body.remaining() + "\r\n",
+                request);
+        while (!head && body.hasRemaining()) {
+            channel.write(body);
+        }
+    }
+
+    private void transfer(FileChannel body, long position, long count) throws IOException {
+        long sent = 0;
+        while (sent < count) {
+            long n = body.transferTo(position + sent, count - sent, channel);
+            if (n <= 0) {
+                // The file shrank under us; the promised Content-Length cannot be met
+                throw new IOException("File truncated while sending");
+            }
+            sent += n;
+        }
+    }
+
+    private void writeHead(int status, String reason, String headers, HttpRequestHead request) throws IOException {
+        String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Date: " + HTTP_DATE.format(Instant.now()) + "\r\n"
+                + "Server: ModularMedia\r\n"
+                + (request.isKeepAlive() ? "" : "Connection: close\r\n")
+                + headers + "\r\n";
+        ByteBuffer buffer = ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.modularmedia.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Request line and headers of one HTTP/1.1 request.
+ *
+ * Requests to this server never carry a body we care about, so only the head is
+ * read. Header names are lower-cased; a repeated header keeps its last value.
+ */
+final class HttpRequestHead {
+    private static final int MAX_HEAD_BYTES = 16 * 1024;
+
+    private final String method;
+    private final String target;
+    private final String version;
+    private final Map<String, String> headers;
+
+    private HttpRequestHead(String method, String target, String version, Map<String, String> headers) {
+        this.method = method;
+        this.target = target;
+        this.version = version;
+        this.headers = headers;
+    }
+
+    /**
+     * Read the next request head from a keep-alive connection
+     *
+     * @return the request, or null if the peer closed the connection between requests
+     * @throws IOException on I/O errors, timeouts, or a malformed / oversized head
+     */
+    static HttpRequestHead read(InputStream in) throws IOException {
+        String requestLine = readLine(in, true);
+        while (requestLine != null && requestLine.isEmpty()) {
+            // RFC 9112 allows stray CRLFs before a request line
+            requestLine = readLine(in, true);
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/")) {
+            throw new IOException("Malformed request line: " + requestLine);
+        }
+        Map<String, String> headers = new HashMap<>();
+        int total = requestLine.length();
+        String line;
+        while (!(line = readLine(in, false)).isEmpty()) {
+            total += line.length();
+            if (total > MAX_HEAD_BYTES) {
+                throw new IOException("Request head too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        return new HttpRequestHead(parts[0], parts[1], parts[2], headers);
+    }
+
+    private static String readLine(InputStream in, boolean eofAllowed) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (eofAllowed && line.length() == 0) {
+                    return null;
+                }
+                throw new EOFException("Connection closed mid-request");
+            }
+            if (line.length() >= MAX_HEAD_BYTES) {
+                throw new IOException("Request line too long");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getTarget() {
+        return target;
+    }
+
+    String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * HTTP/1.1 defaults to keep-alive; HTTP/1.0 needs an explicit opt-in
+     */
+    boolean isKeepAlive() {
+        String connection = headers.getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+        if ("HTTP/1.0".equals(version)) {
+            return connection.contains("keep-alive");
+        }
+        return !connection.contains("close");
+    }
+}
@@ -0,0 +1,236 @@
+package com.modularmedia.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.sources.LocalFileAdapter;
+import com.modularmedia.sources.mp4.Mp4HlsSegmenter;
+import com.modularmedia.sources.mp4.SegmentCache;
+
+/**
+ * Embedded HTTP/1.1 server that streams the local library to players on the LAN.
+ *
+ * Files wrapped by a {@link LocalFileAdapter} are published under
+ * {@code /media/<id>} and served with {@code GET}/{@code HEAD}, single byte
+ * {@code Range} requests and persistent connections. Response bodies go straight
+ * from the page cache to the socket with {@link java.nio.channels.FileChannel#transferTo},
+ * which the JDK maps to {@code sendfile(2)}, so payload bytes never enter the heap.
+ *
+ * Published MP4 files are also offered as fragmented-MP4 HLS under
+ * {@code /hls/<id>/index.m3u8}, packaged lazily by an {@link Mp4HlsSegmenter}
+ * created on the first HLS request for that file.
+ *
+ * Design Rationale:
+ * - Zero-copy bodies keep egress bound by the NIC, not by user-space copies
+ * - One blocking thread per connection (virtual where available) keeps the
+ *   protocol code straight-line; an acceptor thread only hands sockets off
+ * - Only registered files are reachable, so request paths never touch the file system
+ * - HLS needs no offline packaging step and no second copy of the library on disk
+ */
+public class MediaFileServer implements AutoCloseable {
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 15_000;
+    private static final double HLS_TARGET_SEGMENT_SECONDS = 6.0;
+    private static final long HLS_CACHE_BYTES = 128L * 1024 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService connectionExecutor = LightweightThreads.newPerTaskExecutor("media-http");
+    private final Map<String, LocalFileAdapter> published = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Mp4HlsSegmenter>> segmenters = new ConcurrentHashMap<>();
+    private final SegmentCache segmentCache = new SegmentCache(HLS_CACHE_BYTES);
+    private final int idleTimeoutMillis;
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    /**
+     * Bind to the given address; port 0 picks a free port
+     */
+    public MediaFileServer(InetSocketAddress address) throws IOException {
+        this(address, DEFAULT_IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public MediaFileServer(InetSocketAddress address, long idleTimeout, TimeUnit unit) throws IOException {
+        this.idleTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(idleTimeout));
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 256);
+        this.acceptor = LightweightThreads.daemonFactory("media-http-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+        EventLog.info("Media server listening on {}", serverChannel.getLocalAddress());
+    }
+
+    /**
+     * Publish a local file under {@code /media/<id>}
+     *
+     * @return the URI players should request
+     */
+    public URI publish(String id, LocalFileAdapter file) {
+        if (id.isEmpty() || id.contains("/")) {
+            throw new IllegalArgumentException("Media id must be a single path segment: " + id);
+        }
+        published.put(id, file);
+        EventLog.debug("  → Published {} as /media/{}", file.getFilePath(), id);
+        return getBaseUri().resolve("/media/" + id);
+    }
+
+    public void unpublish(String id) {
+        published.remove(id);
+        closeSegmenter(segmenters.remove(id));
+    }
+
+    /**
+     * HLS media playlist URI of a published MP4 file
+     */
+    public URI getHlsUri(String id) {
+        return getBaseUri().resolve("/hls/" + id + "/index.m3u8");
+    }
+
+    public SegmentCache getSegmentCache() {
+        return segmentCache;
+    }
+
+    /**
+     * Base URI of this server, e.g. {@code http://127.0.0.1:8080/}
+     */
+    public URI getBaseUri() {
+        try {
+            InetSocketAddress local = (InetSocketAddress) serverChannel.getLocalAddress();
+            String host = local.getAddress().isAnyLocalAddress() ? "127.0.0.1" : local.getAddress().getHostAddress();
+            return URI.create("http://" + (host.contains(":") ? "[" + host + "]" : host) + ":" + local.getPort() + "/");
+        } catch (IOException e) {
+            throw new IllegalStateException("Server socket is closed", e);
+        }
+    }
+
+    public int getPort() {
+        return getBaseUri().getPort();
+    }
+
+    /**
+     * Resolve a request path to the published file, or null if there is none
+     */
+    Path resolve(String path) {
+        if (!path.startsWith("/media/")) {
+            return null;
+        }
+        LocalFileAdapter file = published.get(path.substring("/media/".length()));
+        return file == null ? null : Path.of(file.getFilePath());
+    }
+
+    /**
+     * The segmenter for a published MP4 file, created on first use
+     *
+     * The {@code moov} is parsed by the first requester outside the map, so
+     * requests for other files never wait on it; concurrent requests for the same
+     * file wait for that one parse. A failed parse is not kept, and the next
+     * request tries again.
+     *
+     * @return the segmenter, or null if the id is unknown or not an MP4/MOV file
+     * @throws IOException if the file's box structure cannot be read
+     */
+    Mp4HlsSegmenter segmenter(String id) throws IOException {
+        LocalFileAdapter file = published.get(id);
+        if (file == null || !("MP4".equals(file.getFileFormat()) || "MOV".equals(file.getFileFormat()))) {
+            return null;
+        }
+        CompletableFuture<Mp4HlsSegmenter> segmenter = segmenters.get(id);
+        if (segmenter == null) {
+            CompletableFuture<Mp4HlsSegmenter> created = new CompletableFuture<>();
+            segmenter = segmenters.putIfAbsent(id, created);
+            if (segmenter == null) {
+                segmenter = created;
+                try {
+                    created.complete(new Mp4HlsSegmenter(Path.of(file.getFilePath()),
+                            HLS_TARGET_SEGMENT_SECONDS, segmentCache));
+                } catch (IOException | RuntimeException e) {
+                    segmenters.remove(id, created);
+                    created.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return segmenter.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    String contentType(String path) {
+        LocalFileAdapter file = published.get(path.substring("/media/".length()));
+        String format = file == null ? "" : file.getFileFormat();
+        switch (format) {
+            case "MP4":
+                return "video/mp4";
+            case "MKV":
+                return "video/x-matroska";
+            case "WEBM":
+                return "video/webm";
+            case "AVI":
+                return "video/x-msvideo";
+            case "MOV":
+                return "video/quicktime";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connectionExecutor.execute(new ConnectionHandler(this, channel, idleTimeoutMillis));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    EventLog.warn("Media server accept failed: {}", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        connectionExecutor.shutdownNow();
+        segmenters.values().forEach(this::closeSegmenter);
+        segmenters.clear();
+        segmentCache.close();
+        EventLog.info("Media server stopped");
+    }
+
+    /**
+     * Close a segmenter once it exists; one still being created is closed when it is done
+     */
+    private void closeSegmenter(CompletableFuture<Mp4HlsSegmenter> segmenter) {
+        if (segmenter == null) {
+            return;
+        }
+        segmenter.thenAccept(created -> {
+            try {
+                created.close();
+            } catch (IOException e) {
+                EventLog.warn("Closing segmenter failed: {}", e);
+            }
+        });
+    }
+}
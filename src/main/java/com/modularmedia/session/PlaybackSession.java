@@ -0,0 +1,121 @@
+package com.modularmedia.session;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import com.modularmedia.core.Media;
+import com.modularmedia.renderers.Renderer;
+
+/**
+ * A lightweight per-viewer playback session.
+ *
+ * A session only holds what is private to one viewer: its cursor into the
+ * (shared, read-only) list of playable items, the decorator chain captured when
+ * it was created and a renderer lease. Media sources and playlists are shared
+ * with every other session watching the same content.
+ */
+public class PlaybackSession {
+    private final String id;
+    private final List<Media> items;
+    private final Function<Media, Media> decorators;
+    private final Renderer renderer;
+    private final ExecutorService executor;
+    private volatile int cursor = 0;
+    private volatile boolean playing = false;
+    private volatile boolean stopRequested = false;
+    private volatile long lastActiveNanos = System.nanoTime();
+    private CompletableFuture<Void> playback = CompletableFuture.completedFuture(null);
+
+    PlaybackSession(String id, List<Media> items, Function<Media, Media> decorators,
+                    Renderer renderer, ExecutorService executor) {
+        this.id = id;
+        this.items = items;
+        this.decorators = decorators;
+        this.renderer = renderer;
+        this.executor = executor;
+    }
+
+    /**
+     * Play from the current cursor to the end on the session's own thread.
+     * If the session is already playing, the running playback is returned.
+     */
+    public synchronized CompletableFuture<Void> play() {
+        touch();
+        if (playing) {
+            return playback;
+        }
+        playing = true;
+        stopRequested = false;
+        playback = CompletableFuture.runAsync(this::runPlayback, executor);
+        return playback;
+    }
+
+    /**
+     * Stop after the item that is currently playing
+     */
+    public void stop() {
+        touch();
+        stopRequested = true;
+    }
+
+    /**
+     * Move the cursor; takes effect at the next item boundary
+     */
+    public void seek(int index) {
+        if (index < 0 || index >= items.size()) {
+            throw new IndexOutOfBoundsException("Seek index " + index + " outside 0.." + (items.size() - 1));
+        }
+        touch();
+        cursor = index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getCursor() {
+        return cursor;
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Nanoseconds since the session was last used
+     */
+    public long getIdleNanos() {
+        return System.nanoTime() - lastActiveNanos;
+    }
+
+    void touch() {
+        lastActiveNanos = System.nanoTime();
+    }
+
+    private void runPlayback() {
+        try {
+            renderer.render("Playback started (session " + id + ")");
+            while (!stopRequested && cursor < items.size()) {
+                int index = cursor;
+                decorators.apply(items.get(index)).play();
+                touch();
+                if (cursor == index) {
+                    cursor = index + 1;
+                }
+            }
+        } finally {
+            playing = false;
+            touch();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.modularmedia.session;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.core.Media;
+import com.modularmedia.memory.MemoryBudget;
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.plugins.PluginManager;
+import com.modularmedia.renderers.RendererPool;
+
+/**
+ * Multi-session playback server.
+ *
+ * Creates, looks up and evicts lightweight {@link PlaybackSession}s. Each session
+ * plays on its own thread (a virtual thread where the runtime supports it),
+ * leases its renderer from a shared {@link RendererPool} and shares the flattened
+ * item list of its playlist with every other session on the same playlist.
+ * Sessions that are neither playing nor touched within the idle timeout are
+ * reaped in the background.
+ *
+ * Design Rationale:
+ * - Per-viewer state is a cursor, a decorator snapshot and a renderer lease
+ * - Evicted and reaped sessions release their lease back to the pool
+ * - Shared, read-only media graphs keep the per-session footprint small
+ * - Thread-per-session code stays simple; virtual threads keep it cheap
+ * - Idle reaping bounds memory without relying on clients to close sessions
+ * - New sessions are refused while the {@link MemoryBudget} is at critical pressure
+ */
+public class SessionManager {
+    private final RendererPool rendererPool;
+    private final PluginManager pluginManager;
+    private final long idleTimeoutNanos;
+    private final Map<String, PlaybackSession> sessions = new ConcurrentHashMap<>();
+    private final Map<Playlist, List<Media>> sharedItems = Collections.synchronizedMap(new WeakHashMap<>());
+    private final ExecutorService playbackExecutor = LightweightThreads.newPerTaskExecutor("session");
+    private final ScheduledExecutorService reaper =
+            Executors.newSingleThreadScheduledExecutor(LightweightThreads.daemonFactory("session-reaper"));
+
+    public SessionManager(RendererPool rendererPool, PluginManager pluginManager, long idleTimeout, TimeUnit unit) {
+        this.rendererPool = rendererPool;
+        this.pluginManager = pluginManager;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        long period = Math.max(1, unit.toMillis(idleTimeout) / 2);
+        reaper.scheduleAtFixedRate(this::reapIdleSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a session with a generated id
+     */
+    public PlaybackSession create(Playlist playlist) {
+        return create(UUID.randomUUID().toString(), playlist);
+    }
+
+    /**
+     * Create a session for the given viewer id
+     *
+     * @throws IllegalStateException if a session with this id already exists
+     * @throws RejectedExecutionException if memory pressure is critical
+     */
+    public PlaybackSession create(String sessionId, Playlist playlist) {
+        if (!MemoryBudget.global().admitsNewSessions()) {
+            throw new RejectedExecutionException("Memory budget exhausted, refusing session " + sessionId);
+        }
+        List<Media> items = sharedItems.computeIfAbsent(playlist, p -> List.copyOf(p.getLeafItems()));
+        PlaybackSession session = new PlaybackSession(sessionId, items, pluginManager.snapshot(),
+                rendererPool.lease(sessionId), playbackExecutor);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            throw new IllegalStateException("Session already exists: " + sessionId);
+        }
+        return session;
+    }
+
+    /**
+     * Look up a live session and mark it as active
+     *
+     * @return the session, or null if it does not exist or was evicted
+     */
+    public PlaybackSession lookup(String sessionId) {
+        PlaybackSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * Stop and remove a session
+     *
+     * @return true if the session existed
+     */
+    public boolean evict(String sessionId) {
+        PlaybackSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.stop();
+        rendererPool.release(sessionId);
+        return true;
+    }
+
+    /**
+     * Forget the shared item list of a playlist that was modified, so new
+     * sessions see its current contents
+     */
+    public void invalidate(Playlist playlist) {
+        sharedItems.remove(playlist);
+    }
+
+    /**
+     * Evict every session that is not playing and has been idle past the timeout
+     *
+     * @return the number of sessions evicted
+     */
+    public int reapIdleSessions() {
+        int reaped = 0;
+        for (PlaybackSession session : sessions.values()) {
+            if (!session.isPlaying() && session.getIdleNanos() > idleTimeoutNanos
+                    && sessions.remove(session.getId(), session)) {
+                rendererPool.release(session.getId());
+                reaped++;
+            }
+        }
+        return reaped;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public Collection<PlaybackSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Stop all sessions and background threads
+     */
+    public void shutdown() {
+        reaper.shutdownNow();
+        for (String id : sessions.keySet()) {
+            evict(id);
+        }
+        playbackExecutor.shutdown();
+    }
+}
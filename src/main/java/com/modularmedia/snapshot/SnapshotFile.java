@@ -0,0 +1,310 @@
+package com.modularmedia.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary snapshot file, read through a read-only memory mapping.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header   "MMWS" version:int createdMillis:long sectionCount:int
+ * sections id:int count:int indexOffset:int                  (per section)
+ * index    keyHash:long recordOffset:int                     (per record, sorted by hash)
+ * records  key:str updatedMillis:long payload                (str = length:int UTF-8 bytes, -1 for null)
+ * </pre>
+ *
+ * Opening reads only the header and section table. A lookup binary-searches
+ * the section's hash index in the mapping and decodes just the matching
+ * record, so restore cost grows with what is used, not with the file size.
+ * Files are written to a sibling and moved into place atomically; a process
+ * still reading the old mapping keeps its (unlinked) file.
+ */
+final class SnapshotFile {
+    static final int MAGIC = 0x4D4D5753;
+    static final int VERSION = 1;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Encodes one section's record payloads
+     */
+    interface Codec<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+
+        T read(ByteBuffer in);
+    }
+
+    /**
+     * A decoded record and when it was last refreshed
+     */
+    static final class Stamped<T> {
+        final T value;
+        final long updatedMillis;
+
+        Stamped(T value, long updatedMillis) {
+            this.value = value;
+            this.updatedMillis = updatedMillis;
+        }
+    }
+
+    private final ByteBuffer data;
+    private final long createdMillis;
+    private final int[] sectionIds;
+    private final int[] counts;
+    private final int[] indexOffsets;
+
+    private SnapshotFile(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.remaining() < 20 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a warm-state snapshot");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + data.getInt(4));
+        }
+        this.createdMillis = data.getLong(8);
+        int sections = data.getInt(16);
+        if (sections < 0 || 20 + sections * 12L > data.limit()) {
+            throw new IOException("Damaged snapshot header");
+        }
+        sectionIds = new int[sections];
+        counts = new int[sections];
+        indexOffsets = new int[sections];
+        for (int i = 0; i < sections; i++) {
+            int at = 20 + i * 12;
+            sectionIds[i] = data.getInt(at);
+            counts[i] = data.getInt(at + 4);
+            indexOffsets[i] = data.getInt(at + 8);
+            if (counts[i] < 0 || indexOffsets[i] < 0
+                    || indexOffsets[i] + (long) counts[i] * INDEX_ENTRY_BYTES > data.limit()) {
+                throw new IOException("Damaged snapshot section table");
+            }
+        }
+    }
+
+    /**
+     * Map a snapshot file
+     *
+     * @throws IOException if it cannot be read or is not a snapshot of this version
+     */
+    static SnapshotFile map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + size + " bytes");
+            }
+            return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    int count(int section) {
+        int s = indexOf(section);
+        return s < 0 ? 0 : counts[s];
+    }
+
+    /**
+     * Decode the record with this key, or return null if the section has none
+     */
+    <T> Stamped<T> lookup(int section, String key, Codec<T> codec) {
+        int s = indexOf(section);
+        if (s < 0) {
+            return null;
+        }
+        long hash = hash(key);
+        int low = 0;
+        int high = counts[s] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = data.getLong(indexOffsets[s] + mid * INDEX_ENTRY_BYTES);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // Step back to the first record with this hash, then try each
+                while (mid > 0 && data.getLong(indexOffsets[s] + (mid - 1) * INDEX_ENTRY_BYTES) == hash) {
+                    mid--;
+                }
+                for (; mid < counts[s]; mid++) {
+                    int entry = indexOffsets[s] + mid * INDEX_ENTRY_BYTES;
+                    if (data.getLong(entry) != hash) {
+                        break;
+                    }
+                    ByteBuffer record = data.duplicate().position(data.getInt(entry + Long.BYTES));
+                    if (key.equals(readString(record))) {
+                        long updated = record.getLong();
+                        return new Stamped<>(codec.read(record), updated);
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode every record of a section, in index order
+     */
+    <T> void forEach(int section, Codec<T> codec, BiConsumer<String, Stamped<T>> action) {
+        int s = indexOf(section);
+        for (int i = 0; s >= 0 && i < counts[s]; i++) {
+            int offset = data.getInt(indexOffsets[s] + i * INDEX_ENTRY_BYTES + Long.BYTES);
+            ByteBuffer record = data.duplicate().position(offset);
+            String key = readString(record);
+            long updated = record.getLong();
+            action.accept(key, new Stamped<>(codec.read(record), updated));
+        }
+    }
+
+    /**
+     * Write a snapshot to the given file, replacing it atomically. The new file
+     * is forced to disk before the move, so a crash leaves either the old
+     * snapshot or the complete new one, never a renamed but unwritten file.
+     */
+    static void write(Path file, List<Section<?>> sections, long createdMillis) throws IOException {
+        List<List<Encoded>> encoded = new ArrayList<>(sections.size());
+        for (Section<?> section : sections) {
+            encoded.add(section.encode());
+        }
+        int position = 20 + sections.size() * 12;
+        int[] indexOffsets = new int[sections.size()];
+        for (int i = 0; i < sections.size(); i++) {
+            indexOffsets[i] = position;
+            position += encoded.get(i).size() * INDEX_ENTRY_BYTES;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream stream = Channels.newOutputStream(channel);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(createdMillis);
+            out.writeInt(sections.size());
+            for (int i = 0; i < sections.size(); i++) {
+                out.writeInt(sections.get(i).id);
+                out.writeInt(encoded.get(i).size());
+                out.writeInt(indexOffsets[i]);
+            }
+            for (List<Encoded> records : encoded) {
+                for (Encoded record : records) {
+                    out.writeLong(record.hash);
+                    out.writeInt(position);
+                    position += record.bytes.length;
+                }
+            }
+            for (List<Encoded> records : encoded) {
+                for (Encoded record : records) {
+                    out.write(record.bytes);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IllegalStateException("Snapshot string overruns its record");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64-bit FNV-1a over the key's UTF-16 code units
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private int indexOf(int section) {
+        for (int i = 0; i < sectionIds.length; i++) {
+            if (sectionIds[i] == section) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One section's in-memory records, ready to encode
+     */
+    static final class Section<T> {
+        final int id;
+        final Codec<T> codec;
+        final Map<String, Stamped<T>> records;
+
+        Section(int id, Codec<T> codec, Map<String, Stamped<T>> records) {
+            this.id = id;
+            this.codec = codec;
+            this.records = records;
+        }
+
+        List<Encoded> encode() throws IOException {
+            List<Encoded> encoded = new ArrayList<>(records.size());
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(buffer);
+            for (Map.Entry<String, Stamped<T>> entry : records.entrySet()) {
+                buffer.reset();
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().updatedMillis);
+                codec.write(out, entry.getValue().value);
+                out.flush();
+                encoded.add(new Encoded(hash(entry.getKey()), buffer.toByteArray()));
+            }
+            encoded.sort(Comparator.comparingLong(record -> record.hash));
+            return encoded;
+        }
+    }
+
+    private static final class Encoded {
+        private final long hash;
+        private final byte[] bytes;
+
+        Encoded(long hash, byte[] bytes) {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
+}
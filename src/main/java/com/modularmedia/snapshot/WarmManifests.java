@@ -0,0 +1,56 @@
+package com.modularmedia.snapshot;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Manifest texts of an HLS stream as kept in the warm state: the playlist at
+ * the stream's URL and, when that is a master playlist of a VOD stream, the
+ * media playlist of the variant that was chosen. Live media playlists change
+ * every target duration, so they are never kept.
+ */
+public final class WarmManifests {
+    private final String playlistText;
+    private final URI mediaUri;
+    private final String mediaText;
+
+    /**
+     * @param mediaUri  URI of the chosen variant's media playlist, or null
+     * @param mediaText text of that media playlist, or null
+     */
+    public WarmManifests(String playlistText, URI mediaUri, String mediaText) {
+        this.playlistText = Objects.requireNonNull(playlistText);
+        this.mediaUri = mediaText == null ? null : mediaUri;
+        this.mediaText = mediaUri == null ? null : mediaText;
+    }
+
+    public String getPlaylistText() {
+        return playlistText;
+    }
+
+    public URI getMediaUri() {
+        return mediaUri;
+    }
+
+    /**
+     * Text of the media playlist at {@link #getMediaUri()}, or null if it has to be fetched
+     */
+    public String getMediaText() {
+        return mediaText;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof WarmManifests)) {
+            return false;
+        }
+        WarmManifests manifests = (WarmManifests) other;
+        return playlistText.equals(manifests.playlistText) && Objects.equals(mediaUri, manifests.mediaUri)
+                && Objects.equals(mediaText, manifests.mediaText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playlistText, mediaUri, mediaText);
+    }
+}
@@ -0,0 +1,504 @@
+package com.modularmedia.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.sources.api.MediaMetadata;
+import com.modularmedia.snapshot.SnapshotFile.Codec;
+import com.modularmedia.snapshot.SnapshotFile.Stamped;
+
+/**
+ * Process-wide warm state: the results of startup work that a freshly deployed
+ * node would otherwise repeat, kept in a snapshot file between runs.
+ *
+ * Kept per entry:
+ * - Source registry locations with their access counts, which give the hot set
+ * - HLS manifest texts (master playlists, and media playlists of VOD streams)
+ * - API media metadata, per API host and media ID
+ * - Container formats of local files, valid while size and modification time match
+ *
+ * Until {@link #attach(Path)} is called the warm state is inert: nothing is
+ * recorded and every lookup misses, so components can consult it unconditionally.
+ * Attaching memory-maps the previous snapshot; entries are decoded on first
+ * lookup only (see {@link SnapshotFile}). A restored manifest or metadata entry
+ * is served at once and its owner is asked, once per process, to revalidate it
+ * in the background; the result replaces the entry. Entries not refreshed or
+ * accessed within the maximum age are dropped when the next snapshot is written.
+ */
+public final class WarmState {
+    private static final int SOURCES = 1;
+    private static final int LOCAL_FORMATS = 2;
+    private static final int MANIFESTS = 3;
+    private static final int METADATA = 4;
+    // Reads renew an entry's stamp once it is older than this share of the maximum age
+    private static final int TOUCH_DIVISOR = 8;
+    private static final WarmState GLOBAL = new WarmState();
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(LightweightThreads.daemonFactory("warm-state"));
+
+    private final Store<Long> sources = new Store<>(SOURCES, new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Long hits) throws IOException {
+            out.writeLong(hits);
+        }
+
+        @Override
+        public Long read(ByteBuffer in) {
+            return in.getLong();
+        }
+    });
+    private final Store<LocalFormat> localFormats = new Store<>(LOCAL_FORMATS, new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, LocalFormat format) throws IOException {
+            out.writeLong(format.size);
+            out.writeLong(format.modifiedMillis);
+            SnapshotFile.writeString(out, format.container);
+        }
+
+        @Override
+        public LocalFormat read(ByteBuffer in) {
+            return new LocalFormat(in.getLong(), in.getLong(), SnapshotFile.readString(in));
+        }
+    });
+    private final Store<WarmManifests> manifests = new Store<>(MANIFESTS, new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, WarmManifests warm) throws IOException {
+            SnapshotFile.writeString(out, warm.getPlaylistText());
+            SnapshotFile.writeString(out, warm.getMediaUri() == null ? null : warm.getMediaUri().toString());
+            SnapshotFile.writeString(out, warm.getMediaText());
+        }
+
+        @Override
+        public WarmManifests read(ByteBuffer in) {
+            String playlistText = SnapshotFile.readString(in);
+            String mediaUri = SnapshotFile.readString(in);
+            return new WarmManifests(playlistText, mediaUri == null ? null : URI.create(mediaUri),
+                    SnapshotFile.readString(in));
+        }
+    });
+    private final Store<MediaMetadata> metadata = new Store<>(METADATA, new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, MediaMetadata media) throws IOException {
+            SnapshotFile.writeString(out, media.getMediaId());
+            SnapshotFile.writeString(out, media.getTitle());
+            out.writeDouble(media.getDurationSeconds());
+            SnapshotFile.writeString(out, media.getStreamUri().toString());
+        }
+
+        @Override
+        public MediaMetadata read(ByteBuffer in) {
+            return new MediaMetadata(SnapshotFile.readString(in), SnapshotFile.readString(in), in.getDouble(),
+                    URI.create(SnapshotFile.readString(in)));
+        }
+    });
+    private final LongAdder restored = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder snapshotsWritten = new LongAdder();
+    private volatile Path file;
+    private volatile SnapshotFile snapshot;
+    private volatile long maxAgeMillis = TimeUnit.DAYS.toMillis(1);
+    private volatile boolean dirty = false;
+    private ScheduledFuture<?> periodicSave;
+    private boolean shutdownHook = false;
+
+    private WarmState() {
+    }
+
+    /**
+     * The warm state every source, registry and API client consults
+     */
+    public static WarmState global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Start keeping warm state for the given snapshot file, restoring from it if
+     * it exists. A missing, damaged or older-version file starts empty; the next
+     * {@link #save()} replaces it.
+     */
+    public synchronized void attach(Path file) throws IOException {
+        SnapshotFile mapped = null;
+        if (Files.exists(file)) {
+            try {
+                mapped = SnapshotFile.map(file);
+            } catch (IOException e) {
+                EventLog.warn("Ignoring warm-state snapshot {}: {}", file, e.getMessage());
+            }
+        }
+        for (Store<?> store : stores()) {
+            store.live.clear();
+        }
+        this.snapshot = mapped;
+        this.file = file;
+        if (mapped != null) {
+            EventLog.info("Warm state mapped from {} ({} entries)", file, mapped.count(SOURCES)
+                    + mapped.count(LOCAL_FORMATS) + mapped.count(MANIFESTS) + mapped.count(METADATA));
+        }
+    }
+
+    public boolean isAttached() {
+        return file != null;
+    }
+
+    /**
+     * Drop entries neither refreshed nor accessed for this long; one day by default
+     */
+    public void setMaxAge(Duration maxAge) {
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+
+    /**
+     * Write a snapshot every {@code period} while anything changed, and a final
+     * one when the process exits
+     */
+    public synchronized void startSnapshots(Duration period) {
+        if (periodicSave != null) {
+            periodicSave.cancel(false);
+        }
+        long millis = Math.max(1, period.toMillis());
+        periodicSave = SCHEDULER.scheduleAtFixedRate(this::saveQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        if (!shutdownHook) {
+            shutdownHook = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::saveQuietly, "warm-state-save"));
+        }
+    }
+
+    /**
+     * Write the warm state to the snapshot file if anything changed since the
+     * last write; the file is replaced atomically
+     */
+    public synchronized void save() throws IOException {
+        Path target = file;
+        if (target == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        long now = System.currentTimeMillis();
+        List<SnapshotFile.Section<?>> sections = new ArrayList<>();
+        for (Store<?> store : stores()) {
+            sections.add(store.section(now));
+        }
+        try {
+            SnapshotFile.write(target, sections, now);
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+        snapshotsWritten.increment();
+        EventLog.debug("  → Warm state written to {}", target);
+    }
+
+    /**
+     * Count an access to a registry location towards the hot set
+     */
+    public void recordSourceAccess(String location) {
+        if (file == null) {
+            return;
+        }
+        sources.get(location, null);
+        sources.live.compute(location, (key, current) -> new Stamped<>(
+                current == null || current.value == null ? 1 : current.value + 1, System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    /**
+     * The most accessed registry locations, most accessed first, across this
+     * process and the snapshot it restored from
+     */
+    public List<String> getHotLocations(int limit) {
+        Map<String, Long> hits = new HashMap<>();
+        long now = System.currentTimeMillis();
+        SnapshotFile mapped = snapshot;
+        if (mapped != null) {
+            sources.restoreAll(mapped, now, (location, stamped) -> hits.put(location, stamped.value));
+        }
+        sources.live.forEach((location, stamped) -> hits.put(location, stamped.value));
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>(hits.entrySet());
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        List<String> hot = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            hot.add(ranked.get(i).getKey());
+        }
+        return hot;
+    }
+
+    /**
+     * Container format recorded for a local file, or null unless one was recorded
+     * for exactly this size and modification time
+     */
+    public String localFormat(String path, long size, long modifiedMillis) {
+        LocalFormat format = localFormats.get(path, null);
+        return format != null && format.size == size && format.modifiedMillis == modifiedMillis
+                ? format.container : null;
+    }
+
+    public void recordLocalFormat(String path, long size, long modifiedMillis, String container) {
+        localFormats.put(path, new LocalFormat(size, modifiedMillis, container));
+    }
+
+    /**
+     * Manifests recorded for an HLS playlist URL, or null. If they were restored
+     * from the snapshot, {@code revalidate} is run on the first lookup in this
+     * process; it should fetch them again and {@link #recordManifests record} the result.
+     */
+    public WarmManifests manifests(String playlistUrl, Runnable revalidate) {
+        return manifests.get(playlistUrl, revalidate);
+    }
+
+    public void recordManifests(String playlistUrl, WarmManifests warm) {
+        manifests.put(playlistUrl, warm);
+    }
+
+    public void forgetManifests(String playlistUrl) {
+        manifests.remove(playlistUrl);
+    }
+
+    /**
+     * Metadata recorded for a media ID on an API host, or null; revalidation
+     * works as for {@link #manifests(String, Runnable)}
+     */
+    public MediaMetadata metadata(URI apiBase, String mediaId, Runnable revalidate) {
+        return metadata.get(apiBase + " " + mediaId, revalidate);
+    }
+
+    public void recordMetadata(URI apiBase, MediaMetadata media) {
+        metadata.put(apiBase + " " + media.getMediaId(), media);
+    }
+
+    public void forgetMetadata(URI apiBase, String mediaId) {
+        metadata.remove(apiBase + " " + mediaId);
+    }
+
+    /**
+     * Entries served from the mapped snapshot
+     */
+    public long getRestored() {
+        return restored.sum();
+    }
+
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Entries whose value changed when recorded again, through revalidation or a fresh load
+     */
+    public long getChanged() {
+        return changed.sum();
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.sum();
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            EventLog.warn("Writing warm-state snapshot {} failed: {}", file, e.getMessage());
+        }
+    }
+
+    private List<Store<?>> stores() {
+        return List.of(sources, localFormats, manifests, metadata);
+    }
+
+    private boolean isFresh(Stamped<?> stamped, long now) {
+        return now - stamped.updatedMillis <= maxAgeMillis;
+    }
+
+    /**
+     * A snapshot that cannot be decoded is dropped as a whole; what was already
+     * restored stays, everything else is loaded normally
+     */
+    private void dropSnapshot(SnapshotFile damaged, RuntimeException e) {
+        synchronized (this) {
+            if (snapshot != damaged) {
+                return;
+            }
+            snapshot = null;
+            dirty = true;
+        }
+        EventLog.warn("Warm-state snapshot {} is damaged, ignoring it: {}", file, e.toString());
+    }
+
+    /**
+     * One section: entries recorded or restored in this process, backed by the
+     * mapped snapshot. A null value marks an entry as forgotten.
+     */
+    private final class Store<T> {
+        private final int id;
+        private final Codec<T> codec;
+        private final Map<String, Stamped<T>> live = new ConcurrentHashMap<>();
+        // Restored entries whose owner has not yet been asked to revalidate them
+        private final Map<String, Boolean> unverified = new ConcurrentHashMap<>();
+
+        Store(int id, Codec<T> codec) {
+            this.id = id;
+            this.codec = codec;
+        }
+
+        T get(String key, Runnable revalidate) {
+            if (file == null) {
+                return null;
+            }
+            Stamped<T> stamped = live.get(key);
+            if (stamped == null) {
+                stamped = restore(key);
+                if (stamped == null) {
+                    return null;
+                }
+            }
+            if (unverified.remove(key) != null && revalidate != null) {
+                revalidations.increment();
+                revalidate.run();
+            }
+            touch(key, stamped);
+            return stamped.value;
+        }
+
+        void put(String key, T value) {
+            if (file == null) {
+                return;
+            }
+            unverified.remove(key);
+            Stamped<T> previous = live.put(key, new Stamped<>(value, System.currentTimeMillis()));
+            SnapshotFile mapped = snapshot;
+            if (previous == null && mapped != null) {
+                previous = lookup(mapped, key);
+            }
+            if (previous != null && !Objects.equals(previous.value, value)) {
+                changed.increment();
+            }
+            dirty = true;
+        }
+
+        void remove(String key) {
+            if (file == null) {
+                return;
+            }
+            unverified.remove(key);
+            live.put(key, new Stamped<>(null, System.currentTimeMillis()));
+            dirty = true;
+        }
+
+        /**
+         * Renew the stamp of an entry that is still in use, so it outlives the
+         * maximum age; recent stamps are left alone to keep reads from dirtying
+         * the snapshot
+         */
+        private void touch(String key, Stamped<T> stamped) {
+            long now = System.currentTimeMillis();
+            if (now - stamped.updatedMillis > maxAgeMillis / TOUCH_DIVISOR
+                    && live.replace(key, stamped, new Stamped<>(stamped.value, now))) {
+                dirty = true;
+            }
+        }
+
+        /**
+         * Decode an entry from the snapshot into the live map, unless it was
+         * recorded in this process meanwhile
+         */
+        private Stamped<T> restore(String key) {
+            SnapshotFile mapped = snapshot;
+            Stamped<T> stamped = mapped == null ? null : lookup(mapped, key);
+            if (stamped == null || stamped.value == null || !isFresh(stamped, System.currentTimeMillis())) {
+                return null;
+            }
+            Stamped<T> existing = live.putIfAbsent(key, stamped);
+            if (existing != null) {
+                return existing.value == null ? null : existing;
+            }
+            restored.increment();
+            unverified.put(key, Boolean.TRUE);
+            return stamped;
+        }
+
+        private Stamped<T> lookup(SnapshotFile mapped, String key) {
+            try {
+                return mapped.lookup(id, key, codec);
+            } catch (RuntimeException e) {
+                dropSnapshot(mapped, e);
+                return null;
+            }
+        }
+
+        void restoreAll(SnapshotFile mapped, long now, BiConsumer<String, Stamped<T>> action) {
+            try {
+                mapped.forEach(id, codec, (key, stamped) -> {
+                    if (isFresh(stamped, now)) {
+                        action.accept(key, stamped);
+                    }
+                });
+            } catch (RuntimeException e) {
+                dropSnapshot(mapped, e);
+            }
+        }
+
+        /**
+         * Fresh entries from the snapshot, overridden by this process's entries
+         */
+        SnapshotFile.Section<T> section(long now) {
+            Map<String, Stamped<T>> records = new HashMap<>();
+            SnapshotFile mapped = snapshot;
+            if (mapped != null) {
+                restoreAll(mapped, now, records::put);
+            }
+            live.forEach((key, stamped) -> {
+                if (stamped.value == null || !isFresh(stamped, now)) {
+                    records.remove(key);
+                } else {
+                    records.put(key, stamped);
+                }
+            });
+            return new SnapshotFile.Section<>(id, codec, records);
+        }
+    }
+
+    private static final class LocalFormat {
+        private final long size;
+        private final long modifiedMillis;
+        private final String container;
+
+        LocalFormat(long size, long modifiedMillis, String container) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.container = container;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof LocalFormat)) {
+                return false;
+            }
+            LocalFormat format = (LocalFormat) other;
+            return size == format.size && modifiedMillis == format.modifiedMillis
+                    && Objects.equals(container, format.container);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modifiedMillis, container);
+        }
+    }
+}
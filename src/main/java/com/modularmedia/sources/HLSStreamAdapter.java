@@ -1,6 +1,42 @@
 package com.modularmedia.sources;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import com.modularmedia.core.MediaSource;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.memory.MemoryBudget;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.HlsKey;
+import com.modularmedia.sources.hls.HlsPart;
+import com.modularmedia.sources.hls.HlsPlaylist;
+import com.modularmedia.sources.hls.HlsPlaylistParser;
+import com.modularmedia.sources.hls.HlsSegment;
+import com.modularmedia.sources.hls.HlsSegmentListener;
+import com.modularmedia.sources.hls.HlsVariant;
+import com.modularmedia.sources.hls.KeyCache;
+import com.modularmedia.sources.hls.LowLatencyStreamer;
+import com.modularmedia.sources.hls.SegmentDecryptor;
+import com.modularmedia.sources.hls.SegmentFetcher;
+import com.modularmedia.sources.hls.TimeShiftBuffer;
+import com.modularmedia.snapshot.WarmManifests;
+import com.modularmedia.snapshot.WarmState;
 
 /**
  * ADAPTER PATTERN - Concrete Adapter for HLS Streams
@@ -12,25 +48,104 @@ import com.modularmedia.core.MediaSource;
  * - Encapsulates HLS-specific logic (playlist parsing, segment management, etc.)
  * - Provides uniform interface for streaming media
  * - Isolates network streaming dependencies from the rest of the system
+ * 
+ * Without a {@link SegmentFetcher} the adapter only simulates streaming; with one
+ * it fetches and parses the real manifests and streams every segment. Segments
+ * are prefetched a few ahead into pooled direct buffers; AES-128 segments are
+ * decrypted in place on the common pool as they arrive, so decryption of
+ * upcoming segments overlaps delivery of the current one; the prefetch depth
+ * drops to one segment under memory pressure. Fetches go through the
+ * {@link IoScheduler}: the segment being played is {@code PLAYING_NOW}, prefetched
+ * ones are {@code NEXT_UP} with deadlines at their playback time, and are escalated
+ * if they are still queued when playback reaches them. Redundant copies of the
+ * chosen variant on other origins are declared to the fetcher as mirrors, which a
+ * hedging fetcher uses for failover.
+ *
+ * Only whole-segment AES-128 ({@code KEYFORMAT="identity"}) is decrypted. Streams
+ * using SAMPLE-AES or another key format, and encrypted Low-Latency HLS streams
+ * (whose parts are delivered as they arrive, undecrypted), are rejected when the
+ * playlist is loaded: {@link #load()} throws an {@link UncheckedIOException}
+ * wrapping an {@link IOException} that names the unsupported encryption. A live
+ * playlist that switches to such encryption on reload stops being followed at
+ * that point.
+ *
+ * Manifests kept in the {@link WarmState} (master playlists, and media playlists
+ * of VOD streams) are parsed from there instead of fetched; restored ones are
+ * fetched again as speculative I/O to revalidate them.
+ *
+ * Other live media playlists are reloaded once the known segments are played,
+ * no sooner than a target duration after the previous load (half of one after a
+ * reload that brought nothing new), and new segments are streamed as they appear.
+ * Low-Latency HLS live playlists are handed to a {@link LowLatencyStreamer},
+ * which delivers partial segments as they are announced. Live playback goes on
+ * until the stream ends or {@link #stopLive()} is called. Interrupting the thread
+ * in {@link #play()} stops streaming at the segment being waited for, so the
+ * player can stop or pause an item mid-stream.
+ *
+ * With a {@link TimeShiftBuffer} attached, every delivered segment (or part) is
+ * also recorded to the on-disk ring, and {@link #playTimeShift(long)} replays
+ * any point of the window from disk without touching the origin.
  */
 public class HLSStreamAdapter implements MediaSource {
+    private static final int PREFETCH_SEGMENTS = 3;
+    private static final long REVALIDATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long LIVE_STOP_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private String playlistUrl;
     private boolean loaded = false;
     private int segmentCount = 0;
+    private final SegmentFetcher fetcher;
+    private HlsPlaylist mediaPlaylist;
+    private HlsSegmentListener segmentListener;
+    private final KeyCache keyCache;
+    private final DirectBufferPool bufferPool;
+    private HlsPlaylist masterPlaylist;
+    private volatile LowLatencyStreamer lowLatency;
+    private volatile boolean liveStopped = false;
+    private TimeShiftBuffer timeShift;
+    private IoScheduler ioScheduler = IoScheduler.shared();
 
     public HLSStreamAdapter(String playlistUrl) { 
+        this(playlistUrl, null);
+    }
+
+    /**
+     * Create an adapter that streams for real through the given fetcher
+     */
+    public HLSStreamAdapter(String playlistUrl, SegmentFetcher fetcher) { 
+        this(playlistUrl, fetcher, fetcher == null ? null : KeyCache.of(fetcher), DirectBufferPool.shared());
+    }
+
+    /**
+     * Create a streaming adapter that shares a key cache and buffer pool with other streams
+     */
+    public HLSStreamAdapter(String playlistUrl, SegmentFetcher fetcher, KeyCache keyCache, DirectBufferPool bufferPool) { 
         this.playlistUrl = playlistUrl; 
+        this.fetcher = fetcher;
+        this.keyCache = keyCache;
+        this.bufferPool = bufferPool;
     }
 
+    /**
+     * @throws UncheckedIOException wrapping an {@link IOException} if the stream's
+     *         encryption is not supported (see the class description)
+     */
     @Override 
     public void load() { 
-        System.out.println("Loading HLS playlist: " + playlistUrl);
-        System.out.println("  → Connecting to HLS server...");
-        System.out.println("  → Parsing playlist manifest...");
-        System.out.println("  → Detecting stream quality levels...");
-        System.out.println("  → Initializing segment buffer...");
+        long start = PlaybackMetrics.start();
+        EventLog.info("Loading HLS playlist: {}", playlistUrl);
+        if (fetcher != null) {
+            loadManifests();
+            PlaybackMetrics.recordSourceOperation("hls", "load", playlistUrl, start);
+            return;
+        }
+        EventLog.debug("  → Connecting to HLS server...");
+        EventLog.debug("  → Parsing playlist manifest...");
+        EventLog.debug("  → Detecting stream quality levels...");
+        EventLog.debug("  → Initializing segment buffer...");
         this.segmentCount = (int)(Math.random() * 20) + 10; // Simulate segment count
         this.loaded = true;
+        PlaybackMetrics.recordSourceOperation("hls", "load", playlistUrl, start);
     }
     
     @Override 
@@ -38,9 +153,14 @@ public class HLSStreamAdapter implements MediaSource {
         if (!loaded) {
             load();
         }
-        System.out.println("Playing HLS stream: " + playlistUrl);
-        System.out.println("  → Streaming " + segmentCount + " segments");
-        System.out.println("  → Using adaptive bitrate streaming");
+        long start = PlaybackMetrics.start();
+        EventLog.info("Playing HLS stream: {}", playlistUrl);
+        EventLog.debug("  → Streaming {} segments", segmentCount);
+        EventLog.debug("  → Using adaptive bitrate streaming");
+        if (fetcher != null) {
+            streamSegments();
+        }
+        PlaybackMetrics.recordSourceOperation("hls", "play", playlistUrl, start);
     }
     
     @Override
@@ -52,4 +172,450 @@ public class HLSStreamAdapter implements MediaSource {
     public boolean isReady() {
         return loaded;
     }
+    
+    /**
+     * Register a callback for every segment delivered during {@link #play()}
+     */
+    public void setSegmentListener(HlsSegmentListener segmentListener) {
+        this.segmentListener = segmentListener;
+    }
+    
+    /**
+     * Schedule this stream's fetches on the given scheduler instead of the shared one
+     */
+    public void setIoScheduler(IoScheduler ioScheduler) {
+        this.ioScheduler = ioScheduler;
+    }
+    
+    /**
+     * Record delivered segments into a time-shift ring owned by the caller
+     */
+    public void setTimeShiftBuffer(TimeShiftBuffer timeShift) {
+        this.timeShift = timeShift;
+    }
+    
+    public TimeShiftBuffer getTimeShiftBuffer() {
+        return timeShift;
+    }
+    
+    /**
+     * Deliver the recorded segments from the given wall-clock time up to the
+     * current end of the time-shift window, reading only from the ring.
+     * Returns the number of segments delivered.
+     */
+    public int playTimeShift(long fromEpochMillis) {
+        if (timeShift == null) {
+            throw new IllegalStateException("No time-shift buffer attached");
+        }
+        long sequence = timeShift.sequenceAt(fromEpochMillis);
+        if (sequence < 0) {
+            sequence = timeShift.getFirstSequence();
+        }
+        EventLog.debug("  → Time-shift replay from segment {}", sequence);
+        int delivered = 0;
+        for (; sequence >= 0; sequence = timeShift.nextSequence(sequence)) {
+            HlsSegment segment = timeShift.getSegment(sequence);
+            ByteBuffer data = timeShift.read(sequence, bufferPool);
+            if (segment == null || data == null) {
+                // Overwritten by the live edge since the lookup
+                continue;
+            }
+            try {
+                if (segmentListener != null) {
+                    segmentListener.onSegment(segment, data);
+                }
+                delivered++;
+            } finally {
+                bufferPool.release(data);
+            }
+        }
+        return delivered;
+    }
+    
+    /**
+     * Get the parsed media playlist, or null if not loaded (or simulated)
+     */
+    public HlsPlaylist getMediaPlaylist() {
+        return mediaPlaylist;
+    }
+    
+    public String getPlaylistUrl() {
+        return playlistUrl;
+    }
+    
+    /**
+     * Get the master playlist the media playlist was chosen from, or null if the
+     * URL pointed straight at a media playlist
+     */
+    public HlsPlaylist getMasterPlaylist() {
+        return masterPlaylist;
+    }
+    
+    /**
+     * Switch a playing Low-Latency HLS stream to another variant at the next part boundary
+     */
+    public void switchVariant(HlsVariant variant) {
+        LowLatencyStreamer streamer = lowLatency;
+        if (streamer == null) {
+            throw new IllegalStateException("Variant switching needs a playing low-latency stream");
+        }
+        EventLog.debug("  → Variant switch requested: {} ({} bps)", variant.getUri(), variant.getBandwidth());
+        streamer.switchRendition(variant.getUri());
+    }
+    
+    /**
+     * Stop following a live stream; {@link #play()} returns shortly after
+     */
+    public void stopLive() {
+        liveStopped = true;
+        LowLatencyStreamer streamer = lowLatency;
+        if (streamer != null) {
+            streamer.stop();
+        }
+    }
+    
+    private void loadManifests() {
+        WarmState warmState = WarmState.global();
+        WarmManifests warm = warmState.manifests(playlistUrl, this::revalidateManifests);
+        if (warm != null) {
+            try {
+                loadManifests(warm);
+                EventLog.debug("  → Manifests restored from warm state");
+                return;
+            } catch (IllegalArgumentException e) {
+                EventLog.warn("Discarding warm manifests of {}: {}", playlistUrl, e.getMessage());
+                warmState.forgetManifests(playlistUrl);
+            }
+        }
+        loadManifests(null);
+    }
+
+    /**
+     * Parse the manifests, taking each text from {@code warm} where it has it and
+     * fetching it otherwise; fetched manifests are recorded in the warm state
+     */
+    private void loadManifests(WarmManifests warm) {
+        URI uri = URI.create(playlistUrl);
+        String text = warm != null ? warm.getPlaylistText() : fetchText(uri);
+        HlsPlaylist top = HlsPlaylistParser.parse(uri, text);
+        HlsPlaylist playlist = top;
+        String mediaText = text;
+        if (top.isMaster()) {
+            HlsVariant variant = top.getHighestBandwidthVariant();
+            EventLog.debug("  → Selected variant: {} ({} bps)", variant.getUri(), variant.getBandwidth());
+            registerMirrors(top, variant);
+            mediaText = warm != null && variant.getUri().equals(warm.getMediaUri()) ? warm.getMediaText() : null;
+            if (mediaText == null) {
+                mediaText = fetchText(variant.getUri());
+            }
+            playlist = HlsPlaylistParser.parse(variant.getUri(), mediaText);
+        }
+        try {
+            checkDecryptable(playlist, playlist.getSegments());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.masterPlaylist = top.isMaster() ? top : null;
+        this.mediaPlaylist = playlist;
+        this.segmentCount = playlist.getSegments().size();
+        this.loaded = true;
+        WarmManifests fresh = warmManifests(top, text, playlist, mediaText);
+        if (fresh != null && !fresh.equals(warm)) {
+            WarmState.global().recordManifests(playlistUrl, fresh);
+        }
+    }
+
+    /**
+     * Fetch restored manifests again in the background and keep what the origin
+     * serves now; if the stream is gone or no longer cacheable, forget it
+     */
+    private void revalidateManifests() {
+        URI uri = URI.create(playlistUrl);
+        fetchSpeculative(uri).thenCompose(text -> {
+            HlsPlaylist top = HlsPlaylistParser.parse(uri, text);
+            if (!top.isMaster()) {
+                return CompletableFuture.completedFuture(warmManifests(top, text, top, text));
+            }
+            URI media = top.getHighestBandwidthVariant().getUri();
+            return fetchSpeculative(media).thenApply(mediaText ->
+                    warmManifests(top, text, HlsPlaylistParser.parse(media, mediaText), mediaText));
+        }).whenComplete((fresh, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // Dropped as stale speculative I/O; keep the restored copy
+                return;
+            }
+            WarmState warmState = WarmState.global();
+            if (fresh == null) {
+                EventLog.debug("  → Warm manifests of {} not revalidated: {}", playlistUrl, error);
+                warmState.forgetManifests(playlistUrl);
+            } else {
+                warmState.recordManifests(playlistUrl, fresh);
+            }
+        });
+    }
+
+    private CompletableFuture<String> fetchSpeculative(URI uri) {
+        return ioScheduler.submit(IoPriority.SPECULATIVE, System.nanoTime() + REVALIDATE_WINDOW_NANOS,
+                () -> fetcher.fetch(uri)).thenApply(body -> StandardCharsets.UTF_8.decode(body).toString());
+    }
+
+    /**
+     * What of a stream's manifests can be kept: never a live media playlist,
+     * since it changes every target duration
+     */
+    private static WarmManifests warmManifests(HlsPlaylist top, String text, HlsPlaylist media, String mediaText) {
+        if (!top.isMaster()) {
+            return top.isEndList() ? new WarmManifests(text, null, null) : null;
+        }
+        return media.isEndList() ? new WarmManifests(text, media.getUri(), mediaText)
+                : new WarmManifests(text, null, null);
+    }
+    
+    /**
+     * Redundant variants whose only difference is the origin become fetcher mirrors
+     */
+    private void registerMirrors(HlsPlaylist master, HlsVariant variant) {
+        List<URI> origins = new ArrayList<>();
+        for (HlsVariant redundant : master.getRedundantVariants(variant)) {
+            if (redundant.getUri().getRawPath().equals(variant.getUri().getRawPath())) {
+                origins.add(redundant.getUri());
+            }
+        }
+        if (origins.size() > 1) {
+            EventLog.debug("  → {} mirror origins for failover", origins.size());
+            fetcher.addMirrors(origins);
+        }
+    }
+    
+    private void streamSegments() {
+        if (mediaPlaylist.isLowLatency() && !mediaPlaylist.isEndList()) {
+            streamLowLatency();
+            return;
+        }
+        HlsPlaylist playlist = mediaPlaylist;
+        Deque<HlsSegment> upcoming = new ArrayDeque<>(playlist.getSegments());
+        long lastSequence = playlist.getMediaSequence() + upcoming.size() - 1;
+        long loadedAt = System.nanoTime();
+        boolean changed = true;
+        Deque<Prefetch> window = new ArrayDeque<>(PREFETCH_SEGMENTS);
+        MemoryBudget budget = MemoryBudget.global();
+        try {
+            while ((playlist.isEndList() || !liveStopped) && !Thread.currentThread().isInterrupted()) {
+                if (window.isEmpty() && upcoming.isEmpty()) {
+                    if (playlist.isEndList() || !awaitReload(playlist, loadedAt, changed)) {
+                        break;
+                    }
+                    loadedAt = System.nanoTime();
+                    playlist = HlsPlaylistParser.parse(playlist.getUri(), fetchText(playlist.getUri()));
+                    mediaPlaylist = playlist;
+                    changed = false;
+                    List<HlsSegment> added = new ArrayList<>();
+                    for (HlsSegment segment : playlist.getSegments()) {
+                        if (segment.getSequence() > lastSequence) {
+                            added.add(segment);
+                            lastSequence = segment.getSequence();
+                            changed = true;
+                        }
+                    }
+                    try {
+                        checkDecryptable(playlist, added);
+                    } catch (IOException e) {
+                        EventLog.warn("Stopped following {}: {}", playlist.getUri(), e.getMessage());
+                        break;
+                    }
+                    upcoming.addAll(added);
+                    continue;
+                }
+                int depth = budget.prefetchDepth(PREFETCH_SEGMENTS);
+                long now = System.nanoTime();
+                double ahead = 0;
+                for (Prefetch queued : window) {
+                    ahead += queued.segment.getDurationSeconds();
+                }
+                while (!upcoming.isEmpty() && window.size() < depth) {
+                    HlsSegment queued = upcoming.poll();
+                    boolean current = window.isEmpty();
+                    window.add(prepare(queued, current ? IoPriority.PLAYING_NOW : IoPriority.NEXT_UP,
+                            now + (long) (ahead * 1e9)));
+                    ahead += queued.getDurationSeconds();
+                }
+                Prefetch prefetch = window.poll();
+                HlsSegment segment = prefetch.segment;
+                ioScheduler.escalate(prefetch.fetch, IoPriority.PLAYING_NOW, now);
+                CompletableFuture<ByteBuffer> pending = prefetch.ready;
+                long waitStart = System.nanoTime();
+                boolean stalled = !pending.isDone();
+                ByteBuffer data = await(pending, segment.getUri());
+                if (data == null) {
+                    // Interrupted: abandon it with the rest of the window
+                    window.addFirst(prefetch);
+                    break;
+                }
+                if (stalled) {
+                    PlaybackMetrics.recordPrefetchStall(segment.getUri().toString(), System.nanoTime() - waitStart);
+                }
+                try {
+                    if (timeShift != null) {
+                        timeShift.append(segment, data);
+                    }
+                    if (segmentListener != null) {
+                        segmentListener.onSegment(segment, data);
+                    }
+                } finally {
+                    bufferPool.release(data);
+                }
+            }
+        } finally {
+            for (Prefetch abandoned : window) {
+                if (!abandoned.fetch.cancel(false)) {
+                    abandoned.ready.thenAccept(bufferPool::release);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until a live playlist may be loaded again: a target duration after
+     * the previous load, or half of one if that load brought no new segment
+     * (RFC 8216 section 6.3.4)
+     *
+     * @return false if the stream was stopped meanwhile
+     */
+    private boolean awaitReload(HlsPlaylist playlist, long loadedAtNanos, boolean changed) {
+        double target = Math.max(playlist.getTargetDurationSeconds(), 1);
+        double interval = changed ? target : target / 2;
+        long remaining = loadedAtNanos + (long) (interval * 1e9) - System.nanoTime();
+        try {
+            while (remaining > 0 && !liveStopped) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, LIVE_STOP_POLL_NANOS));
+                remaining = loadedAtNanos + (long) (interval * 1e9) - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !liveStopped;
+    }
+
+    /**
+     * Check that every key of the given segments is one this adapter decrypts
+     *
+     * @throws IOException naming the first segment whose encryption is not supported
+     */
+    private static void checkDecryptable(HlsPlaylist playlist, List<HlsSegment> segments) throws IOException {
+        for (HlsSegment segment : segments) {
+            HlsKey key = segment.getKey();
+            if (key == null) {
+                continue;
+            }
+            if (!key.isAes128()) {
+                throw new IOException("Unsupported HLS encryption " + key.getMethod() + " (KEYFORMAT "
+                        + key.getKeyFormat() + ") at " + segment.getUri()
+                        + "; only whole-segment AES-128 is decrypted, SAMPLE-AES is not");
+            }
+            if (playlist.isLowLatency() && !playlist.isEndList()) {
+                throw new IOException("Encrypted low-latency stream " + playlist.getUri()
+                        + " is not supported; partial segments are delivered undecrypted");
+            }
+        }
+    }
+
+    private void streamLowLatency() {
+        HlsSegmentListener listener = segmentListener != null ? segmentListener : (segment, data) -> { };
+        TimeShiftBuffer recorder = timeShift;
+        if (recorder != null) {
+            HlsSegmentListener delivery = listener;
+            listener = new HlsSegmentListener() {
+                @Override
+                public void onSegment(HlsSegment segment, ByteBuffer data) {
+                    delivery.onSegment(segment, data);
+                }
+
+                @Override
+                public void onPart(HlsPart part, ByteBuffer data) {
+                    recorder.appendPart(part, data);
+                    delivery.onPart(part, data);
+                }
+            };
+        }
+        LowLatencyStreamer streamer = new LowLatencyStreamer(fetcher, bufferPool, listener, ioScheduler);
+        lowLatency = streamer;
+        if (liveStopped) {
+            streamer.stop();
+        }
+        try {
+            streamer.run(mediaPlaylist);
+        } finally {
+            lowLatency = null;
+        }
+        EventLog.debug("  → Low-latency stream ended after {} parts ({} preloaded)",
+                streamer.getPartsDelivered(), streamer.getPreloadHits());
+    }
+
+    /**
+     * Start fetching a segment into a pooled buffer and, if it is encrypted,
+     * decrypt it in place once both body and key are in; keys were checked by
+     * {@link #checkDecryptable} when the playlist was loaded
+     */
+    private Prefetch prepare(HlsSegment segment, IoPriority priority, long deadlineNanos) {
+        HlsKey key = segment.getKey();
+        CompletableFuture<ByteBuffer> body = ioScheduler.submit(priority, deadlineNanos,
+                () -> fetcher.fetch(segment.getUri(), bufferPool));
+        return new Prefetch(segment, body, key == null ? body : decrypt(segment, key, body));
+    }
+
+    private CompletableFuture<ByteBuffer> decrypt(HlsSegment segment, HlsKey key, CompletableFuture<ByteBuffer> body) {
+        CompletableFuture<byte[]> keyBytes = keyCache.get(key.getUri());
+        keyBytes.exceptionally(error -> {
+            body.thenAccept(bufferPool::release);
+            return null;
+        });
+        return body.thenCombineAsync(keyBytes, (data, secret) -> {
+            try {
+                return SegmentDecryptor.decrypt(segment, secret, data);
+            } catch (RuntimeException e) {
+                bufferPool.release(data);
+                throw e;
+            }
+        }, ForkJoinPool.commonPool());
+    }
+    
+    private String fetchText(URI uri) {
+        return StandardCharsets.UTF_8.decode(fetchBytes(uri)).toString();
+    }
+    
+    private ByteBuffer fetchBytes(URI uri) {
+        return await(fetcher.fetch(uri), uri);
+    }
+    
+    /**
+     * A segment in the prefetch window: the scheduled fetch, and the data ready
+     * to deliver (the same future unless the segment needs decrypting)
+     */
+    private static final class Prefetch {
+        private final HlsSegment segment;
+        private final CompletableFuture<ByteBuffer> fetch;
+        private final CompletableFuture<ByteBuffer> ready;
+
+        Prefetch(HlsSegment segment, CompletableFuture<ByteBuffer> fetch, CompletableFuture<ByteBuffer> ready) {
+            this.segment = segment;
+            this.fetch = fetch;
+            this.ready = ready;
+        }
+    }
+    
+    /**
+     * @return the segment, or null if the thread was interrupted while waiting
+     */
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> pending, URI uri) {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("HLS fetch failed: " + uri, e.getCause());
+        }
+    }
 }
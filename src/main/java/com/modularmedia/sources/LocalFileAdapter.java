@@ -1,6 +1,24 @@
 package com.modularmedia.sources;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 import com.modularmedia.core.MediaSource;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.snapshot.WarmState;
+import com.modularmedia.sources.index.ContainerSniffer;
+import com.modularmedia.sources.index.SeekIndex;
+import com.modularmedia.sources.index.SeekIndexes;
 
 /**
  * ADAPTER PATTERN - Concrete Adapter for Local Files
@@ -12,25 +30,51 @@ import com.modularmedia.core.MediaSource;
  * - Encapsulates file-specific logic (path validation, format detection, etc.)
  * - Provides consistent interface regardless of file format
  * - Isolates file system dependencies from the rest of the system
+ * - Container is sniffed from magic bytes on load (or when first asked for), so
+ *   construction does no I/O; the extension serves until then and as a fallback
+ * - A container recorded in the {@link WarmState} for the file's size and modification time is not sniffed again
+ * - Seeking uses a cached keyframe index instead of scanning the file
+ * - The index is built as speculative I/O on load and escalated to playing-now on the first seek
  */
 public class LocalFileAdapter implements MediaSource {
     private String filePath;
     private boolean loaded = false;
-    private String fileFormat;
+    private volatile String fileFormat;
+    private volatile boolean formatDetected;
+    private volatile SeekIndex seekIndex;
+    private volatile CompletableFuture<SeekIndex> indexWarmup;
+    private IoScheduler ioScheduler = IoScheduler.shared();
 
     public LocalFileAdapter(String filePath) { 
         this.filePath = filePath;
         this.fileFormat = detectFileFormat(filePath);
     }
 
+    /**
+     * Create an adapter for a file whose container is already known (e.g. from a
+     * library probe), without sniffing it again
+     */
+    public LocalFileAdapter(String filePath, String fileFormat) { 
+        this.filePath = filePath;
+        this.fileFormat = fileFormat;
+        this.formatDetected = true;
+    }
+
     @Override 
     public void load() { 
-        System.out.println("Loading local file: " + filePath);
-        System.out.println("  → Detected format: " + fileFormat);
-        System.out.println("  → Validating file path...");
-        System.out.println("  → Initializing " + fileFormat + " decoder...");
-        System.out.println("  → Setting up file buffers...");
+        long start = PlaybackMetrics.start();
+        EventLog.info("Loading local file: {}", filePath);
+        detectContainer();
+        EventLog.debug("  → Detected format: {}", fileFormat);
+        EventLog.debug("  → Validating file path...");
+        EventLog.debug("  → Initializing {} decoder...", fileFormat);
+        EventLog.debug("  → Setting up file buffers...");
+        if (seekIndex == null && indexWarmup == null && SeekIndexes.isIndexable(fileFormat)) {
+            indexWarmup = ioScheduler.submitBlocking(IoPriority.SPECULATIVE,
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(2), this::getSeekIndex);
+        }
         this.loaded = true;
+        PlaybackMetrics.recordSourceOperation("local", "load", filePath, start);
     }
     
     @Override 
@@ -38,8 +82,10 @@ public class LocalFileAdapter implements MediaSource {
         if (!loaded) {
             load();
         }
-        System.out.println("Playing local file: " + filePath);
-        System.out.println("  → Using " + fileFormat + " playback engine");
+        long start = PlaybackMetrics.start();
+        EventLog.info("Playing local file: {}", filePath);
+        EventLog.debug("  → Using {} playback engine", fileFormat);
+        PlaybackMetrics.recordSourceOperation("local", "play", filePath, start);
     }
     
     @Override
@@ -51,7 +97,147 @@ public class LocalFileAdapter implements MediaSource {
     public boolean isReady() {
         return loaded;
     }
+
+    /**
+     * Keyframe index of the file, built on first use and shared through
+     * {@link SeekIndexes}
+     *
+     * @return the index, or null if the container has no supported index
+     * @throws IOException if the file cannot be read or its index is malformed
+     */
+    public SeekIndex getSeekIndex() throws IOException {
+        detectContainer();
+        SeekIndex index = seekIndex;
+        if (index == null && SeekIndexes.isIndexable(fileFormat)) {
+            try {
+                index = SeekIndexes.get(Path.of(filePath), fileFormat);
+            } catch (RuntimeException e) {
+                throw new IOException("Cannot index " + filePath + ": " + e, e);
+            }
+            seekIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Find where playback must resume to reach the given position: the last
+     * keyframe at or before it
+     *
+     * @return byte offset of that keyframe, or -1 if the file has no index or
+     *         building it failed
+     */
+    public long seek(double seconds) {
+        long start = PlaybackMetrics.start();
+        SeekIndex index;
+        try {
+            index = awaitSeekIndex();
+        } catch (IOException e) {
+            EventLog.warn("Cannot index {}: {}", filePath, e.getMessage());
+            return -1;
+        }
+        int entry = index == null ? -1 : index.floorEntry((long) (seconds * 1_000_000));
+        if (entry < 0) {
+            EventLog.debug("  → No seek index for {}", filePath);
+            return -1;
+        }
+        long offset = index.getOffset(entry);
+        EventLog.debug("  → Seek to {}s: keyframe at {}s, byte offset {}",
+                seconds, index.getTimeMicros(entry) / 1e6, offset);
+        PlaybackMetrics.recordSourceOperation("local", "seek", filePath, start);
+        return offset;
+    }
+
+    /**
+     * Schedule this file's reads on the given scheduler instead of the shared one
+     */
+    public void setIoScheduler(IoScheduler ioScheduler) {
+        this.ioScheduler = ioScheduler;
+    }
+
+    /**
+     * Get the seek index as playing-now I/O, taking over the speculative build
+     * from {@link #load()} if there is one
+     */
+    private SeekIndex awaitSeekIndex() throws IOException {
+        detectContainer();
+        CompletableFuture<SeekIndex> pending = indexWarmup;
+        if (seekIndex != null || !SeekIndexes.isIndexable(fileFormat)) {
+            return getSeekIndex();
+        }
+        long now = System.nanoTime();
+        if (pending == null || pending.isCompletedExceptionally()) {
+            pending = ioScheduler.submitBlocking(IoPriority.PLAYING_NOW, now, this::getSeekIndex);
+        } else {
+            ioScheduler.escalate(pending, IoPriority.PLAYING_NOW, now);
+        }
+        try {
+            return pending.join();
+        } catch (CancellationException e) {
+            return getSeekIndex();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Cannot index " + filePath + ": " + e.getCause(), e.getCause());
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Container of the file, sniffed now if {@link #load()} has not done so yet
+     */
+    public String getFileFormat() {
+        detectContainer();
+        return fileFormat;
+    }
+
+    /**
+     * Settle the container once: from the warm state if it knows the file at its
+     * current size and modification time, otherwise from the magic bytes
+     */
+    private void detectContainer() {
+        if (formatDetected) {
+            return;
+        }
+        synchronized (this) {
+            if (formatDetected) {
+                return;
+            }
+            WarmState warmState = WarmState.global();
+            BasicFileAttributes attributes = warmState.isAttached() ? readAttributes(filePath) : null;
+            String known = attributes == null ? null
+                    : warmState.localFormat(filePath, attributes.size(), attributes.lastModifiedTime().toMillis());
+            String sniffed = known != null ? known : sniffContainer(filePath);
+            if (sniffed != null) {
+                this.fileFormat = sniffed;
+            }
+            if (known == null && attributes != null && sniffed != null) {
+                warmState.recordLocalFormat(filePath, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                        sniffed);
+            }
+            formatDetected = true;
+        }
+    }
     
+    private static BasicFileAttributes readAttributes(String path) {
+        try {
+            return Files.readAttributes(Path.of(path), BasicFileAttributes.class);
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static String sniffContainer(String path) {
+        try {
+            return ContainerSniffer.sniff(Path.of(path));
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
     private String detectFileFormat(String path) {
         if (path.endsWith(".mp4")) return "MP4";
         if (path.endsWith(".avi")) return "AVI";
@@ -1,6 +1,14 @@
 package com.modularmedia.sources;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import com.modularmedia.core.MediaSource;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.sources.api.ApiClient;
+import com.modularmedia.sources.api.MediaMetadata;
 
 /**
  * ADAPTER PATTERN - Concrete Adapter for Remote APIs
@@ -12,25 +20,50 @@ import com.modularmedia.core.MediaSource;
  * - Encapsulates API-specific logic (authentication, data parsing, etc.)
  * - Provides uniform interface for remote media sources
  * - Isolates network API dependencies from the rest of the system
+ * 
+ * Without an {@link ApiClient} the adapter only simulates the API. With one, the
+ * metadata lookup starts as soon as the adapter is created, as next-up I/O, and
+ * {@link #load()} waits for it, so adapters created together (a playlist being built) share the
+ * host's connection, auth token and batched metadata calls. A failed lookup is
+ * sent again, as playing-now I/O, by the next {@link #load()}.
  */
 public class RemoteAPIAdapter implements MediaSource {
     private String apiUrl;
     private boolean loaded = false;
     private String mediaId;
+    private final ApiClient client;
+    private volatile CompletableFuture<MediaMetadata> pendingMetadata;
+    private MediaMetadata metadata;
 
     public RemoteAPIAdapter(String apiUrl) { 
+        this(apiUrl, null);
+    }
+
+    /**
+     * Create an adapter that resolves its media through the given host client
+     */
+    public RemoteAPIAdapter(String apiUrl, ApiClient client) { 
         this.apiUrl = apiUrl;
         this.mediaId = extractMediaId(apiUrl);
+        this.client = client;
+        this.pendingMetadata = client == null ? null : client.metadata(mediaId, IoPriority.NEXT_UP);
     }
 
     @Override 
     public void load() { 
-        System.out.println("Connecting to remote API: " + apiUrl);
-        System.out.println("  → Authenticating with API server...");
-        System.out.println("  → Fetching media metadata for ID: " + mediaId);
-        System.out.println("  → Validating media availability...");
-        System.out.println("  → Setting up API stream connection...");
+        long start = PlaybackMetrics.start();
+        EventLog.info("Connecting to remote API: {}", apiUrl);
+        if (client != null) {
+            resolveMetadata();
+            PlaybackMetrics.recordSourceOperation("api", "load", apiUrl, start);
+            return;
+        }
+        EventLog.debug("  → Authenticating with API server...");
+        EventLog.debug("  → Fetching media metadata for ID: {}", mediaId);
+        EventLog.debug("  → Validating media availability...");
+        EventLog.debug("  → Setting up API stream connection...");
         this.loaded = true;
+        PlaybackMetrics.recordSourceOperation("api", "load", apiUrl, start);
     }
     
     @Override 
@@ -38,9 +71,11 @@ public class RemoteAPIAdapter implements MediaSource {
         if (!loaded) {
             load();
         }
-        System.out.println("Streaming from API: " + apiUrl);
-        System.out.println("  → Using authenticated API session");
-        System.out.println("  → Streaming media ID: " + mediaId);
+        long start = PlaybackMetrics.start();
+        EventLog.info("Streaming from API: {}", apiUrl);
+        EventLog.debug("  → Using authenticated API session");
+        EventLog.debug("  → Streaming media ID: {}", mediaId);
+        PlaybackMetrics.recordSourceOperation("api", "play", apiUrl, start);
     }
     
     @Override
@@ -53,6 +88,32 @@ public class RemoteAPIAdapter implements MediaSource {
         return loaded;
     }
     
+    /**
+     * Get the resolved media metadata, or null if not loaded (or simulated)
+     */
+    public MediaMetadata getMetadata() {
+        return metadata;
+    }
+    
+    public String getMediaId() {
+        return mediaId;
+    }
+    
+    private void resolveMetadata() {
+        CompletableFuture<MediaMetadata> pending = pendingMetadata;
+        if (pending.isCompletedExceptionally()) {
+            pending = client.metadata(mediaId);
+            pendingMetadata = pending;
+        }
+        try {
+            this.metadata = pending.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("API metadata lookup failed for " + mediaId, e.getCause());
+        }
+        EventLog.debug("  → Resolved media {}: {} ({}s)", mediaId, metadata.getTitle(), metadata.getDurationSeconds());
+        this.loaded = true;
+    }
+    
     private String extractMediaId(String url) {
         // Simple extraction - in real implementation, this would be more sophisticated
         if (url.contains("id=")) {
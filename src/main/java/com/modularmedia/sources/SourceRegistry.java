@@ -0,0 +1,323 @@
+package com.modularmedia.sources;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.core.MediaSource;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.metrics.PlaybackMetrics.CacheResult;
+import com.modularmedia.snapshot.WarmState;
+
+/**
+ * FLYWEIGHT PATTERN - Interning registry for media sources
+ * 
+ * Callers acquire sources by location instead of constructing adapters. Locations
+ * are canonicalized first, so every spelling of the same file or URL maps to one
+ * shared adapter, which is created and loaded once however many sessions use it.
+ * 
+ * Design Rationale:
+ * - Each {@link Handle} counts as one reference; closing it releases the reference
+ * - The shared source is loaded on first use, and concurrent first users wait for that one load
+ * - When the last reference goes away the source is kept for the idle retention
+ *   period, so a quick re-open reuses it, and then dropped (closed if it is {@link AutoCloseable})
+ * - Acquisitions are counted in the {@link WarmState}, so a restarted process can
+ *   {@link #prewarm prewarm} the locations that were hot before it
+ */
+public class SourceRegistry {
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(LightweightThreads.daemonFactory("source-registry"));
+    private static final long PREWARM_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final long retentionNanos;
+
+    /**
+     * @param idleRetention how long an unreferenced source is kept for reuse; zero drops it at once
+     */
+    public SourceRegistry(Duration idleRetention) {
+        this.retentionNanos = idleRetention.toNanos();
+    }
+
+    /**
+     * Acquire the shared source for a location, creating the default adapter for
+     * it (HLS for {@code .m3u8} URLs, remote API for other URLs, local file otherwise)
+     */
+    public Handle acquire(String location) {
+        return acquire(location, SourceRegistry::createSource);
+    }
+
+    /**
+     * Acquire the shared source for a location; the factory is called with the
+     * canonical location only if no source for it is registered
+     */
+    public Handle acquire(String location, Function<String, ? extends MediaSource> factory) {
+        Handle handle = acquire(canonicalize(location), factory, true);
+        WarmState.global().recordSourceAccess(handle.getCanonicalLocation());
+        return handle;
+    }
+
+    /**
+     * Load the hottest locations of the {@link WarmState} as speculative I/O and
+     * release them again, so they sit loaded for the idle retention period; with
+     * no retention this has no lasting effect. Prewarming does not count as access.
+     *
+     * @return completes with the number of sources loaded; failures are logged and skipped
+     */
+    public CompletableFuture<Integer> prewarm(int limit, Function<String, ? extends MediaSource> factory) {
+        List<String> hot = WarmState.global().getHotLocations(limit);
+        List<CompletableFuture<Boolean>> loads = new ArrayList<>(hot.size());
+        long deadline = System.nanoTime() + PREWARM_WINDOW_NANOS;
+        for (String location : hot) {
+            loads.add(IoScheduler.shared().submitBlocking(IoPriority.SPECULATIVE, deadline, () -> {
+                try (Handle handle = acquire(location, factory, false)) {
+                    handle.load();
+                    return true;
+                }
+            }).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                EventLog.debug("  → Prewarming {} failed: {}", location, cause);
+                return false;
+            }));
+        }
+        EventLog.debug("  → Prewarming {} hot sources", hot.size());
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> (int) loads.stream().filter(CompletableFuture::join).count());
+    }
+
+    private Handle acquire(String key, Function<String, ? extends MediaSource> factory, boolean counted) {
+        Entry entry;
+        boolean created = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key);
+                entries.put(key, entry);
+                created = true;
+            }
+            entry.references++;
+            if (entry.eviction != null) {
+                entry.eviction.cancel(false);
+                entry.eviction = null;
+            }
+        }
+        if (counted) {
+            PlaybackMetrics.recordCacheAccess("sources", key, created ? CacheResult.MISS : CacheResult.HIT);
+        }
+        try {
+            entry.create(factory);
+        } catch (RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+        return new Handle(this, entry);
+    }
+
+    /**
+     * Number of registered sources, idle ones still within retention included
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Current references to the source for a location
+     */
+    public synchronized int getReferenceCount(String location) {
+        Entry entry = entries.get(canonicalize(location));
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * Canonical form of a location: for URLs a normalized URI with lower-case scheme
+     * and host, no default port and no fragment; for files the real absolute path
+     * (or the normalized absolute path if the file does not exist)
+     */
+    public static String canonicalize(String location) {
+        String lower = location.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("http://") || lower.startsWith("https://")) {
+            return canonicalUrl(location);
+        }
+        try {
+            Path path = lower.startsWith("file:") ? Path.of(URI.create(location)) : Path.of(location);
+            path = path.toAbsolutePath().normalize();
+            return Files.exists(path) ? path.toRealPath().toString() : path.toString();
+        } catch (IllegalArgumentException | IOException e) {
+            return location;
+        }
+    }
+
+    private static String canonicalUrl(String location) {
+        try {
+            URI uri = new URI(location).normalize();
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ((scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443)) {
+                port = -1;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+            String userInfo = uri.getRawUserInfo() == null ? "" : uri.getRawUserInfo() + "@";
+            return scheme + "://" + userInfo + host + (port < 0 ? "" : ":" + port) + path
+                    + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        } catch (URISyntaxException e) {
+            return location;
+        }
+    }
+
+    private static MediaSource createSource(String location) {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            String path = URI.create(location).getPath();
+            return path.endsWith(".m3u8") ? new HLSStreamAdapter(location) : new RemoteAPIAdapter(location);
+        }
+        return new LocalFileAdapter(location);
+    }
+
+    private void release(Entry entry) {
+        synchronized (this) {
+            if (--entry.references > 0) {
+                return;
+            }
+            if (retentionNanos > 0) {
+                entry.eviction = SCHEDULER.schedule(() -> evictIfIdle(entry), retentionNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            entries.remove(entry.key, entry);
+        }
+        entry.dispose();
+    }
+
+    private void evictIfIdle(Entry entry) {
+        synchronized (this) {
+            if (entry.references > 0 || !entries.remove(entry.key, entry)) {
+                return;
+            }
+        }
+        entry.dispose();
+    }
+
+    /**
+     * One shared source and its reference count (guarded by the registry);
+     * creation and loading are guarded by the entry itself
+     */
+    private static final class Entry {
+        private final String key;
+        private int references;
+        private ScheduledFuture<?> eviction;
+        private MediaSource source;
+        private boolean loaded;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        synchronized void create(Function<String, ? extends MediaSource> factory) {
+            if (source == null) {
+                source = factory.apply(key);
+            }
+        }
+
+        synchronized void ensureLoaded() {
+            if (!loaded) {
+                source.load();
+                loaded = true;
+            }
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        void dispose() {
+            EventLog.debug("  → Released shared source: {}", key);
+            if (source instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) source).close();
+                } catch (Exception e) {
+                    EventLog.warn("Closing shared source {} failed: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A counted reference to a shared source. Loading through any handle loads
+     * the source once for all of them; closing the handle releases its reference.
+     */
+    public static final class Handle implements MediaSource, AutoCloseable {
+        private final SourceRegistry registry;
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Handle(SourceRegistry registry, Entry entry) {
+            this.registry = registry;
+            this.entry = entry;
+        }
+
+        @Override
+        public void load() {
+            checkOpen();
+            entry.ensureLoaded();
+        }
+
+        @Override
+        public void play() {
+            load();
+            entry.source.play();
+        }
+
+        @Override
+        public String getSourceInfo() {
+            return entry.source.getSourceInfo();
+        }
+
+        @Override
+        public boolean isReady() {
+            return !closed.get() && entry.isLoaded();
+        }
+
+        /**
+         * The shared adapter, for source-specific operations
+         */
+        public MediaSource getSource() {
+            return entry.source;
+        }
+
+        public String getCanonicalLocation() {
+            return entry.key;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                registry.release(entry);
+            }
+        }
+
+        private void checkOpen() {
+            if (closed.get()) {
+                throw new IllegalStateException("Source handle already closed: " + entry.key);
+            }
+        }
+    }
+}
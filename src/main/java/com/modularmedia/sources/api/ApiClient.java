@@ -0,0 +1,159 @@
+package com.modularmedia.sources.api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.snapshot.WarmState;
+
+/**
+ * Shared client for one media API host.
+ *
+ * Every {@code RemoteAPIAdapter} for the same scheme, host, port and API key
+ * uses one instance, and so one multiplexed {@link HttpClient} (HTTP/2 where the server
+ * negotiates it), one auth token and one metadata batcher. A playlist of API items
+ * then costs one connection and a handful of batched calls instead of a handshake
+ * and a round-trip per item. Calls are scheduled on the shared {@link IoScheduler}
+ * at the most urgent priority of the lookups they carry. Metadata kept in the
+ * {@link WarmState} is returned without a call and revalidated in the background.
+ *
+ * API contract:
+ * <ul>
+ * <li>{@code POST /auth/token} with {@code X-Api-Key}: body {@code <token> <expiresInSeconds>}</li>
+ * <li>{@code GET /media?ids=<id>,<id>,...} with {@code Authorization: Bearer <token>}: one
+ *     tab-separated line per known ID, {@code id title durationSeconds streamUrl}</li>
+ * </ul>
+ */
+public class ApiClient {
+    private static final Map<String, ApiClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(LightweightThreads.daemonFactory("api-scheduler"));
+
+    private static final long NEXT_UP_SLACK_NANOS = 500_000_000L;
+
+    private final URI base;
+    private final HttpClient http;
+    private final Duration requestTimeout = Duration.ofSeconds(10);
+    private final TokenCache tokens;
+    private final MetadataBatcher batcher;
+    private final LongAdder requests = new LongAdder();
+
+    ApiClient(URI base, String apiKey) {
+        this.base = base;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.tokens = new TokenCache(this, apiKey, SCHEDULER);
+        this.batcher = new MetadataBatcher(this, SCHEDULER);
+    }
+
+    /**
+     * Get the shared client for the host of the given API URL and this API key,
+     * creating it on first use; callers with different keys get separate clients
+     */
+    public static ApiClient forHost(URI apiUrl, String apiKey) {
+        URI base = URI.create(apiUrl.getScheme() + "://" + apiUrl.getRawAuthority());
+        return CLIENTS.computeIfAbsent(base + " " + apiKey, k -> new ApiClient(base, apiKey));
+    }
+
+    /**
+     * Resolve the metadata of one media ID for immediate playback
+     */
+    public CompletableFuture<MediaMetadata> metadata(String mediaId) {
+        return metadata(mediaId, IoPriority.PLAYING_NOW);
+    }
+
+    /**
+     * Resolve the metadata of one media ID. Lookups arriving within a few
+     * milliseconds of each other are sent as one batched call.
+     */
+    public CompletableFuture<MediaMetadata> metadata(String mediaId, IoPriority priority) {
+        MediaMetadata warm = WarmState.global().metadata(base, mediaId,
+                () -> batcher.lookup(mediaId, IoPriority.SPECULATIVE));
+        return warm != null ? CompletableFuture.completedFuture(warm) : batcher.lookup(mediaId, priority);
+    }
+
+    public URI getBase() {
+        return base;
+    }
+
+    /**
+     * HTTP requests sent so far, token requests included
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getBatchCount() {
+        return batcher.getBatchCount();
+    }
+
+    public long getTokenFetchCount() {
+        return tokens.getFetchCount();
+    }
+
+    /**
+     * Send an authenticated GET; on 401 the token is dropped and the request
+     * retried once with a fresh one
+     */
+    CompletableFuture<String> get(String pathAndQuery, IoPriority priority) {
+        long deadline = System.nanoTime() + (priority == IoPriority.PLAYING_NOW ? 0 : NEXT_UP_SLACK_NANOS);
+        return IoScheduler.shared().submit(priority, deadline, () -> get(pathAndQuery));
+    }
+
+    private CompletableFuture<String> get(String pathAndQuery) {
+        return tokens.get()
+                .thenCompose(token -> send(authorized(pathAndQuery, token))
+                        .thenCompose(response -> {
+                            if (response.statusCode() != 401) {
+                                return CompletableFuture.completedFuture(response);
+                            }
+                            tokens.invalidate(token);
+                            return tokens.get().thenCompose(fresh -> send(authorized(pathAndQuery, fresh)));
+                        }))
+                .thenApply(response -> body(response, pathAndQuery));
+    }
+
+    CompletableFuture<String> fetchToken(String apiKey) {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/auth/token"))
+                .timeout(requestTimeout)
+                .header("X-Api-Key", apiKey)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return send(request).thenApply(response -> body(response, "/auth/token"));
+    }
+
+    private HttpRequest authorized(String pathAndQuery, String token) {
+        return HttpRequest.newBuilder(base.resolve(pathAndQuery))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        requests.increment();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String body(HttpResponse<String> response, String target) {
+        if (response.statusCode() / 100 != 2) {
+            throw new CompletionException(new IOException("HTTP " + response.statusCode() + " from " + target));
+        }
+        return response.body();
+    }
+}
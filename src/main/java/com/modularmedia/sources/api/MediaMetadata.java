@@ -0,0 +1,52 @@
+package com.modularmedia.sources.api;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Metadata the media API returns for one media ID.
+ */
+public class MediaMetadata {
+    private final String mediaId;
+    private final String title;
+    private final double durationSeconds;
+    private final URI streamUri;
+
+    public MediaMetadata(String mediaId, String title, double durationSeconds, URI streamUri) {
+        this.mediaId = mediaId;
+        this.title = title;
+        this.durationSeconds = durationSeconds;
+        this.streamUri = streamUri;
+    }
+
+    public String getMediaId() {
+        return mediaId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public URI getStreamUri() {
+        return streamUri;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MediaMetadata)) {
+            return false;
+        }
+        MediaMetadata metadata = (MediaMetadata) other;
+        return mediaId.equals(metadata.mediaId) && Objects.equals(title, metadata.title)
+                && durationSeconds == metadata.durationSeconds && Objects.equals(streamUri, metadata.streamUri);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mediaId, title, durationSeconds, streamUri);
+    }
+}
@@ -0,0 +1,132 @@
+package com.modularmedia.sources.api;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.snapshot.WarmState;
+
+/**
+ * Coalesces metadata lookups into batched API calls.
+ *
+ * The first lookup of a batch opens a short collection window; every lookup that
+ * arrives before it closes (or until the batch is full) joins the same
+ * {@code /media?ids=...} call, and the response is fanned back out to each
+ * waiting future. Duplicate IDs within a batch share one future. A batch is
+ * sent at the most urgent priority of the lookups in it. Resolved metadata is
+ * recorded in the {@link WarmState}; IDs the API no longer knows are dropped from it.
+ */
+final class MetadataBatcher {
+    private static final long WINDOW_MILLIS = 5;
+    private static final int MAX_BATCH = 100;
+
+    private final ApiClient client;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder batches = new LongAdder();
+    private Map<String, CompletableFuture<MediaMetadata>> pending = new LinkedHashMap<>();
+    private IoPriority pendingPriority = IoPriority.SPECULATIVE;
+
+    MetadataBatcher(ApiClient client, ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.scheduler = scheduler;
+    }
+
+    CompletableFuture<MediaMetadata> lookup(String mediaId, IoPriority priority) {
+        Map<String, CompletableFuture<MediaMetadata>> full = null;
+        IoPriority fullPriority = null;
+        CompletableFuture<MediaMetadata> result;
+        synchronized (this) {
+            if (priority.compareTo(pendingPriority) < 0) {
+                pendingPriority = priority;
+            }
+            result = pending.get(mediaId);
+            if (result != null) {
+                return result;
+            }
+            result = new CompletableFuture<>();
+            pending.put(mediaId, result);
+            if (pending.size() == 1) {
+                Map<String, CompletableFuture<MediaMetadata>> batch = pending;
+                scheduler.schedule(() -> flush(batch), WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+            } else if (pending.size() >= MAX_BATCH) {
+                fullPriority = pendingPriority;
+                full = take();
+            }
+        }
+        if (full != null) {
+            send(full, fullPriority);
+        }
+        return result;
+    }
+
+    long getBatchCount() {
+        return batches.sum();
+    }
+
+    private void flush(Map<String, CompletableFuture<MediaMetadata>> batch) {
+        Map<String, CompletableFuture<MediaMetadata>> due;
+        IoPriority priority;
+        synchronized (this) {
+            // Already sent early because it filled up
+            if (batch != pending) {
+                return;
+            }
+            priority = pendingPriority;
+            due = take();
+        }
+        send(due, priority);
+    }
+
+    private Map<String, CompletableFuture<MediaMetadata>> take() {
+        Map<String, CompletableFuture<MediaMetadata>> batch = pending;
+        pending = new LinkedHashMap<>();
+        pendingPriority = IoPriority.SPECULATIVE;
+        return batch;
+    }
+
+    private void send(Map<String, CompletableFuture<MediaMetadata>> batch, IoPriority priority) {
+        batches.increment();
+        String ids = URLEncoder.encode(String.join(",", batch.keySet()), StandardCharsets.UTF_8);
+        EventLog.debug("  → Resolving metadata for {} media IDs in one call", batch.size());
+        client.get("/media?ids=" + ids, priority).whenComplete((body, error) -> {
+            if (error != null) {
+                batch.values().forEach(future -> future.completeExceptionally(error));
+                return;
+            }
+            Map<String, MediaMetadata> resolved = new HashMap<>();
+            try {
+                for (String line : body.split("\n")) {
+                    String[] fields = line.split("\t");
+                    if (fields.length == 4) {
+                        resolved.put(fields[0], new MediaMetadata(fields[0], fields[1],
+                                Double.parseDouble(fields[2]), URI.create(fields[3].trim())));
+                    }
+                }
+            } catch (RuntimeException e) {
+                batch.values().forEach(future -> future.completeExceptionally(e));
+                return;
+            }
+            WarmState warmState = WarmState.global();
+            batch.forEach((id, future) -> {
+                MediaMetadata metadata = resolved.get(id);
+                if (metadata != null) {
+                    warmState.recordMetadata(client.getBase(), metadata);
+                    future.complete(metadata);
+                } else {
+                    warmState.forgetMetadata(client.getBase(), id);
+                    future.completeExceptionally(new NoSuchElementException("Unknown media ID: " + id));
+                }
+            });
+        });
+    }
+}
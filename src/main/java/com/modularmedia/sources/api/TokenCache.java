@@ -0,0 +1,121 @@
+package com.modularmedia.sources.api;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Caches the API auth token and renews it before it expires.
+ *
+ * Only the first request (or one after an invalidation) waits for a token; a
+ * renewal is scheduled at 80% of each token's lifetime, so requests keep using the
+ * current token while the next one is fetched. Concurrent fetches are coalesced.
+ */
+final class TokenCache {
+    private static final double REFRESH_AT_LIFETIME = 0.8;
+
+    private final ApiClient client;
+    private final String apiKey;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder fetches = new LongAdder();
+    private volatile Token current;
+    private CompletableFuture<Token> refreshing;
+
+    TokenCache(ApiClient client, String apiKey, ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.apiKey = apiKey;
+        this.scheduler = scheduler;
+    }
+
+    CompletableFuture<String> get() {
+        Token token = current;
+        // Compare by difference: nanoTime values may wrap
+        if (token != null && System.nanoTime() - token.expiresAtNanos < 0) {
+            return CompletableFuture.completedFuture(token.value);
+        }
+        return refresh().thenApply(fresh -> fresh.value);
+    }
+
+    /**
+     * Drop the token if it is still the current one, e.g. after the server rejected it
+     */
+    void invalidate(String value) {
+        Token token = current;
+        if (token != null && token.value.equals(value)) {
+            current = null;
+        }
+    }
+
+    long getFetchCount() {
+        return fetches.sum();
+    }
+
+    private synchronized CompletableFuture<Token> refresh() {
+        if (refreshing != null) {
+            return refreshing;
+        }
+        CompletableFuture<Token> pending = new CompletableFuture<>();
+        refreshing = pending;
+        fetches.increment();
+        long requested = System.nanoTime();
+        client.fetchToken(apiKey).whenComplete((body, error) -> {
+            synchronized (this) {
+                if (refreshing == pending) {
+                    refreshing = null;
+                }
+            }
+            if (error != null) {
+                pending.completeExceptionally(error);
+                return;
+            }
+            try {
+                Token token = parse(body, requested);
+                current = token;
+                scheduleRenewal(token);
+                pending.complete(token);
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+            }
+        });
+        return pending;
+    }
+
+    private void scheduleRenewal(Token token) {
+        long delay = (long) ((token.expiresAtNanos - System.nanoTime()) * REFRESH_AT_LIFETIME);
+        scheduler.schedule(() -> {
+            if (current == token) {
+                refresh().exceptionally(error -> {
+                    EventLog.warn("API token renewal failed for {}: {}", client.getBase(), error.getMessage());
+                    return null;
+                });
+            }
+        }, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Parse {@code <token> <expiresInSeconds>}, counting the lifetime from when the request was sent
+     */
+    private static Token parse(String body, long requestedNanos) {
+        String[] fields = body.trim().split("\\s+");
+        if (fields.length != 2) {
+            throw new CompletionException(new IOException("Malformed token response"));
+        }
+        long lifetime = TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(fields[1]) * 1000));
+        return new Token(fields[0], requestedNanos + lifetime);
+    }
+
+    private static final class Token {
+        private final String value;
+        private final long expiresAtNanos;
+
+        Token(String value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
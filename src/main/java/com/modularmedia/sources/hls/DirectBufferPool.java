@@ -0,0 +1,147 @@
+package com.modularmedia.sources.hls;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.modularmedia.memory.MemoryBudget;
+
+/**
+ * Pool of direct byte buffers in power-of-two size classes.
+ *
+ * Segment bodies are received straight into a pooled buffer and decrypted in
+ * place, so steady-state streaming allocates no new direct memory and no heap
+ * copy of each segment. Buffers above the largest class are allocated and
+ * dropped normally; each class keeps at most a fixed number of idle buffers.
+ *
+ * Pooled buffers are accounted against the {@link MemoryBudget} from allocation
+ * until the pool drops them. From {@code HIGH} pressure on, idle buffers are
+ * freed and returned buffers are dropped instead of pooled.
+ *
+ * The pool remembers which of its buffers are out, so a buffer it did not hand
+ * out, or one handed back twice, is ignored rather than pooled.
+ */
+public final class DirectBufferPool {
+    private static final int MIN_CLASS_SHIFT = 16;
+    private static final int MAX_CLASS_SHIFT = 25;
+    private static final DirectBufferPool SHARED = new DirectBufferPool(16);
+
+    private final int maxIdlePerClass;
+    private final SizeClass[] classes = new SizeClass[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+    private final Set<ByteBuffer> issued = Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+    private final MemoryBudget.Account account;
+
+    public DirectBufferPool(int maxIdlePerClass) {
+        this(maxIdlePerClass, MemoryBudget.global().account("hls.buffers", MemoryBudget.Kind.DIRECT));
+    }
+
+    public DirectBufferPool(int maxIdlePerClass, MemoryBudget.Account account) {
+        this.maxIdlePerClass = maxIdlePerClass;
+        this.account = account;
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass();
+        }
+        account.getBudget().addListener(pressure -> {
+            if (pressure.compareTo(MemoryBudget.Pressure.HIGH) >= 0) {
+                trimIdle();
+            }
+        });
+    }
+
+    /**
+     * Pool shared by every stream that does not bring its own
+     */
+    public static DirectBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * A cleared buffer of at least the given capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClass(minCapacity);
+        if (sizeClass < 0) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        SizeClass pooled = classes[sizeClass];
+        ByteBuffer buffer = pooled.idle.poll();
+        if (buffer == null) {
+            int capacity = 1 << (sizeClass + MIN_CLASS_SHIFT);
+            account.reserve(capacity);
+            buffer = ByteBuffer.allocateDirect(capacity);
+        } else {
+            pooled.idleCount.decrementAndGet();
+            buffer.clear();
+        }
+        issued.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire(int)}; buffers this pool is
+     * not owed (heap, foreign or already returned ones) are ignored, so any
+     * segment buffer can be handed back safely
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !issued.remove(buffer)) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        SizeClass pooled = classes[Integer.numberOfTrailingZeros(capacity) - MIN_CLASS_SHIFT];
+        if (account.getBudget().getPressureLevel().compareTo(MemoryBudget.Pressure.HIGH) >= 0) {
+            account.release(capacity);
+        } else if (pooled.idleCount.incrementAndGet() <= maxIdlePerClass) {
+            pooled.idle.offer(buffer);
+        } else {
+            pooled.idleCount.decrementAndGet();
+            account.release(capacity);
+        }
+    }
+
+    /**
+     * Drop every idle buffer, returning its memory to the budget
+     *
+     * @return bytes freed
+     */
+    public long trimIdle() {
+        long freed = 0;
+        for (int i = 0; i < classes.length; i++) {
+            while (classes[i].idle.poll() != null) {
+                classes[i].idleCount.decrementAndGet();
+                freed += 1L << (i + MIN_CLASS_SHIFT);
+            }
+        }
+        if (freed > 0) {
+            account.release(freed);
+        }
+        return freed;
+    }
+
+    /**
+     * Bytes currently held by idle buffers
+     */
+    public long getIdleBytes() {
+        long total = 0;
+        for (int i = 0; i < classes.length; i++) {
+            total += (long) classes[i].idleCount.get() << (i + MIN_CLASS_SHIFT);
+        }
+        return total;
+    }
+
+    private static int sizeClass(int capacity) {
+        int shift = capacity <= 1 << MIN_CLASS_SHIFT ? MIN_CLASS_SHIFT : 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        return shift > MAX_CLASS_SHIFT ? -1 : shift - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * Idle buffers of one power-of-two capacity
+     */
+    private static final class SizeClass {
+        private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+    }
+}
@@ -0,0 +1,427 @@
+package com.modularmedia.sources.hls;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.modularmedia.core.LightweightThreads;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.LatencyHistogram;
+
+/**
+ * {@link SegmentFetcher} decorator that hedges slow requests across mirror origins.
+ *
+ * Origins registered as mirrors serve the same paths. A request goes first to the
+ * healthiest mirror; if it has not answered within the hedge delay, a duplicate
+ * goes to the next healthiest, and whichever answers first wins while the other
+ * is cancelled. A failed request fails over to the next mirror at once. The hedge
+ * delay is the 95th percentile of recent fetch latencies, so only the slow tail
+ * is duplicated (about 5% extra requests). Origins that keep failing are taken out
+ * of rotation by a per-origin circuit breaker. When every candidate has failed,
+ * the request fails with the last {@link IOException}, the earlier failures
+ * attached as suppressed.
+ *
+ * Requests to origins without mirrors pass straight through to the delegate.
+ */
+public class HedgingSegmentFetcher implements SegmentFetcher {
+    private static final double HEDGE_PERCENTILE = 95.0;
+    private static final long MIN_HEDGE_DELAY_NANOS = 5_000_000;
+    private static final long DEFAULT_HEDGE_DELAY_NANOS = 250_000_000;
+    private static final int MIN_SAMPLES = 20;
+    private static final long WINDOW_NANOS = 10_000_000_000L;
+
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(LightweightThreads.daemonFactory("hedge-timer"));
+
+    private final SegmentFetcher delegate;
+    private final Map<String, List<String>> mirrors = new ConcurrentHashMap<>();
+    private final Map<String, OriginHealth> health = new ConcurrentHashMap<>();
+    private final AtomicReference<LatencyHistogram> currentWindow = new AtomicReference<>(new LatencyHistogram());
+    private volatile LatencyHistogram previousWindow = new LatencyHistogram();
+    private volatile long windowStart = System.nanoTime();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    public HedgingSegmentFetcher(SegmentFetcher delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Declare origins ({@code scheme://host:port}, any path is ignored) that
+     * serve identical content; groups sharing an origin are merged
+     */
+    @Override
+    public void addMirrors(Collection<URI> origins) {
+        synchronized (mirrors) {
+            List<String> group = new CopyOnWriteArrayList<>();
+            for (URI origin : origins) {
+                String key = originOf(origin);
+                for (String member : mirrors.getOrDefault(key, List.of(key))) {
+                    if (!group.contains(member)) {
+                        group.add(member);
+                    }
+                }
+            }
+            for (String member : group) {
+                mirrors.put(member, group);
+                health.computeIfAbsent(member, OriginHealth::new);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri) {
+        return hedge(uri, delegate::fetch, body -> { });
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, DirectBufferPool pool) {
+        return hedge(uri, target -> delegate.fetch(target, pool), pool::release);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, HlsByteRange range, DirectBufferPool pool) {
+        return hedge(uri, target -> delegate.fetch(target, range, pool), pool::release);
+    }
+
+    /**
+     * Current hedge delay: the tail-latency threshold learned from recent fetches
+     */
+    public long getHedgeDelayNanos() {
+        rotateWindow();
+        LatencyHistogram previous = previousWindow;
+        LatencyHistogram current = currentWindow.get();
+        LatencyHistogram source = previous.getCount() >= MIN_SAMPLES ? previous
+                : current.getCount() >= MIN_SAMPLES ? current : null;
+        if (source == null) {
+            return DEFAULT_HEDGE_DELAY_NANOS;
+        }
+        return Math.max(MIN_HEDGE_DELAY_NANOS, source.getValueAtPercentile(HEDGE_PERCENTILE));
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+
+    /**
+     * Hedged requests that answered before the original
+     */
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    /**
+     * Circuit state of an origin ({@code CLOSED}, {@code OPEN}, {@code HALF_OPEN}),
+     * or null if it is not a registered mirror
+     */
+    public String getCircuitState(URI origin) {
+        OriginHealth originHealth = health.get(originOf(origin));
+        return originHealth == null ? null : originHealth.getState().name();
+    }
+
+    private CompletableFuture<ByteBuffer> hedge(URI uri, Function<URI, CompletableFuture<ByteBuffer>> attempt,
+                                                Consumer<ByteBuffer> discard) {
+        String origin = originOf(uri);
+        List<String> group = mirrors.get(origin);
+        if (group == null) {
+            return timed(attempt.apply(uri));
+        }
+        List<String> candidates = rank(group);
+        if (candidates.isEmpty()) {
+            // Every circuit is open; trying the origin as listed beats failing outright
+            return new HedgedRequest(uri, List.of(origin), false, attempt, discard).start();
+        }
+        return new HedgedRequest(uri, candidates, true, attempt, discard).start();
+    }
+
+    private CompletableFuture<ByteBuffer> timed(CompletableFuture<ByteBuffer> request) {
+        long start = System.nanoTime();
+        return request.whenComplete((body, error) -> {
+            if (error == null) {
+                recordLatency(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Mirrors that would admit a request now, healthiest first; admission itself
+     * is claimed only when an attempt is launched, so a half-open origin that
+     * never gets tried keeps its probe slot free
+     */
+    private List<String> rank(List<String> group) {
+        long now = System.nanoTime();
+        double typical = getHedgeDelayNanos() / 2.0;
+        List<OriginHealth> admitted = new ArrayList<>(group.size());
+        for (String member : group) {
+            OriginHealth originHealth = health.get(member);
+            if (originHealth.isAvailable(now)) {
+                admitted.add(originHealth);
+            }
+        }
+        admitted.sort(Comparator.comparingDouble(h -> h.score(typical)));
+        List<String> ranked = new ArrayList<>(admitted.size());
+        for (OriginHealth originHealth : admitted) {
+            ranked.add(originHealth.getOrigin());
+        }
+        return ranked;
+    }
+
+    private void recordLatency(long nanos) {
+        rotateWindow();
+        currentWindow.get().record(nanos);
+    }
+
+    private void rotateWindow() {
+        long start = windowStart;
+        long now = System.nanoTime();
+        if (now - start >= WINDOW_NANOS) {
+            synchronized (currentWindow) {
+                if (windowStart == start) {
+                    previousWindow = currentWindow.getAndSet(new LatencyHistogram());
+                    windowStart = now;
+                }
+            }
+        }
+    }
+
+    private static String originOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private static URI onOrigin(URI uri, String origin) {
+        if (originOf(uri).equals(origin)) {
+            return uri;
+        }
+        try {
+            URI base = new URI(origin);
+            return new URI(base.getScheme(), base.getRawAuthority(), uri.getRawPath(), uri.getRawQuery(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Cannot move " + uri + " to " + origin, e);
+        }
+    }
+
+    /**
+     * One logical fetch racing at most two attempts, with failover through the
+     * remaining candidates
+     */
+    private final class HedgedRequest {
+        private final URI uri;
+        private final List<String> candidates;
+        private final boolean admit;
+        private final Function<URI, CompletableFuture<ByteBuffer>> attempt;
+        private final Consumer<ByteBuffer> discard;
+        private final CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+        private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger nextCandidate = new AtomicInteger();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean hedged = new AtomicBoolean();
+        private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        private volatile ScheduledFuture<?> hedgeTimer;
+
+        /**
+         * @param admit whether each candidate must pass its circuit breaker when launched;
+         *              false for the last-resort attempt made while every circuit is open
+         */
+        HedgedRequest(URI uri, List<String> candidates, boolean admit,
+                      Function<URI, CompletableFuture<ByteBuffer>> attempt, Consumer<ByteBuffer> discard) {
+            this.uri = uri;
+            this.candidates = candidates;
+            this.admit = admit;
+            this.attempt = attempt;
+            this.discard = discard;
+        }
+
+        CompletableFuture<ByteBuffer> start() {
+            if (!launch(false)) {
+                // Every ranked mirror was claimed by other requests' probes in the meantime
+                return new HedgedRequest(uri, List.of(originOf(uri)), false, attempt, discard).start();
+            }
+            if (candidates.size() > 1) {
+                hedgeTimer = TIMER.schedule(this::hedgeNow, getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            }
+            // Registered after the timer, so a request that already finished cancels it at once
+            result.whenComplete((body, error) -> {
+                cancelTimer();
+                if (result.isCancelled()) {
+                    cancelOthers(null, System.nanoTime());
+                }
+            });
+            return result;
+        }
+
+        private void hedgeNow() {
+            if (!result.isDone() && hedged.compareAndSet(false, true) && launch(true)) {
+                hedgesSent.increment();
+                EventLog.debug("  → Hedging {} after {} ms", uri, getHedgeDelayNanos() / 1_000_000);
+            }
+        }
+
+        /**
+         * @return false when there is no candidate left to try
+         */
+        private boolean launch(boolean isHedge) {
+            // Count the attempt before claiming a candidate, so a concurrent failure
+            // that finds no candidate left still sees this one in flight
+            outstanding.incrementAndGet();
+            String origin;
+            do {
+                int index = nextCandidate.getAndIncrement();
+                if (index >= candidates.size()) {
+                    cancelTimer();
+                    attemptEnded();
+                    return false;
+                }
+                origin = candidates.get(index);
+            } while (admit && !health.get(origin).tryAcquire(System.nanoTime()));
+            Attempt current = new Attempt(origin, isHedge, System.nanoTime());
+            attempts.add(current);
+            CompletableFuture<ByteBuffer> request;
+            try {
+                request = attempt.apply(onOrigin(uri, origin));
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            current.request = request;
+            request.whenComplete((body, error) -> complete(current, body, error));
+            return true;
+        }
+
+        private void complete(Attempt finished, ByteBuffer body, Throwable error) {
+            try {
+                settle(finished, body, error);
+            } finally {
+                attemptEnded();
+            }
+        }
+
+        private void settle(Attempt finished, ByteBuffer body, Throwable error) {
+            long now = System.nanoTime();
+            OriginHealth originHealth = health.get(finished.origin);
+            if (error == null) {
+                if (result.complete(body)) {
+                    originHealth.recordSuccess(now - finished.started);
+                    recordLatency(now - finished.started);
+                    if (finished.hedge) {
+                        hedgesWon.increment();
+                    }
+                    cancelOthers(finished, now);
+                } else {
+                    // Lost the race but finished anyway; its buffer is not needed
+                    if (!finished.cancelled) {
+                        originHealth.recordAbandoned(now - finished.started);
+                    }
+                    discard.accept(body);
+                }
+                return;
+            }
+            if (finished.cancelled) {
+                return;
+            }
+            if (result.isDone()) {
+                originHealth.recordAbandoned(now - finished.started);
+                return;
+            }
+            failures.add(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            if (originHealth.recordFailure(now)) {
+                EventLog.warn("Origin {} failing; circuit opened", finished.origin);
+            }
+            // Fail over immediately instead of waiting for the hedge timer; the
+            // failed attempt still counts as outstanding until settle returns
+            if (launch(finished.hedge)) {
+                failovers.increment();
+            }
+        }
+
+        /**
+         * Drop one outstanding attempt. Whoever drops the last one once every
+         * candidate has been claimed fails the request, so a hedge launch racing
+         * the final failure cannot leave it pending.
+         */
+        private void attemptEnded() {
+            if (outstanding.decrementAndGet() == 0 && nextCandidate.get() >= candidates.size()) {
+                fail();
+            }
+        }
+
+        private void fail() {
+            if (result.isDone()) {
+                return;
+            }
+            IOException error = null;
+            for (int i = failures.size() - 1; i >= 0 && error == null; i--) {
+                if (failures.get(i) instanceof IOException) {
+                    error = (IOException) failures.get(i);
+                }
+            }
+            if (error == null) {
+                error = failures.isEmpty() ? new IOException("No origin available for " + uri)
+                        : new IOException("Fetching " + uri + " failed", failures.get(failures.size() - 1));
+            }
+            for (Throwable other : failures) {
+                if (other != error && other != error.getCause()) {
+                    error.addSuppressed(other);
+                }
+            }
+            result.completeExceptionally(error);
+        }
+
+        private void cancelOthers(Attempt winner, long now) {
+            cancelTimer();
+            for (Attempt other : attempts) {
+                if (other != winner && other.request != null && !other.request.isDone()) {
+                    other.cancelled = true;
+                    health.get(other.origin).recordAbandoned(now - other.started);
+                    // A fetcher releases its pooled buffer on cancellation; if the attempt
+                    // finished first, complete() discards the buffer instead
+                    other.request.cancel(true);
+                }
+            }
+        }
+
+        private void cancelTimer() {
+            ScheduledFuture<?> timer = hedgeTimer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    private static final class Attempt {
+        private final String origin;
+        private final boolean hedge;
+        private final long started;
+        private volatile CompletableFuture<ByteBuffer> request;
+        private volatile boolean cancelled;
+
+        Attempt(String origin, boolean hedge, long started) {
+            this.origin = origin;
+            this.hedge = hedge;
+            this.started = started;
+        }
+    }
+}
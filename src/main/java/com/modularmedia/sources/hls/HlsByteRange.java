@@ -0,0 +1,75 @@
+package com.modularmedia.sources.hls;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A sub-range of a media resource: the {@code BYTERANGE} of an {@code EXT-X-PART},
+ * or the {@code BYTERANGE-START}/{@code BYTERANGE-LENGTH} of an {@code EXT-X-PRELOAD-HINT}.
+ */
+public class HlsByteRange {
+    private final long offset;
+    private final long length;
+
+    /**
+     * @param length byte count, or -1 for a range that runs to the end of the resource
+     */
+    public HlsByteRange(long offset, long length) {
+        if (offset < 0 || length < -1) {
+            throw new IllegalArgumentException("Invalid byte range " + length + "@" + offset);
+        }
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Byte count, or -1 if the range runs to the end of the resource
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Value for an HTTP {@code Range} request header
+     */
+    public String toRangeHeader() {
+        return "bytes=" + offset + "-" + (length < 0 ? "" : String.valueOf(offset + length - 1));
+    }
+
+    /**
+     * View of this range within the whole resource
+     *
+     * @throws IllegalArgumentException if the resource ends before the range
+     */
+    ByteBuffer slice(ByteBuffer resource) {
+        long end = length < 0 ? resource.remaining() : offset + length;
+        if (end > resource.remaining() || offset > end) {
+            throw new IllegalArgumentException("Range " + this + " beyond a resource of " + resource.remaining() + " bytes");
+        }
+        ByteBuffer view = resource.duplicate();
+        view.position(resource.position() + (int) offset).limit(resource.position() + (int) end);
+        return view;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof HlsByteRange)) {
+            return false;
+        }
+        HlsByteRange other = (HlsByteRange) o;
+        return offset == other.offset && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(offset) * 31 + Long.hashCode(length);
+    }
+
+    @Override
+    public String toString() {
+        return (length < 0 ? "" : String.valueOf(length)) + "@" + offset;
+    }
+}
@@ -0,0 +1,87 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encryption parameters of an {@code EXT-X-KEY} tag, applying to every
+ * following segment until the next key tag.
+ */
+public class HlsKey {
+    public static final String AES_128 = "AES-128";
+    public static final String SAMPLE_AES = "SAMPLE-AES";
+
+    private final String method;
+    private final URI uri;
+    private final byte[] iv;
+    private final String keyFormat;
+
+    /**
+     * @param iv explicit 16-byte IV, or null to derive it from the media sequence number
+     */
+    public HlsKey(String method, URI uri, byte[] iv, String keyFormat) {
+        this.method = method;
+        this.uri = uri;
+        this.iv = iv == null ? null : iv.clone();
+        this.keyFormat = keyFormat == null ? "identity" : keyFormat;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getKeyFormat() {
+        return keyFormat;
+    }
+
+    /**
+     * Check for whole-segment AES-128-CBC with a plain 16-byte key from the key URI
+     */
+    public boolean isAes128() {
+        return AES_128.equals(method) && "identity".equals(keyFormat);
+    }
+
+    /**
+     * IV for a segment: the explicit IV, or the media sequence number as a
+     * 128-bit big-endian integer (RFC 8216, section 5.2)
+     */
+    public byte[] ivFor(long sequence) {
+        if (iv != null) {
+            return iv.clone();
+        }
+        return ByteBuffer.allocate(16).putLong(8, sequence).array();
+    }
+
+    /**
+     * Parse an {@code IV} attribute value ({@code 0x} followed by 32 hex digits)
+     */
+    static byte[] parseIv(String value) {
+        if (value == null) {
+            return null;
+        }
+        String hex = value.startsWith("0x") || value.startsWith("0X") ? value.substring(2) : value;
+        if (hex.length() > 32 || hex.isEmpty()) {
+            throw new IllegalArgumentException("Invalid IV: " + value);
+        }
+        byte[] iv = new byte[16];
+        int nibble = 31;
+        for (int i = hex.length() - 1; i >= 0; i--, nibble--) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid IV: " + value);
+            }
+            iv[nibble / 2] |= (byte) (nibble % 2 == 1 ? digit : digit << 4);
+        }
+        return iv;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri + (iv == null ? "" : " IV=" + Arrays.toString(iv));
+    }
+}
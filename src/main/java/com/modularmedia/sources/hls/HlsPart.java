@@ -0,0 +1,73 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+
+/**
+ * A partial segment of a Low-Latency HLS media playlist ({@code EXT-X-PART}).
+ */
+public class HlsPart {
+    private final URI uri;
+    private final long segmentSequence;
+    private final int index;
+    private final double durationSeconds;
+    private final boolean independent;
+    private final HlsByteRange byteRange;
+
+    public HlsPart(URI uri, long segmentSequence, int index, double durationSeconds, boolean independent) {
+        this(uri, segmentSequence, index, durationSeconds, independent, null);
+    }
+
+    public HlsPart(URI uri, long segmentSequence, int index, double durationSeconds, boolean independent,
+                   HlsByteRange byteRange) {
+        this.uri = uri;
+        this.segmentSequence = segmentSequence;
+        this.index = index;
+        this.durationSeconds = durationSeconds;
+        this.independent = independent;
+        this.byteRange = byteRange;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Media sequence number of the segment this part belongs to
+     */
+    public long getSegmentSequence() {
+        return segmentSequence;
+    }
+
+    /**
+     * Zero-based position of this part within its segment
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Check if the part starts with an independent frame, so playback or a
+     * rendition switch can begin here
+     */
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    /**
+     * Sub-range of {@link #getUri()} holding this part, or null if the part is the whole resource
+     */
+    public HlsByteRange getByteRange() {
+        return byteRange;
+    }
+
+    /**
+     * Check whether this part comes at or after the given position
+     */
+    boolean isAtOrAfter(long sequence, int partIndex) {
+        return segmentSequence > sequence || (segmentSequence == sequence && index >= partIndex);
+    }
+}
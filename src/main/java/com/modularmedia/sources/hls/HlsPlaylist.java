@@ -0,0 +1,193 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Parsed HLS playlist: either a master playlist listing variants or a media
+ * playlist listing segments. Instances are immutable and can be shared.
+ *
+ * Low-Latency HLS media playlists also carry partial segments, a preload hint
+ * for the next part, server control parameters and rendition reports.
+ */
+public class HlsPlaylist {
+    private final URI uri;
+    private final List<HlsVariant> variants;
+    private final List<HlsSegment> segments;
+    private final double targetDurationSeconds;
+    private final long mediaSequence;
+    private final boolean endList;
+    private final List<HlsPart> parts;
+    private final double partTargetSeconds;
+    private final URI preloadHint;
+    private final HlsByteRange preloadHintRange;
+    private final HlsServerControl serverControl;
+    private final List<HlsRenditionReport> renditionReports;
+
+    HlsPlaylist(URI uri, List<HlsVariant> variants, List<HlsSegment> segments,
+                double targetDurationSeconds, long mediaSequence, boolean endList) {
+        this(uri, variants, segments, targetDurationSeconds, mediaSequence, endList,
+                List.of(), 0, null, null, null, List.of());
+    }
+
+    HlsPlaylist(URI uri, List<HlsVariant> variants, List<HlsSegment> segments,
+                double targetDurationSeconds, long mediaSequence, boolean endList,
+                List<HlsPart> parts, double partTargetSeconds, URI preloadHint, HlsByteRange preloadHintRange,
+                HlsServerControl serverControl, List<HlsRenditionReport> renditionReports) {
+        this.uri = uri;
+        this.variants = Collections.unmodifiableList(variants);
+        this.segments = Collections.unmodifiableList(segments);
+        this.targetDurationSeconds = targetDurationSeconds;
+        this.mediaSequence = mediaSequence;
+        this.endList = endList;
+        this.parts = Collections.unmodifiableList(parts);
+        this.partTargetSeconds = partTargetSeconds;
+        this.preloadHint = preloadHint;
+        this.preloadHintRange = preloadHintRange;
+        this.serverControl = serverControl;
+        this.renditionReports = Collections.unmodifiableList(renditionReports);
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Check if this is a master playlist (variants, no segments)
+     */
+    public boolean isMaster() {
+        return !variants.isEmpty();
+    }
+
+    public List<HlsVariant> getVariants() {
+        return variants;
+    }
+
+    public List<HlsSegment> getSegments() {
+        return segments;
+    }
+
+    public double getTargetDurationSeconds() {
+        return targetDurationSeconds;
+    }
+
+    public long getMediaSequence() {
+        return mediaSequence;
+    }
+
+    /**
+     * Check if the playlist is complete (VOD or an ended live stream)
+     */
+    public boolean isEndList() {
+        return endList;
+    }
+
+    /**
+     * Partial segments in playlist order, including those of the segment still
+     * being produced after the last complete one
+     */
+    public List<HlsPart> getParts() {
+        return parts;
+    }
+
+    /**
+     * Check for a Low-Latency HLS playlist that announces partial segments
+     */
+    public boolean isLowLatency() {
+        return !parts.isEmpty();
+    }
+
+    /**
+     * {@code EXT-X-PART-INF} part target duration, or 0 if absent
+     */
+    public double getPartTargetSeconds() {
+        return partTargetSeconds;
+    }
+
+    /**
+     * URI of the part the server announced it will publish next, or null
+     */
+    public URI getPreloadHint() {
+        return preloadHint;
+    }
+
+    /**
+     * Sub-range of {@link #getPreloadHint()} the hinted part will occupy, or null for the whole resource
+     */
+    public HlsByteRange getPreloadHintRange() {
+        return preloadHintRange;
+    }
+
+    /**
+     * Server control parameters, or null if the playlist has none
+     */
+    public HlsServerControl getServerControl() {
+        return serverControl;
+    }
+
+    public List<HlsRenditionReport> getRenditionReports() {
+        return renditionReports;
+    }
+
+    /**
+     * Report this playlist carries for the given rendition's media playlist, or null
+     */
+    public HlsRenditionReport getRenditionReport(URI mediaPlaylist) {
+        URI target = mediaPlaylist.normalize();
+        for (HlsRenditionReport report : renditionReports) {
+            if (report.getUri().normalize().equals(target)) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the segment with this media sequence number is complete in this playlist
+     */
+    public boolean hasSegment(long sequence) {
+        return sequence >= mediaSequence && sequence < mediaSequence + segments.size();
+    }
+
+    /**
+     * Total media duration of the listed segments
+     */
+    public double getDurationSeconds() {
+        double total = 0;
+        for (HlsSegment segment : segments) {
+            total += segment.getDurationSeconds();
+        }
+        return total;
+    }
+
+    /**
+     * Variant with the highest declared bandwidth, or null for a media playlist
+     */
+    public HlsVariant getHighestBandwidthVariant() {
+        HlsVariant best = null;
+        for (HlsVariant variant : variants) {
+            if (best == null || variant.getBandwidth() > best.getBandwidth()) {
+                best = variant;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Redundant copies of a variant (same bandwidth and resolution, listed again
+     * for failover), including the variant itself
+     */
+    public List<HlsVariant> getRedundantVariants(HlsVariant variant) {
+        List<HlsVariant> redundant = new ArrayList<>();
+        for (HlsVariant candidate : variants) {
+            if (candidate.getBandwidth() == variant.getBandwidth()
+                    && Objects.equals(candidate.getResolution(), variant.getResolution())) {
+                redundant.add(candidate);
+            }
+        }
+        return redundant;
+    }
+}
@@ -0,0 +1,196 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser for HLS master and media playlists (RFC 8216).
+ *
+ * Only the tags the suite acts on are interpreted; unknown tags are skipped
+ * as the specification requires.
+ */
+public final class HlsPlaylistParser {
+
+    private HlsPlaylistParser() {
+    }
+
+    /**
+     * Parse playlist text; relative URIs are resolved against {@code playlistUri}
+     *
+     * @throws IllegalArgumentException if the text is not an HLS playlist
+     */
+    public static HlsPlaylist parse(URI playlistUri, String text) {
+        String[] lines = text.split("\r?\n");
+        if (lines.length == 0 || !lines[0].trim().startsWith("#EXTM3U")) {
+            throw new IllegalArgumentException("Not an HLS playlist: " + playlistUri);
+        }
+        List<HlsVariant> variants = new ArrayList<>();
+        List<HlsSegment> segments = new ArrayList<>();
+        double targetDuration = 0;
+        long mediaSequence = 0;
+        boolean endList = false;
+        Map<String, String> pendingVariant = null;
+        double pendingDuration = -1;
+        HlsKey key = null;
+        List<HlsPart> parts = new ArrayList<>();
+        int partIndex = 0;
+        double partTarget = 0;
+        URI preloadHint = null;
+        HlsByteRange preloadHintRange = null;
+        HlsServerControl serverControl = null;
+        List<HlsRenditionReport> renditionReports = new ArrayList<>();
+
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                pendingVariant = parseAttributes(line.substring("#EXT-X-STREAM-INF:".length()));
+            } else if (line.startsWith("#EXTINF:")) {
+                String value = line.substring("#EXTINF:".length());
+                int comma = value.indexOf(',');
+                pendingDuration = Double.parseDouble(comma >= 0 ? value.substring(0, comma) : value);
+            } else if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                targetDuration = Double.parseDouble(line.substring("#EXT-X-TARGETDURATION:".length()));
+            } else if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                mediaSequence = Long.parseLong(line.substring("#EXT-X-MEDIA-SEQUENCE:".length()));
+            } else if (line.startsWith("#EXT-X-KEY:")) {
+                key = parseKey(playlistUri, parseAttributes(line.substring("#EXT-X-KEY:".length())));
+            } else if (line.startsWith("#EXT-X-PART:")) {
+                Map<String, String> part = parseAttributes(line.substring("#EXT-X-PART:".length()));
+                if (part.get("URI") == null || part.get("DURATION") == null) {
+                    throw new IllegalArgumentException("EXT-X-PART without URI or DURATION in " + playlistUri);
+                }
+                URI partUri = playlistUri.resolve(part.get("URI"));
+                HlsPart previous = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+                parts.add(new HlsPart(partUri, mediaSequence + segments.size(), partIndex++,
+                        Double.parseDouble(part.get("DURATION")), "YES".equals(part.get("INDEPENDENT")),
+                        parsePartRange(playlistUri, partUri, part.get("BYTERANGE"), previous)));
+            } else if (line.startsWith("#EXT-X-PART-INF:")) {
+                partTarget = parseDouble(parseAttributes(line.substring("#EXT-X-PART-INF:".length())).get("PART-TARGET"));
+            } else if (line.startsWith("#EXT-X-PRELOAD-HINT:")) {
+                Map<String, String> hint = parseAttributes(line.substring("#EXT-X-PRELOAD-HINT:".length()));
+                if ("PART".equals(hint.get("TYPE")) && hint.get("URI") != null) {
+                    preloadHint = playlistUri.resolve(hint.get("URI"));
+                    preloadHintRange = hint.containsKey("BYTERANGE-START") || hint.containsKey("BYTERANGE-LENGTH")
+                            ? new HlsByteRange(parseLong(hint.get("BYTERANGE-START")),
+                                    hint.get("BYTERANGE-LENGTH") == null ? -1 : parseLong(hint.get("BYTERANGE-LENGTH")))
+                            : null;
+                }
+            } else if (line.startsWith("#EXT-X-SERVER-CONTROL:")) {
+                Map<String, String> control = parseAttributes(line.substring("#EXT-X-SERVER-CONTROL:".length()));
+                serverControl = new HlsServerControl("YES".equals(control.get("CAN-BLOCK-RELOAD")),
+                        parseDouble(control.get("HOLD-BACK")), parseDouble(control.get("PART-HOLD-BACK")));
+            } else if (line.startsWith("#EXT-X-RENDITION-REPORT:")) {
+                Map<String, String> report = parseAttributes(line.substring("#EXT-X-RENDITION-REPORT:".length()));
+                if (report.get("URI") != null) {
+                    renditionReports.add(new HlsRenditionReport(playlistUri.resolve(report.get("URI")),
+                            parseLong(report.get("LAST-MSN")),
+                            report.get("LAST-PART") == null ? -1 : (int) parseLong(report.get("LAST-PART"))));
+                }
+            } else if (line.startsWith("#EXT-X-ENDLIST")) {
+                endList = true;
+            } else if (!line.startsWith("#")) {
+                URI uri = playlistUri.resolve(line);
+                if (pendingVariant != null) {
+                    variants.add(new HlsVariant(uri, parseLong(pendingVariant.get("BANDWIDTH")),
+                            pendingVariant.get("RESOLUTION"), pendingVariant.get("CODECS")));
+                    pendingVariant = null;
+                } else if (pendingDuration >= 0) {
+                    segments.add(new HlsSegment(uri, mediaSequence + segments.size(), pendingDuration, key));
+                    pendingDuration = -1;
+                    partIndex = 0;
+                }
+            }
+        }
+        return new HlsPlaylist(playlistUri, variants, segments, targetDuration, mediaSequence, endList,
+                parts, partTarget, preloadHint, preloadHintRange, serverControl, renditionReports);
+    }
+
+    /**
+     * Parse an attribute list such as {@code BANDWIDTH=800000,CODECS="avc1.4d401e,mp4a.40.2"}
+     */
+    static Map<String, String> parseAttributes(String list) {
+        Map<String, String> attributes = new HashMap<>();
+        int i = 0;
+        while (i < list.length()) {
+            int eq = list.indexOf('=', i);
+            if (eq < 0) {
+                break;
+            }
+            String name = list.substring(i, eq).trim();
+            int valueStart = eq + 1;
+            int valueEnd;
+            String value;
+            if (valueStart < list.length() && list.charAt(valueStart) == '"') {
+                valueEnd = list.indexOf('"', valueStart + 1);
+                if (valueEnd < 0) {
+                    valueEnd = list.length();
+                }
+                value = list.substring(valueStart + 1, valueEnd);
+                valueEnd++;
+            } else {
+                valueEnd = list.indexOf(',', valueStart);
+                if (valueEnd < 0) {
+                    valueEnd = list.length();
+                }
+                value = list.substring(valueStart, valueEnd).trim();
+            }
+            attributes.put(name, value);
+            int comma = list.indexOf(',', valueEnd);
+            i = comma < 0 ? list.length() : comma + 1;
+        }
+        return attributes;
+    }
+
+    /**
+     * @return the key, or null for {@code METHOD=NONE}
+     */
+    private static HlsKey parseKey(URI playlistUri, Map<String, String> attributes) {
+        String method = attributes.getOrDefault("METHOD", "NONE");
+        if ("NONE".equals(method)) {
+            return null;
+        }
+        String keyUri = attributes.get("URI");
+        if (keyUri == null) {
+            throw new IllegalArgumentException("EXT-X-KEY without URI in " + playlistUri);
+        }
+        return new HlsKey(method, playlistUri.resolve(keyUri), HlsKey.parseIv(attributes.get("IV")),
+                attributes.get("KEYFORMAT"));
+    }
+
+    /**
+     * Parse an {@code EXT-X-PART} {@code BYTERANGE} of the form {@code <n>[@<o>]}; without
+     * an offset the range follows on from the previous part, which must share the resource
+     *
+     * @return the range, or null if the part has none
+     */
+    private static HlsByteRange parsePartRange(URI playlistUri, URI partUri, String value, HlsPart previous) {
+        if (value == null) {
+            return null;
+        }
+        int at = value.indexOf('@');
+        long length = parseLong(at < 0 ? value : value.substring(0, at));
+        if (at >= 0) {
+            return new HlsByteRange(parseLong(value.substring(at + 1)), length);
+        }
+        HlsByteRange before = previous == null ? null : previous.getByteRange();
+        if (before == null || before.getLength() < 0 || !previous.getUri().equals(partUri)) {
+            throw new IllegalArgumentException("EXT-X-PART BYTERANGE without offset does not follow a part of "
+                    + partUri + " in " + playlistUri);
+        }
+        return new HlsByteRange(before.getOffset() + before.getLength(), length);
+    }
+
+    private static long parseLong(String value) {
+        return value == null ? 0 : Long.parseLong(value.trim());
+    }
+
+    private static double parseDouble(String value) {
+        return value == null ? 0 : Double.parseDouble(value.trim());
+    }
+}
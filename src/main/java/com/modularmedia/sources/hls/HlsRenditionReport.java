@@ -0,0 +1,37 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+
+/**
+ * Latest segment and part of another rendition ({@code EXT-X-RENDITION-REPORT}),
+ * letting a client switch renditions without first polling the target playlist.
+ */
+public class HlsRenditionReport {
+    private final URI uri;
+    private final long lastSequence;
+    private final int lastPart;
+
+    public HlsRenditionReport(URI uri, long lastSequence, int lastPart) {
+        this.uri = uri;
+        this.lastSequence = lastSequence;
+        this.lastPart = lastPart;
+    }
+
+    /**
+     * Media playlist URI of the reported rendition
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Index of the last part of {@link #getLastSequence()}, or -1 if not reported
+     */
+    public int getLastPart() {
+        return lastPart;
+    }
+}
@@ -0,0 +1,52 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+
+/**
+ * One media segment of an HLS media playlist.
+ */
+public class HlsSegment {
+    private final URI uri;
+    private final long sequence;
+    private final double durationSeconds;
+    private final HlsKey key;
+
+    public HlsSegment(URI uri, long sequence, double durationSeconds) {
+        this(uri, sequence, durationSeconds, null);
+    }
+
+    /**
+     * @param key encryption of this segment, or null if it is in the clear
+     */
+    public HlsSegment(URI uri, long sequence, double durationSeconds, HlsKey key) {
+        this.uri = uri;
+        this.sequence = sequence;
+        this.durationSeconds = durationSeconds;
+        this.key = key;
+    }
+
+    /**
+     * Absolute segment URI, resolved against the playlist it came from
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Media sequence number of this segment
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Encryption of this segment, or null if it is in the clear
+     */
+    public HlsKey getKey() {
+        return key;
+    }
+}
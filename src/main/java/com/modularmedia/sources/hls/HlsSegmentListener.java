@@ -0,0 +1,24 @@
+package com.modularmedia.sources.hls;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for every segment an {@code HLSStreamAdapter} delivers to playback.
+ * Low-Latency HLS live streams are delivered part by part through {@link #onPart}.
+ */
+@FunctionalInterface
+public interface HlsSegmentListener {
+    /**
+     * Called on the playback thread, in playback order. The buffer must not be
+     * retained after the call returns.
+     */
+    void onSegment(HlsSegment segment, ByteBuffer data);
+
+    /**
+     * Called for every partial segment of a Low-Latency HLS live stream, on the
+     * playback thread and in playback order. The buffer must not be retained
+     * after the call returns.
+     */
+    default void onPart(HlsPart part, ByteBuffer data) {
+    }
+}
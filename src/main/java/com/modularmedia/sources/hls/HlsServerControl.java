@@ -0,0 +1,38 @@
+package com.modularmedia.sources.hls;
+
+/**
+ * Server capabilities and hold-back distances from {@code EXT-X-SERVER-CONTROL}.
+ */
+public class HlsServerControl {
+    private final boolean canBlockReload;
+    private final double holdBackSeconds;
+    private final double partHoldBackSeconds;
+
+    public HlsServerControl(boolean canBlockReload, double holdBackSeconds, double partHoldBackSeconds) {
+        this.canBlockReload = canBlockReload;
+        this.holdBackSeconds = holdBackSeconds;
+        this.partHoldBackSeconds = partHoldBackSeconds;
+    }
+
+    /**
+     * Check if the server holds playlist requests with {@code _HLS_msn}/{@code _HLS_part}
+     * until the requested part is available
+     */
+    public boolean canBlockReload() {
+        return canBlockReload;
+    }
+
+    /**
+     * Minimum distance from the live edge for segment-based playback, or 0 if not declared
+     */
+    public double getHoldBackSeconds() {
+        return holdBackSeconds;
+    }
+
+    /**
+     * Minimum distance from the live edge for part-based playback, or 0 if not declared
+     */
+    public double getPartHoldBackSeconds() {
+        return partHoldBackSeconds;
+    }
+}
@@ -0,0 +1,39 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+
+/**
+ * A variant stream listed in an HLS master playlist ({@code EXT-X-STREAM-INF}).
+ */
+public class HlsVariant {
+    private final URI uri;
+    private final long bandwidth;
+    private final String resolution;
+    private final String codecs;
+
+    public HlsVariant(URI uri, long bandwidth, String resolution, String codecs) {
+        this.uri = uri;
+        this.bandwidth = bandwidth;
+        this.resolution = resolution;
+        this.codecs = codecs;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * Resolution such as {@code 1920x1080}, or null if not declared
+     */
+    public String getResolution() {
+        return resolution;
+    }
+
+    public String getCodecs() {
+        return codecs;
+    }
+}
@@ -0,0 +1,204 @@
+package com.modularmedia.sources.hls;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link SegmentFetcher} over {@link HttpClient}.
+ *
+ * One client (and so one connection pool, HTTP/2 where the server negotiates it)
+ * is shared by every stream that uses this fetcher. Pooled fetches receive the
+ * body straight into a direct buffer sized from {@code Content-Length}, so the
+ * segment is never assembled in a heap array first. Sub-ranges are fetched with
+ * a {@code Range} request; a server that ignores it and sends the whole resource
+ * is handled by copying the range out. Cancelling a pooled fetch
+ * returns its buffer to the pool, whether or not the client stops the exchange.
+ */
+public class HttpSegmentFetcher implements SegmentFetcher {
+    private static final int UNKNOWN_LENGTH_CAPACITY = 1 << 20;
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+
+    public HttpSegmentFetcher() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build(), Duration.ofSeconds(30));
+    }
+
+    public HttpSegmentFetcher(HttpClient client, Duration requestTimeout) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new CompletionException(new IOException(
+                                "HTTP " + response.statusCode() + " fetching " + uri));
+                    }
+                    return ByteBuffer.wrap(response.body());
+                });
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, DirectBufferPool pool) {
+        return fetch(uri, null, pool);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetch(URI uri, HlsByteRange range, DirectBufferPool pool) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET();
+        if (range != null) {
+            builder.header("Range", range.toRangeHeader());
+        }
+        HttpRequest request = builder.build();
+        AtomicReference<PooledBodySubscriber> subscriber = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        HttpResponse.BodyHandler<ByteBuffer> handler = info -> {
+            if (info.statusCode() / 100 != 2 || cancelled.get()) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            PooledBodySubscriber pooled = new PooledBodySubscriber(pool,
+                    info.headers().firstValueAsLong("Content-Length").orElse(-1));
+            subscriber.set(pooled);
+            if (cancelled.get()) {
+                pooled.abandon();
+            }
+            return pooled;
+        };
+        CompletableFuture<HttpResponse<ByteBuffer>> exchange = client.sendAsync(request, handler);
+        CompletableFuture<ByteBuffer> result = exchange.thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new CompletionException(new IOException(
+                        "HTTP " + response.statusCode() + " fetching " + uri));
+            }
+            if (range == null || response.statusCode() == 206) {
+                return response.body();
+            }
+            ByteBuffer whole = response.body();
+            try {
+                ByteBuffer part = range.slice(whole);
+                return pool.acquire(part.remaining()).put(part).flip();
+            } finally {
+                pool.release(whole);
+            }
+        });
+        result.whenComplete((body, error) -> {
+            if (!result.isCancelled()) {
+                return;
+            }
+            // Cancelling the result does not reach the exchange, and the client may keep
+            // receiving the body even once the exchange is cancelled; no one will take it
+            cancelled.set(true);
+            if (exchange.cancel(true)) {
+                PooledBodySubscriber pooled = subscriber.get();
+                if (pooled != null) {
+                    pooled.abandon();
+                }
+            } else {
+                exchange.thenAccept(response -> pool.release(response.body()));
+            }
+        });
+        return result;
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Collects a response body into a pooled direct buffer, growing it only when
+     * the server sent no (or a wrong) Content-Length
+     */
+    private static final class PooledBodySubscriber implements HttpResponse.BodySubscriber<ByteBuffer> {
+        private final DirectBufferPool pool;
+        private final CompletableFuture<ByteBuffer> body = new CompletableFuture<>();
+        private ByteBuffer target;
+        private boolean finished;
+        private boolean abandoned;
+
+        PooledBodySubscriber(DirectBufferPool pool, long contentLength) {
+            this.pool = pool;
+            this.target = pool.acquire(contentLength > 0 && contentLength <= Integer.MAX_VALUE
+                    ? (int) contentLength : UNKNOWN_LENGTH_CAPACITY);
+        }
+
+        @Override
+        public CompletionStage<ByteBuffer> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                if (target.remaining() < item.remaining()) {
+                    ByteBuffer grown = pool.acquire(Math.max(target.capacity() * 2, target.position() + item.remaining()));
+                    grown.put(target.flip());
+                    pool.release(target);
+                    target = grown;
+                }
+                target.put(item);
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            if (!finished) {
+                finished = true;
+                pool.release(target);
+            }
+            body.completeExceptionally(error);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (abandoned) {
+                pool.release(target);
+                body.cancel(false);
+            } else {
+                body.complete(target.flip());
+            }
+        }
+
+        /**
+         * The exchange was cancelled: release the buffer now if the body is
+         * complete, or as soon as it is
+         */
+        synchronized void abandon() {
+            if (abandoned) {
+                return;
+            }
+            abandoned = true;
+            if (finished && !body.isCompletedExceptionally()) {
+                pool.release(target);
+            }
+        }
+    }
+}
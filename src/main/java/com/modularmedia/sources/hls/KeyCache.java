@@ -0,0 +1,87 @@
+package com.modularmedia.sources.hls;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content keys by key URI, fetched at most once however many segments and
+ * streams ask for them concurrently.
+ *
+ * The cache holds the in-flight fetch itself, so every caller that arrives while
+ * a key is downloading joins the same request. Failed fetches are dropped so the
+ * next request retries. Streams that share a fetcher share its cache through
+ * {@link #of(SegmentFetcher)}.
+ */
+public final class KeyCache {
+    private static final int AES_128_KEY_BYTES = 16;
+    private static final Map<SegmentFetcher, WeakReference<KeyCache>> SHARED = new WeakHashMap<>();
+
+    private final SegmentFetcher fetcher;
+    private final Map<URI, CompletableFuture<byte[]>> keys = new ConcurrentHashMap<>();
+
+    public KeyCache(SegmentFetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * The cache shared by every stream fetching through the given fetcher; it
+     * is kept as long as some stream holds it
+     */
+    public static KeyCache of(SegmentFetcher fetcher) {
+        synchronized (SHARED) {
+            WeakReference<KeyCache> shared = SHARED.get(fetcher);
+            KeyCache cache = shared == null ? null : shared.get();
+            if (cache == null) {
+                cache = new KeyCache(fetcher);
+                SHARED.put(fetcher, new WeakReference<>(cache));
+            }
+            return cache;
+        }
+    }
+
+    public CompletableFuture<byte[]> get(URI uri) {
+        CompletableFuture<byte[]> key = keys.get(uri);
+        if (key != null) {
+            return key;
+        }
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        key = keys.putIfAbsent(uri, mine);
+        if (key != null) {
+            return key;
+        }
+        fetcher.fetch(uri).whenComplete((body, error) -> {
+            if (error != null) {
+                keys.remove(uri, mine);
+                mine.completeExceptionally(error);
+            } else if (body.remaining() != AES_128_KEY_BYTES) {
+                keys.remove(uri, mine);
+                mine.completeExceptionally(new CompletionException(new IOException(
+                        "Key " + uri + " is " + body.remaining() + " bytes, expected " + AES_128_KEY_BYTES)));
+            } else {
+                mine.complete(toArray(body));
+            }
+        });
+        return mine;
+    }
+
+    public void invalidate(URI uri) {
+        keys.remove(uri);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private static byte[] toArray(ByteBuffer body) {
+        byte[] key = new byte[body.remaining()];
+        body.duplicate().get(key);
+        return key;
+    }
+}
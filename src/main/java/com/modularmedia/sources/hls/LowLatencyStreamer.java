@@ -0,0 +1,298 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.modularmedia.io.IoPriority;
+import com.modularmedia.io.IoScheduler;
+import com.modularmedia.logging.EventLog;
+import com.modularmedia.metrics.PlaybackMetrics;
+
+/**
+ * Plays a Low-Latency HLS live stream part by part.
+ *
+ * Playback starts at an independent part {@code PART-HOLD-BACK} behind the live
+ * edge and then follows the edge with blocking playlist reloads
+ * ({@code _HLS_msn}/{@code _HLS_part}), so each new part is seen as soon as the
+ * server publishes it. The part announced by {@code EXT-X-PRELOAD-HINT} is
+ * requested before it appears in a playlist; the server answers once the part
+ * is ready, and the request is reused when the part is listed. Parts and hints
+ * that name a byte range of a larger resource are fetched with range requests,
+ * and a hint is matched to the listed part by resource and start offset. Servers without
+ * {@code CAN-BLOCK-RELOAD} are polled every part target instead. Listed parts are
+ * fetched as {@code PLAYING_NOW} I/O and the hinted part as {@code NEXT_UP}.
+ *
+ * A rendition switch requested with {@link #switchRendition(URI)} takes effect
+ * at the next part boundary: the following playlist request goes to the new
+ * rendition for the same media sequence and part, which aligned renditions share.
+ * If the current playlist carries an {@code EXT-X-RENDITION-REPORT} showing the
+ * target further behind, the request asks for the target's next part instead, so
+ * the server neither rejects it as too far ahead nor holds it for that long.
+ */
+public class LowLatencyStreamer {
+    private static final double DEFAULT_HOLD_BACK_PARTS = 3;
+
+    private final SegmentFetcher fetcher;
+    private final DirectBufferPool bufferPool;
+    private final HlsSegmentListener listener;
+    private final IoScheduler ioScheduler;
+    private final Map<String, CompletableFuture<ByteBuffer>> preloads = new LinkedHashMap<>();
+    private volatile URI pendingRendition;
+    private volatile boolean stopped = false;
+    private long partsDelivered = 0;
+    private long preloadHits = 0;
+
+    public LowLatencyStreamer(SegmentFetcher fetcher, DirectBufferPool bufferPool, HlsSegmentListener listener) {
+        this(fetcher, bufferPool, listener, IoScheduler.shared());
+    }
+
+    public LowLatencyStreamer(SegmentFetcher fetcher, DirectBufferPool bufferPool, HlsSegmentListener listener,
+                              IoScheduler ioScheduler) {
+        this.fetcher = fetcher;
+        this.bufferPool = bufferPool;
+        this.listener = listener;
+        this.ioScheduler = ioScheduler;
+    }
+
+    /**
+     * Follow the live edge of the given media playlist until the stream ends
+     * or {@link #stop()} is called. Blocks the calling thread.
+     */
+    public void run(HlsPlaylist playlist) {
+        List<HlsPart> initial = playlist.getParts();
+        HlsPart first = initial.get(startIndex(playlist));
+        long sequence = first.getSegmentSequence();
+        int partIndex = first.getIndex();
+        EventLog.debug("  → Low-latency start at segment {} part {}", sequence, partIndex);
+        try {
+            while (!stopped) {
+                for (HlsPart part : deliverFrom(playlist, sequence, partIndex)) {
+                    sequence = part.getSegmentSequence();
+                    partIndex = part.getIndex() + 1;
+                }
+                if (playlist.hasSegment(sequence)) {
+                    sequence++;
+                    partIndex = 0;
+                }
+                if (playlist.isEndList() || stopped) {
+                    break;
+                }
+                preload(playlist.getPreloadHint(), playlist.getPreloadHintRange(), playlist.getPartTargetSeconds());
+                URI rendition = pendingRendition;
+                long requestSequence = sequence;
+                int requestPart = partIndex;
+                if (rendition != null) {
+                    pendingRendition = null;
+                    EventLog.debug("  → Switching rendition at segment {} part {}: {}", sequence, partIndex, rendition);
+                    HlsRenditionReport report = playlist.getRenditionReport(rendition);
+                    if (report != null && report.getLastPart() >= 0
+                            && isBefore(report.getLastSequence(), report.getLastPart() + 1, sequence, partIndex)) {
+                        requestSequence = report.getLastSequence();
+                        requestPart = report.getLastPart() + 1;
+                        EventLog.debug("  → Rendition report puts the target at segment {} part {}",
+                                requestSequence, report.getLastPart());
+                    }
+                } else {
+                    rendition = playlist.getUri();
+                }
+                playlist = reload(playlist, rendition, requestSequence, requestPart);
+            }
+        } finally {
+            for (CompletableFuture<ByteBuffer> abandoned : preloads.values()) {
+                discard(abandoned);
+            }
+            preloads.clear();
+        }
+    }
+
+    /**
+     * Stop following the live edge; {@link #run} returns after the current playlist request
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Continue with another rendition's media playlist from the next part boundary
+     */
+    public void switchRendition(URI mediaPlaylist) {
+        this.pendingRendition = mediaPlaylist;
+    }
+
+    public long getPartsDelivered() {
+        return partsDelivered;
+    }
+
+    /**
+     * Parts whose data was already requested through a preload hint
+     */
+    public long getPreloadHits() {
+        return preloadHits;
+    }
+
+    /**
+     * Fetch every listed part from the given position concurrently and hand them
+     * to the listener in order
+     */
+    private List<HlsPart> deliverFrom(HlsPlaylist playlist, long sequence, int partIndex) {
+        List<HlsPart> ready = new ArrayList<>();
+        List<CompletableFuture<ByteBuffer>> bodies = new ArrayList<>();
+        long deadline = System.nanoTime();
+        for (HlsPart part : playlist.getParts()) {
+            if (part.isAtOrAfter(sequence, partIndex)) {
+                ready.add(part);
+                bodies.add(request(part, deadline));
+                deadline += (long) (part.getDurationSeconds() * 1e9);
+            }
+        }
+        try {
+            for (int i = 0; i < ready.size(); i++) {
+                HlsPart part = ready.get(i);
+                CompletableFuture<ByteBuffer> pending = bodies.set(i, null);
+                long waitStart = System.nanoTime();
+                boolean stalled = !pending.isDone();
+                ByteBuffer data = await(pending, part.getUri());
+                if (stalled) {
+                    PlaybackMetrics.recordPrefetchStall(part.getUri().toString(), System.nanoTime() - waitStart);
+                }
+                HlsByteRange range = part.getByteRange();
+                if (range != null && range.getLength() >= 0 && data.remaining() > range.getLength()) {
+                    // An open-ended preload hint runs on past the part it announced
+                    data.limit(data.position() + (int) range.getLength());
+                }
+                try {
+                    listener.onPart(part, data);
+                    partsDelivered++;
+                } finally {
+                    bufferPool.release(data);
+                }
+            }
+        } finally {
+            for (CompletableFuture<ByteBuffer> abandoned : bodies) {
+                if (abandoned != null) {
+                    discard(abandoned);
+                }
+            }
+        }
+        return ready;
+    }
+
+    private CompletableFuture<ByteBuffer> request(HlsPart part, long deadlineNanos) {
+        CompletableFuture<ByteBuffer> preloaded = preloads.remove(preloadKey(part.getUri(), part.getByteRange()));
+        if (preloaded != null) {
+            preloadHits++;
+            ioScheduler.escalate(preloaded, IoPriority.PLAYING_NOW, deadlineNanos);
+            return preloaded;
+        }
+        return ioScheduler.submit(IoPriority.PLAYING_NOW, deadlineNanos,
+                () -> fetcher.fetch(part.getUri(), part.getByteRange(), bufferPool));
+    }
+
+    /**
+     * Open the request for the hinted part now, dropping earlier hints the
+     * server never listed
+     */
+    private void preload(URI hint, HlsByteRange range, double partTargetSeconds) {
+        if (hint == null || preloads.containsKey(preloadKey(hint, range))) {
+            return;
+        }
+        for (Iterator<CompletableFuture<ByteBuffer>> it = preloads.values().iterator(); it.hasNext(); ) {
+            discard(it.next());
+            it.remove();
+        }
+        long deadline = System.nanoTime() + (long) (partTargetSeconds * 1e9);
+        preloads.put(preloadKey(hint, range),
+                ioScheduler.submit(IoPriority.NEXT_UP, deadline, () -> fetcher.fetch(hint, range, bufferPool)));
+    }
+
+    /**
+     * Parts of one resource are told apart by where they start; the hinted
+     * length may be open-ended where the listed one is not
+     */
+    private static String preloadKey(URI uri, HlsByteRange range) {
+        return uri + "@" + (range == null ? 0 : range.getOffset());
+    }
+
+    private void discard(CompletableFuture<ByteBuffer> unused) {
+        if (!unused.cancel(false)) {
+            unused.thenAccept(bufferPool::release);
+        }
+    }
+
+    private HlsPlaylist reload(HlsPlaylist current, URI rendition, long sequence, int partIndex) {
+        HlsServerControl control = current.getServerControl();
+        URI request = rendition;
+        if (control != null && control.canBlockReload()) {
+            request = withQuery(rendition, "_HLS_msn=" + sequence + "&_HLS_part=" + partIndex);
+        } else {
+            sleep((long) (Math.max(current.getPartTargetSeconds(), 0.1) * 1000));
+        }
+        ByteBuffer body = await(fetcher.fetch(request), request);
+        HlsPlaylist playlist = HlsPlaylistParser.parse(rendition, StandardCharsets.UTF_8.decode(body).toString());
+        if (!playlist.isLowLatency()) {
+            throw new IllegalStateException("Rendition has no partial segments: " + rendition);
+        }
+        return playlist;
+    }
+
+    /**
+     * Walk back from the live edge by the part hold-back, then on to the nearest
+     * independent part so decoding can start there
+     */
+    static int startIndex(HlsPlaylist playlist) {
+        List<HlsPart> parts = playlist.getParts();
+        HlsServerControl control = playlist.getServerControl();
+        double holdBack = control != null && control.getPartHoldBackSeconds() > 0
+                ? control.getPartHoldBackSeconds()
+                : DEFAULT_HOLD_BACK_PARTS * playlist.getPartTargetSeconds();
+        int index = parts.size() - 1;
+        double behind = parts.get(index).getDurationSeconds();
+        while (index > 0 && behind < holdBack) {
+            index--;
+            behind += parts.get(index).getDurationSeconds();
+        }
+        while (index > 0 && !parts.get(index).isIndependent()) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean isBefore(long sequence, int partIndex, long otherSequence, int otherPartIndex) {
+        return sequence < otherSequence || (sequence == otherSequence && partIndex < otherPartIndex);
+    }
+
+    private static URI withQuery(URI uri, String directives) {
+        String query = uri.getRawQuery();
+        String base = uri.toString();
+        int fragment = base.indexOf('#');
+        if (fragment >= 0) {
+            base = base.substring(0, fragment);
+        }
+        return URI.create(base + (query == null ? "?" : "&") + directives);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while polling playlist", e);
+        }
+    }
+
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> pending, URI uri) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("HLS fetch failed: " + uri, e.getCause());
+        }
+    }
+}
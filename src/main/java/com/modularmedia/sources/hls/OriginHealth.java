@@ -0,0 +1,124 @@
+package com.modularmedia.sources.hls;
+
+/**
+ * Health of one origin: smoothed latency, recent failure rate and a circuit breaker.
+ *
+ * After {@link #FAILURES_TO_OPEN} consecutive failures the circuit opens and the
+ * origin is skipped. Once the open period passes, one probe request is let
+ * through (half-open); success closes the circuit, failure reopens it for twice
+ * as long, up to a minute.
+ */
+final class OriginHealth {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final int FAILURES_TO_OPEN = 3;
+    private static final long INITIAL_OPEN_NANOS = 2_000_000_000L;
+    private static final long MAX_OPEN_NANOS = 60_000_000_000L;
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final double FAILURE_WEIGHT = 0.1;
+
+    private final String origin;
+    private State state = State.CLOSED;
+    private double latencyNanos = -1;
+    private double failureRate = 0;
+    private int consecutiveFailures = 0;
+    private long openNanos = INITIAL_OPEN_NANOS;
+    private long openUntil = 0;
+    private boolean probeInFlight = false;
+
+    OriginHealth(String origin) {
+        this.origin = origin;
+    }
+
+    String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Whether {@link #tryAcquire} would admit a request now, without claiming the probe
+     */
+    synchronized boolean isAvailable(long now) {
+        if (state == State.OPEN) {
+            return now - openUntil >= 0;
+        }
+        return state == State.CLOSED || !probeInFlight;
+    }
+
+    /**
+     * Check whether a request may go to this origin now; in half-open state only
+     * one probe is admitted at a time. Call it only for a request that is then sent.
+     */
+    synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN && now - openUntil >= 0) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.OPEN) {
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    synchronized void recordSuccess(long latency) {
+        latencyNanos = latencyNanos < 0 ? latency : latencyNanos + LATENCY_WEIGHT * (latency - latencyNanos);
+        failureRate -= FAILURE_WEIGHT * failureRate;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            openNanos = INITIAL_OPEN_NANOS;
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * @return true if this failure opened the circuit
+     */
+    synchronized boolean recordFailure(long now) {
+        failureRate += FAILURE_WEIGHT * (1 - failureRate);
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            openNanos = Math.min(MAX_OPEN_NANOS, openNanos * 2);
+            return open(now);
+        }
+        return state == State.CLOSED && consecutiveFailures >= FAILURES_TO_OPEN && open(now);
+    }
+
+    /**
+     * A request abandoned because another origin answered first: count the time
+     * it had already taken as a latency sample, without treating it as a failure
+     */
+    synchronized void recordAbandoned(long elapsed) {
+        if (latencyNanos < 0 || elapsed > latencyNanos) {
+            latencyNanos = latencyNanos < 0 ? elapsed : latencyNanos + LATENCY_WEIGHT * (elapsed - latencyNanos);
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Lower is better: smoothed latency inflated by the recent failure rate;
+     * origins with no history score as average so they get tried
+     */
+    synchronized double score(double defaultLatency) {
+        double latency = latencyNanos < 0 ? defaultLatency : latencyNanos;
+        return latency * (1 + 4 * failureRate);
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private boolean open(long now) {
+        state = State.OPEN;
+        openUntil = now + openNanos;
+        probeInFlight = false;
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.modularmedia.sources.hls;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * In-place AES-128-CBC decryption of whole HLS segments.
+ *
+ * The cipher reads and writes two views of the same buffer; CBC output never
+ * overtakes input, so no second segment-sized buffer is needed. One cipher
+ * instance is kept per thread, since {@link Cipher} is not thread-safe.
+ */
+public final class SegmentDecryptor {
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/CBC/PKCS5Padding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/CBC is not available", e);
+        }
+    });
+
+    private SegmentDecryptor() {
+    }
+
+    /**
+     * Decrypt the remaining bytes of {@code data} in place
+     *
+     * @return {@code data}, with its limit moved to the end of the plaintext
+     * @throws IllegalStateException if the segment cannot be decrypted with this key
+     */
+    public static ByteBuffer decrypt(HlsSegment segment, byte[] key, ByteBuffer data) {
+        HlsKey hlsKey = segment.getKey();
+        Cipher cipher = CIPHER.get();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new IvParameterSpec(hlsKey.ivFor(segment.getSequence())));
+            ByteBuffer input = data.duplicate();
+            ByteBuffer output = data.duplicate();
+            int plaintext = cipher.doFinal(input, output);
+            data.limit(data.position() + plaintext);
+            return data;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decrypt segment " + segment.getUri(), e);
+        }
+    }
+}
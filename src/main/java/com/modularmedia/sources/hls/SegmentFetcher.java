@@ -0,0 +1,58 @@
+package com.modularmedia.sources.hls;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport used by {@code HLSStreamAdapter} to fetch playlists and segments.
+ *
+ * Implementations must be safe for concurrent use, since one fetcher is
+ * typically shared by every stream on a node.
+ */
+public interface SegmentFetcher {
+    /**
+     * Fetch the whole resource; the returned buffer is positioned at the first byte
+     */
+    CompletableFuture<ByteBuffer> fetch(URI uri);
+
+    /**
+     * Fetch a segment body into a buffer from the pool; the caller hands it back
+     * with {@link DirectBufferPool#release} once done. Cancelling the returned
+     * future must leave no buffer unreleased. The default copies the
+     * result of {@link #fetch(URI)}; transports that can receive straight into the
+     * pooled buffer should override it.
+     */
+    default CompletableFuture<ByteBuffer> fetch(URI uri, DirectBufferPool pool) {
+        return fetch(uri).thenApply(body -> {
+            ByteBuffer pooled = pool.acquire(body.remaining());
+            return pooled.put(body).flip();
+        });
+    }
+
+    /**
+     * Fetch a sub-range of a resource into a buffer from the pool, as
+     * {@link #fetch(URI, DirectBufferPool)} does for the whole resource, which a
+     * null range stands for. The default fetches the whole resource and copies
+     * the range out of it; transports that can request a range should override it.
+     */
+    default CompletableFuture<ByteBuffer> fetch(URI uri, HlsByteRange range, DirectBufferPool pool) {
+        if (range == null) {
+            return fetch(uri, pool);
+        }
+        return fetch(uri).thenApply(body -> {
+            ByteBuffer part = range.slice(body);
+            ByteBuffer pooled = pool.acquire(part.remaining());
+            return pooled.put(part).flip();
+        });
+    }
+
+    /**
+     * Declare origins that serve identical content, for fetchers that can fail
+     * over or hedge between them; ignored by default. Decorating fetchers
+     * should pass this on to their delegate.
+     */
+    default void addMirrors(Collection<URI> origins) {
+    }
+}
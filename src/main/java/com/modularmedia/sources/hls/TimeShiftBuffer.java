@@ -0,0 +1,393 @@
+package com.modularmedia.sources.hls;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Time-shift (DVR) window for a live stream, kept in a preallocated memory-mapped
+ * ring file rather than on the heap.
+ *
+ * Segments are written back to back. A segment that does not fit before the end
+ * of the file starts again at offset 0, so every segment stays contiguous and the
+ * ring never fragments; the oldest segments in the way are evicted, as are those
+ * that fall out of the time window. Low-Latency parts are appended to their
+ * segment as they arrive. An in-memory index maps media sequence numbers and
+ * wall-clock time to ring offsets. The timeline is anchored to the wall clock when
+ * a segment arrives after a gap and otherwise advances by segment durations.
+ * A segment larger than half the ring is not recorded: it is skipped with a
+ * warning (along with any of its parts already stored), leaving a gap.
+ *
+ * One thread appends while any number of threads read; reads copy out under a
+ * read lock, so a segment is never overwritten while it is being copied.
+ */
+public class TimeShiftBuffer implements AutoCloseable {
+    private static final int PREALLOCATE_CHUNK = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final int capacity;
+    private final long windowMicros;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final TreeMap<Long, Entry> bySequence = new TreeMap<>();
+    private final TreeMap<Long, Entry> byTime = new TreeMap<>();
+    private int writeOffset = 0;
+    private Entry open;
+    private long skippedSequence = -1;
+
+    private TimeShiftBuffer(Path file, FileChannel channel, MappedByteBuffer ring, double windowSeconds) {
+        this.file = file;
+        this.channel = channel;
+        this.ring = ring;
+        this.capacity = ring.capacity();
+        this.windowMicros = (long) (windowSeconds * 1_000_000);
+    }
+
+    /**
+     * Create a ring file of {@code capacityBytes} (at most 2 GB), writing it out in
+     * full so the disk space is reserved up front, and map it
+     */
+    public static TimeShiftBuffer create(Path file, long capacityBytes, double windowSeconds) throws IOException {
+        if (capacityBytes <= 0 || capacityBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring capacity must be between 1 byte and 2 GB: " + capacityBytes);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer zeros = ByteBuffer.allocateDirect(PREALLOCATE_CHUNK);
+            for (long position = 0; position < capacityBytes; position += PREALLOCATE_CHUNK) {
+                zeros.clear().limit((int) Math.min(PREALLOCATE_CHUNK, capacityBytes - position));
+                while (zeros.hasRemaining()) {
+                    channel.write(zeros, position + zeros.position());
+                }
+            }
+            MappedByteBuffer ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            return new TimeShiftBuffer(file, channel, ring, windowSeconds);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Store a complete segment; the data buffer's position is left unchanged
+     */
+    public void append(HlsSegment segment, ByteBuffer data) {
+        lock.writeLock().lock();
+        try {
+            open = null;
+            if (bySequence.containsKey(segment.getSequence())) {
+                return;
+            }
+            int length = data.remaining();
+            if (!fits(segment.getSequence(), length)) {
+                return;
+            }
+            Entry entry = newEntry(segment.getSequence(), segment.getUri());
+            if (writeOffset + length > capacity) {
+                wrapAround(writeOffset);
+            }
+            evictOverlapping(writeOffset, writeOffset + length);
+            entry.offset = writeOffset;
+            ring.put(entry.offset, data, data.position(), length);
+            entry.length = length;
+            entry.durationMicros = (long) (segment.getDurationSeconds() * 1_000_000);
+            writeOffset += length;
+            index(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append a Low-Latency part to its segment, starting the segment on its first
+     * part; the data buffer's position is left unchanged
+     */
+    public void appendPart(HlsPart part, ByteBuffer data) {
+        lock.writeLock().lock();
+        try {
+            if (part.getSegmentSequence() == skippedSequence) {
+                return;
+            }
+            if (open == null || open.sequence != part.getSegmentSequence()) {
+                open = null;
+                if (bySequence.containsKey(part.getSegmentSequence())) {
+                    return;
+                }
+                Entry entry = newEntry(part.getSegmentSequence(), part.getUri());
+                if (writeOffset == capacity) {
+                    wrapAround(writeOffset);
+                }
+                entry.offset = writeOffset;
+                index(entry);
+                open = entry;
+            }
+            int length = data.remaining();
+            int total = open.length + length;
+            if (!fits(open.sequence, total)) {
+                // The parts stored so far are of no use without the rest of the segment
+                entries.pollLast();
+                bySequence.remove(open.sequence, open);
+                byTime.remove(open.startMicros, open);
+                writeOffset = open.offset;
+                open = null;
+                return;
+            }
+            int end = open.offset + total;
+            if (end <= capacity) {
+                evictOverlapping(open.offset + open.length, end);
+            } else {
+                // Move the segment so far to the start of the ring; it stays contiguous
+                wrapAround(open.offset + open.length);
+                evictOverlapping(0, total);
+                ring.put(0, ring, open.offset, open.length);
+                open.offset = 0;
+                end = total;
+            }
+            ring.put(open.offset + open.length, data, data.position(), length);
+            open.length = total;
+            open.durationMicros += (long) (part.getDurationSeconds() * 1_000_000);
+            writeOffset = end;
+            evictWindow();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the media sequence number playing at the given wall-clock time: the
+     * newest segment for times past the live edge, or -1 for times before the window
+     */
+    public long sequenceAt(long epochMillis) {
+        lock.readLock().lock();
+        try {
+            Map.Entry<Long, Entry> floor = byTime.floorEntry(TimeUnit.MILLISECONDS.toMicros(epochMillis));
+            return floor == null ? -1 : floor.getValue().sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy a stored segment into a pooled buffer, ready to read; the caller releases
+     * it. Returns null if the segment is not in the window.
+     */
+    public ByteBuffer read(long sequence, DirectBufferPool pool) {
+        lock.readLock().lock();
+        try {
+            Entry entry = bySequence.get(sequence);
+            if (entry == null) {
+                return null;
+            }
+            ByteBuffer target = pool.acquire(entry.length);
+            target.put(ring.slice(entry.offset, entry.length));
+            return target.flip();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Describe a stored segment, or null if it is not in the window. Stored data is
+     * already decrypted, so the description carries no key.
+     */
+    public HlsSegment getSegment(long sequence) {
+        lock.readLock().lock();
+        try {
+            Entry entry = bySequence.get(sequence);
+            return entry == null ? null : new HlsSegment(entry.uri, sequence, entry.durationMicros / 1e6);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Next stored sequence number after the given one, or -1 at the live edge
+     */
+    public long nextSequence(long sequence) {
+        lock.readLock().lock();
+        try {
+            Long next = bySequence.higherKey(sequence);
+            return next == null ? -1 : next;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getFirstSequence() {
+        lock.readLock().lock();
+        try {
+            return entries.isEmpty() ? -1 : entries.peekFirst().sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLastSequence() {
+        lock.readLock().lock();
+        try {
+            return entries.isEmpty() ? -1 : entries.peekLast().sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wall-clock time of the start of the window, or -1 if empty
+     */
+    public long getWindowStartMillis() {
+        lock.readLock().lock();
+        try {
+            return entries.isEmpty() ? -1 : TimeUnit.MICROSECONDS.toMillis(entries.peekFirst().startMicros);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wall-clock time of the end of the newest stored media, or -1 if empty
+     */
+    public long getWindowEndMillis() {
+        lock.readLock().lock();
+        try {
+            return entries.isEmpty() ? -1 : TimeUnit.MICROSECONDS.toMillis(entries.peekLast().endMicros());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Close and delete the ring file. The mapping itself is released when the
+     * buffer is garbage collected.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            bySequence.clear();
+            byTime.clear();
+            open = null;
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Entry newEntry(long sequence, URI uri) {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        Entry last = entries.peekLast();
+        long start = last != null && last.sequence == sequence - 1 ? last.endMicros() : now;
+        return new Entry(sequence, uri, start);
+    }
+
+    private void index(Entry entry) {
+        entries.addLast(entry);
+        bySequence.put(entry.sequence, entry);
+        byTime.put(entry.startMicros, entry);
+        evictWindow();
+    }
+
+    /**
+     * Check a segment of this length can be recorded, remembering it as skipped if not
+     */
+    private boolean fits(long sequence, int length) {
+        if (length <= capacity / 2) {
+            return true;
+        }
+        EventLog.warn("Not recording segment {} to the time-shift ring: {} bytes is more than half of {}",
+                sequence, length, capacity);
+        skippedSequence = sequence;
+        return false;
+    }
+
+    /**
+     * Restart writing at offset 0. Segments from the previous lap still lying past
+     * the tail are evicted, so the oldest segment is always the next one in the
+     * write path.
+     */
+    private void wrapAround(int tailStart) {
+        while (!entries.isEmpty() && entries.peekFirst() != open && entries.peekFirst().offset >= tailStart) {
+            evictOldest();
+        }
+        writeOffset = 0;
+    }
+
+    /**
+     * Evict the oldest segments while they occupy the region about to be written.
+     * Segments lie in ring order, so the first one clear of the region ends the scan.
+     */
+    private void evictOverlapping(int from, int to) {
+        while (!entries.isEmpty()) {
+            Entry oldest = entries.peekFirst();
+            if (oldest == open || oldest.offset >= to || oldest.offset + oldest.length <= from) {
+                return;
+            }
+            evictOldest();
+        }
+    }
+
+    private void evictWindow() {
+        Entry newest = entries.peekLast();
+        while (entries.size() > 1 && entries.peekFirst() != open
+                && newest.endMicros() - entries.peekFirst().startMicros > windowMicros) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        Entry oldest = entries.pollFirst();
+        bySequence.remove(oldest.sequence, oldest);
+        byTime.remove(oldest.startMicros, oldest);
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final URI uri;
+        private final long startMicros;
+        private int offset;
+        private int length;
+        private long durationMicros;
+
+        Entry(long sequence, URI uri, long startMicros) {
+            this.sequence = sequence;
+            this.uri = uri;
+            this.startMicros = startMicros;
+        }
+
+        long endMicros() {
+            return startMicros + durationMicros;
+        }
+    }
+}
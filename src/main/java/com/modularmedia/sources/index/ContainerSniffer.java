@@ -0,0 +1,59 @@
+package com.modularmedia.sources.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Identifies a media container from its leading magic bytes.
+ *
+ * Recognizes ISO BMFF ({@code ftyp}; QuickTime brand as MOV), EBML (Matroska or
+ * WebM by DocType) and RIFF/AVI. One 64-byte read is enough for all of them.
+ */
+public final class ContainerSniffer {
+    private static final int PROBE_BYTES = 64;
+    private static final int EBML_MAGIC = 0x1A45DFA3;
+
+    private ContainerSniffer() {
+    }
+
+    /**
+     * Sniff the container of a file
+     *
+     * @return "MP4", "MOV", "MKV", "WEBM" or "AVI", or null if the file is
+     *         unreadable or the magic bytes are not recognized
+     */
+    public static String sniff(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(PROBE_BYTES);
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                // Keep reading until the probe is full or the file ends
+            }
+            return sniff(head.flip());
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    static String sniff(ByteBuffer head) {
+        if (head.remaining() >= 12 && ascii(head, 4, 4).equals("ftyp")) {
+            return ascii(head, 8, 4).equals("qt  ") ? "MOV" : "MP4";
+        }
+        if (head.remaining() >= 4 && head.getInt(0) == EBML_MAGIC) {
+            return ascii(head, 0, head.remaining()).contains("webm") ? "WEBM" : "MKV";
+        }
+        if (head.remaining() >= 12 && ascii(head, 0, 4).equals("RIFF") && ascii(head, 8, 4).equals("AVI ")) {
+            return "AVI";
+        }
+        return null;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,369 @@
+package com.modularmedia.sources.index;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link SeekIndex} from a Matroska / WebM file's Cues element.
+ *
+ * Only element headers are read while walking the Segment; Clusters are skipped
+ * by size, and the SeekHead is used to jump straight to the Cues when present.
+ * Files without Cues (or with live, unknown-size Clusters before them) get no index.
+ * The Segment Info duration can also be read on its own, for probing.
+ */
+final class MatroskaCues {
+    private static final int EBML = 0x1A45DFA3;
+    private static final int SEGMENT = 0x18538067;
+    private static final int SEEK_HEAD = 0x114D9B74;
+    private static final int SEEK = 0x4DBB;
+    private static final int SEEK_ID = 0x53AB;
+    private static final int SEEK_POSITION = 0x53AC;
+    private static final int INFO = 0x1549A966;
+    private static final int TIMECODE_SCALE = 0x2AD7B1;
+    private static final int DURATION = 0x4489;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int CUES = 0x1C53BB6B;
+    private static final int CUE_POINT = 0xBB;
+    private static final int CUE_TIME = 0xB3;
+    private static final int CUE_TRACK_POSITIONS = 0xB7;
+    private static final int CUE_TRACK = 0xF7;
+    private static final int CUE_CLUSTER_POSITION = 0xF1;
+    private static final long UNKNOWN_SIZE = -1;
+    private static final int MAX_ELEMENT_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_INFO_BYTES = 64 * 1024;
+
+    private MatroskaCues() {
+    }
+
+    /**
+     * @return the index, or null if the file has no reachable Cues
+     */
+    static SeekIndex build(FileChannel channel) throws IOException {
+        try {
+            return walkSegment(channel);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt Matroska metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the duration from the Segment Info, without looking past the first Cluster
+     *
+     * @return the duration in seconds, or 0 if none is stored before the media data
+     */
+    static double readDurationSeconds(FileChannel channel) throws IOException {
+        try {
+            Header header = Header.read(channel, 0);
+            if (header == null || header.id != EBML) {
+                return 0;
+            }
+            header = Header.read(channel, header.end());
+            if (header == null || header.id != SEGMENT) {
+                return 0;
+            }
+            long segmentEnd = header.size == UNKNOWN_SIZE ? channel.size() : Math.min(channel.size(), header.end());
+            long position = header.dataStart;
+            while (position < segmentEnd) {
+                Header child = Header.read(channel, position);
+                if (child == null || child.id == CLUSTER || child.size == UNKNOWN_SIZE) {
+                    return 0;
+                }
+                if (child.id == INFO) {
+                    if (child.size > MAX_INFO_BYTES) {
+                        return 0;
+                    }
+                    ByteBuffer info = load(channel, child);
+                    long timecodeScale = unsignedChild(info, TIMECODE_SCALE, 1_000_000);
+                    return floatChild(info, DURATION) * timecodeScale / 1e9;
+                }
+                position = child.end();
+            }
+            return 0;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt Matroska metadata: " + e.getMessage(), e);
+        }
+    }
+
+    private static SeekIndex walkSegment(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        Header header = Header.read(channel, 0);
+        if (header == null || header.id != EBML) {
+            throw new IOException("Not an EBML file");
+        }
+        long position = header.end();
+        header = Header.read(channel, position);
+        if (header == null || header.id != SEGMENT) {
+            throw new IOException("No Matroska Segment");
+        }
+        long segmentStart = header.dataStart;
+        long segmentEnd = header.size == UNKNOWN_SIZE ? fileSize : Math.min(fileSize, header.end());
+
+        long timecodeScale = 1_000_000;
+        double duration = 0;
+        long cuesPosition = -1;
+        position = segmentStart;
+        while (position < segmentEnd) {
+            Header child = Header.read(channel, position);
+            if (child == null) {
+                break;
+            }
+            if (child.id == SEEK_HEAD) {
+                cuesPosition = findCues(load(channel, child), segmentStart);
+            } else if (child.id == INFO) {
+                ByteBuffer info = load(channel, child);
+                timecodeScale = unsignedChild(info, TIMECODE_SCALE, timecodeScale);
+                duration = floatChild(info, DURATION);
+            } else if (child.id == CUES) {
+                return parseCues(load(channel, child), segmentStart, timecodeScale, duration);
+            } else if (child.id == CLUSTER && cuesPosition >= 0) {
+                // Clusters start once the metadata is done; jump over them via the SeekHead
+                position = cuesPosition;
+                cuesPosition = -1;
+                continue;
+            }
+            if (child.size == UNKNOWN_SIZE) {
+                return null;
+            }
+            position = child.end();
+        }
+        return null;
+    }
+
+    private static long findCues(ByteBuffer seekHead, long segmentStart) {
+        while (seekHead.hasRemaining()) {
+            int id = readId(seekHead);
+            long size = readSize(seekHead);
+            ByteBuffer element = slice(seekHead, size);
+            if (id != SEEK) {
+                continue;
+            }
+            long seekId = -1;
+            long seekPosition = -1;
+            while (element.hasRemaining()) {
+                int childId = readId(element);
+                long childSize = readSize(element);
+                ByteBuffer value = slice(element, childSize);
+                if (childId == SEEK_ID) {
+                    seekId = readUnsigned(value);
+                } else if (childId == SEEK_POSITION) {
+                    seekPosition = readUnsigned(value);
+                }
+            }
+            if (seekId == CUES && seekPosition >= 0) {
+                return segmentStart + seekPosition;
+            }
+        }
+        return -1;
+    }
+
+    private static SeekIndex parseCues(ByteBuffer cues, long segmentStart, long timecodeScale, double duration) {
+        long[] times = new long[64];
+        long[] offsets = new long[64];
+        int count = 0;
+        long indexedTrack = -1;
+        while (cues.hasRemaining()) {
+            int id = readId(cues);
+            ByteBuffer cuePoint = slice(cues, readSize(cues));
+            if (id != CUE_POINT) {
+                continue;
+            }
+            long time = -1;
+            long clusterPosition = -1;
+            while (cuePoint.hasRemaining()) {
+                int childId = readId(cuePoint);
+                ByteBuffer value = slice(cuePoint, readSize(cuePoint));
+                if (childId == CUE_TIME) {
+                    time = readUnsigned(value);
+                } else if (childId == CUE_TRACK_POSITIONS && clusterPosition < 0) {
+                    long track = -1;
+                    long position = -1;
+                    while (value.hasRemaining()) {
+                        int positionId = readId(value);
+                        ByteBuffer field = slice(value, readSize(value));
+                        if (positionId == CUE_TRACK) {
+                            track = readUnsigned(field);
+                        } else if (positionId == CUE_CLUSTER_POSITION) {
+                            position = readUnsigned(field);
+                        }
+                    }
+                    // Index one track only (the first one cued), normally the video track
+                    if (indexedTrack < 0) {
+                        indexedTrack = track;
+                    }
+                    if (track == indexedTrack) {
+                        clusterPosition = position;
+                    }
+                }
+            }
+            if (time < 0 || clusterPosition < 0) {
+                continue;
+            }
+            if (count == times.length) {
+                times = Arrays.copyOf(times, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            times[count] = time * timecodeScale / 1000;
+            offsets[count] = segmentStart + clusterPosition;
+            count++;
+        }
+        times = Arrays.copyOf(times, count);
+        offsets = Arrays.copyOf(offsets, count);
+        sortByTime(times, offsets);
+        long durationMicros = (long) (duration * timecodeScale / 1000);
+        return new SeekIndex(times, offsets, null, durationMicros);
+    }
+
+    /**
+     * Muxers write Cues in time order; only fall back to sorting when one did not
+     */
+    private static void sortByTime(long[] times, long[] offsets) {
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] < times[i - 1]) {
+                Integer[] order = new Integer[times.length];
+                for (int j = 0; j < order.length; j++) {
+                    order[j] = j;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+                long[] sortedTimes = new long[times.length];
+                long[] sortedOffsets = new long[times.length];
+                for (int j = 0; j < order.length; j++) {
+                    sortedTimes[j] = times[order[j]];
+                    sortedOffsets[j] = offsets[order[j]];
+                }
+                System.arraycopy(sortedTimes, 0, times, 0, times.length);
+                System.arraycopy(sortedOffsets, 0, offsets, 0, offsets.length);
+                return;
+            }
+        }
+    }
+
+    private static ByteBuffer load(FileChannel channel, Header header) throws IOException {
+        if (header.size == UNKNOWN_SIZE || header.size > MAX_ELEMENT_BYTES) {
+            throw new IOException("Unsupported element size " + header.size);
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) header.size);
+        long at = header.dataStart;
+        while (data.hasRemaining()) {
+            int n = channel.read(data, at);
+            if (n < 0) {
+                throw new IOException("Truncated element at offset " + header.dataStart);
+            }
+            at += n;
+        }
+        return data.flip();
+    }
+
+    private static long unsignedChild(ByteBuffer parent, int wanted, long fallback) {
+        ByteBuffer scan = parent.duplicate();
+        while (scan.hasRemaining()) {
+            int id = readId(scan);
+            ByteBuffer value = slice(scan, readSize(scan));
+            if (id == wanted) {
+                return readUnsigned(value);
+            }
+        }
+        return fallback;
+    }
+
+    private static double floatChild(ByteBuffer parent, int wanted) {
+        ByteBuffer scan = parent.duplicate();
+        while (scan.hasRemaining()) {
+            int id = readId(scan);
+            ByteBuffer value = slice(scan, readSize(scan));
+            if (id == wanted) {
+                return value.remaining() == 4 ? value.getFloat() : value.remaining() == 8 ? value.getDouble() : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, long size) {
+        if (size == UNKNOWN_SIZE || size > buffer.remaining()) {
+            throw new IllegalArgumentException("Element overruns its parent");
+        }
+        ByteBuffer value = buffer.slice().limit((int) size);
+        buffer.position(buffer.position() + (int) size);
+        return value;
+    }
+
+    /**
+     * EBML element IDs keep their length-marker bits
+     */
+    static int readId(ByteBuffer buffer) {
+        int first = buffer.get() & 0xff;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (length < 1 || length > 4) {
+            throw new IllegalArgumentException("Invalid EBML id");
+        }
+        int id = first;
+        for (int i = 1; i < length; i++) {
+            id = id << 8 | (buffer.get() & 0xff);
+        }
+        return id;
+    }
+
+    /**
+     * EBML data sizes drop their length marker; all ones means unknown
+     */
+    static long readSize(ByteBuffer buffer) {
+        int first = buffer.get() & 0xff;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (length < 1 || length > 8) {
+            throw new IllegalArgumentException("Invalid EBML size");
+        }
+        long value = first & (0xff >> length);
+        boolean allOnes = value == (0xff >> length);
+        for (int i = 1; i < length; i++) {
+            int b = buffer.get() & 0xff;
+            allOnes &= b == 0xff;
+            value = value << 8 | b;
+        }
+        return allOnes ? UNKNOWN_SIZE : value;
+    }
+
+    private static long readUnsigned(ByteBuffer value) {
+        long result = 0;
+        while (value.hasRemaining()) {
+            result = result << 8 | (value.get() & 0xff);
+        }
+        return result;
+    }
+
+    /**
+     * Element header read from the file: id, data size and where the data starts
+     */
+    private static final class Header {
+        final int id;
+        final long size;
+        final long dataStart;
+
+        private Header(int id, long size, long dataStart) {
+            this.id = id;
+            this.size = size;
+            this.dataStart = dataStart;
+        }
+
+        long end() {
+            return dataStart + size;
+        }
+
+        static Header read(FileChannel channel, long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(12);
+            channel.read(buffer, position);
+            buffer.flip();
+            if (buffer.remaining() < 2) {
+                return null;
+            }
+            try {
+                int id = readId(buffer);
+                long size = readSize(buffer);
+                return new Header(id, size, position + buffer.position());
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException("Corrupt EBML header at offset " + position, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.modularmedia.sources.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Container and duration of a media file, read from its headers only.
+ *
+ * Every read is small and bounded: the 64-byte sniff, then for MP4/MOV the
+ * top-level box headers and the {@code mvhd} fields, for Matroska/WebM the
+ * element headers up to the Segment Info, and for AVI the main header already
+ * in the sniffed bytes. Sample tables, Cues and media data are never read.
+ */
+public final class MediaProbe {
+    private static final int HEAD_BYTES = 64;
+    private static final int MAX_BOXES = 256;
+    private static final int MOOV = fourcc("moov");
+    private static final int MVHD = fourcc("mvhd");
+
+    private final String container;
+    private final double durationSeconds;
+
+    public MediaProbe(String container, double durationSeconds) {
+        this.container = container;
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Probe a file
+     *
+     * @return the probe, or null if the container is not recognized
+     * @throws IOException if the file cannot be read
+     */
+    public static MediaProbe probe(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEAD_BYTES);
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                // Keep reading until the probe is full or the file ends
+            }
+            head.flip();
+            String container = ContainerSniffer.sniff(head);
+            if (container == null) {
+                return null;
+            }
+            double duration;
+            try {
+                duration = readDuration(channel, container, head);
+            } catch (IOException e) {
+                // Recognized but with unreadable metadata: still playable, duration unknown
+                duration = 0;
+            }
+            return new MediaProbe(container, duration);
+        }
+    }
+
+    /**
+     * @return "MP4", "MOV", "MKV", "WEBM" or "AVI"
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * @return the duration in seconds, or 0 if the headers do not give one
+     */
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MediaProbe)) {
+            return false;
+        }
+        MediaProbe probe = (MediaProbe) other;
+        return container.equals(probe.container) && durationSeconds == probe.durationSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return container.hashCode() * 31 + Double.hashCode(durationSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return container + ", " + String.format("%.1fs", durationSeconds);
+    }
+
+    private static double readDuration(FileChannel channel, String container, ByteBuffer head) throws IOException {
+        switch (container) {
+            case "MP4":
+            case "MOV":
+                return movieDuration(channel);
+            case "MKV":
+            case "WEBM":
+                return MatroskaCues.readDurationSeconds(channel);
+            default:
+                return aviDuration(head);
+        }
+    }
+
+    /**
+     * Walk box headers to {@code moov}, then to its {@code mvhd}, and read timescale and duration
+     */
+    private static double movieDuration(FileChannel channel) throws IOException {
+        long[] moov = findBox(channel, 0, channel.size(), MOOV);
+        if (moov == null) {
+            return 0;
+        }
+        long[] mvhd = findBox(channel, moov[0], moov[1], MVHD);
+        if (mvhd == null) {
+            return 0;
+        }
+        ByteBuffer fields = ByteBuffer.allocate(32);
+        channel.read(fields, mvhd[0]);
+        fields.flip();
+        if (fields.remaining() < 20) {
+            return 0;
+        }
+        boolean version1 = fields.get(0) == 1;
+        if (version1 && fields.remaining() < 32) {
+            return 0;
+        }
+        long timescale = (version1 ? fields.getInt(20) : fields.getInt(12)) & 0xffffffffL;
+        long duration = version1 ? fields.getLong(24) : fields.getInt(16) & 0xffffffffL;
+        return timescale == 0 || duration < 0 ? 0 : (double) duration / timescale;
+    }
+
+    /**
+     * Find a box among the siblings in {@code [start, end)} by reading headers only
+     *
+     * @return payload start and end of the box, or null if it is not there
+     */
+    private static long[] findBox(FileChannel channel, long start, long end, int type) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long position = start;
+        for (int i = 0; i < MAX_BOXES && position + 8 <= end; i++) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.remaining() < 8) {
+                return null;
+            }
+            long size = header.getInt(0) & 0xffffffffL;
+            int headerSize = 8;
+            if (size == 1) {
+                if (header.remaining() < 16) {
+                    return null;
+                }
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize) {
+                throw new IOException("Corrupt box at offset " + position);
+            }
+            if (header.getInt(4) == type) {
+                return new long[] {position + headerSize, Math.min(end, position + size)};
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    /**
+     * The {@code avih} main header follows {@code RIFF....AVI LIST....hdrl} at offset 24
+     */
+    private static double aviDuration(ByteBuffer head) {
+        if (head.remaining() < 52 || !ascii(head, 24, 4).equals("avih")) {
+            return 0;
+        }
+        ByteBuffer fields = head.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long microsPerFrame = fields.getInt(32) & 0xffffffffL;
+        long totalFrames = fields.getInt(48) & 0xffffffffL;
+        return microsPerFrame * totalFrames / 1e6;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int fourcc(String type) {
+        byte[] bytes = type.getBytes(StandardCharsets.ISO_8859_1);
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+}
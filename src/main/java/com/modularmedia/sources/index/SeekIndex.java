@@ -0,0 +1,85 @@
+package com.modularmedia.sources.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Keyframe seek index of one media file: presentation time to byte offset.
+ *
+ * Entries are kept in parallel primitive arrays sorted by time (16 bytes per
+ * keyframe, plus 4 when the keyframe size is known), so a seek is a binary search
+ * followed by a single positioned read at the returned offset.
+ */
+public final class SeekIndex {
+    private final long[] timesMicros;
+    private final long[] offsets;
+    private final int[] sizes;
+    private final long durationMicros;
+
+    /**
+     * @param sizes keyframe sizes in bytes, or null when the container does not record them
+     */
+    SeekIndex(long[] timesMicros, long[] offsets, int[] sizes, long durationMicros) {
+        this.timesMicros = timesMicros;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.durationMicros = durationMicros;
+    }
+
+    public int size() {
+        return timesMicros.length;
+    }
+
+    /**
+     * Index of the last keyframe at or before the given time (the first
+     * keyframe for times before it), or -1 if the index is empty
+     */
+    public int floorEntry(long timeMicros) {
+        if (timesMicros.length == 0) {
+            return -1;
+        }
+        int at = Arrays.binarySearch(timesMicros, timeMicros);
+        if (at >= 0) {
+            // Several keyframes can share a timestamp; prefer the first
+            while (at > 0 && timesMicros[at - 1] == timeMicros) {
+                at--;
+            }
+            return at;
+        }
+        return Math.max(0, -at - 2);
+    }
+
+    public long getTimeMicros(int entry) {
+        return timesMicros[entry];
+    }
+
+    public long getOffset(int entry) {
+        return offsets[entry];
+    }
+
+    /**
+     * Keyframe size in bytes, or -1 when the container does not record it
+     */
+    public int getSize(int entry) {
+        return sizes == null ? -1 : sizes[entry];
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    /**
+     * Read the start of a keyframe with one positioned read
+     *
+     * @return bytes read into {@code target}, at most the keyframe size when known
+     */
+    public int read(FileChannel channel, int entry, ByteBuffer target) throws IOException {
+        int size = getSize(entry);
+        if (size >= 0 && size < target.remaining()) {
+            target.limit(target.position() + size);
+        }
+        return channel.read(target, offsets[entry]);
+    }
+}
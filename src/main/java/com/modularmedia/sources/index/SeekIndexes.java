@@ -0,0 +1,85 @@
+package com.modularmedia.sources.index;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.modularmedia.sources.mp4.Mp4File;
+import com.modularmedia.sources.mp4.Mp4Track;
+
+/**
+ * Builds and caches {@link SeekIndex}es per file.
+ *
+ * Entries are keyed by path, size and modification time, so a replaced file is
+ * re-indexed, and the most recently used indexes are kept. MP4/MOV indexes
+ * come from the {@code stss} and chunk/sample tables, timed by presentation
+ * time ({@code ctts} and edit list applied); Matroska/WebM from Cues.
+ */
+public final class SeekIndexes {
+    private static final int MAX_CACHED_INDEXES = 64;
+
+    private static final Map<String, SeekIndex> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, SeekIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SeekIndex> eldest) {
+                    return size() > MAX_CACHED_INDEXES;
+                }
+            });
+
+    private SeekIndexes() {
+    }
+
+    /**
+     * The seek index of a file in the given (sniffed) container format
+     *
+     * @return the index, or null when the format has no supported index or the
+     *         file carries none
+     */
+    public static SeekIndex get(Path path, String format) throws IOException {
+        if (!isIndexable(format)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String key = path.toAbsolutePath() + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        SeekIndex index = CACHE.get(key);
+        if (index == null) {
+            index = build(path, format);
+            if (index != null) {
+                CACHE.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    public static boolean isIndexable(String format) {
+        return "MP4".equals(format) || "MOV".equals(format) || "MKV".equals(format) || "WEBM".equals(format);
+    }
+
+    private static SeekIndex build(Path path, String format) throws IOException {
+        if ("MKV".equals(format) || "WEBM".equals(format)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return MatroskaCues.build(channel);
+            }
+        }
+        Mp4Track track = Mp4File.open(path).getPrimaryTrack();
+        int[] sync = track.getSyncSamples();
+        int count = sync == null ? track.getSampleCount() : sync.length;
+        long[] times = new long[count];
+        long[] offsets = new long[count];
+        int[] sizes = new int[count];
+        long timescale = track.getTimescale();
+        for (int i = 0; i < count; i++) {
+            int sample = sync == null ? i : sync[i];
+            times[i] = Math.max(0, track.getPresentationTime(sample)) * 1_000_000 / timescale;
+            offsets[i] = track.getSampleOffset(sample);
+            sizes[i] = track.getSampleSize(sample);
+        }
+        return new SeekIndex(times, offsets, sizes, track.getDurationInTimescale() * 1_000_000 / timescale);
+    }
+}
@@ -0,0 +1,99 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Growable big-endian buffer for writing nested ISO BMFF boxes.
+ *
+ * {@link #begin(String)} writes a placeholder size and {@link #end()} patches it
+ * once the box's children have been written.
+ */
+final class BoxWriter {
+    private ByteBuffer buffer;
+    private final Deque<Integer> open = new ArrayDeque<>();
+
+    BoxWriter(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    BoxWriter begin(String type) {
+        ensure(8);
+        open.push(buffer.position());
+        buffer.putInt(0).putInt(Boxes.fourcc(type));
+        return this;
+    }
+
+    /**
+     * Start a full box (version and flags follow the header)
+     */
+    BoxWriter beginFull(String type, int version, int flags) {
+        begin(type);
+        return putInt(version << 24 | (flags & 0xffffff));
+    }
+
+    BoxWriter end() {
+        int start = open.pop();
+        buffer.putInt(start, buffer.position() - start);
+        return this;
+    }
+
+    BoxWriter putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    BoxWriter putLong(long value) {
+        ensure(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    BoxWriter put(ByteBuffer source) {
+        ensure(source.remaining());
+        buffer.put(source.duplicate());
+        return this;
+    }
+
+    /**
+     * Append {@code length} bytes read from the file at {@code position}
+     */
+    BoxWriter read(FileChannel source, long position, int length) throws IOException {
+        ensure(length);
+        int limit = buffer.limit();
+        buffer.limit(buffer.position() + length);
+        Mp4File.readFully(source, buffer, position);
+        buffer.limit(limit);
+        return this;
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void patchInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    /**
+     * The written bytes, flipped for reading
+     */
+    ByteBuffer toBuffer() {
+        if (!open.isEmpty()) {
+            throw new IllegalStateException(open.size() + " box(es) still open");
+        }
+        return buffer.duplicate().flip();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+    }
+}
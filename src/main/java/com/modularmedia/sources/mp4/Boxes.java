@@ -0,0 +1,108 @@
+package com.modularmedia.sources.mp4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ISO BMFF box helpers over an in-memory box payload.
+ *
+ * A "raw" box is a slice covering the whole box, header included, and is what
+ * gets copied verbatim into generated files. A payload is the slice after the
+ * size/type header. Both are views, so nested boxes are parsed without copying.
+ */
+final class Boxes {
+    private Boxes() {
+    }
+
+    static int fourcc(String type) {
+        byte[] b = type.getBytes(StandardCharsets.US_ASCII);
+        return (b[0] & 0xff) << 24 | (b[1] & 0xff) << 16 | (b[2] & 0xff) << 8 | (b[3] & 0xff);
+    }
+
+    static String typeName(int type) {
+        return new String(new byte[] {(byte) (type >>> 24), (byte) (type >>> 16), (byte) (type >>> 8), (byte) type},
+                StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Every child box of the given payload, header included, in file order
+     */
+    static List<ByteBuffer> rawChildren(ByteBuffer parent) {
+        List<ByteBuffer> result = new ArrayList<>();
+        ByteBuffer scan = parent.duplicate();
+        while (scan.remaining() >= 8) {
+            int start = scan.position();
+            long size = scan.getInt() & 0xffffffffL;
+            scan.getInt();
+            if (size == 1) {
+                size = scan.getLong();
+            } else if (size == 0) {
+                size = scan.limit() - start;
+            }
+            if (size < 8 || start + size > scan.limit()) {
+                throw new IllegalArgumentException("Corrupt box at offset " + start);
+            }
+            result.add(scan.duplicate().position(start).limit(start + (int) size).slice());
+            scan.position(start + (int) size);
+        }
+        return result;
+    }
+
+    static String type(ByteBuffer rawBox) {
+        return typeName(rawBox.getInt(4));
+    }
+
+    static ByteBuffer payload(ByteBuffer rawBox) {
+        int header = (rawBox.getInt(0) == 1) ? 16 : 8;
+        return rawBox.duplicate().position(header).slice();
+    }
+
+    /**
+     * The first child box of the given type, header included, or null
+     */
+    static ByteBuffer rawChild(ByteBuffer parent, String type) {
+        for (ByteBuffer box : rawChildren(parent)) {
+            if (type(box).equals(type)) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Payload of the first child box of the given type, or null
+     */
+    static ByteBuffer child(ByteBuffer parent, String type) {
+        ByteBuffer box = rawChild(parent, type);
+        return box == null ? null : payload(box);
+    }
+
+    /**
+     * Payloads of every child box of the given type
+     */
+    static List<ByteBuffer> children(ByteBuffer parent, String type) {
+        List<ByteBuffer> result = new ArrayList<>();
+        for (ByteBuffer box : rawChildren(parent)) {
+            if (type(box).equals(type)) {
+                result.add(payload(box));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Payload of a nested box, e.g. {@code path(moov, "trak", "mdia", "mdhd")}, or null
+     */
+    static ByteBuffer path(ByteBuffer parent, String... types) {
+        ByteBuffer current = parent;
+        for (String type : types) {
+            current = child(current, type);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+}
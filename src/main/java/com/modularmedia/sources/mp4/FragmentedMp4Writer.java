@@ -0,0 +1,159 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Writes fragmented MP4: one init segment describing every packaged track and one
+ * {@code moof}+{@code mdat} fragment per media segment, with a {@code traf} per track.
+ *
+ * The init segment reuses the source tracks' header, edit-list and
+ * sample-description boxes verbatim with empty sample tables; keeping the edit
+ * list makes players apply the same start offsets, so A/V sync matches the
+ * progressive file. Fragment sample data is read straight from
+ * the source file in as few positioned reads as the chunk layout allows, one
+ * track after another in the {@code mdat}.
+ */
+final class FragmentedMp4Writer {
+    private static final int TRUN_DATA_OFFSET = 0x000001;
+    private static final int TRUN_SAMPLE_DURATION = 0x000100;
+    private static final int TRUN_SAMPLE_SIZE = 0x000200;
+    private static final int TRUN_SAMPLE_FLAGS = 0x000400;
+    private static final int TRUN_COMPOSITION_OFFSET = 0x000800;
+    private static final int TFHD_DEFAULT_BASE_IS_MOOF = 0x020000;
+    private static final int SYNC_SAMPLE_FLAGS = 0x02000000;
+    private static final int NON_SYNC_SAMPLE_FLAGS = 0x01010000;
+
+    private FragmentedMp4Writer() {
+    }
+
+    static ByteBuffer initSegment(Mp4File file, List<Mp4Track> tracks) {
+        int descriptions = 0;
+        for (Mp4Track track : tracks) {
+            descriptions += track.getBoxes().stsd.remaining();
+        }
+        BoxWriter out = new BoxWriter(1024 * tracks.size() + descriptions);
+        out.begin("ftyp").putInt(Boxes.fourcc("iso6")).putInt(0)
+                .putInt(Boxes.fourcc("iso6")).putInt(Boxes.fourcc("mp41")).end();
+        out.begin("moov");
+        if (file.getMovieHeader() != null) {
+            out.put(file.getMovieHeader());
+        }
+        for (Mp4Track track : tracks) {
+            Mp4Track.TrackBoxes boxes = track.getBoxes();
+            out.begin("trak").put(boxes.tkhd);
+            if (boxes.edts != null) {
+                out.put(boxes.edts);
+            }
+            out.begin("mdia").put(boxes.mdhd).put(boxes.hdlr);
+            out.begin("minf");
+            for (ByteBuffer header : boxes.minfHeaders) {
+                out.put(header);
+            }
+            out.begin("stbl").put(boxes.stsd);
+            out.beginFull("stts", 0, 0).putInt(0).end();
+            out.beginFull("stsc", 0, 0).putInt(0).end();
+            out.beginFull("stsz", 0, 0).putInt(0).putInt(0).end();
+            out.beginFull("stco", 0, 0).putInt(0).end();
+            out.end().end().end().end(); // stbl, minf, mdia, trak
+        }
+        out.begin("mvex");
+        for (Mp4Track track : tracks) {
+            out.beginFull("trex", 0, 0).putInt(track.getTrackId()).putInt(1).putInt(0).putInt(0).putInt(0).end();
+        }
+        out.end().end(); // mvex, moov
+        return out.toBuffer();
+    }
+
+    /**
+     * Build the fragment holding each run's samples; runs with no samples get no {@code traf}
+     *
+     * @param sequenceNumber 1-based fragment sequence number
+     */
+    static ByteBuffer mediaSegment(FileChannel source, List<Run> runs, int sequenceNumber) throws IOException {
+        long payloadSize = 0;
+        long tableSize = 0;
+        for (Run run : runs) {
+            for (int i = run.first; i < run.end; i++) {
+                payloadSize += run.track.getSampleSize(i);
+            }
+            tableSize += 128 + 16L * (run.end - run.first);
+        }
+        if (payloadSize > Integer.MAX_VALUE - 256 - tableSize) {
+            throw new IOException("Segment too large: " + payloadSize + " bytes");
+        }
+
+        BoxWriter out = new BoxWriter(256 + (int) tableSize + (int) payloadSize);
+        out.begin("moof");
+        out.beginFull("mfhd", 0, 0).putInt(sequenceNumber).end();
+        int[] dataOffsetFields = new int[runs.size()];
+        for (int r = 0; r < runs.size(); r++) {
+            Run run = runs.get(r);
+            Mp4Track track = run.track;
+            if (run.first >= run.end) {
+                dataOffsetFields[r] = -1;
+                continue;
+            }
+            out.begin("traf");
+            out.beginFull("tfhd", 0, TFHD_DEFAULT_BASE_IS_MOOF).putInt(track.getTrackId()).end();
+            out.beginFull("tfdt", 1, 0).putLong(track.getDecodeTime(run.first)).end();
+            int flags = TRUN_DATA_OFFSET | TRUN_SAMPLE_DURATION | TRUN_SAMPLE_SIZE | TRUN_SAMPLE_FLAGS
+                    | (track.hasCompositionOffsets() ? TRUN_COMPOSITION_OFFSET : 0);
+            out.beginFull("trun", 1, flags).putInt(run.end - run.first);
+            dataOffsetFields[r] = out.position();
+            out.putInt(0);
+            for (int i = run.first; i < run.end; i++) {
+                out.putInt((int) track.getSampleDuration(i));
+                out.putInt(track.getSampleSize(i));
+                out.putInt(track.isSyncSample(i) ? SYNC_SAMPLE_FLAGS : NON_SYNC_SAMPLE_FLAGS);
+                if (track.hasCompositionOffsets()) {
+                    out.putInt(track.getCompositionOffset(i));
+                }
+            }
+            out.end().end(); // trun, traf
+        }
+        out.end(); // moof
+
+        out.begin("mdat");
+        for (int r = 0; r < runs.size(); r++) {
+            if (dataOffsetFields[r] < 0) {
+                continue;
+            }
+            // Offsets are relative to the moof, which starts the fragment
+            out.patchInt(dataOffsetFields[r], out.position());
+            Run run = runs.get(r);
+            int i = run.first;
+            while (i < run.end) {
+                // Coalesce samples that sit back to back in the file into one read
+                long runStart = run.track.getSampleOffset(i);
+                long runEnd = runStart + run.track.getSampleSize(i);
+                int j = i + 1;
+                while (j < run.end && run.track.getSampleOffset(j) == runEnd) {
+                    runEnd += run.track.getSampleSize(j);
+                    j++;
+                }
+                out.read(source, runStart, (int) (runEnd - runStart));
+                i = j;
+            }
+        }
+        out.end();
+        return out.toBuffer();
+    }
+
+    /**
+     * Samples {@code [first, end)} of one track
+     */
+    static final class Run {
+        final Mp4Track track;
+        final int first;
+        final int end;
+
+        Run(Mp4Track track, int first, int end) {
+            this.track = track;
+            this.first = first;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Box-structure reader for progressive MP4 / MOV files.
+ *
+ * Top-level boxes are walked with small positioned reads, so {@code mdat} is
+ * skipped without being read; only {@code moov} is loaded and parsed into
+ * {@link Mp4Track} sample tables. Of an edit list only the start of the first
+ * media edit (after any leading empty edits) is applied, as a presentation
+ * offset; fragmented input is not interpreted. Table entry counts and sample
+ * indices are checked against the box sizes and the sample count, so a
+ * malformed file fails to open with an {@link IOException}.
+ */
+public final class Mp4File {
+    private static final long MAX_MOOV_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_SAMPLES = 50_000_000;
+
+    private final Path path;
+    private final ByteBuffer movieHeader;
+    private final List<Mp4Track> tracks;
+
+    private Mp4File(Path path, ByteBuffer movieHeader, List<Mp4Track> tracks) {
+        this.path = path;
+        this.movieHeader = movieHeader;
+        this.tracks = tracks;
+    }
+
+    /**
+     * Parse the box structure and sample tables of the file
+     *
+     * @throws IOException if the file cannot be read, has no usable {@code moov}
+     *         or no playable track, or its sample tables are malformed
+     */
+    public static Mp4File open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer moov = readTopLevelBox(channel, "moov");
+            if (moov == null) {
+                throw new IOException("No moov box in " + path);
+            }
+            try {
+                ByteBuffer mvhd = Boxes.rawChild(moov, "mvhd");
+                long movieTimescale = mvhd == null ? 0 : timescale(Boxes.payload(mvhd));
+                List<Mp4Track> tracks = new ArrayList<>();
+                for (ByteBuffer trak : Boxes.children(moov, "trak")) {
+                    Mp4Track track = parseTrack(trak, movieTimescale);
+                    if (track != null) {
+                        tracks.add(track);
+                    }
+                }
+                if (tracks.isEmpty()) {
+                    throw new IOException("No playable tracks in " + path);
+                }
+                return new Mp4File(path, mvhd, Collections.unmodifiableList(tracks));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | java.nio.BufferUnderflowException e) {
+                throw new IOException("Corrupt MP4 sample tables in " + path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Find a top-level box by walking headers only and load its payload
+     *
+     * @return the payload, or null if there is no such box
+     */
+    static ByteBuffer readTopLevelBox(FileChannel channel, String type) throws IOException {
+        int wanted = Boxes.fourcc(type);
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            header.clear();
+            readFully(channel, header.limit(16 <= fileSize - position ? 16 : 8), position);
+            long size = header.getInt(0) & 0xffffffffL;
+            int boxType = header.getInt(4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize) {
+                throw new IOException("Corrupt top-level box at offset " + position);
+            }
+            if (boxType == wanted) {
+                long payloadSize = size - headerSize;
+                if (payloadSize > MAX_MOOV_BYTES) {
+                    throw new IOException("'" + type + "' box too large: " + payloadSize + " bytes");
+                }
+                ByteBuffer payload = ByteBuffer.allocate((int) payloadSize);
+                readFully(channel, payload, position + headerSize);
+                return payload.flip();
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        long at = position;
+        while (target.hasRemaining()) {
+            int n = channel.read(target, at);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file at offset " + at);
+            }
+            at += n;
+        }
+    }
+
+    private static Mp4Track parseTrack(ByteBuffer trak, long movieTimescale) {
+        ByteBuffer tkhd = Boxes.rawChild(trak, "tkhd");
+        ByteBuffer mdia = Boxes.child(trak, "mdia");
+        if (tkhd == null || mdia == null) {
+            return null;
+        }
+        ByteBuffer mdhd = Boxes.rawChild(mdia, "mdhd");
+        ByteBuffer hdlr = Boxes.rawChild(mdia, "hdlr");
+        ByteBuffer minf = Boxes.child(mdia, "minf");
+        ByteBuffer stbl = minf == null ? null : Boxes.child(minf, "stbl");
+        if (mdhd == null || hdlr == null || stbl == null) {
+            return null;
+        }
+
+        ByteBuffer tkhdPayload = Boxes.payload(tkhd);
+        int trackId = tkhdPayload.getInt(tkhdPayload.get(0) == 1 ? 20 : 12);
+        long timescale = timescale(Boxes.payload(mdhd));
+        String handlerType = Boxes.typeName(Boxes.payload(hdlr).getInt(8));
+
+        List<ByteBuffer> minfHeaders = new ArrayList<>();
+        for (ByteBuffer box : Boxes.rawChildren(minf)) {
+            if (!"stbl".equals(Boxes.type(box))) {
+                minfHeaders.add(box);
+            }
+        }
+        ByteBuffer stsd = Boxes.rawChild(stbl, "stsd");
+        if (stsd == null || timescale == 0) {
+            return null;
+        }
+
+        int[] sizes = sampleSizes(Boxes.child(stbl, "stsz"));
+        int sampleCount = sizes.length;
+        long[] decodeTimes = new long[sampleCount];
+        long duration = decodeTimes(Boxes.child(stbl, "stts"), decodeTimes);
+        long[] offsets = sampleOffsets(Boxes.child(stbl, "stsc"), chunkOffsets(stbl), sizes);
+        int[] composition = compositionOffsets(Boxes.child(stbl, "ctts"), sampleCount);
+        int[] sync = syncSamples(Boxes.child(stbl, "stss"), sampleCount);
+        long editShift = editShift(Boxes.path(trak, "edts", "elst"), movieTimescale, timescale);
+
+        return new Mp4Track(trackId, handlerType, timescale, offsets, sizes, decodeTimes, composition, sync,
+                duration, editShift, new Mp4Track.TrackBoxes(tkhd, Boxes.rawChild(trak, "edts"), mdhd, hdlr, minfHeaders, stsd));
+    }
+
+    private static int[] sampleSizes(ByteBuffer stsz) {
+        if (stsz == null) {
+            throw new IllegalArgumentException("Missing stsz");
+        }
+        int uniformSize = stsz.getInt(4);
+        int count = uniformSize != 0 ? stsz.getInt(8) : entryCount(stsz, 8, 4, "stsz");
+        if (count < 0 || count > MAX_SAMPLES) {
+            throw new IllegalArgumentException("stsz lists " + count + " samples");
+        }
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = uniformSize != 0 ? uniformSize : stsz.getInt(12 + 4 * i);
+        }
+        return sizes;
+    }
+
+    /**
+     * Fill decode times from {@code stts} and return the track duration
+     */
+    private static long decodeTimes(ByteBuffer stts, long[] decodeTimes) {
+        if (stts == null) {
+            throw new IllegalArgumentException("Missing stts");
+        }
+        int entries = entryCount(stts, 4, 8, "stts");
+        long time = 0;
+        int sample = 0;
+        for (int e = 0; e < entries && sample < decodeTimes.length; e++) {
+            int count = stts.getInt(8 + 8 * e);
+            long delta = stts.getInt(12 + 8 * e) & 0xffffffffL;
+            for (int i = 0; i < count && sample < decodeTimes.length; i++) {
+                decodeTimes[sample++] = time;
+                time += delta;
+            }
+        }
+        return time;
+    }
+
+    private static long[] chunkOffsets(ByteBuffer stbl) {
+        ByteBuffer stco = Boxes.child(stbl, "stco");
+        if (stco != null) {
+            long[] offsets = new long[entryCount(stco, 4, 4, "stco")];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = stco.getInt(8 + 4 * i) & 0xffffffffL;
+            }
+            return offsets;
+        }
+        ByteBuffer co64 = Boxes.child(stbl, "co64");
+        if (co64 == null) {
+            throw new IllegalArgumentException("Missing stco/co64");
+        }
+        long[] offsets = new long[entryCount(co64, 4, 8, "co64")];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = co64.getLong(8 + 8 * i);
+        }
+        return offsets;
+    }
+
+    /**
+     * Resolve each sample's file offset from the sample-to-chunk runs
+     */
+    private static long[] sampleOffsets(ByteBuffer stsc, long[] chunkOffsets, int[] sizes) {
+        if (stsc == null) {
+            throw new IllegalArgumentException("Missing stsc");
+        }
+        long[] offsets = new long[sizes.length];
+        int entries = entryCount(stsc, 4, 12, "stsc");
+        int sample = 0;
+        for (int e = 0; e < entries; e++) {
+            int firstChunk = stsc.getInt(8 + 12 * e) - 1;
+            int samplesPerChunk = stsc.getInt(12 + 12 * e);
+            if (firstChunk < 0 || samplesPerChunk < 0) {
+                throw new IllegalArgumentException("Invalid stsc entry " + e);
+            }
+            int lastChunk = e + 1 < entries ? stsc.getInt(8 + 12 * (e + 1)) - 1 : chunkOffsets.length;
+            for (int chunk = firstChunk; chunk < lastChunk && chunk < chunkOffsets.length; chunk++) {
+                long offset = chunkOffsets[chunk];
+                for (int i = 0; i < samplesPerChunk && sample < sizes.length; i++) {
+                    offsets[sample] = offset;
+                    offset += sizes[sample];
+                    sample++;
+                }
+            }
+        }
+        if (sample < sizes.length) {
+            throw new IllegalArgumentException("stsc covers " + sample + " of " + sizes.length + " samples");
+        }
+        return offsets;
+    }
+
+    private static int[] compositionOffsets(ByteBuffer ctts, int sampleCount) {
+        if (ctts == null) {
+            return null;
+        }
+        int[] offsets = new int[sampleCount];
+        int entries = entryCount(ctts, 4, 8, "ctts");
+        int sample = 0;
+        for (int e = 0; e < entries && sample < sampleCount; e++) {
+            int count = ctts.getInt(8 + 8 * e);
+            int offset = ctts.getInt(12 + 8 * e);
+            for (int i = 0; i < count && sample < sampleCount; i++) {
+                offsets[sample++] = offset;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Timescale of an {@code mvhd} or {@code mdhd} payload
+     */
+    private static long timescale(ByteBuffer header) {
+        return header.getInt(header.get(0) == 1 ? 20 : 12) & 0xffffffffL;
+    }
+
+    /**
+     * Offset from composition time to presentation time set by the edit list:
+     * the leading empty edits delay the track, and the first media edit starts
+     * it at its media time
+     */
+    private static long editShift(ByteBuffer elst, long movieTimescale, long timescale) {
+        if (elst == null) {
+            return 0;
+        }
+        boolean v1 = elst.get(0) == 1;
+        int entrySize = v1 ? 20 : 12;
+        int entries = entryCount(elst, 4, entrySize, "elst");
+        long delay = 0;
+        for (int e = 0; e < entries; e++) {
+            int at = 8 + entrySize * e;
+            long segmentDuration = v1 ? elst.getLong(at) : elst.getInt(at) & 0xffffffffL;
+            long mediaTime = v1 ? elst.getLong(at + 8) : elst.getInt(at + 4);
+            if (mediaTime != -1) {
+                return (movieTimescale == 0 ? 0 : delay * timescale / movieTimescale) - mediaTime;
+            }
+            delay += segmentDuration;
+        }
+        return 0;
+    }
+
+    /**
+     * Zero-based sync sample indices, which must ascend and lie within the track
+     */
+    private static int[] syncSamples(ByteBuffer stss, int sampleCount) {
+        if (stss == null) {
+            return null;
+        }
+        int[] sync = new int[entryCount(stss, 4, 4, "stss")];
+        for (int i = 0; i < sync.length; i++) {
+            sync[i] = stss.getInt(8 + 4 * i) - 1;
+            if (sync[i] < 0 || sync[i] >= sampleCount || i > 0 && sync[i] <= sync[i - 1]) {
+                throw new IllegalArgumentException("stss entry " + (sync[i] + 1L) + " outside 1.." + sampleCount
+                        + " or out of order");
+            }
+        }
+        return sync;
+    }
+
+    /**
+     * Read a table's entry count, checking that the box holds that many entries
+     */
+    private static int entryCount(ByteBuffer table, int countOffset, int entryBytes, String type) {
+        int count = table.getInt(countOffset);
+        long available = (table.limit() - countOffset - 4L) / entryBytes;
+        if (count < 0 || count > available) {
+            throw new IllegalArgumentException(type + " lists " + (count & 0xffffffffL) + " entries but holds "
+                    + available);
+        }
+        return count;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public List<Mp4Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * The first video track, or the first track when there is no video
+     */
+    public Mp4Track getPrimaryTrack() {
+        for (Mp4Track track : tracks) {
+            if (track.isVideo()) {
+                return track;
+            }
+        }
+        if (tracks.isEmpty()) {
+            throw new IllegalStateException("No playable tracks in " + path);
+        }
+        return tracks.get(0);
+    }
+
+    ByteBuffer getMovieHeader() {
+        return movieHeader;
+    }
+}
@@ -0,0 +1,211 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.modularmedia.logging.EventLog;
+
+/**
+ * Packages a progressive MP4 as fragmented-MP4 HLS on the fly.
+ *
+ * Construction reads only the {@code moov} box and cuts the primary track into
+ * segments at the first keyframe at or after each target duration; the media
+ * playlist comes straight from those cut points. Segment bytes are produced on
+ * first request from positioned reads of just that segment's samples and then
+ * kept in a shared, byte-bounded {@link SegmentCache}, so working memory is the
+ * sample table plus the cache budget regardless of file size.
+ *
+ * Every video and audio track is muxed into the same fragments: each segment
+ * carries the other tracks' samples whose decode time falls in the primary
+ * track's span for that segment. Other tracks (hint, timecode, text) are not
+ * packaged.
+ */
+public class Mp4HlsSegmenter implements AutoCloseable {
+    public static final String INIT_SEGMENT = "init.mp4";
+
+    private final Mp4File file;
+    private final Mp4Track track;
+    private final List<Mp4Track> tracks;
+    private final FileChannel channel;
+    private final SegmentCache cache;
+    private final String cacheKeyPrefix;
+    private final int[] segmentStarts;
+    /** Per packaged track (primary first), the first sample of each segment */
+    private final int[][] trackStarts;
+    private volatile ByteBuffer initSegment;
+    private volatile String mediaPlaylist;
+
+    public Mp4HlsSegmenter(Path path, double targetDurationSeconds, SegmentCache cache) throws IOException {
+        this.file = Mp4File.open(path);
+        this.track = file.getPrimaryTrack();
+        this.cache = cache;
+        this.cacheKeyPrefix = path.toAbsolutePath() + "#";
+        this.segmentStarts = cutAtKeyframes(track, (long) (targetDurationSeconds * track.getTimescale()));
+        List<Mp4Track> packaged = new ArrayList<>();
+        packaged.add(track);
+        for (Mp4Track other : file.getTracks()) {
+            if (other != track && (other.isVideo() || other.isAudio()) && other.getSampleCount() > 0) {
+                packaged.add(other);
+            }
+        }
+        this.tracks = Collections.unmodifiableList(packaged);
+        this.trackStarts = new int[tracks.size()][];
+        trackStarts[0] = segmentStarts;
+        for (int t = 1; t < tracks.size(); t++) {
+            trackStarts[t] = alignTo(track, segmentStarts, tracks.get(t));
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        EventLog.debug("  → Segmented {} into {} fMP4 segments ({} tracks)", path, segmentStarts.length, tracks.size());
+    }
+
+    /**
+     * The first sample of another track in each segment: the first sample at or after
+     * the segment's start on the primary track, except that the first segment also
+     * takes anything before the primary track's first sample
+     */
+    private static int[] alignTo(Mp4Track primary, int[] segmentStarts, Mp4Track other) {
+        int[] starts = new int[segmentStarts.length];
+        for (int i = 1; i < segmentStarts.length; i++) {
+            long time = primary.getDecodeTime(segmentStarts[i]) * other.getTimescale() / primary.getTimescale();
+            starts[i] = other.sampleAtOrAfter(time);
+        }
+        return starts;
+    }
+
+    private static int[] cutAtKeyframes(Mp4Track track, long targetDuration) {
+        int samples = track.getSampleCount();
+        int[] sync = track.getSyncSamples();
+        int[] starts = new int[16];
+        int count = 0;
+        int segmentStart = 0;
+        starts[count++] = 0;
+        int candidates = sync == null ? samples : sync.length;
+        for (int c = 0; c < candidates; c++) {
+            int sample = sync == null ? c : sync[c];
+            if (sample <= segmentStart || sample >= samples) {
+                continue;
+            }
+            if (track.getDecodeTime(sample) - track.getDecodeTime(segmentStart) >= targetDuration) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = sample;
+                segmentStart = sample;
+            }
+        }
+        return samples == 0 ? new int[0] : Arrays.copyOf(starts, count);
+    }
+
+    public int getSegmentCount() {
+        return segmentStarts.length;
+    }
+
+    public double getSegmentDurationSeconds(int index) {
+        long start = track.getDecodeTime(segmentStarts[index]);
+        long end = index + 1 < segmentStarts.length
+                ? track.getDecodeTime(segmentStarts[index + 1])
+                : track.getDurationInTimescale();
+        return (double) (end - start) / track.getTimescale();
+    }
+
+    public static String segmentName(int index) {
+        return "seg" + index + ".m4s";
+    }
+
+    /**
+     * Parse a segment name produced by {@link #segmentName(int)}
+     *
+     * @return the index, or -1 if the name is not a segment of this segmenter
+     */
+    public int segmentIndex(String name) {
+        if (!name.startsWith("seg") || !name.endsWith(".m4s")) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(name.substring(3, name.length() - 4));
+            return index >= 0 && index < segmentStarts.length ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String getMediaPlaylist() {
+        String playlist = mediaPlaylist;
+        if (playlist == null) {
+            double longest = 0;
+            StringBuilder segments = new StringBuilder(segmentStarts.length * 32);
+            for (int i = 0; i < segmentStarts.length; i++) {
+                double duration = getSegmentDurationSeconds(i);
+                longest = Math.max(longest, duration);
+                segments.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", duration))
+                        .append(segmentName(i)).append('\n');
+            }
+            playlist = "#EXTM3U\n"
+                    + "#EXT-X-VERSION:7\n"
+                    + "#EXT-X-TARGETDURATION:" + (long) Math.ceil(longest) + "\n"
+                    + "#EXT-X-MEDIA-SEQUENCE:0\n"
+                    + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+                    + "#EXT-X-INDEPENDENT-SEGMENTS\n"
+                    + "#EXT-X-MAP:URI=\"" + INIT_SEGMENT + "\"\n"
+                    + segments
+                    + "#EXT-X-ENDLIST\n";
+            mediaPlaylist = playlist;
+        }
+        return playlist;
+    }
+
+    public ByteBuffer getInitSegment() {
+        ByteBuffer init = initSegment;
+        if (init == null) {
+            init = FragmentedMp4Writer.initSegment(file, tracks);
+            initSegment = init;
+        }
+        return init.asReadOnlyBuffer();
+    }
+
+    /**
+     * The fMP4 fragment for a segment, built on first request and then cached
+     */
+    public ByteBuffer getSegment(int index) throws IOException {
+        if (index < 0 || index >= segmentStarts.length) {
+            throw new IndexOutOfBoundsException("No segment " + index + " (" + segmentStarts.length + " segments)");
+        }
+        return cache.get(cacheKeyPrefix + index, () -> {
+            List<FragmentedMp4Writer.Run> runs = new ArrayList<>(tracks.size());
+            for (int t = 0; t < tracks.size(); t++) {
+                Mp4Track packaged = tracks.get(t);
+                int end = index + 1 < segmentStarts.length ? trackStarts[t][index + 1] : packaged.getSampleCount();
+                runs.add(new FragmentedMp4Writer.Run(packaged, trackStarts[t][index], end));
+            }
+            return FragmentedMp4Writer.mediaSegment(channel, runs, index + 1);
+        });
+    }
+
+    /**
+     * The primary track, whose keyframes the segments are cut at
+     */
+    public Mp4Track getTrack() {
+        return track;
+    }
+
+    /**
+     * Every packaged track, primary first
+     */
+    public List<Mp4Track> getTracks() {
+        return tracks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.invalidatePrefix(cacheKeyPrefix);
+        channel.close();
+    }
+}
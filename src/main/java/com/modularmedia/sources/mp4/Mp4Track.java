@@ -0,0 +1,177 @@
+package com.modularmedia.sources.mp4;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One track of an MP4 file with its sample table flattened into primitive arrays.
+ *
+ * Only the {@code moov} metadata is held; sample data stays in the file and is
+ * located through {@link #getSampleOffset(int)} and {@link #getSampleSize(int)}.
+ * The per-sample cost is a long, three ints and a bit, so even multi-hour
+ * recordings stay at a few megabytes.
+ */
+public final class Mp4Track {
+    private final int trackId;
+    private final String handlerType;
+    private final long timescale;
+    private final long[] sampleOffsets;
+    private final int[] sampleSizes;
+    private final long[] decodeTimes;
+    private final int[] compositionOffsets;
+    private final int[] syncSamples;
+    private final long durationInTimescale;
+    private final long editShift;
+    private final TrackBoxes boxes;
+
+    /**
+     * Boxes copied verbatim into a fragmented init segment; {@code edts} is null
+     * when the source track has no edit list
+     */
+    static final class TrackBoxes {
+        final ByteBuffer tkhd;
+        final ByteBuffer edts;
+        final ByteBuffer mdhd;
+        final ByteBuffer hdlr;
+        final List<ByteBuffer> minfHeaders;
+        final ByteBuffer stsd;
+
+        TrackBoxes(ByteBuffer tkhd, ByteBuffer edts, ByteBuffer mdhd, ByteBuffer hdlr, List<ByteBuffer> minfHeaders,
+                   ByteBuffer stsd) {
+            this.tkhd = tkhd;
+            this.edts = edts;
+            this.mdhd = mdhd;
+            this.hdlr = hdlr;
+            this.minfHeaders = minfHeaders;
+            this.stsd = stsd;
+        }
+    }
+
+    Mp4Track(int trackId, String handlerType, long timescale, long[] sampleOffsets, int[] sampleSizes,
+             long[] decodeTimes, int[] compositionOffsets, int[] syncSamples, long durationInTimescale,
+             long editShift, TrackBoxes boxes) {
+        this.trackId = trackId;
+        this.handlerType = handlerType;
+        this.timescale = timescale;
+        this.sampleOffsets = sampleOffsets;
+        this.sampleSizes = sampleSizes;
+        this.decodeTimes = decodeTimes;
+        this.compositionOffsets = compositionOffsets;
+        this.syncSamples = syncSamples;
+        this.durationInTimescale = durationInTimescale;
+        this.editShift = editShift;
+        this.boxes = boxes;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    /**
+     * ISO handler type: {@code vide}, {@code soun}, {@code text}, ...
+     */
+    public String getHandlerType() {
+        return handlerType;
+    }
+
+    public boolean isVideo() {
+        return "vide".equals(handlerType);
+    }
+
+    public boolean isAudio() {
+        return "soun".equals(handlerType);
+    }
+
+    public long getTimescale() {
+        return timescale;
+    }
+
+    public int getSampleCount() {
+        return sampleSizes.length;
+    }
+
+    public long getSampleOffset(int sample) {
+        return sampleOffsets[sample];
+    }
+
+    public int getSampleSize(int sample) {
+        return sampleSizes[sample];
+    }
+
+    /**
+     * Decode timestamp of a sample, in track timescale units
+     */
+    public long getDecodeTime(int sample) {
+        return decodeTimes[sample];
+    }
+
+    /**
+     * Duration of a sample; the last sample runs to the end of the track
+     */
+    public long getSampleDuration(int sample) {
+        long next = sample + 1 < decodeTimes.length ? decodeTimes[sample + 1] : durationInTimescale;
+        return next - decodeTimes[sample];
+    }
+
+    public int getCompositionOffset(int sample) {
+        return compositionOffsets == null ? 0 : compositionOffsets[sample];
+    }
+
+    public boolean hasCompositionOffsets() {
+        return compositionOffsets != null;
+    }
+
+    /**
+     * Presentation timestamp of a sample, in track timescale units: the decode
+     * time plus its composition offset, moved by the track's edit list
+     */
+    public long getPresentationTime(int sample) {
+        return decodeTimes[sample] + getCompositionOffset(sample) + editShift;
+    }
+
+    /**
+     * Check whether a sample is a sync sample (keyframe); with no {@code stss}
+     * box every sample is a sync sample
+     */
+    public boolean isSyncSample(int sample) {
+        return syncSamples == null || Arrays.binarySearch(syncSamples, sample) >= 0;
+    }
+
+    /**
+     * Zero-based sync sample indices in ascending order, or null when every sample is one
+     */
+    public int[] getSyncSamples() {
+        return syncSamples;
+    }
+
+    /**
+     * The first sample whose decode time is at or after the given time
+     *
+     * @param time in track timescale units
+     * @return the sample index, or the sample count if every sample is earlier
+     */
+    public int sampleAtOrAfter(long time) {
+        int index = Arrays.binarySearch(decodeTimes, time);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Zero-duration samples share a decode time; start at the first of them
+        while (index > 0 && decodeTimes[index - 1] == time) {
+            index--;
+        }
+        return index;
+    }
+
+    public long getDurationInTimescale() {
+        return durationInTimescale;
+    }
+
+    public double getDurationSeconds() {
+        return (double) durationInTimescale / timescale;
+    }
+
+    TrackBoxes getBoxes() {
+        return boxes;
+    }
+}
@@ -0,0 +1,180 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import com.modularmedia.memory.MemoryBudget;
+import com.modularmedia.metrics.PlaybackMetrics;
+import com.modularmedia.metrics.PlaybackMetrics.CacheResult;
+
+/**
+ * Byte-bounded LRU cache of generated segments shared by every segmenter.
+ *
+ * Concurrent requests for a segment that is not cached yet wait for a single
+ * build instead of each packaging it again. Cached buffers are handed out as
+ * read-only views so callers cannot disturb each other's positions.
+ *
+ * Cached bytes are reserved against the {@link MemoryBudget}: a segment the budget
+ * cannot take is served uncached, and at {@code HIGH} pressure the colder half
+ * of the cache is evicted. {@link #close()} detaches the cache from the budget
+ * and gives its reservation back; a closed cache still serves, but uncached.
+ */
+public final class SegmentCache implements AutoCloseable {
+    /**
+     * Builds a segment on a cache miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+        ByteBuffer load() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<ByteBuffer>> inFlight = new ConcurrentHashMap<>();
+    private long usedBytes;
+    private boolean closed;
+    private final MemoryBudget budget;
+    private final MemoryBudget.Account heapAccount;
+    private final MemoryBudget.Account directAccount;
+    private final MemoryBudget.PressureListener pressureListener = pressure -> {
+        if (pressure.compareTo(MemoryBudget.Pressure.HIGH) >= 0) {
+            trimTo(getUsedBytes() / 2);
+        }
+    };
+
+    public SegmentCache(long maxBytes) {
+        this(maxBytes, MemoryBudget.global());
+    }
+
+    public SegmentCache(long maxBytes, MemoryBudget budget) {
+        this(maxBytes, budget, "mp4.segments");
+    }
+
+    /**
+     * Create a cache whose bytes are reported under the given budget component
+     */
+    public SegmentCache(long maxBytes, MemoryBudget budget, String component) {
+        this.maxBytes = maxBytes;
+        this.budget = budget;
+        this.heapAccount = budget.account(component, MemoryBudget.Kind.HEAP);
+        this.directAccount = budget.account(component, MemoryBudget.Kind.DIRECT);
+        budget.addListener(pressureListener);
+    }
+
+    public ByteBuffer get(String key, Loader loader) throws IOException {
+        synchronized (this) {
+            ByteBuffer cached = entries.get(key);
+            if (cached != null) {
+                PlaybackMetrics.recordCacheAccess("segments", key, CacheResult.HIT);
+                return cached.asReadOnlyBuffer();
+            }
+        }
+        CompletableFuture<ByteBuffer> mine = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> pending = inFlight.putIfAbsent(key, mine);
+        if (pending != null) {
+            return await(pending);
+        }
+        PlaybackMetrics.recordCacheAccess("segments", key, CacheResult.MISS);
+        try {
+            ByteBuffer built = loader.load();
+            put(key, built);
+            mine.complete(built);
+            return built.asReadOnlyBuffer();
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public synchronized void invalidatePrefix(String prefix) {
+        Iterator<Map.Entry<String, ByteBuffer>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, ByteBuffer> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                forget(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Evict least recently used segments until at most {@code targetBytes} remain
+     */
+    public synchronized void trimTo(long targetBytes) {
+        Iterator<ByteBuffer> eldest = entries.values().iterator();
+        while (usedBytes > targetBytes && eldest.hasNext()) {
+            forget(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Stop listening for memory pressure, drop every cached segment and release
+     * their reservation
+     */
+    @Override
+    public void close() {
+        budget.removeListener(pressureListener);
+        synchronized (this) {
+            closed = true;
+            trimTo(0);
+        }
+    }
+
+    private synchronized void put(String key, ByteBuffer segment) {
+        long size = segment.capacity();
+        if (closed || size > maxBytes || !account(segment).tryReserve(size)) {
+            return;
+        }
+        ByteBuffer previous = entries.put(key, segment);
+        if (previous != null) {
+            forget(previous);
+        }
+        usedBytes += size;
+        trimTo(maxBytes);
+    }
+
+    private void forget(ByteBuffer segment) {
+        usedBytes -= segment.capacity();
+        account(segment).release(segment.capacity());
+    }
+
+    private MemoryBudget.Account account(ByteBuffer segment) {
+        return segment.isDirect() ? directAccount : heapAccount;
+    }
+
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> pending) throws IOException {
+        try {
+            return pending.get().asReadOnlyBuffer();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for segment", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.modularmedia.audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.memory.MemoryBudget;
+
+class FloatBufferPoolTest {
+    private final MemoryBudget budget = new MemoryBudget(1 << 24, 1 << 24);
+    private final FloatBufferPool pool = new FloatBufferPool(4, budget.account("test.audio", MemoryBudget.Kind.HEAP));
+
+    @Test
+    void releasedArraysAreReused() {
+        float[] array = pool.acquire(1000);
+        pool.release(array);
+
+        assertSame(array, pool.acquire(1024));
+        assertEquals(1024L * Float.BYTES, budget.getHeapUsedBytes());
+    }
+
+    @Test
+    void foreignArraysAreIgnored() {
+        pool.release(new float[1024]);
+
+        assertEquals(0, pool.trimIdle());
+        assertEquals(0, budget.getHeapUsedBytes());
+    }
+
+    @Test
+    void doubleReleaseIsIgnored() {
+        float[] array = pool.acquire(1024);
+        pool.release(array);
+        pool.release(array);
+
+        assertSame(array, pool.acquire(1024));
+        assertNotSame(array, pool.acquire(1024));
+        assertEquals(2048L * Float.BYTES, budget.getHeapUsedBytes());
+    }
+}
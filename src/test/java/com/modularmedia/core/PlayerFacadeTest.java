@@ -0,0 +1,120 @@
+package com.modularmedia.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.playlist.Playlist;
+import com.modularmedia.renderers.Renderer;
+
+class PlayerFacadeTest {
+    private static final Renderer SILENT = new Renderer() {
+        @Override
+        public void render(String content) {
+        }
+
+        @Override
+        public String getRendererInfo() {
+            return "silent";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void initialize() {
+        }
+    };
+
+    /** Blocks in play() until interrupted, as a long stream would */
+    private static final class BlockingItem implements Media {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger plays = new AtomicInteger();
+        private volatile boolean interrupted;
+
+        @Override
+        public void play() {
+            plays.incrementAndGet();
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean awaitStart() throws InterruptedException {
+            return started.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static PlayerFacade playerOf(Media... items) {
+        Playlist playlist = new Playlist("test");
+        for (Media item : items) {
+            playlist.add(item);
+        }
+        PlayerFacade player = new PlayerFacade(SILENT);
+        player.load(playlist);
+        return player;
+    }
+
+    @Test
+    void stopInterruptsTheItemPlaying() throws Exception {
+        BlockingItem item = new BlockingItem();
+        PlayerFacade player = playerOf(item);
+        player.playAsync().get(5, TimeUnit.SECONDS);
+        assertTrue(item.awaitStart());
+
+        player.stop();
+        player.stopAsync().get(5, TimeUnit.SECONDS);
+
+        assertTrue(item.interrupted);
+        assertFalse(player.isPlaying());
+    }
+
+    @Test
+    void pausedItemPlaysAgainOnResume() throws Exception {
+        BlockingItem item = new BlockingItem();
+        PlayerFacade player = playerOf(item);
+        player.playAsync().get(5, TimeUnit.SECONDS);
+        assertTrue(item.awaitStart());
+
+        player.pauseAsync().get(5, TimeUnit.SECONDS);
+
+        assertTrue(player.isPaused());
+        assertEquals(0, player.getCurrentItemIndex());
+        assertEquals(1, item.plays.get());
+
+        player.resumeAsync().get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 100 && item.plays.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, item.plays.get());
+        player.stopAsync().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void seekInterruptsTheItemPlaying() throws Exception {
+        BlockingItem first = new BlockingItem();
+        BlockingItem second = new BlockingItem();
+        PlayerFacade player = playerOf(first, second);
+        player.playAsync().get(5, TimeUnit.SECONDS);
+        assertTrue(first.awaitStart());
+
+        player.seekAsync(1).get(5, TimeUnit.SECONDS);
+
+        assertTrue(second.awaitStart());
+        assertTrue(first.interrupted);
+        player.stopAsync().get(5, TimeUnit.SECONDS);
+        assertTrue(second.interrupted);
+    }
+}
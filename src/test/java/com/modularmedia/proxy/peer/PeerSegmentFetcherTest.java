@@ -0,0 +1,154 @@
+package com.modularmedia.proxy.peer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.sources.hls.DirectBufferPool;
+import com.modularmedia.sources.hls.HttpSegmentFetcher;
+import com.modularmedia.testing.StandInServer;
+
+class PeerSegmentFetcherTest {
+    private static final byte[] SEGMENT = "peer-segment".getBytes(StandardCharsets.US_ASCII);
+    private static final String SECRET = "test-cluster-secret";
+
+    private final DirectBufferPool pool = new DirectBufferPool(4);
+    private StandInServer origin;
+    private String nodeA;
+    private String nodeB;
+    private PeerSegmentFetcher tierA;
+    private PeerSegmentFetcher tierB;
+
+    @BeforeEach
+    void startOrigin() throws IOException {
+        origin = StandInServer.serving(SEGMENT, 0);
+        nodeA = "127.0.0.1:" + freePort();
+        nodeB = "127.0.0.1:" + freePort();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (tierA != null) {
+            tierA.close();
+        }
+        if (tierB != null) {
+            tierB.close();
+        }
+        origin.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private PeerSegmentFetcher join(String self, List<URI> origins) throws IOException {
+        return new PeerSegmentFetcher(new HttpSegmentFetcher(),
+                new PeerCluster(self, List.of(nodeA, nodeB), origins, SECRET), 1 << 20);
+    }
+
+    /** A segment URI on the stand-in origin that the given node owns */
+    private URI ownedBy(PeerCluster cluster, String node) {
+        for (int i = 0; ; i++) {
+            URI uri = origin.uri("/live/seg" + i + ".ts");
+            if (cluster.owner(uri.toString()).equals(node)) {
+                return uri;
+            }
+        }
+    }
+
+    private byte[] fetch(PeerSegmentFetcher tier, URI uri) throws Exception {
+        ByteBuffer body = tier.fetch(uri, pool).get(10, TimeUnit.SECONDS);
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        pool.release(body);
+        return bytes;
+    }
+
+    @Test
+    void segmentsOwnedByAPeerLeaveTheOriginOnce() throws Exception {
+        tierA = join(nodeA, List.of(origin.origin()));
+        tierB = join(nodeB, List.of(origin.origin()));
+        URI segment = ownedBy(tierA.getCluster(), nodeB);
+
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+
+        assertEquals(2, tierA.getPeerFetches());
+        assertEquals(0, tierA.getOriginFetches());
+        assertEquals(2, tierB.getServedToPeers());
+        assertEquals(1, origin.getRequestCount());
+    }
+
+    @Test
+    void segmentsOutsideTheOriginListSkipThePeers() throws Exception {
+        tierA = join(nodeA, List.of());
+        tierB = join(nodeB, List.of());
+        URI segment = ownedBy(tierA.getCluster(), nodeB);
+
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+
+        assertEquals(0, tierA.getPeerFetches());
+        assertEquals(1, tierA.getOriginFetches());
+        assertEquals(0, tierB.getServedToPeers());
+    }
+
+    @Test
+    void refusalFallsBackToOrigin() throws Exception {
+        // B was configured without the origin A routes to it, so B refuses
+        tierA = join(nodeA, List.of(origin.origin()));
+        tierB = join(nodeB, List.of());
+        URI segment = ownedBy(tierA.getCluster(), nodeB);
+
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+
+        assertEquals(1, tierA.getOriginFetches());
+        assertEquals(0, tierA.getPeerFailures());
+        assertEquals(0, tierB.getServedToPeers());
+        assertEquals(1, origin.getRequestCount());
+    }
+
+    @Test
+    void unreachablePeerFallsBackToOrigin() throws Exception {
+        tierA = join(nodeA, List.of(origin.origin()));
+        URI segment = ownedBy(tierA.getCluster(), nodeB);
+
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+        assertArrayEquals(SEGMENT, fetch(tierA, segment));
+
+        assertEquals(1, tierA.getPeerFailures());
+        assertEquals(2, tierA.getOriginFetches());
+    }
+
+    @Test
+    void originErrorOnTheOwnerIsPassedOn() throws Exception {
+        origin.close();
+        origin = StandInServer.failing(404, 0);
+        tierA = join(nodeA, List.of(origin.origin()));
+        tierB = join(nodeB, List.of(origin.origin()));
+        URI segment = ownedBy(tierA.getCluster(), nodeB);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> tierA.fetch(segment, pool).get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, thrown.getCause());
+        assertEquals(1, origin.getRequestCount());
+        assertEquals(0, tierA.getOriginFetches());
+    }
+}
@@ -0,0 +1,143 @@
+package com.modularmedia.renderers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RendererPoolTest {
+    /** Records what each session rendered, in order; content is {@code session:n} */
+    private static final class RecordingRenderer implements Renderer {
+        private final Map<String, List<Integer>> seen;
+        private final CountDownLatch gate;
+
+        RecordingRenderer(Map<String, List<Integer>> seen, CountDownLatch gate) {
+            this.seen = seen;
+            this.gate = gate;
+        }
+
+        @Override
+        public void render(String content) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String[] parts = content.split(":");
+            seen.computeIfAbsent(parts[0], k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(parts[1]));
+        }
+
+        @Override
+        public String getRendererInfo() {
+            return "recording";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void initialize() {
+        }
+    }
+
+    private static List<String> sessionsHomedAt(RendererPool pool, int worker, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; i++) {
+            if (pool.homeWorker("session-" + i) == worker) {
+                ids.add("session-" + i);
+            }
+        }
+        return ids;
+    }
+
+    private static void assertInOrder(Map<String, List<Integer>> seen, String session, int count) {
+        List<Integer> rendered = seen.get(session);
+        assertEquals(count, rendered.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, rendered.get(i), session + " rendered out of order");
+        }
+    }
+
+    @Test
+    void stolenSessionsRenderInSubmissionOrder() throws Exception {
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        RendererPool pool = new RendererPool(4, () -> new RecordingRenderer(seen, new CountDownLatch(0)), 100_000);
+        try {
+            List<String> ids = sessionsHomedAt(pool, 0, 6);
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int n = 0; n < 1_000; n++) {
+                for (String id : ids) {
+                    done.add(pool.submit(id, id + ":" + n));
+                }
+            }
+            CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+            for (String id : ids) {
+                assertInOrder(seen, id, 1_000);
+            }
+            assertTrue(pool.getStolenCount() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void releasedSessionKeepsOrderUntilDrained() throws Exception {
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch gate = new CountDownLatch(1);
+        RendererPool pool = new RendererPool(4, () -> new RecordingRenderer(seen, gate), 1_000);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int n = 0; n < 50; n++) {
+                done.add(pool.submit("viewer", "viewer:" + n));
+            }
+            pool.release("viewer");
+            for (int n = 50; n < 100; n++) {
+                done.add(pool.submit("viewer", "viewer:" + n));
+            }
+            assertEquals(1, pool.getSessionCount());
+            gate.countDown();
+            CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+            assertInOrder(seen, "viewer", 100);
+            for (int i = 0; i < 50 && pool.getSessionCount() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, pool.getSessionCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownFailsPendingTasksOfReleasedSessions() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        RendererPool pool = new RendererPool(1, () -> new RecordingRenderer(new ConcurrentHashMap<>(), gate), 100);
+        CompletableFuture<Void> running = pool.submit("viewer", "viewer:0");
+        CompletableFuture<Void> queued = pool.submit("viewer", "viewer:1");
+        pool.release("viewer");
+
+        pool.shutdown();
+        gate.countDown();
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+        running.handle((result, error) -> null).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,42 @@
+package com.modularmedia.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+    private static final long LENGTH = 100;
+
+    private static void assertRange(long start, long end, String header) {
+        ByteRange range = ByteRange.parse(header, LENGTH);
+        assertEquals(start, range.getStart(), header);
+        assertEquals(end, range.getEnd(), header);
+    }
+
+    @Test
+    void validRangesAreClampedToTheResource() {
+        assertRange(0, 9, "bytes=0-9");
+        assertRange(90, 99, "bytes=90-");
+        assertRange(50, 99, "bytes=50-1000");
+        assertRange(80, 99, "bytes=-20");
+        assertRange(0, 99, "bytes=-1000");
+        assertRange(5, 5, "bytes=5-5, 10-20");
+    }
+
+    @Test
+    void invalidSyntaxIsMalformed() {
+        for (String header : new String[] {"bytes=5-3", "bytes=5--3", "bytes=--5", "bytes=5", "bytes=a-b",
+                "items=0-9"}) {
+            assertThrows(IllegalArgumentException.class, () -> ByteRange.parse(header, LENGTH), header);
+        }
+    }
+
+    @Test
+    void onlyRangesStartingPastTheEndAreUnsatisfiable() {
+        assertNull(ByteRange.parse("bytes=100-", LENGTH));
+        assertNull(ByteRange.parse("bytes=150-200", LENGTH));
+        assertNull(ByteRange.parse("bytes=-0", LENGTH));
+    }
+}
@@ -0,0 +1,31 @@
+package com.modularmedia.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class HttpRequestHeadTest {
+    private static HttpRequestHead read(String head) throws IOException {
+        return HttpRequestHead.read(new ByteArrayInputStream(head.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void headerNamesIgnoreTheDefaultLocale() throws IOException {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            HttpRequestHead request = read("GET /a.mp4 HTTP/1.1\r\nRANGE: bytes=0-9\r\nCONNECTION: CLOSE\r\n\r\n");
+
+            assertEquals("bytes=0-9", request.getHeader("range"));
+            assertFalse(request.isKeepAlive());
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.modularmedia.sources;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.sources.hls.SegmentFetcher;
+
+class HLSStreamAdapterTest {
+    private static SegmentFetcher serving(String playlist) {
+        return uri -> CompletableFuture.completedFuture(ByteBuffer.wrap(playlist.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void sampleAesIsRejectedAtLoad() {
+        String playlist = "#EXTM3U\n#EXT-X-TARGETDURATION:6\n"
+                + "#EXT-X-KEY:METHOD=SAMPLE-AES,URI=\"key.bin\",KEYFORMAT=\"identity\"\n"
+                + "#EXTINF:6.0,\ns0.ts\n#EXT-X-ENDLIST\n";
+        HLSStreamAdapter adapter = new HLSStreamAdapter("https://cdn.example/sample-aes.m3u8", serving(playlist));
+
+        UncheckedIOException thrown = assertThrows(UncheckedIOException.class, adapter::load);
+
+        IOException cause = assertInstanceOf(IOException.class, thrown.getCause());
+        assertTrue(cause.getMessage().contains("SAMPLE-AES"), cause.getMessage());
+    }
+
+    @Test
+    void encryptedLowLatencyStreamIsRejectedAtLoad() {
+        String playlist = "#EXTM3U\n#EXT-X-TARGETDURATION:4\n#EXT-X-PART-INF:PART-TARGET=1.0\n"
+                + "#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES,PART-HOLD-BACK=3.0\n"
+                + "#EXT-X-KEY:METHOD=AES-128,URI=\"key.bin\"\n"
+                + "#EXTINF:4.0,\ns0.ts\n"
+                + "#EXT-X-PART:DURATION=1.0,URI=\"s1.p0.mp4\"\n";
+        HLSStreamAdapter adapter = new HLSStreamAdapter("https://cdn.example/ll.m3u8", serving(playlist));
+
+        UncheckedIOException thrown = assertThrows(UncheckedIOException.class, adapter::load);
+
+        assertTrue(thrown.getCause().getMessage().contains("low-latency"), thrown.getCause().getMessage());
+    }
+
+    @Test
+    void aes128VodLoads() {
+        String playlist = "#EXTM3U\n#EXT-X-TARGETDURATION:6\n"
+                + "#EXT-X-KEY:METHOD=AES-128,URI=\"key.bin\"\n"
+                + "#EXTINF:6.0,\ns0.ts\n#EXT-X-ENDLIST\n";
+        HLSStreamAdapter adapter = new HLSStreamAdapter("https://cdn.example/aes.m3u8", serving(playlist));
+
+        adapter.load();
+
+        assertTrue(adapter.isReady());
+    }
+}
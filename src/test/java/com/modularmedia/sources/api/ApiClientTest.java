@@ -0,0 +1,198 @@
+package com.modularmedia.sources.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.testing.StandInServer;
+
+import com.sun.net.httpserver.HttpExchange;
+
+class ApiClientTest {
+    private static final String API_KEY = "test-key";
+
+    private final AtomicInteger tokensIssued = new AtomicInteger();
+    /** Tokens the media endpoint accepts; a token issued while this is false is rejected with 401 */
+    private final Set<String> validTokens = ConcurrentHashMap.newKeySet();
+    private final List<String> mediaQueries = new ArrayList<>();
+    private volatile boolean acceptNewTokens = true;
+    private volatile String tokenLifetime = "60";
+    private StandInServer api;
+
+    @AfterEach
+    void stop() {
+        if (api != null) {
+            api.close();
+        }
+    }
+
+    /** Stand-in for the media API: issues {@code t1}, {@code t2}, ... and knows IDs starting with "known" */
+    private ApiClient start() throws IOException {
+        api = StandInServer.start(this::handle);
+        return new ApiClient(api.origin(), API_KEY);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // The stand-in server may drop idle connections the client would otherwise reuse
+        exchange.getResponseHeaders().set("Connection", "close");
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/auth/token")) {
+            if (!API_KEY.equals(exchange.getRequestHeaders().getFirst("X-Api-Key"))) {
+                StandInServer.respond(exchange, 403, new byte[0]);
+                return;
+            }
+            String token = "t" + tokensIssued.incrementAndGet();
+            if (acceptNewTokens) {
+                validTokens.add(token);
+            }
+            StandInServer.respond(exchange, 200, (token + " " + tokenLifetime).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !validTokens.contains(authorization.substring("Bearer ".length()))) {
+            StandInServer.respond(exchange, 401, new byte[0]);
+            return;
+        }
+        String ids = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("ids=".length()),
+                StandardCharsets.UTF_8);
+        synchronized (mediaQueries) {
+            mediaQueries.add(ids);
+        }
+        StringBuilder body = new StringBuilder();
+        for (String id : ids.split(",")) {
+            if (id.startsWith("known")) {
+                body.append(id).append('\t').append("Title ").append(id).append("\t42.5\thttps://cdn.example/")
+                        .append(id).append(".m3u8\n");
+            }
+        }
+        StandInServer.respond(exchange, 200, body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MediaMetadata await(CompletableFuture<MediaMetadata> lookup) throws Exception {
+        return lookup.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void concurrentLookupsShareOneBatchAndOneToken() throws Exception {
+        ApiClient client = start();
+        List<CompletableFuture<MediaMetadata>> lookups = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lookups.add(client.metadata("known-batch-" + i));
+        }
+        CompletableFuture<MediaMetadata> duplicate = client.metadata("known-batch-0");
+        CompletableFuture<MediaMetadata> unknown = client.metadata("missing-batch");
+
+        for (int i = 0; i < 5; i++) {
+            MediaMetadata metadata = await(lookups.get(i));
+            assertEquals("known-batch-" + i, metadata.getMediaId());
+            assertEquals(42.5, metadata.getDurationSeconds());
+        }
+        assertEquals("known-batch-0", await(duplicate).getMediaId());
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> await(unknown));
+        assertInstanceOf(NoSuchElementException.class, thrown.getCause());
+
+        assertEquals(1, client.getBatchCount());
+        assertEquals(1, mediaQueries.size());
+        assertEquals(6, mediaQueries.get(0).split(",").length);
+        assertEquals(1, client.getTokenFetchCount());
+        assertEquals(2, client.getRequestCount());
+    }
+
+    @Test
+    void rejectedTokenIsRefreshedAndTheCallRetried() throws Exception {
+        ApiClient client = start();
+        assertEquals("known-a", await(client.metadata("known-a")).getMediaId());
+
+        // The server revokes t1; the next call gets 401, fetches t2 and retries
+        validTokens.clear();
+        assertEquals("known-b", await(client.metadata("known-b")).getMediaId());
+
+        assertEquals(2, client.getTokenFetchCount());
+        assertEquals(2, tokensIssued.get());
+        assertEquals(5, client.getRequestCount());
+    }
+
+    @Test
+    void repeatedRejectionFailsTheCall() throws Exception {
+        ApiClient client = start();
+        acceptNewTokens = false;
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> await(client.metadata("known-c")));
+
+        assertInstanceOf(IOException.class, thrown.getCause());
+        assertTrue(thrown.getCause().getMessage().contains("401"), thrown.getCause().getMessage());
+        assertEquals(2, client.getTokenFetchCount());
+    }
+
+    @Test
+    void tokenIsRenewedBeforeItExpires() throws Exception {
+        tokenLifetime = "0.25";
+        ApiClient client = start();
+        assertEquals("known-d", await(client.metadata("known-d")).getMediaId());
+
+        // Renewal runs at 80% of the lifetime, without waiting for a request
+        for (int i = 0; i < 100 && tokensIssued.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(tokensIssued.get() >= 2, "token was not renewed");
+
+        // Let the next renewal bring a long-lived token so renewals stop before the server does
+        tokenLifetime = "3600";
+        int issued = tokensIssued.get();
+        for (int i = 0; i < 100 && tokensIssued.get() == issued; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void expiredTokenIsFetchedAgain() throws Exception {
+        api = StandInServer.start(this::handle);
+        ApiClient client = new ApiClient(api.origin(), API_KEY);
+        tokenLifetime = "0.05";
+        ScheduledExecutorService stalled = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        // Hold the scheduler so no renewal runs and only expiry can trigger a fetch
+        stalled.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            TokenCache tokens = new TokenCache(client, API_KEY, stalled);
+            assertEquals("t1", tokens.get().get(10, TimeUnit.SECONDS));
+            assertEquals("t1", tokens.get().get(10, TimeUnit.SECONDS));
+
+            Thread.sleep(100);
+
+            assertEquals("t2", tokens.get().get(10, TimeUnit.SECONDS));
+            assertEquals(2, tokens.getFetchCount());
+        } finally {
+            release.countDown();
+            stalled.shutdownNow();
+        }
+    }
+}
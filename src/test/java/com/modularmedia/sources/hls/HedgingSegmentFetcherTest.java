@@ -0,0 +1,126 @@
+package com.modularmedia.sources.hls;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.testing.StandInServer;
+
+class HedgingSegmentFetcherTest {
+    private static final byte[] SEGMENT = "segment-bytes".getBytes(StandardCharsets.US_ASCII);
+    /** Hedge delay while fewer than 20 latencies have been recorded */
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 250;
+
+    private static HedgingSegmentFetcher hedging(StandInServer... origins) {
+        HedgingSegmentFetcher fetcher = new HedgingSegmentFetcher(new HttpSegmentFetcher());
+        fetcher.addMirrors(List.of(origins[0].origin(), origins[1].origin()));
+        return fetcher;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void slowMirrorAnswersWhenTheOtherFails() throws Exception {
+        try (StandInServer slow = StandInServer.serving(SEGMENT, DEFAULT_HEDGE_DELAY_MILLIS + 150);
+             StandInServer failing = StandInServer.failing(503, 50)) {
+            HedgingSegmentFetcher fetcher = hedging(slow, failing);
+
+            ByteBuffer body = fetcher.fetch(slow.uri("/seg1.ts")).get(5, TimeUnit.SECONDS);
+
+            assertArrayEquals(SEGMENT, bytes(body));
+            assertEquals(1, slow.getRequestCount());
+            assertEquals(1, failing.getRequestCount());
+        }
+    }
+
+    @Test
+    void bothMirrorsFailingFailsWithLastIOException() throws Exception {
+        try (StandInServer first = StandInServer.failing(500, 20);
+             StandInServer second = StandInServer.failing(502, 60)) {
+            HedgingSegmentFetcher fetcher = hedging(first, second);
+
+            ExecutionException thrown = assertThrows(ExecutionException.class,
+                    () -> fetcher.fetch(first.uri("/seg1.ts")).get(5, TimeUnit.SECONDS));
+
+            IOException error = assertInstanceOf(IOException.class, thrown.getCause());
+            assertEquals(1, error.getSuppressed().length);
+            assertInstanceOf(IOException.class, error.getSuppressed()[0]);
+            assertEquals(1, fetcher.getFailovers());
+        }
+    }
+
+    @Test
+    void lastFailureRacingTheHedgeTimerStillCompletes() throws Exception {
+        // The fail-over attempt ends right around the hedge delay, when the timer
+        // tries to launch a hedge with no candidate left
+        for (long delay = DEFAULT_HEDGE_DELAY_MILLIS - 10; delay <= DEFAULT_HEDGE_DELAY_MILLIS + 10; delay += 5) {
+            try (StandInServer first = StandInServer.failing(500, 0);
+                 StandInServer second = StandInServer.failing(500, delay)) {
+                HedgingSegmentFetcher fetcher = hedging(first, second);
+                CompletableFuture<ByteBuffer> result = fetcher.fetch(first.uri("/seg1.ts"));
+
+                ExecutionException thrown = assertThrows(ExecutionException.class,
+                        () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IOException.class, thrown.getCause());
+            }
+        }
+    }
+
+    @Test
+    void slowMirrorIsHedged() throws Exception {
+        try (StandInServer first = StandInServer.serving(SEGMENT, 1_000);
+             StandInServer second = StandInServer.serving(SEGMENT, 1_000)) {
+            HedgingSegmentFetcher fetcher = hedging(first, second);
+            CompletableFuture<ByteBuffer> result = fetcher.fetch(first.uri("/seg1.ts"));
+
+            assertArrayEquals(SEGMENT, bytes(result.get(5, TimeUnit.SECONDS)));
+            assertEquals(1, fetcher.getHedgesSent());
+            assertEquals(1, first.getRequestCount());
+            assertEquals(1, second.getRequestCount());
+        }
+    }
+
+    @Test
+    void cancellingTheRequestStopsTheHedgeTimer() throws Exception {
+        try (StandInServer first = StandInServer.serving(SEGMENT, 1_000);
+             StandInServer second = StandInServer.serving(SEGMENT, 1_000)) {
+            HedgingSegmentFetcher fetcher = hedging(first, second);
+            CompletableFuture<ByteBuffer> result = fetcher.fetch(first.uri("/seg1.ts"));
+
+            StandInServer.pause(50);
+            assertTrue(result.cancel(true));
+            StandInServer.pause(DEFAULT_HEDGE_DELAY_MILLIS + 200);
+
+            assertEquals(0, fetcher.getHedgesSent());
+            assertEquals(0, second.getRequestCount());
+        }
+    }
+
+    @Test
+    void originsWithoutMirrorsPassThrough() throws Exception {
+        try (StandInServer origin = StandInServer.serving(SEGMENT, 0)) {
+            HedgingSegmentFetcher fetcher = new HedgingSegmentFetcher(new HttpSegmentFetcher());
+            URI segment = origin.uri("/seg1.ts");
+
+            assertArrayEquals(SEGMENT, bytes(fetcher.fetch(segment).get(5, TimeUnit.SECONDS)));
+            assertEquals(0, fetcher.getHedgesSent());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.modularmedia.sources.hls;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class SegmentDecryptorTest {
+    // NIST SP 800-38A, F.2.1/F.2.2 CBC-AES128
+    private static final byte[] KEY = hex("2b7e151628aed2a6abf7158809cf4f3c");
+    private static final byte[] IV = hex("000102030405060708090a0b0c0d0e0f");
+    private static final byte[] PLAINTEXT = hex("6bc1bee22e409f96e93d7e117393172a"
+            + "ae2d8a571e03ac9c9eb76fac45af8e51"
+            + "30c81c46a35ce411e5fbc1191a0a52ef"
+            + "f69f2445df4f9b17ad2b417be66c3710");
+    private static final byte[] CIPHERTEXT = hex("7649abac8119b246cee98e9b12e9197d"
+            + "5086cb9b507219ee95db113a917678b2"
+            + "73bed6b8e3c1743b7116e69e22229516"
+            + "3ff1caa1681fac09120eca307586e1a7");
+    private static final URI KEY_URI = URI.create("https://keys.example/k1");
+
+    private static byte[] hex(String digits) {
+        return HexFormat.of().parseHex(digits);
+    }
+
+    /** HLS segments carry PKCS#7 padding, so a whole-block plaintext gets one extra block */
+    private static byte[] encryptPadded(byte[] plaintext, byte[] iv) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(iv));
+        return cipher.doFinal(plaintext);
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    private static byte[] remaining(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void decryptsKnownVectorInPlace() throws Exception {
+        byte[] segmentBytes = encryptPadded(PLAINTEXT, IV);
+        assertArrayEquals(CIPHERTEXT, Arrays.copyOf(segmentBytes, CIPHERTEXT.length));
+        HlsSegment segment = new HlsSegment(URI.create("https://cdn.example/s0.ts"), 0, 6.0,
+                new HlsKey(HlsKey.AES_128, KEY_URI, IV, null));
+        ByteBuffer data = direct(segmentBytes);
+
+        ByteBuffer plain = SegmentDecryptor.decrypt(segment, KEY, data);
+
+        assertSame(data, plain);
+        assertEquals(PLAINTEXT.length, plain.remaining());
+        assertArrayEquals(PLAINTEXT, remaining(plain));
+    }
+
+    @Test
+    void derivesIvFromMediaSequence() throws Exception {
+        long sequence = 0x0102030405L;
+        byte[] iv = hex("00000000000000000000000102030405");
+        HlsSegment segment = new HlsSegment(URI.create("https://cdn.example/s.ts"), sequence, 6.0,
+                new HlsKey(HlsKey.AES_128, KEY_URI, null, null));
+        ByteBuffer data = direct(encryptPadded(PLAINTEXT, iv));
+
+        assertArrayEquals(PLAINTEXT, remaining(SegmentDecryptor.decrypt(segment, KEY, data)));
+    }
+
+    @Test
+    void decryptsFromTheBufferPosition() throws Exception {
+        byte[] ciphertext = encryptPadded(PLAINTEXT, IV);
+        ByteBuffer data = ByteBuffer.allocateDirect(ciphertext.length + 7);
+        data.position(7);
+        data.put(ciphertext).position(7);
+        HlsSegment segment = new HlsSegment(URI.create("https://cdn.example/s0.ts"), 0, 6.0,
+                new HlsKey(HlsKey.AES_128, KEY_URI, IV, null));
+
+        ByteBuffer plain = SegmentDecryptor.decrypt(segment, KEY, data);
+
+        assertEquals(7, plain.position());
+        assertArrayEquals(PLAINTEXT, remaining(plain));
+    }
+
+    @Test
+    void wrongKeyIsReported() throws Exception {
+        HlsSegment segment = new HlsSegment(URI.create("https://cdn.example/s0.ts"), 0, 6.0,
+                new HlsKey(HlsKey.AES_128, KEY_URI, IV, null));
+        ByteBuffer data = direct(encryptPadded(PLAINTEXT, IV));
+        byte[] wrongKey = KEY.clone();
+        wrongKey[0] ^= 1;
+
+        // A wrong key leaves garbage padding, which fails the final block
+        assertThrows(IllegalStateException.class, () -> SegmentDecryptor.decrypt(segment, wrongKey, data));
+    }
+}
@@ -0,0 +1,55 @@
+package com.modularmedia.sources.mp4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.modularmedia.sources.LocalFileAdapter;
+
+class Mp4FileTest {
+        @TempDir
+    Path dir;
+
+    private Path write(String name, boolean withTrack, int... syncSamples) throws IOException {
+        return Mp4Fixture.write(dir.resolve(name), withTrack, false, syncSamples);
+    }
+
+    @Test
+    void wellFormedFileSeeksToTheLastKeyframe() throws IOException {
+        Path path = write("ok.mp4", true, 1, 2);
+
+        Mp4File file = Mp4File.open(path);
+
+        assertEquals(2, file.getPrimaryTrack().getSampleCount());
+        // ftyp is 20 bytes and the mdat header 8, so the second sample starts at 28 + Mp4Fixture.SAMPLE_SIZE
+        assertEquals(28 + Mp4Fixture.SAMPLE_SIZE, new LocalFileAdapter(path.toString()).seek(1.5));
+    }
+
+    @Test
+    void syncSamplePastTheSampleCountIsAnIoError() throws IOException {
+        Path path = write("stss.mp4", true, 1, 3);
+
+        IOException thrown = assertThrows(IOException.class, () -> Mp4File.open(path));
+
+        assertTrue(thrown.getMessage().contains("stss"), thrown.getMessage());
+    }
+
+    @Test
+    void fileWithoutTracksIsAnIoError() throws IOException {
+        Path path = write("empty.mp4", false);
+
+        assertThrows(IOException.class, () -> Mp4File.open(path));
+    }
+
+    @Test
+    void malformedIndexSeeksAsUnindexed() throws IOException {
+        assertEquals(-1, new LocalFileAdapter(write("stss.mp4", true, 1, 3).toString()).seek(1.5));
+        assertEquals(-1, new LocalFileAdapter(write("empty.mp4", false).toString()).seek(1.5));
+    }
+}
@@ -0,0 +1,68 @@
+package com.modularmedia.sources.mp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes minimal progressive MP4 files: one video track of two 1-second samples
+ * of {@link #SAMPLE_SIZE} bytes each, right after a 20-byte {@code ftyp} and the
+ * {@code mdat} header
+ */
+final class Mp4Fixture {
+    static final int SAMPLE_SIZE = 16;
+    /** Media time the edit list starts the track at */
+    static final int EDIT_MEDIA_TIME = 500;
+
+    private Mp4Fixture() {
+    }
+
+    /**
+     * @param withTrack false leaves {@code moov} without a {@code trak}
+     * @param withEditList whether the track gets an {@code edts} starting it at {@link #EDIT_MEDIA_TIME}
+     * @param syncSamples the 1-based entries of {@code stss}
+     */
+    static Path write(Path path, boolean withTrack, boolean withEditList, int... syncSamples) throws IOException {
+        BoxWriter ftyp = new BoxWriter(32).begin("ftyp").putInt(fourcc("isom")).putInt(0).putInt(fourcc("isom")).end();
+        int firstSample = ftyp.position() + 8;
+        BoxWriter mdat = new BoxWriter(64).begin("mdat").put(ByteBuffer.allocate(2 * SAMPLE_SIZE)).end();
+
+        BoxWriter moov = new BoxWriter(1024).begin("moov");
+        moov.beginFull("mvhd", 0, 0).putInt(0).putInt(0).putInt(1000).putInt(2000).end();
+        if (withTrack) {
+            moov.begin("trak");
+            moov.beginFull("tkhd", 0, 3).putInt(0).putInt(0).putInt(1).putInt(0).putInt(2000).end();
+            if (withEditList) {
+                moov.begin("edts").beginFull("elst", 0, 0).putInt(1)
+                        .putInt(1500).putInt(EDIT_MEDIA_TIME).putInt(0x00010000).end().end();
+            }
+            moov.begin("mdia");
+            moov.beginFull("mdhd", 0, 0).putInt(0).putInt(0).putInt(1000).putInt(2000).end();
+            moov.beginFull("hdlr", 0, 0).putInt(0).putInt(fourcc("vide")).putInt(0).putInt(0).putInt(0).end();
+            moov.begin("minf").begin("stbl");
+            moov.beginFull("stsd", 0, 0).putInt(0).end();
+            moov.beginFull("stts", 0, 0).putInt(1).putInt(2).putInt(1000).end();
+            moov.beginFull("stsc", 0, 0).putInt(1).putInt(1).putInt(2).putInt(1).end();
+            moov.beginFull("stsz", 0, 0).putInt(SAMPLE_SIZE).putInt(2).end();
+            moov.beginFull("stco", 0, 0).putInt(1).putInt(firstSample).end();
+            moov.beginFull("stss", 0, 0).putInt(syncSamples.length);
+            for (int sample : syncSamples) {
+                moov.putInt(sample);
+            }
+            moov.end();
+            moov.end().end().end().end(); // stbl, minf, mdia, trak
+        }
+        moov.end();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(new ByteBuffer[] {ftyp.toBuffer(), mdat.toBuffer(), moov.toBuffer()});
+        }
+        return path;
+    }
+
+    private static int fourcc(String type) {
+        return Boxes.fourcc(type);
+    }
+}
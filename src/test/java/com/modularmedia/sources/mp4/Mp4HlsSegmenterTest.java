@@ -0,0 +1,46 @@
+package com.modularmedia.sources.mp4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.modularmedia.memory.MemoryBudget;
+
+class Mp4HlsSegmenterTest {
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer initTrak(Mp4HlsSegmenter segmenter) {
+        ByteBuffer init = segmenter.getInitSegment();
+        return Boxes.child(Boxes.child(init, "moov"), "trak");
+    }
+
+    @Test
+    void initSegmentCarriesTheSourceEditList() throws IOException {
+        Path path = Mp4Fixture.write(dir.resolve("edit.mp4"), true, true, 1, 2);
+        SegmentCache cache = new SegmentCache(1 << 20, new MemoryBudget(1 << 20, 1 << 20));
+        try (Mp4HlsSegmenter segmenter = new Mp4HlsSegmenter(path, 1.0, cache)) {
+            ByteBuffer elst = Boxes.path(initTrak(segmenter), "edts", "elst");
+
+            assertNotNull(elst);
+            assertEquals(1, elst.getInt(4));
+            assertEquals(Mp4Fixture.EDIT_MEDIA_TIME, elst.getInt(12));
+        }
+    }
+
+    @Test
+    void initSegmentWithoutSourceEditListHasNone() throws IOException {
+        Path path = Mp4Fixture.write(dir.resolve("plain.mp4"), true, false, 1, 2);
+        SegmentCache cache = new SegmentCache(1 << 20, new MemoryBudget(1 << 20, 1 << 20));
+        try (Mp4HlsSegmenter segmenter = new Mp4HlsSegmenter(path, 1.0, cache)) {
+            assertNull(Boxes.child(initTrak(segmenter), "edts"));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.modularmedia.sources.mp4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.modularmedia.memory.MemoryBudget;
+
+class SegmentCacheTest {
+    @Test
+    void closeReleasesTheReservation() throws IOException {
+        MemoryBudget budget = new MemoryBudget(1 << 20, 1 << 20);
+        SegmentCache cache = new SegmentCache(1 << 16, budget, "test.segments");
+        cache.get("a", () -> ByteBuffer.allocate(1000));
+        cache.get("b", () -> ByteBuffer.allocateDirect(500));
+        assertEquals(1500, cache.getUsedBytes());
+        assertEquals(1000, budget.getHeapUsedBytes());
+        assertEquals(500, budget.getDirectUsedBytes());
+
+        cache.close();
+
+        assertEquals(0, cache.getUsedBytes());
+        assertEquals(0, budget.getHeapUsedBytes());
+        assertEquals(0, budget.getDirectUsedBytes());
+    }
+
+    @Test
+    void closedCacheServesUncached() throws IOException {
+        MemoryBudget budget = new MemoryBudget(1 << 20, 1 << 20);
+        SegmentCache cache = new SegmentCache(1 << 16, budget, "test.segments");
+        AtomicInteger loads = new AtomicInteger();
+        cache.close();
+
+        cache.get("a", () -> ByteBuffer.allocate(loads.incrementAndGet() * 100));
+        cache.get("a", () -> ByteBuffer.allocate(loads.incrementAndGet() * 100));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getUsedBytes());
+        assertEquals(0, budget.getHeapUsedBytes());
+    }
+}
@@ -0,0 +1,103 @@
+package com.modularmedia.testing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for an origin, API or peer in tests.
+ *
+ * Listens on an ephemeral loopback port and counts the requests it receives.
+ * The factory methods cover the common origins: one that serves a fixed body
+ * and one that fails, each after a delay.
+ */
+public final class StandInServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private StandInServer(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static StandInServer start(HttpHandler handler) throws IOException {
+        return new StandInServer(handler);
+    }
+
+    /**
+     * Origin answering every request with {@code body} after {@code delayMillis}
+     */
+    public static StandInServer serving(byte[] body, long delayMillis) throws IOException {
+        return start(exchange -> {
+            pause(delayMillis);
+            respond(exchange, 200, body);
+        });
+    }
+
+    /**
+     * Origin answering every request with {@code status} and no body after {@code delayMillis}
+     */
+    public static StandInServer failing(int status, long delayMillis) throws IOException {
+        return start(exchange -> {
+            pause(delayMillis);
+            respond(exchange, status, new byte[0]);
+        });
+    }
+
+    public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * {@code http://127.0.0.1:port}
+     */
+    public URI origin() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    public URI uri(String path) {
+        return origin().resolve(path);
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}